@@ -18,6 +18,10 @@ package com.google.zxing;
 
 import com.google.zxing.common.BitArray;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.ImageTriage;
+import com.google.zxing.common.RegionOfInterestFinder;
+
+import java.util.List;
 
 /**
  * This class is the core bitmap class used by ZXing to represent 1 bit data. Reader objects
@@ -107,6 +111,61 @@ public final class BinaryBitmap {
     return new BinaryBitmap(binarizer.createBinarizer(newSource));
   }
 
+  /**
+   * Like {@link #crop(int, int, int, int)}, but the new bitmap's 1 bit data is the same rectangle of
+   * this bitmap's black matrix, rather than the cropped luminance data binarized on its own. However
+   * often the image is cropped, and the crops cropped again, it is only binarized once, and every
+   * part agrees with the whole at its edges. Rows also come from the black matrix, rather than from
+   * {@link Binarizer#getBlackRow(int, BitArray)}. Only callable if isCropSupported() is true, since
+   * the luminance data is still cropped, for whatever is done with it later such as rotation.
+   *
+   * @param left The left coordinate, 0 <= left < getWidth().
+   * @param top The top coordinate, 0 <= top <= getHeight().
+   * @param width The width of the rectangle to crop.
+   * @param height The height of the rectangle to crop.
+   * @return A cropped version of this object.
+   */
+  public BinaryBitmap cropBlackMatrix(int left, int top, int width, int height) {
+    LuminanceSource newSource = binarizer.getLuminanceSource().crop(left, top, width, height);
+    return new BinaryBitmap(new CroppedBlackMatrixBinarizer(newSource, this, binarizer, left, top));
+  }
+
+  /**
+   * Returns a new object with image data shrunk by an integer factor in each dimension. The
+   * original luminance data is not copied; see {@link DownscaledLuminanceSource}.
+   *
+   * @param factor The factor by which to divide the width and height.
+   * @return A scaled down version of this object.
+   */
+  public BinaryBitmap scaleDown(int factor) {
+    LuminanceSource newSource = new DownscaledLuminanceSource(binarizer.getLuminanceSource(), factor);
+    return new BinaryBitmap(binarizer.createBinarizer(newSource));
+  }
+
+  /**
+   * Proposes regions of the image likely to contain a barcode, working from the luminance data
+   * alone. Unlike the other methods here, this does not binarize the image.
+   *
+   * @return candidate {left,top,width,height} rectangles suitable for {@link #crop(int, int, int, int)},
+   *  most promising first, or an empty list if the whole image should be examined instead
+   * @see RegionOfInterestFinder
+   */
+  public List<int[]> findRegionsOfInterest() {
+    return RegionOfInterestFinder.findRegions(binarizer.getLuminanceSource());
+  }
+
+  /**
+   * Takes a cheap first look at the image, working from the luminance data alone, to tell whether
+   * it could hold a barcode at all and of which kinds. Like {@link #findRegionsOfInterest()}, this
+   * does not binarize the image.
+   *
+   * @return what the image could hold
+   * @see ImageTriage
+   */
+  public ImageTriage triage() {
+    return ImageTriage.examine(binarizer.getLuminanceSource());
+  }
+
   /**
    * @return Whether this bitmap supports counter-clockwise rotation.
    */
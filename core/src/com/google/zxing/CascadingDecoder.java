@@ -0,0 +1,265 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * <p>Decodes an image with each of an ordered list of {@link Binarizer}s in turn, until one of
+ * them yields a result. The luminance data is read from the source once and shared by all
+ * attempts, and sequential attempts share one {@link MultiFormatReader}.</p>
+ *
+ * <p>Given an {@link ExecutorService}, all attempts run concurrently instead, each with its own
+ * reader. The result is still that of the first binarizer in the list which succeeds, so results
+ * do not depend on timing.</p>
+ *
+ * <p>The decoder counts how often each binarizer was the one to succeed, so that the order can
+ * be tuned to the images seen in practice. Like {@link MultiFormatReader}, instances are not
+ * safe for concurrent use, though the counts may be read from any thread.</p>
+ */
+public final class CascadingDecoder {
+
+  private final Binarizer[] binarizers;
+  private final Map<DecodeHintType,?> hints;
+  private final ExecutorService executor;
+  private final MultiFormatReader reader;
+  private final AtomicIntegerArray successCounts;
+  private final AtomicInteger failureCount;
+  private Binarizer lastSuccessfulBinarizer;
+
+  /**
+   * @param binarizers binarizers to try, in order. Only their
+   *  {@link Binarizer#createBinarizer(LuminanceSource)} is used, so they may have been created
+   *  for any source.
+   * @param hints hints passed to the readers on every attempt
+   */
+  public CascadingDecoder(List<? extends Binarizer> binarizers, Map<DecodeHintType,?> hints) {
+    this(binarizers, hints, null);
+  }
+
+  /**
+   * @param binarizers binarizers to try, in order. Only their
+   *  {@link Binarizer#createBinarizer(LuminanceSource)} is used, so they may have been created
+   *  for any source.
+   * @param hints hints passed to the readers on every attempt
+   * @param executor runs all attempts concurrently, or null to run them one after the other
+   */
+  public CascadingDecoder(List<? extends Binarizer> binarizers,
+                          Map<DecodeHintType,?> hints,
+                          ExecutorService executor) {
+    if (binarizers.isEmpty()) {
+      throw new IllegalArgumentException("At least one binarizer is required");
+    }
+    this.binarizers = binarizers.toArray(new Binarizer[binarizers.size()]);
+    this.hints = hints;
+    this.executor = executor;
+    reader = new MultiFormatReader();
+    reader.setHints(hints);
+    successCounts = new AtomicIntegerArray(this.binarizers.length);
+    failureCount = new AtomicInteger();
+  }
+
+  /**
+   * @param source image to decode
+   * @return result from the first binarizer, in order, with which decoding succeeds
+   * @throws NotFoundException if decoding fails with every binarizer
+   */
+  public Result decode(LuminanceSource source) throws NotFoundException {
+    LuminanceSource snapshot = new SnapshotLuminanceSource(source);
+    Result result;
+    int index;
+    if (executor == null) {
+      result = null;
+      for (index = 0; index < binarizers.length; index++) {
+        try {
+          result = reader.decodeWithState(new BinaryBitmap(binarizers[index].createBinarizer(snapshot)));
+          break;
+        } catch (NotFoundException nfe) {
+          // continue
+        } finally {
+          reader.reset();
+        }
+      }
+    } else {
+      List<Future<Result>> futures = new ArrayList<Future<Result>>(binarizers.length);
+      for (Binarizer binarizer : binarizers) {
+        futures.add(executor.submit(new DecodeTask(binarizer.createBinarizer(snapshot), hints)));
+      }
+      result = null;
+      for (index = 0; index < binarizers.length; index++) {
+        result = getResult(futures.get(index));
+        if (result != null) {
+          break;
+        }
+      }
+      for (Future<Result> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    if (result == null) {
+      lastSuccessfulBinarizer = null;
+      failureCount.incrementAndGet();
+      throw NotFoundException.getNotFoundInstance();
+    }
+    lastSuccessfulBinarizer = binarizers[index];
+    successCounts.incrementAndGet(index);
+    return result;
+  }
+
+  private static Result getResult(Future<Result> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      // Only NotFoundException remains, which just means this binarizer did not work out
+      return null;
+    }
+  }
+
+  /**
+   * @return binarizer, as passed to the constructor, with which the last call to
+   *  {@link #decode(LuminanceSource)} succeeded, or null if it failed
+   */
+  public Binarizer getLastSuccessfulBinarizer() {
+    return lastSuccessfulBinarizer;
+  }
+
+  /**
+   * @return for each binarizer, in order, the number of images which were decoded with it
+   */
+  public int[] getSuccessCounts() {
+    int[] counts = new int[successCounts.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = successCounts.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * @return number of images which could not be decoded with any binarizer
+   */
+  public int getFailureCount() {
+    return failureCount.get();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < binarizers.length; i++) {
+      result.append(binarizers[i].getClass().getSimpleName()).append('=').append(successCounts.get(i)).append(' ');
+    }
+    result.append("failed=").append(failureCount.get());
+    return result.toString();
+  }
+
+  private static final class DecodeTask implements Callable<Result> {
+
+    private final Binarizer binarizer;
+    private final Map<DecodeHintType,?> hints;
+
+    DecodeTask(Binarizer binarizer, Map<DecodeHintType,?> hints) {
+      this.binarizer = binarizer;
+      this.hints = hints;
+    }
+
+    @Override
+    public Result call() throws NotFoundException {
+      return new MultiFormatReader().decode(new BinaryBitmap(binarizer), hints);
+    }
+
+  }
+
+  /**
+   * Serves rows and the whole matrix from one copy of the original source's luminance data,
+   * so each binarizer in the cascade does not convert it all over again. Cropping and rotating
+   * create new images, so those are left to the original source.
+   */
+  private static final class SnapshotLuminanceSource extends LuminanceSource {
+
+    private final LuminanceSource delegate;
+    private final byte[] matrix;
+
+    SnapshotLuminanceSource(LuminanceSource delegate) {
+      super(delegate.getWidth(), delegate.getHeight());
+      this.delegate = delegate;
+      this.matrix = delegate.getMatrix();
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+      if (y < 0 || y >= getHeight()) {
+        throw new IllegalArgumentException("Requested row is outside the image: " + y);
+      }
+      int width = getWidth();
+      if (row == null || row.length < width) {
+        row = new byte[width];
+      }
+      System.arraycopy(matrix, y * width, row, 0, width);
+      return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+      return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+      return delegate.isCropSupported();
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+      return delegate.crop(left, top, width, height);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+      return delegate.isRotateSupported();
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+      return delegate.rotateCounterClockwise();
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise45() {
+      return delegate.rotateCounterClockwise45();
+    }
+
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * Takes its 1 bit data from a rectangle of another bitmap's black matrix, rather than binarizing
+ * its luminance data. The parent's matrix is computed, and this rectangle copied out of it, the
+ * first time any 1 bit data is asked for.
+ *
+ * @see BinaryBitmap#cropBlackMatrix(int, int, int, int)
+ */
+final class CroppedBlackMatrixBinarizer extends Binarizer {
+
+  private final BinaryBitmap parent;
+  private final Binarizer parentBinarizer;
+  private final int left;
+  private final int top;
+  private BitMatrix matrix;
+
+  CroppedBlackMatrixBinarizer(LuminanceSource source,
+                              BinaryBitmap parent,
+                              Binarizer parentBinarizer,
+                              int left,
+                              int top) {
+    super(source);
+    this.parent = parent;
+    this.parentBinarizer = parentBinarizer;
+    this.left = left;
+    this.top = top;
+  }
+
+  @Override
+  public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+    BitMatrix matrix = getBlackMatrix();
+    if (row != null && row.getSize() >= getWidth()) {
+      row.clear();
+    }
+    return matrix.getRow(y, row);
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    if (matrix == null) {
+      matrix = parent.getBlackMatrix().crop(left, top, getWidth(), getHeight());
+    }
+    return matrix;
+  }
+
+  /**
+   * Binarizing new luminance data, such as the rotated image, is left to the kind of binarizer
+   * the parent would have used.
+   */
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return parentBinarizer.createBinarizer(source);
+  }
+
+}
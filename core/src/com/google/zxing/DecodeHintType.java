@@ -16,6 +16,8 @@
 
 package com.google.zxing;
 
+import com.google.zxing.common.CharacterSetGuesser;
+
 import java.util.List;
 
 /**
@@ -57,6 +59,12 @@ public enum DecodeHintType {
    */
   CHARACTER_SET(String.class),
 
+  /**
+   * Guesses the character encoding of bytes which do not say what it is, where {@link #CHARACTER_SET}
+   * is not given. Maps to a {@link CharacterSetGuesser}.
+   */
+  CHARACTER_SET_GUESSER(CharacterSetGuesser.class),
+
   /**
    * Allowed lengths of encoded data -- reject anything else. Maps to an {@code int[]}.
    */
@@ -88,6 +96,46 @@ public enum DecodeHintType {
    */
   NEED_RESULT_POINT_CALLBACK(ResultPointCallback.class),
 
+  /**
+   * Before examining the whole image, look for regions likely to contain a barcode using a cheap
+   * pass over the luminance data, and binarize and decode only those. This pays off for large
+   * images where the barcode covers a small part of the frame. Requires a {@link LuminanceSource}
+   * which supports cropping. Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+   */
+  SCAN_REGIONS_OF_INTEREST(Void.class),
+
+  /**
+   * Image is large relative to the barcode's modules, so try a scaled down copy first. If that
+   * succeeds, the barcode is decoded again at full resolution only around where it was found.
+   * Result points are always reported in the coordinates of the original image.
+   * Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+   */
+  MULTI_SCALE(Void.class),
+
+  /**
+   * The most combinations of values for ambiguous PDF417 codewords to try error correction with, which
+   * bounds the time spent on badly damaged symbols. Maps to an {@link Integer}; the default is 100.
+   */
+  PDF417_MAX_ERROR_CORRECTION_ATTEMPTS(Integer.class),
+
+  /**
+   * Where a reader decodes parts of the image separately, as
+   * {@link com.google.zxing.multi.GenericMultipleBarcodeReader} and
+   * {@link com.google.zxing.multi.ByQuadrantReader} do, take each part's 1 bit data from the black
+   * matrix of the whole, so that the image is binarized only once. See
+   * {@link BinaryBitmap#cropBlackMatrix(int, int, int, int)}.
+   * Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+   */
+  CROP_BLACK_MATRIX(Void.class),
+
+  /**
+   * Take a cheap first look at the image before any reader does, and give up at once if it can
+   * hold no barcode, as when it is blank or very blurry. Readers for the kinds of barcode which
+   * the image does not seem to hold, 1D or 2D, are skipped. See {@link BinaryBitmap#triage()}.
+   * Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+   */
+  TRIAGE(Void.class),
+
   // End of enumeration values.
   ;
 
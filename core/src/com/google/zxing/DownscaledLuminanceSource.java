@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A wrapper implementation of {@link LuminanceSource} which shrinks the image by an integer factor
+ * in each dimension. Each pixel is the average of a factor x factor block of the original pixels
+ * (a box filter), computed in integer arithmetic. Pixels left over at the right and bottom edges
+ * when the dimensions are not a multiple of the factor are dropped.
+ *
+ * A pixel (x,y) in this image is the average of the block whose center is at
+ * (x * factor + (factor - 1) / 2, y * factor + (factor - 1) / 2) in the original, computed in
+ * floating point, and this is where a point found in this image should be mapped back to.
+ *
+ * Like {@link com.google.zxing.common.GlobalHistogramBinarizer}, this reuses its scratch space from
+ * call to call, so an instance should not be used from several threads at once.
+ */
+public final class DownscaledLuminanceSource extends LuminanceSource {
+
+  private final LuminanceSource delegate;
+  private final int factor;
+  private int[] sums;
+
+  public DownscaledLuminanceSource(LuminanceSource delegate, int factor) {
+    super(delegate.getWidth() / factor, delegate.getHeight() / factor);
+    if (factor < 1) {
+      throw new IllegalArgumentException("Scale factor must be at least 1");
+    }
+    if (getWidth() < 1 || getHeight() < 1) {
+      throw new IllegalArgumentException("Image is too small to scale down by " + factor);
+    }
+    this.delegate = delegate;
+    this.factor = factor;
+  }
+
+  /**
+   * @return the factor by which each dimension of the original is divided
+   */
+  public int getFactor() {
+    return factor;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    int[] sums = initSums();
+    byte[] sourceRow = null;
+    for (int yy = y * factor; yy < (y + 1) * factor; yy++) {
+      sourceRow = delegate.getRow(yy, sourceRow);
+      accumulate(sourceRow, 0, sums);
+    }
+    average(sums, row, 0);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    int sourceWidth = delegate.getWidth();
+    byte[] sourceMatrix = delegate.getMatrix();
+    byte[] matrix = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      int[] sums = initSums();
+      for (int yy = y * factor; yy < (y + 1) * factor; yy++) {
+        accumulate(sourceMatrix, yy * sourceWidth, sums);
+      }
+      average(sums, matrix, y * width);
+    }
+    return matrix;
+  }
+
+  /**
+   * @return scratch array of one sum per pixel in a row, all zero
+   */
+  private int[] initSums() {
+    int width = getWidth();
+    if (sums == null) {
+      sums = new int[width];
+    } else {
+      for (int x = 0; x < width; x++) {
+        sums[x] = 0;
+      }
+    }
+    return sums;
+  }
+
+  /**
+   * Adds each block of factor luminances in one source row into the corresponding sum.
+   */
+  private void accumulate(byte[] luminances, int offset, int[] sums) {
+    int factor = this.factor;
+    for (int x = 0; x < sums.length; x++) {
+      int sum = 0;
+      for (int i = offset + x * factor, end = i + factor; i < end; i++) {
+        sum += luminances[i] & 0xFF;
+      }
+      sums[x] += sum;
+    }
+  }
+
+  private void average(int[] sums, byte[] out, int offset) {
+    int area = factor * factor;
+    int half = area >> 1;
+    for (int x = 0; x < sums.length; x++) {
+      out[offset + x] = (byte) ((sums[x] + half) / area);
+    }
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return delegate.isCropSupported();
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new DownscaledLuminanceSource(
+        delegate.crop(left * factor, top * factor, width * factor, height * factor), factor);
+  }
+
+  @Override
+  public boolean isRotateSupported() {
+    return delegate.isRotateSupported();
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return new DownscaledLuminanceSource(delegate.rotateCounterClockwise(), factor);
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return new DownscaledLuminanceSource(delegate.rotateCounterClockwise45(), factor);
+  }
+
+}
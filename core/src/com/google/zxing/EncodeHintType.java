@@ -42,6 +42,13 @@ public enum EncodeHintType {
    */
   DATA_MATRIX_SHAPE,
 
+  /**
+   * Specifies whether to use the minimal encoder for Data Matrix, which finds the shortest
+   * codeword sequence instead of using the look-ahead heuristic of the specification
+   * (type {@link Boolean}).
+   */
+  DATA_MATRIX_COMPACT,
+
   /**
    * Specifies a minimum barcode size (type {@link Dimension}). Only applicable to Data Matrix now.
    */
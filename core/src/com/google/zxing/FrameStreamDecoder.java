@@ -0,0 +1,323 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Decodes a stream of video frames from one camera, making use of the fact that consecutive
+ * frames tend to show the same barcode in about the same place. Frames are otherwise decoded as a
+ * continuous scan client would, with a {@link HybridBinarizer} and
+ * {@link MultiFormatReader#decodeWithState(BinaryBitmap)}.</p>
+ *
+ * <p>Once a barcode is found, the decoder remembers where it was, its format and its module size.
+ * In the following frames it first crops the frame to the area around that location, moved along
+ * as far as the barcode moved between the last two frames, and looks there for that format alone.
+ * The whole frame is decoded, with all the requested formats, only when nothing has been found
+ * yet, and otherwise only once every so many frames, so that a barcode which moved out of the area
+ * or a new barcode elsewhere in the frame is found before long.</p>
+ *
+ * <p>Like {@link MultiFormatReader}, instances are not safe for concurrent use, though the counts
+ * may be read from any thread.</p>
+ */
+public final class FrameStreamDecoder {
+
+  private static final int DEFAULT_FULL_FRAME_INTERVAL = 10;
+  // Result points may be finder pattern centers or guard patterns rather than the symbol's edges,
+  // so the crop extends this many modules past them, which also covers the quiet zone
+  private static final int MARGIN_MODULES = 12;
+  // Beyond the predicted motion, the barcode may move this fraction of its size between frames
+  private static final int MOTION_DIVISOR = 4;
+  // Short runs in a row through the barcode which are averaged to estimate its module size
+  private static final int MODULE_RUNS_DIVISOR = 4;
+  private static final int MIN_MODULE_RUNS = 8;
+
+  private final Map<DecodeHintType,?> hints;
+  private final int fullFrameInterval;
+  private final MultiFormatReader reader;
+  private final Map<BarcodeFormat,MultiFormatReader> formatReaders;
+  private final AtomicInteger trackedCount;
+  private final AtomicInteger fullFrameCount;
+  private final AtomicInteger failureCount;
+
+  private long frameNumber;
+  private int framesSinceFullFrame;
+  private BarcodeFormat trackedFormat;
+  // {left,top,right,bottom} of the last result's points in the frame, and the frame they were in
+  private float[] trackedBounds;
+  private long trackedFrameNumber;
+  private float moduleSize;
+  // How far the barcode moved between the last two frames in which it was found, if consecutive
+  private float motionX;
+  private float motionY;
+
+  /**
+   * @param hints hints passed to the readers on every attempt
+   */
+  public FrameStreamDecoder(Map<DecodeHintType,?> hints) {
+    this(hints, DEFAULT_FULL_FRAME_INTERVAL);
+  }
+
+  /**
+   * @param hints hints passed to the readers on every attempt
+   * @param fullFrameInterval while a barcode is being tracked, decode the whole frame only once
+   *  in this many frames; 1 decodes every whole frame, as if nothing were tracked
+   */
+  public FrameStreamDecoder(Map<DecodeHintType,?> hints, int fullFrameInterval) {
+    if (fullFrameInterval < 1) {
+      throw new IllegalArgumentException("Full frame interval must be positive: " + fullFrameInterval);
+    }
+    this.hints = hints;
+    this.fullFrameInterval = fullFrameInterval;
+    reader = new MultiFormatReader();
+    reader.setHints(hints);
+    formatReaders = new EnumMap<BarcodeFormat,MultiFormatReader>(BarcodeFormat.class);
+    trackedCount = new AtomicInteger();
+    fullFrameCount = new AtomicInteger();
+    failureCount = new AtomicInteger();
+  }
+
+  /**
+   * @param frame next frame of the stream
+   * @return barcode found in the frame, with result points in the coordinates of the whole frame
+   * @throws NotFoundException if no barcode was found; this does not mean the frame holds none if
+   *  only the area around the tracked barcode was examined
+   */
+  public Result decode(LuminanceSource frame) throws NotFoundException {
+    frameNumber++;
+    BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(frame));
+    if (trackedFormat != null && framesSinceFullFrame + 1 < fullFrameInterval && bitmap.isCropSupported()) {
+      framesSinceFullFrame++;
+      Result result = decodeTracked(bitmap);
+      if (result == null) {
+        failureCount.incrementAndGet();
+        throw NotFoundException.getNotFoundInstance();
+      }
+      trackedCount.incrementAndGet();
+      return result;
+    }
+
+    framesSinceFullFrame = 0;
+    fullFrameCount.incrementAndGet();
+    try {
+      return decode(bitmap, reader, 0, 0);
+    } catch (NotFoundException nfe) {
+      // The tracked barcode, if any, is gone from the whole frame
+      trackedFormat = null;
+      failureCount.incrementAndGet();
+      throw nfe;
+    }
+  }
+
+  /**
+   * @return result from the area around the tracked barcode, or null if it was not found there
+   */
+  private Result decodeTracked(BinaryBitmap bitmap) {
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    // The barcode keeps moving as it did, and the longer since it was seen, the further it may be
+    long frames = frameNumber - trackedFrameNumber;
+    float shiftX = motionX * frames;
+    float shiftY = motionY * frames;
+    float[] bounds = trackedBounds;
+    float margin = moduleSize * MARGIN_MODULES +
+        Math.max(bounds[2] - bounds[0], bounds[3] - bounds[1]) * frames / MOTION_DIVISOR;
+    int left = Math.max(0, (int) (bounds[0] + shiftX - margin));
+    int top = Math.max(0, (int) (bounds[1] + shiftY - margin));
+    int right = Math.min(width, (int) (bounds[2] + shiftX + margin) + 1);
+    int bottom = Math.min(height, (int) (bounds[3] + shiftY + margin) + 1);
+    if (right <= left || bottom <= top) {
+      return null;
+    }
+    try {
+      return decode(bitmap.crop(left, top, right - left, bottom - top), getFormatReader(trackedFormat), left, top);
+    } catch (NotFoundException nfe) {
+      return null;
+    }
+  }
+
+  /**
+   * @return reader which looks for the given format alone, with otherwise the same hints
+   */
+  private MultiFormatReader getFormatReader(BarcodeFormat format) {
+    MultiFormatReader formatReader = formatReaders.get(format);
+    if (formatReader == null) {
+      Map<DecodeHintType,Object> formatHints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+      if (hints != null) {
+        formatHints.putAll(hints);
+      }
+      formatHints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.of(format));
+      // The crop is already the region of interest, and small enough to decode at full scale
+      formatHints.remove(DecodeHintType.SCAN_REGIONS_OF_INTEREST);
+      formatHints.remove(DecodeHintType.MULTI_SCALE);
+      formatReader = new MultiFormatReader();
+      formatReader.setHints(formatHints);
+      formatReaders.put(format, formatReader);
+    }
+    return formatReader;
+  }
+
+  /**
+   * Decodes the bitmap, which is the part of the frame at the given offset, and tracks the result.
+   */
+  private Result decode(BinaryBitmap bitmap, MultiFormatReader reader, int left, int top)
+      throws NotFoundException {
+    Result result;
+    try {
+      result = reader.decodeWithState(bitmap);
+    } finally {
+      reader.reset();
+    }
+    track(bitmap, result, left, top);
+    return MultiFormatReader.transformResultPoints(result, 1, left, top);
+  }
+
+  private void track(BinaryBitmap bitmap, Result result, int left, int top) {
+    ResultPoint[] points = result.getResultPoints();
+    float minX = Float.MAX_VALUE;
+    float minY = Float.MAX_VALUE;
+    float maxX = -1.0f;
+    float maxY = -1.0f;
+    if (points != null) {
+      for (ResultPoint point : points) {
+        if (point != null) {
+          minX = Math.min(minX, point.getX());
+          minY = Math.min(minY, point.getY());
+          maxX = Math.max(maxX, point.getX());
+          maxY = Math.max(maxY, point.getY());
+        }
+      }
+    }
+    if (maxX < 0.0f) {
+      // Nothing to say where the barcode is, so there is nothing to track
+      trackedFormat = null;
+      return;
+    }
+
+    float[] bounds = {minX + left, minY + top, maxX + left, maxY + top};
+    if (trackedFormat == result.getBarcodeFormat() && trackedFrameNumber == frameNumber - 1) {
+      motionX = (bounds[0] + bounds[2] - trackedBounds[0] - trackedBounds[2]) / 2.0f;
+      motionY = (bounds[1] + bounds[3] - trackedBounds[1] - trackedBounds[3]) / 2.0f;
+    } else {
+      motionX = 0.0f;
+      motionY = 0.0f;
+    }
+    trackedFormat = result.getBarcodeFormat();
+    trackedBounds = bounds;
+    trackedFrameNumber = frameNumber;
+    moduleSize = estimateModuleSize(bitmap, (int) minX, (int) maxX, (int) ((minY + maxY) / 2.0f));
+  }
+
+  /**
+   * Estimates the size of one module from the shortest runs of black or white along the row
+   * through the middle of the barcode. At least narrow bars and single modules occur often in
+   * every format, so the shortest quarter of the runs is mostly those.
+   *
+   * @return module size in pixels, or 1 if the row does not have enough runs to tell
+   */
+  private static float estimateModuleSize(BinaryBitmap bitmap, int from, int to, int y) {
+    BitArray row;
+    try {
+      row = bitmap.getBlackRow(y, null);
+    } catch (NotFoundException nfe) {
+      return 1.0f;
+    }
+    from = Math.max(0, from);
+    to = Math.min(to, row.getSize());
+    if (from >= to) {
+      return 1.0f;
+    }
+    int[] runs = new int[Math.max(0, to - from)];
+    int count = 0;
+    // The partial runs at either end are not counted
+    int start = row.get(from) ? row.getNextUnset(from) : row.getNextSet(from);
+    while (start < to) {
+      int end = row.get(start) ? row.getNextUnset(start) : row.getNextSet(start);
+      if (end >= to) {
+        break;
+      }
+      runs[count++] = end - start;
+      start = end;
+    }
+    if (count < MIN_MODULE_RUNS) {
+      return 1.0f;
+    }
+    Arrays.sort(runs, 0, count);
+    int shortRuns = count / MODULE_RUNS_DIVISOR;
+    int total = 0;
+    for (int i = 0; i < shortRuns; i++) {
+      total += runs[i];
+    }
+    return (float) total / shortRuns;
+  }
+
+  /**
+   * Forgets the tracked barcode, as when the stream starts over from a different scene.
+   */
+  public void reset() {
+    trackedFormat = null;
+    framesSinceFullFrame = 0;
+  }
+
+  /**
+   * @return format of the barcode being tracked, or null if none is
+   */
+  public BarcodeFormat getTrackedFormat() {
+    return trackedFormat;
+  }
+
+  /**
+   * @return estimated module size, in pixels, of the barcode being tracked
+   */
+  public float getModuleSize() {
+    return trackedFormat == null ? 0.0f : moduleSize;
+  }
+
+  /**
+   * @return number of frames decoded by looking around the tracked barcode alone
+   */
+  public int getTrackedCount() {
+    return trackedCount.get();
+  }
+
+  /**
+   * @return number of whole frames examined, whether a barcode was found or not
+   */
+  public int getFullFrameCount() {
+    return fullFrameCount.get();
+  }
+
+  /**
+   * @return number of frames in which no barcode was found
+   */
+  public int getFailureCount() {
+    return failureCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return "tracked=" + trackedCount.get() + " fullFrame=" + fullFrameCount.get() + " failed=" + failureCount.get();
+  }
+
+}
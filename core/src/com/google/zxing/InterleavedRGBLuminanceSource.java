@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.RowBands;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This object extends LuminanceSource around an array of interleaved 24-bit RGB or BGR pixels,
+ * three bytes per pixel, as delivered by many frame grabbers, with the option to crop to a
+ * rectangle within the full data. Luminance is computed from the original bytes only as rows
+ * are requested, as 0.299R + 0.587G + 0.114B in fixed point, so there is no intermediate
+ * ARGB array as with {@link RGBLuminanceSource}.
+ *
+ * @see PlanarYUVLuminanceSource for NV21, NV12 and other formats with a planar Y channel
+ */
+public final class InterleavedRGBLuminanceSource extends LuminanceSource {
+
+  private static final int BYTES_PER_PIXEL = 3;
+
+  private final byte[] rgbData;
+  private final int dataWidth;
+  private final int dataHeight;
+  private final int left;
+  private final int top;
+  private final boolean bgr;
+  private final ExecutorService executor;
+
+  /**
+   * @param rgbData pixels, three bytes each, row by row
+   * @param bgr true if each pixel is in blue, green, red order rather than red, green, blue
+   */
+  public InterleavedRGBLuminanceSource(byte[] rgbData,
+                                       int dataWidth,
+                                       int dataHeight,
+                                       int left,
+                                       int top,
+                                       int width,
+                                       int height,
+                                       boolean bgr) {
+    this(rgbData, dataWidth, dataHeight, left, top, width, height, bgr, null);
+  }
+
+  /**
+   * @param rgbData pixels, three bytes each, row by row
+   * @param bgr true if each pixel is in blue, green, red order rather than red, green, blue
+   * @param executor converts bands of rows in parallel in {@link #getMatrix()}, or null to
+   *  use the calling thread
+   */
+  public InterleavedRGBLuminanceSource(byte[] rgbData,
+                                       int dataWidth,
+                                       int dataHeight,
+                                       int left,
+                                       int top,
+                                       int width,
+                                       int height,
+                                       boolean bgr,
+                                       ExecutorService executor) {
+    super(width, height);
+
+    if (left + width > dataWidth || top + height > dataHeight) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+    if (rgbData.length < dataWidth * dataHeight * BYTES_PER_PIXEL) {
+      throw new IllegalArgumentException("Image data is too short for its dimensions.");
+    }
+
+    this.rgbData = rgbData;
+    this.dataWidth = dataWidth;
+    this.dataHeight = dataHeight;
+    this.left = left;
+    this.top = top;
+    this.bgr = bgr;
+    this.executor = executor;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    convertRow(y, row, 0);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    final int width = getWidth();
+    final byte[] matrix = new byte[width * getHeight()];
+    RowBands.run(executor, getHeight(), new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
+        for (int y = startRow; y < endRow; y++) {
+          convertRow(y, matrix, y * width);
+        }
+      }
+    });
+    return matrix;
+  }
+
+  private void convertRow(int y, byte[] out, int outputOffset) {
+    byte[] rgb = rgbData;
+    int inputOffset = ((y + top) * dataWidth + left) * BYTES_PER_PIXEL;
+    // Swap the weights of the first and third bytes rather than the bytes themselves
+    int firstWeight = bgr ? 117 : 306;
+    int thirdWeight = bgr ? 306 : 117;
+    for (int x = 0; x < getWidth(); x++, inputOffset += BYTES_PER_PIXEL) {
+      out[outputOffset + x] = (byte) ((firstWeight * (rgb[inputOffset] & 0xFF) +
+                                       601 * (rgb[inputOffset + 1] & 0xFF) +
+                                       thirdWeight * (rgb[inputOffset + 2] & 0xFF) +
+                                       0x200) >> 10);
+    }
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new InterleavedRGBLuminanceSource(rgbData,
+                                             dataWidth,
+                                             dataHeight,
+                                             this.left + left,
+                                             this.top + top,
+                                             width,
+                                             height,
+                                             bgr,
+                                             executor);
+  }
+
+}
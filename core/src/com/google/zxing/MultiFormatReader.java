@@ -25,6 +25,7 @@ import com.google.zxing.qrcode.QRCodeReader;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,6 +38,10 @@ import java.util.Map;
  */
 public final class MultiFormatReader implements Reader {
 
+  // Images are scaled down for a first pass only if the result is still at least this large
+  private static final int MIN_SCALED_DIMENSION = 256;
+  private static final int MAX_SCALE_FACTOR = 4;
+
   private Map<DecodeHintType,?> hints;
   private Reader[] readers;
 
@@ -165,6 +170,157 @@ public final class MultiFormatReader implements Reader {
   }
 
   private Result decodeInternal(BinaryBitmap image) throws NotFoundException {
+    Reader[] readers = this.readers;
+    if (hints != null && hints.containsKey(DecodeHintType.TRIAGE)) {
+      readers = triage(image, readers);
+    }
+    if (hints != null && hints.containsKey(DecodeHintType.SCAN_REGIONS_OF_INTEREST) && image.isCropSupported()) {
+      Result result = decodeRegionsOfInterest(image, readers);
+      if (result != null) {
+        return result;
+      }
+    }
+    if (hints != null && hints.containsKey(DecodeHintType.MULTI_SCALE)) {
+      Result result = decodeMultiScale(image, readers);
+      if (result != null) {
+        return result;
+      }
+    }
+    return decodeWithReaders(image, readers);
+  }
+
+  /**
+   * @return those of the readers which could find a barcode in the image, judging by
+   *  {@link BinaryBitmap#triage()}
+   * @throws NotFoundException if the image can hold no barcode at all
+   */
+  private static Reader[] triage(BinaryBitmap image, Reader[] readers) throws NotFoundException {
+    Collection<BarcodeFormat> possibleFormats = image.triage().narrowFormats(null);
+    if (possibleFormats.isEmpty()) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    if (readers == null) {
+      return null;
+    }
+    Collection<Reader> possibleReaders = new ArrayList<Reader>(readers.length);
+    for (Reader reader : readers) {
+      BarcodeFormat format = getTriageFormat(reader);
+      if (format == null || possibleFormats.contains(format)) {
+        possibleReaders.add(reader);
+      }
+    }
+    return possibleReaders.toArray(new Reader[possibleReaders.size()]);
+  }
+
+  /**
+   * @return a format the reader looks for, which triage rules in or out along with all the others
+   *  it looks for, or null if the reader is not one of those {@link MultiFormatReader} creates
+   */
+  private static BarcodeFormat getTriageFormat(Reader reader) {
+    if (reader instanceof MultiFormatOneDReader) {
+      return BarcodeFormat.CODE_128;
+    }
+    if (reader instanceof QRCodeReader) {
+      return BarcodeFormat.QR_CODE;
+    }
+    if (reader instanceof DataMatrixReader) {
+      return BarcodeFormat.DATA_MATRIX;
+    }
+    if (reader instanceof AztecReader) {
+      return BarcodeFormat.AZTEC;
+    }
+    if (reader instanceof PDF417Reader) {
+      return BarcodeFormat.PDF_417;
+    }
+    if (reader instanceof MaxiCodeReader) {
+      return BarcodeFormat.MAXICODE;
+    }
+    return null;
+  }
+
+  /**
+   * Decodes a copy of the image scaled down by up to {@link #MAX_SCALE_FACTOR}, then tries to
+   * decode again at full resolution in just the area around the barcode that was found, for
+   * more precise result points. If that second pass fails, the scaled down result is used.
+   *
+   * @return result in the coordinates of the full image, or null if the image is too small to
+   *  scale down or no barcode was found in the scaled down copy
+   */
+  private Result decodeMultiScale(BinaryBitmap image, Reader[] readers) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int factor = MAX_SCALE_FACTOR;
+    while (factor > 1 && Math.min(width, height) / factor < MIN_SCALED_DIMENSION) {
+      factor >>= 1;
+    }
+    if (factor == 1) {
+      return null;
+    }
+
+    Result scaledResult;
+    try {
+      // Each scaled down pixel stands for the block of pixels centered half a block further on
+      float offset = (factor - 1) / 2.0f;
+      scaledResult = transformResultPoints(decodeWithReaders(image.scaleDown(factor), readers), factor, offset, offset);
+    } catch (NotFoundException nfe) {
+      return null;
+    }
+
+    ResultPoint[] points = scaledResult.getResultPoints();
+    if (points == null || points.length == 0 || !image.isCropSupported()) {
+      return scaledResult;
+    }
+    float minX = width;
+    float minY = height;
+    float maxX = 0.0f;
+    float maxY = 0.0f;
+    for (ResultPoint point : points) {
+      if (point != null) {
+        minX = Math.min(minX, point.getX());
+        minY = Math.min(minY, point.getY());
+        maxX = Math.max(maxX, point.getX());
+        maxY = Math.max(maxY, point.getY());
+      }
+    }
+    // Result points may be finder pattern centers rather than corners, and 1D barcodes only
+    // report points along one row, so leave a generous margin around them.
+    int margin = (int) (Math.max(maxX - minX, maxY - minY) / 2.0f) + (factor << 3);
+    int left = Math.max(0, (int) minX - margin);
+    int top = Math.max(0, (int) minY - margin);
+    int right = Math.min(width, (int) maxX + margin);
+    int bottom = Math.min(height, (int) maxY + margin);
+    if (right <= left || bottom <= top) {
+      return scaledResult;
+    }
+    try {
+      Result result = decodeWithReaders(image.crop(left, top, right - left, bottom - top), readers);
+      return transformResultPoints(result, 1, left, top);
+    } catch (NotFoundException nfe) {
+      return scaledResult;
+    }
+  }
+
+  /**
+   * Tries each region proposed by {@link BinaryBitmap#findRegionsOfInterest()} in turn, so only
+   * those areas are binarized.
+   *
+   * @return result with points translated back into the whole image, or null if no region
+   *  contained a barcode
+   */
+  private Result decodeRegionsOfInterest(BinaryBitmap image, Reader[] readers) {
+    List<int[]> regions = image.findRegionsOfInterest();
+    for (int[] region : regions) {
+      try {
+        Result result = decodeWithReaders(image.crop(region[0], region[1], region[2], region[3]), readers);
+        return transformResultPoints(result, 1, region[0], region[1]);
+      } catch (NotFoundException nfe) {
+        // continue
+      }
+    }
+    return null;
+  }
+
+  private Result decodeWithReaders(BinaryBitmap image, Reader[] readers) throws NotFoundException {
     if (readers != null) {
       for (Reader reader : readers) {
         try {
@@ -177,4 +333,24 @@ public final class MultiFormatReader implements Reader {
     throw NotFoundException.getNotFoundInstance();
   }
 
+  /**
+   * @return copy of result with each point (x,y) moved to (x * scale + xOffset, y * scale + yOffset)
+   */
+  static Result transformResultPoints(Result result, int scale, float xOffset, float yOffset) {
+    ResultPoint[] oldResultPoints = result.getResultPoints();
+    if (oldResultPoints == null) {
+      return result;
+    }
+    ResultPoint[] newResultPoints = new ResultPoint[oldResultPoints.length];
+    for (int i = 0; i < oldResultPoints.length; i++) {
+      ResultPoint oldPoint = oldResultPoints[i];
+      if (oldPoint != null) {
+        newResultPoints[i] = new ResultPoint(oldPoint.getX() * scale + xOffset, oldPoint.getY() * scale + yOffset);
+      }
+    }
+    Result newResult = new Result(result.getText(), result.getRawBytes(), newResultPoints, result.getBarcodeFormat());
+    newResult.putAllMetadata(result.getResultMetadata());
+    return newResult;
+  }
+
 }
@@ -82,4 +82,10 @@ public enum ResultMetadataType {
    */
   PDF417_EXTRA_METADATA,
 
+  /**
+   * For PDF417, the number of combinations of values for ambiguous codewords which error correction was
+   * tried with, as an {@link Integer}. This is 1 unless some codewords could not be read unambiguously.
+   */
+  PDF417_ERROR_CORRECTION_ATTEMPTS,
+
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * This object extends LuminanceSource around an array of packed YUYV (also called YUY2) data, as
+ * returned by many USB cameras, with the option to crop to a rectangle within the full data. Each
+ * pair of pixels takes four bytes, Y0 U Y1 V, so luminance is simply every other byte.
+ *
+ * @see PlanarYUVLuminanceSource for NV21, NV12 and other formats with a planar Y channel
+ */
+public final class YUYVLuminanceSource extends LuminanceSource {
+
+  private final byte[] yuyvData;
+  private final int dataWidth;
+  private final int dataHeight;
+  private final int left;
+  private final int top;
+
+  public YUYVLuminanceSource(byte[] yuyvData,
+                             int dataWidth,
+                             int dataHeight,
+                             int left,
+                             int top,
+                             int width,
+                             int height) {
+    super(width, height);
+
+    if (left + width > dataWidth || top + height > dataHeight) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+    if (yuyvData.length < dataWidth * dataHeight * 2) {
+      throw new IllegalArgumentException("Image data is too short for its dimensions.");
+    }
+
+    this.yuyvData = yuyvData;
+    this.dataWidth = dataWidth;
+    this.dataHeight = dataHeight;
+    this.left = left;
+    this.top = top;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    copyRow(y, row, 0);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    byte[] matrix = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      copyRow(y, matrix, y * width);
+    }
+    return matrix;
+  }
+
+  private void copyRow(int y, byte[] out, int outputOffset) {
+    byte[] yuyv = yuyvData;
+    int inputOffset = ((y + top) * dataWidth + left) << 1;
+    for (int x = 0; x < getWidth(); x++, inputOffset += 2) {
+      out[outputOffset + x] = yuyv[inputOffset];
+    }
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new YUYVLuminanceSource(yuyvData, dataWidth, dataHeight, this.left + left, this.top + top, width, height);
+  }
+
+}
@@ -59,9 +59,24 @@ public final class Detector {
    * @throws NotFoundException if no Aztec Code can be found
    */
    public AztecDetectorResult detect(boolean isMirror) throws NotFoundException {
-
     // 1. Get the center of the aztec matrix
-    Point pCenter = getMatrixCenter();
+    return detect(isMirror, getMatrixCenter());
+  }
+
+  /**
+   * Detects an Aztec Code whose bull's eye is around the given point, rather than near the center
+   * of the image.
+   *
+   * @param centerX approximate x coordinate of the center of the bull's eye
+   * @param centerY approximate y coordinate of the center of the bull's eye
+   * @return {@link AztecDetectorResult} encapsulating results of detecting an Aztec Code
+   * @throws NotFoundException if no Aztec Code can be found there
+   */
+  public AztecDetectorResult detect(boolean isMirror, int centerX, int centerY) throws NotFoundException {
+    return detect(isMirror, getMatrixCenter(centerX, centerY));
+  }
+
+  private AztecDetectorResult detect(boolean isMirror, Point pCenter) throws NotFoundException {
 
     // 2. Get the center points of the four diagonal points just outside the bull's eye
     //  [topRight, bottomRight, bottomLeft, topLeft]
@@ -322,6 +337,20 @@ public final class Detector {
     //Compute the center of the rectangle
     int cx = MathUtils.round((pointA.getX() + pointD.getX() + pointB.getX() + pointC.getX()) / 4.0f);
     int cy = MathUtils.round((pointA.getY() + pointD.getY() + pointB.getY() + pointC.getY()) / 4.0f);
+    return getMatrixCenter(cx, cy);
+  }
+
+  /**
+   * Finds the center point of an Aztec code from a candidate near it
+   *
+   * @return the center point
+   */
+  private Point getMatrixCenter(int cx, int cy) {
+
+    ResultPoint pointA;
+    ResultPoint pointB;
+    ResultPoint pointC;
+    ResultPoint pointD;
 
     // Redetermine the white rectangle starting from previously computed center.
     // This will ensure that we end up with a white rectangle in center bull's eye
@@ -19,12 +19,6 @@ package com.google.zxing.aztec.encoder;
 import com.google.zxing.common.BitArray;
 
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 
 /**
  * This produces nearly optimal encodings of text into the first-level of
@@ -148,6 +142,9 @@ public final class HighLevelEncoder {
     SHIFT_TABLE[MODE_DIGIT][MODE_UPPER] = 15;
   }
 
+  // Binary Shift can cover at most this many bytes
+  private static final int MAX_BINARY_SHIFT_BYTE_COUNT = 2047 + 31;
+
   private final byte[] text;
 
   public HighLevelEncoder(byte[] text) {
@@ -158,7 +155,10 @@ public final class HighLevelEncoder {
    * Convert the text represented by this High Level Encoder into a BitArray.
    */
   public BitArray encode() {
-    List<State> states = Collections.singletonList(State.INITIAL_STATE);
+    TokenArena tokens = new TokenArena(4 * text.length + 16);
+    StateFrontier states = new StateFrontier();
+    states.setToken(states.add(MODE_UPPER, 0, 0), TokenArena.EMPTY);
+    StateFrontier nextStates = new StateFrontier();
     for (int index = 0; index < text.length; index++) {
       int pairCode;
       int nextChar = index + 1 < text.length ? text[index + 1] : 0;
@@ -178,130 +178,189 @@ public final class HighLevelEncoder {
         default:    
           pairCode = 0;
       }
+      nextStates.clear();
+      for (int state = 0; state < states.size(); state++) {
+        if (pairCode > 0) {
+          // We have one of the four special PUNCT pairs.  Treat them specially.
+          // Get a new set of states for the two new characters.
+          updateStateForPair(states, state, index, pairCode, nextStates, tokens);
+        } else {
+          // Get a new set of states for the new character.
+          updateStateForChar(states, state, index, nextStates, tokens);
+        }
+      }
       if (pairCode > 0) {
-        // We have one of the four special PUNCT pairs.  Treat them specially.
-        // Get a new set of states for the two new characters.
-        states = updateStateListForPair(states, index, pairCode);
         index++;
-      } else {
-        // Get a new set of states for the new character.
-        states = updateStateListForChar(states, index);
       }
+      StateFrontier temp = states;
+      states = nextStates;
+      nextStates = temp;
     }
     // We are left with a set of states.  Find the shortest one.
-    State minState = Collections.min(states, new Comparator<State>() {
-      @Override
-      public int compare(State a, State b) {
-        return a.getBitCount() - b.getBitCount();
-      }
-    });
+    int minState = states.getMinimalState();
     // Convert it to a bit array, and return.
-    return minState.toBitArray(text);
+    return tokens.toBitArray(endBinaryShift(states, minState, text.length, tokens), text);
   }
 
-  // We update a set of states for a new character by updating each state
-  // for the new character, merging the results, and then removing the
-  // non-optimal states.
-  private List<State> updateStateListForChar(Iterable<State> states, int index) {
-    Collection<State> result = new LinkedList<State>();
-    for (State state : states) {
-      updateStateForChar(state, index, result);
-    }
-    return simplifyStates(result);
-  }
-
-  // Return a set of states that represent the possible ways of updating this
-  // state for the next character.  The resulting set of states are added to
-  // the "result" list.
-  private void updateStateForChar(State state, int index, Collection<State> result) {
+  // Add to "result" the states that represent the possible ways of updating
+  // this state for the next character.  "result" drops the non-optimal states.
+  private void updateStateForChar(StateFrontier states,
+                                  int state,
+                                  int index,
+                                  StateFrontier result,
+                                  TokenArena tokens) {
     char ch = (char) (text[index] & 0xFF);
-    boolean charInCurrentTable = CHAR_MAP[state.getMode()][ch] > 0;
-    State stateNoBinary = null;
+    int stateMode = states.getMode(state);
+    int bitCount = states.getBitCount(state);
+    boolean charInCurrentTable = CHAR_MAP[stateMode][ch] > 0;
+    int tokenNoBinary = 0;
+    boolean tokenNoBinaryCreated = false;
     for (int mode = 0; mode <= MODE_PUNCT; mode++) {
       int charInMode = CHAR_MAP[mode][ch];
       if (charInMode > 0) {
-        if (stateNoBinary == null) {
-          // Only create stateNoBinary the first time it's required.
-          stateNoBinary = state.endBinaryShift(index);
-        }
         // Try generating the character by latching to its mode
-        if (!charInCurrentTable || mode == state.getMode() || mode == MODE_DIGIT) {
+        if (!charInCurrentTable || mode == stateMode || mode == MODE_DIGIT) {
           // If the character is in the current table, we don't want to latch to
           // any other mode except possibly digit (which uses only 4 bits).  Any
           // other latch would be equally successful *after* this character, and
           // so wouldn't save any bits.
-          State latch_state = stateNoBinary.latchAndAppend(mode, charInMode);
-          result.add(latch_state);
+          int latchState = result.add(mode, 0, bitCount + latchBitCount(stateMode, mode) + modeBitCount(mode));
+          if (latchState >= 0) {
+            if (!tokenNoBinaryCreated) {
+              // Only end Binary Shift mode the first time it's required.
+              tokenNoBinary = endBinaryShift(states, state, index, tokens);
+              tokenNoBinaryCreated = true;
+            }
+            result.setToken(latchState, latchAndAppend(tokens, tokenNoBinary, stateMode, mode, charInMode));
+          }
         }
         // Try generating the character by switching to its mode.
-        if (!charInCurrentTable && SHIFT_TABLE[state.getMode()][mode] >= 0) {
+        if (!charInCurrentTable && SHIFT_TABLE[stateMode][mode] >= 0) {
           // It never makes sense to temporarily shift to another mode if the
           // character exists in the current mode.  That can never save bits.
-          State shift_state = stateNoBinary.shiftAndAppend(mode, charInMode);
-          result.add(shift_state);
+          int shiftState = result.add(stateMode, 0, bitCount + modeBitCount(stateMode) + 5);
+          if (shiftState >= 0) {
+            if (!tokenNoBinaryCreated) {
+              tokenNoBinary = endBinaryShift(states, state, index, tokens);
+              tokenNoBinaryCreated = true;
+            }
+            result.setToken(shiftState, shiftAndAppend(tokens, tokenNoBinary, stateMode, mode, charInMode));
+          }
         }
       }
     }
-    if (state.getBinaryShiftByteCount() > 0 || CHAR_MAP[state.getMode()][ch] == 0) {
+    if (states.getBinaryShiftByteCount(state) > 0 || !charInCurrentTable) {
       // It's never worthwhile to go into binary shift mode if you're not already
       // in binary shift mode, and the character exists in your current mode.
       // That can never save bits over just outputting the char in the current mode.
-      State binaryState = state.addBinaryShiftChar(index);
-      result.add(binaryState);
+      addBinaryShiftChars(states, state, index, 1, result, tokens);
     }
   }
 
-  private static List<State> updateStateListForPair(Iterable<State> states, int index, int pairCode) {
-    Collection<State> result = new LinkedList<State>();
-    for (State state : states) {
-      updateStateForPair(state, index, pairCode, result);
-    }
-    return simplifyStates(result);
-  }
-
-  private static void updateStateForPair(State state, int index, int pairCode, Collection<State> result) {
-    State stateNoBinary = state.endBinaryShift(index);
+  private static void updateStateForPair(StateFrontier states,
+                                         int state,
+                                         int index,
+                                         int pairCode,
+                                         StateFrontier result,
+                                         TokenArena tokens) {
+    int stateMode = states.getMode(state);
+    int bitCount = states.getBitCount(state);
+    int tokenNoBinary = endBinaryShift(states, state, index, tokens);
     // Possibility 1.  Latch to MODE_PUNCT, and then append this code
-    result.add(stateNoBinary.latchAndAppend(MODE_PUNCT, pairCode));
-    if (state.getMode() != MODE_PUNCT) {
+    int latchState = result.add(MODE_PUNCT, 0, bitCount + latchBitCount(stateMode, MODE_PUNCT) + 5);
+    if (latchState >= 0) {
+      result.setToken(latchState, latchAndAppend(tokens, tokenNoBinary, stateMode, MODE_PUNCT, pairCode));
+    }
+    if (stateMode != MODE_PUNCT) {
       // Possibility 2.  Shift to MODE_PUNCT, and then append this code.
       // Every state except MODE_PUNCT (handled above) can shift
-      result.add(stateNoBinary.shiftAndAppend(MODE_PUNCT, pairCode));
+      int shiftState = result.add(stateMode, 0, bitCount + modeBitCount(stateMode) + 5);
+      if (shiftState >= 0) {
+        result.setToken(shiftState, shiftAndAppend(tokens, tokenNoBinary, stateMode, MODE_PUNCT, pairCode));
+      }
     }
     if (pairCode == 3 || pairCode == 4) {
       // both characters are in DIGITS.  Sometimes better to just add two digits
-      State digit_state = stateNoBinary
-          .latchAndAppend(MODE_DIGIT, 16 - pairCode)  // period or comma in DIGIT
-          .latchAndAppend(MODE_DIGIT, 1);             // space in DIGIT
-      result.add(digit_state);
+      int digitState = result.add(MODE_DIGIT, 0, bitCount + latchBitCount(stateMode, MODE_DIGIT) + 8);
+      if (digitState >= 0) {
+        int token = latchAndAppend(tokens, tokenNoBinary, stateMode, MODE_DIGIT, 16 - pairCode); // period or comma in DIGIT
+        result.setToken(digitState, tokens.add(token, 1, 4));                                    // space in DIGIT
+      }
     }
-    if (state.getBinaryShiftByteCount() > 0) {
+    if (states.getBinaryShiftByteCount(state) > 0) {
       // It only makes sense to do the characters as binary if we're already
       // in binary mode.
-      State binaryState = state.addBinaryShiftChar(index).addBinaryShiftChar(index + 1);
-      result.add(binaryState);
+      addBinaryShiftChars(states, state, index, 2, result, tokens);
     }
   }
 
-  private static List<State> simplifyStates(Iterable<State> states) {
-    List<State> result = new LinkedList<State>();
-    for (State newState : states) {
-      boolean add = true;
-      for (Iterator<State> iterator = result.iterator(); iterator.hasNext(); ) {
-        State oldState = iterator.next();
-        if (oldState.isBetterThanOrEqualTo(newState)) {
-          add = false;
-          break;
-        }
-        if (newState.isBetterThanOrEqualTo(oldState)) {
-          iterator.remove();
-        }
-      }
-      if (add) {
-        result.add(newState);
+  // Add to "result" the state with count more characters output in Binary Shift mode.
+  private static void addBinaryShiftChars(StateFrontier states,
+                                          int state,
+                                          int index,
+                                          int count,
+                                          StateFrontier result,
+                                          TokenArena tokens) {
+    int mode = states.getMode(state);
+    int binaryShiftByteCount = states.getBinaryShiftByteCount(state);
+    int bitCount = states.getBitCount(state);
+    int token = states.getToken(state);
+    if (mode == MODE_PUNCT || mode == MODE_DIGIT) {
+      //assert binaryShiftByteCount == 0;
+      int latch = LATCH_TABLE[mode][MODE_UPPER];
+      token = tokens.add(token, latch & 0xFFFF, latch >> 16);
+      bitCount += latch >> 16;
+      mode = MODE_UPPER;
+    }
+    for (int i = 0; i < count; i++) {
+      bitCount +=
+        (binaryShiftByteCount == 0 || binaryShiftByteCount == 31) ? 18 :
+        (binaryShiftByteCount == 62) ? 9 : 8;
+      binaryShiftByteCount++;
+      if (binaryShiftByteCount == MAX_BINARY_SHIFT_BYTE_COUNT) {
+        // The string is as long as it's allowed to be.  We should end it.
+        token = tokens.addBinaryShift(token, index + i + 1 - binaryShiftByteCount, binaryShiftByteCount);
+        binaryShiftByteCount = 0;
       }
     }
-    return result;
+    int binaryState = result.add(mode, binaryShiftByteCount, bitCount);
+    if (binaryState >= 0) {
+      result.setToken(binaryState, token);
+    }
+  }
+
+  // Return the token of this state once it is no longer in Binary Shift mode.
+  private static int endBinaryShift(StateFrontier states, int state, int index, TokenArena tokens) {
+    int binaryShiftByteCount = states.getBinaryShiftByteCount(state);
+    int token = states.getToken(state);
+    if (binaryShiftByteCount == 0) {
+      return token;
+    }
+    return tokens.addBinaryShift(token, index - binaryShiftByteCount, binaryShiftByteCount);
+  }
+
+  // Append a latch to a (not necessary different) mode, and then a code.
+  private static int latchAndAppend(TokenArena tokens, int token, int fromMode, int mode, int value) {
+    if (mode != fromMode) {
+      int latch = LATCH_TABLE[fromMode][mode];
+      token = tokens.add(token, latch & 0xFFFF, latch >> 16);
+    }
+    return tokens.add(token, value, modeBitCount(mode));
+  }
+
+  // Append a temporary shift to a different mode to output a single value.
+  private static int shiftAndAppend(TokenArena tokens, int token, int fromMode, int mode, int value) {
+    // Shifts exist only to UPPER and PUNCT, both with tokens size 5.
+    token = tokens.add(token, SHIFT_TABLE[fromMode][mode], modeBitCount(fromMode));
+    return tokens.add(token, value, 5);
+  }
+
+  private static int latchBitCount(int fromMode, int mode) {
+    return LATCH_TABLE[fromMode][mode] >> 16;
+  }
+
+  private static int modeBitCount(int mode) {
+    return mode == MODE_DIGIT ? 4 : 5;
   }
 
 }
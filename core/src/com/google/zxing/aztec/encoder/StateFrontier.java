@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.aztec.encoder;
+
+import java.util.Arrays;
+
+/**
+ * The set of encoding states which the {@link HighLevelEncoder} is still considering after some
+ * prefix of the text. A state is the current mode (or the mode to which we'll return if we're in
+ * Binary Shift mode), the number of most recent bytes to be output in Binary Shift mode, the total
+ * number of bits generated including Binary Shift, and the last token output, in a
+ * {@link TokenArena}. If we are in Binary Shift mode, the tokens do *not* yet include the one for
+ * those bytes.
+ *
+ * States are kept in parallel int arrays which are reused from one character to the next. No
+ * state is kept which another one is better than or equal to under all possible circumstances.
+ */
+final class StateFrontier {
+
+  private static final int INITIAL_CAPACITY = 32;
+  private static final int MODE_COUNT = HighLevelEncoder.MODE_PUNCT + 1;
+
+  // The number of bits in the latch from one mode to another, at [from * MODE_COUNT + to]
+  private static final int[] LATCH_BIT_COUNTS = new int[MODE_COUNT * MODE_COUNT];
+  static {
+    for (int from = 0; from < MODE_COUNT; from++) {
+      for (int to = 0; to < MODE_COUNT; to++) {
+        LATCH_BIT_COUNTS[from * MODE_COUNT + to] = HighLevelEncoder.LATCH_TABLE[from][to] >> 16;
+      }
+    }
+  }
+
+  private int[] modes;
+  private int[] binaryShiftByteCounts;
+  private int[] bitCounts;
+  private int[] tokens;
+  private int size;
+  // For each mode, the fewest bits with which any state added since the last clear() could
+  // latch to that mode. This includes states since removed, but those were removed by a state
+  // at least as good, and latching directly is never worse than latching through another mode.
+  private final int[] minLatchedBitCounts;
+  // At least the most bits of any state kept
+  private int maxBitCount;
+
+  StateFrontier() {
+    modes = new int[INITIAL_CAPACITY];
+    binaryShiftByteCounts = new int[INITIAL_CAPACITY];
+    bitCounts = new int[INITIAL_CAPACITY];
+    tokens = new int[INITIAL_CAPACITY];
+    minLatchedBitCounts = new int[MODE_COUNT];
+    clear();
+  }
+
+  void clear() {
+    size = 0;
+    Arrays.fill(minLatchedBitCounts, Integer.MAX_VALUE);
+    maxBitCount = Integer.MIN_VALUE;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int getMode(int state) {
+    return modes[state];
+  }
+
+  int getBinaryShiftByteCount(int state) {
+    return binaryShiftByteCounts[state];
+  }
+
+  int getBitCount(int state) {
+    return bitCounts[state];
+  }
+
+  int getToken(int state) {
+    return tokens[state];
+  }
+
+  void setToken(int state, int token) {
+    tokens[state] = token;
+  }
+
+  /**
+   * Adds a state, unless an existing one is better than or equal to it, and removes the
+   * existing ones which it is better than or equal to. The rest keep their order. The caller
+   * must then set the new state's token; this way, tokens are only made for states which are
+   * kept.
+   *
+   * @return index of the new state, or -1 if it was not added
+   */
+  int add(int mode, int binaryShiftByteCount, int bitCount) {
+    // Any state is better than or equal to this one if it has enough fewer bits to latch to this
+    // mode, and to pay for entering Binary Shift mode if this one is in it. For a state not in
+    // Binary Shift mode, that settles it without looking at each state; otherwise it at least
+    // settles most candidates.
+    int penalty = binaryShiftByteCount > 0 ? 10 : 0;
+    if (minLatchedBitCounts[mode] <= bitCount - penalty) {
+      return -1;
+    }
+
+    int kept;
+    if (binaryShiftByteCount == 0 && bitCount > maxBitCount) {
+      // This can't be better than or equal to any state with fewer bits
+      kept = size;
+    } else {
+      kept = 0;
+      for (int i = 0; i < size; i++) {
+        if (binaryShiftByteCount > 0 &&
+            isBetterThanOrEqualTo(modes[i], binaryShiftByteCounts[i], bitCounts[i],
+                                  mode, binaryShiftByteCount, bitCount)) {
+          // Nothing was removed yet, since no state here is better than or equal to another
+          return -1;
+        }
+        if (!isBetterThanOrEqualTo(mode, binaryShiftByteCount, bitCount,
+                                   modes[i], binaryShiftByteCounts[i], bitCounts[i])) {
+          if (kept < i) {
+            modes[kept] = modes[i];
+            binaryShiftByteCounts[kept] = binaryShiftByteCounts[i];
+            bitCounts[kept] = bitCounts[i];
+            tokens[kept] = tokens[i];
+          }
+          kept++;
+        }
+      }
+    }
+
+    if (kept == modes.length) {
+      int capacity = kept << 1;
+      modes = Arrays.copyOf(modes, capacity);
+      binaryShiftByteCounts = Arrays.copyOf(binaryShiftByteCounts, capacity);
+      bitCounts = Arrays.copyOf(bitCounts, capacity);
+      tokens = Arrays.copyOf(tokens, capacity);
+    }
+    modes[kept] = mode;
+    binaryShiftByteCounts[kept] = binaryShiftByteCount;
+    bitCounts[kept] = bitCount;
+    tokens[kept] = TokenArena.EMPTY;
+    size = kept + 1;
+    if (bitCount > maxBitCount) {
+      maxBitCount = bitCount;
+    }
+    int latchOffset = mode * MODE_COUNT;
+    for (int otherMode = 0; otherMode < MODE_COUNT; otherMode++) {
+      int latchedBitCount = bitCount + LATCH_BIT_COUNTS[latchOffset + otherMode];
+      if (latchedBitCount < minLatchedBitCounts[otherMode]) {
+        minLatchedBitCounts[otherMode] = latchedBitCount;
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * @return index of the first of the states with the fewest bits
+   */
+  int getMinimalState() {
+    int best = 0;
+    for (int i = 1; i < size; i++) {
+      if (bitCounts[i] < bitCounts[best]) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  // Returns true if the first state is better (or equal) to be in than the second
+  // state under all possible circumstances.
+  private static boolean isBetterThanOrEqualTo(int mode,
+                                               int binaryShiftByteCount,
+                                               int bitCount,
+                                               int otherMode,
+                                               int otherBinaryShiftByteCount,
+                                               int otherBitCount) {
+    int mySize = bitCount + LATCH_BIT_COUNTS[mode * MODE_COUNT + otherMode];
+    if (otherBinaryShiftByteCount > 0 &&
+        (binaryShiftByteCount == 0 || binaryShiftByteCount > otherBinaryShiftByteCount)) {
+      mySize += 10;     // Cost of entering Binary Shift mode.
+    }
+    return mySize <= otherBitCount;
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.aztec.encoder;
+
+import com.google.zxing.common.BitArray;
+
+import java.util.Arrays;
+
+/**
+ * Holds the output tokens of all the states considered by the {@link HighLevelEncoder}. Each
+ * token refers back to the previous one, so a state's whole output is just the index of its
+ * last token, and states which share a prefix share its tokens. Tokens live in parallel int
+ * arrays rather than as objects, and are never removed.
+ *
+ * A token is either a value of some number of bits, or a run of bytes in Binary Shift mode.
+ */
+final class TokenArena {
+
+  // Index of the token before the first one
+  static final int EMPTY = -1;
+
+  private int[] previous;
+  // The value, or the start of the bytes for Binary Shift
+  private int[] values;
+  // The number of bits in the value, or minus the number of bytes for Binary Shift
+  private int[] bitCounts;
+  private int size;
+
+  TokenArena(int initialCapacity) {
+    previous = new int[initialCapacity];
+    values = new int[initialCapacity];
+    bitCounts = new int[initialCapacity];
+  }
+
+  /**
+   * @return index of a new token holding value, following token previous
+   */
+  int add(int previous, int value, int bitCount) {
+    return addToken(previous, value, bitCount);
+  }
+
+  /**
+   * @return index of a new token holding the given bytes of the text in Binary Shift mode
+   */
+  int addBinaryShift(int previous, int start, int byteCount) {
+    //int bitCount = (byteCount * 8) + (byteCount <= 31 ? 10 : byteCount <= 62 ? 20 : 21);
+    return addToken(previous, start, -byteCount);
+  }
+
+  private int addToken(int previous, int value, int bitCount) {
+    if (size == values.length) {
+      int capacity = size << 1;
+      this.previous = Arrays.copyOf(this.previous, capacity);
+      values = Arrays.copyOf(values, capacity);
+      bitCounts = Arrays.copyOf(bitCounts, capacity);
+    }
+    this.previous[size] = previous;
+    values[size] = value;
+    bitCounts[size] = bitCount;
+    return size++;
+  }
+
+  /**
+   * @return the bits of all the tokens up to and including token
+   */
+  BitArray toBitArray(int token, byte[] text) {
+    // Walk back along the chain, then output the tokens in the order they were added
+    int count = 0;
+    for (int t = token; t != EMPTY; t = previous[t]) {
+      count++;
+    }
+    int[] chain = new int[count];
+    for (int t = token; t != EMPTY; t = previous[t]) {
+      chain[--count] = t;
+    }
+    BitArray bitArray = new BitArray();
+    for (int t : chain) {
+      if (bitCounts[t] >= 0) {
+        bitArray.appendBits(values[t], bitCounts[t]);
+      } else {
+        appendBinaryShift(bitArray, text, values[t], -bitCounts[t]);
+      }
+    }
+    return bitArray;
+  }
+
+  private static void appendBinaryShift(BitArray bitArray, byte[] text, int start, int byteCount) {
+    for (int i = 0; i < byteCount; i++) {
+      if (i == 0 || (i == 31 && byteCount <= 62))  {
+        // We need a header before the first character, and before
+        // character 31 when the total byte code is <= 62
+        bitArray.appendBits(31, 5);  // BINARY_SHIFT
+        if (byteCount > 62) {
+          bitArray.appendBits(byteCount - 31, 16);
+        } else if (i == 0) {
+          // 1 <= binaryShiftByteCode <= 62
+          bitArray.appendBits(Math.min(byteCount, 31), 5);
+        } else {
+          // 32 <= binaryShiftCount <= 62 and i == 31
+          bitArray.appendBits(byteCount - 31, 5);
+        }
+      }
+      bitArray.appendBits(text[start + i], 8);
+    }
+  }
+
+}
@@ -89,4 +89,9 @@ public final class AddressBookDoCoMoResultParser extends AbstractDoCoMoResultPar
     return name;
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"MECARD:"};
+  }
+
 }
@@ -97,4 +97,9 @@ public final class BizcardResultParser extends AbstractDoCoMoResultParser {
     }
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"BIZCARD:"};
+  }
+
 }
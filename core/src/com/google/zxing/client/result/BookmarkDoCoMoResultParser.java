@@ -38,4 +38,9 @@ public final class BookmarkDoCoMoResultParser extends AbstractDoCoMoResultParser
     return URIResultParser.isBasicallyValidURI(uri) ? new URIParsedResult(uri, title) : null;
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"MEBKM:"};
+  }
+
 }
\ No newline at end of file
@@ -57,7 +57,12 @@ public final class EmailDoCoMoResultParser extends AbstractDoCoMoResultParser {
    * in a barcode, not "judge" it.
    */
   static boolean isBasicallyValidEmailAddress(String email) {
-    return email != null && ATEXT_ALPHANUMERIC.matcher(email).matches() && email.indexOf('@') >= 0;
+    return email != null && email.indexOf('@') >= 0 && ATEXT_ALPHANUMERIC.matcher(email).matches();
+  }
+
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"MATMSG:"};
   }
 
 }
\ No newline at end of file
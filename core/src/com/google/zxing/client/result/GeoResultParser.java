@@ -70,4 +70,9 @@ public final class GeoResultParser extends ResultParser {
     return new GeoParsedResult(latitude, longitude, altitude, query);
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"GEO:"};
+  }
+
 }
\ No newline at end of file
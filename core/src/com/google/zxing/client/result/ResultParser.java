@@ -61,6 +61,24 @@ public abstract class ResultParser {
       new ExpandedProductResultParser(),
   };
 
+  // Parsers which may accept any text, as bits by index in PARSERS
+  private static final int UNPREFIXED_PARSERS;
+  private static final PrefixTrie PREFIX_TRIE = new PrefixTrie();
+  static {
+    int unprefixedParsers = 0;
+    for (int i = 0; i < PARSERS.length; i++) {
+      String[] prefixes = PARSERS[i].getPrefixes();
+      if (prefixes == null) {
+        unprefixedParsers |= 1 << i;
+      } else {
+        for (String prefix : prefixes) {
+          PREFIX_TRIE.add(prefix, 1 << i);
+        }
+      }
+    }
+    UNPREFIXED_PARSERS = unprefixedParsers;
+  }
+
   private static final Pattern DIGITS = Pattern.compile("\\d*");
   private static final Pattern ALPHANUM = Pattern.compile("[a-zA-Z0-9]*");
   private static final Pattern AMPERSAND = Pattern.compile("&");
@@ -74,6 +92,14 @@ public abstract class ResultParser {
    */
   public abstract ParsedResult parse(Result theResult);
 
+  /**
+   * @return prefixes in upper case, of which the text must start with one, ignoring case, for
+   *  {@link #parse(Result)} to accept it, or null if it may accept any text
+   */
+  String[] getPrefixes() {
+    return null;
+  }
+
   protected static String getMassagedText(Result result) {
     String text = result.getText();
     if (text.startsWith(BYTE_ORDER_MARK)) {
@@ -83,10 +109,14 @@ public abstract class ResultParser {
   }
 
   public static ParsedResult parseResult(Result theResult) {
-    for (ResultParser parser : PARSERS) {
-      ParsedResult result = parser.parse(theResult);
-      if (result != null) {
-        return result;
+    // Only try the parsers which could accept the text, in the same order as otherwise
+    int parsers = UNPREFIXED_PARSERS | PREFIX_TRIE.getParsers(getMassagedText(theResult));
+    for (int i = 0; i < PARSERS.length; i++) {
+      if ((parsers & (1 << i)) != 0) {
+        ParsedResult result = PARSERS[i].parse(theResult);
+        if (result != null) {
+          return result;
+        }
       }
     }
     return new TextParsedResult(theResult.getText(), null);
@@ -249,4 +279,53 @@ public abstract class ResultParser {
     return matches == null ? null : matches[0];
   }
 
+  /**
+   * Finds the parsers whose prefixes a text starts with, ignoring case, in one pass over the text.
+   */
+  private static final class PrefixTrie {
+
+    // Prefixes are made of upper case letters and ':'
+    private static final char FIRST_CHAR = ':';
+    private static final char LAST_CHAR = 'Z';
+
+    private final PrefixTrie[] children = new PrefixTrie[LAST_CHAR - FIRST_CHAR + 1];
+    // The parsers with a prefix ending here, as bits
+    private int parsers;
+
+    void add(String prefix, int parser) {
+      PrefixTrie node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        int index = prefix.charAt(i) - FIRST_CHAR;
+        PrefixTrie child = node.children[index];
+        if (child == null) {
+          child = new PrefixTrie();
+          node.children[index] = child;
+        }
+        node = child;
+      }
+      node.parsers |= parser;
+    }
+
+    int getParsers(CharSequence text) {
+      int parsers = 0;
+      PrefixTrie node = this;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (c >= 'a' && c <= 'z') {
+          c -= 'a' - 'A';
+        }
+        if (c < FIRST_CHAR || c > LAST_CHAR) {
+          break;
+        }
+        node = node.children[c - FIRST_CHAR];
+        if (node == null) {
+          break;
+        }
+        parsers |= node.parsers;
+      }
+      return parsers;
+    }
+
+  }
+
 }
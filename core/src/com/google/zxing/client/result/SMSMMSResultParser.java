@@ -106,4 +106,9 @@ public final class SMSMMSResultParser extends ResultParser {
     }
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"SMS:", "MMS:"};
+  }
+
 }
\ No newline at end of file
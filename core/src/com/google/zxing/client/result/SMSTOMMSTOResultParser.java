@@ -49,4 +49,9 @@ public final class SMSTOMMSTOResultParser extends ResultParser {
     return new SMSParsedResult(number, null, null, body);
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"SMSTO:", "MMSTO:"};
+  }
+
 }
\ No newline at end of file
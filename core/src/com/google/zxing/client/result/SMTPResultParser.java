@@ -50,4 +50,10 @@ public final class SMTPResultParser extends ResultParser {
     String mailtoURI = "mailto:" + emailAddress;
     return new EmailAddressParsedResult(emailAddress, subject, body, mailtoURI);
   }
+
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"SMTP:"};
+  }
+
 }
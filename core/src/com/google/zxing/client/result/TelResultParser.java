@@ -39,4 +39,9 @@ public final class TelResultParser extends ResultParser {
     return new TelParsedResult(number, telURI, null);
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"TEL:"};
+  }
+
 }
\ No newline at end of file
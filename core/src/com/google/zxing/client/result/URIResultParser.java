@@ -52,11 +52,11 @@ public final class URIResultParser extends ResultParser {
       return false;
     }
     Matcher m = URL_WITH_PROTOCOL_PATTERN.matcher(uri);
-    if (m.find() && m.start() == 0) { // match at start only
+    if (m.lookingAt()) { // match at start only
       return true;
     }
     m = URL_WITHOUT_PROTOCOL_PATTERN.matcher(uri);
-    return m.find() && m.start() == 0;
+    return m.lookingAt();
   }
 
 }
\ No newline at end of file
@@ -42,4 +42,9 @@ public final class URLTOResultParser extends ResultParser {
     return new URIParsedResult(uri, title);
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"URLTO:"};
+  }
+
 }
\ No newline at end of file
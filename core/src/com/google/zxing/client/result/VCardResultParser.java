@@ -52,7 +52,7 @@ public final class VCardResultParser extends ResultParser {
     // is doing just that, and we can't parse its contacts without this leniency.
     String rawText = getMassagedText(result);
     Matcher m = BEGIN_VCARD.matcher(rawText);
-    if (!m.find() || m.start() != 0) {
+    if (!m.lookingAt()) {
       return null;
     }
     List<List<String>> names = matchVCardPrefixedField("FN", rawText, true, false);
@@ -352,4 +352,9 @@ public final class VCardResultParser extends ResultParser {
     }
   }
 
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"BEGIN:VCARD"};
+  }
+
 }
@@ -48,4 +48,10 @@ public final class WifiResultParser extends ResultParser {
     boolean hidden = Boolean.parseBoolean(matchSinglePrefixedField("H:", rawText, ';', false));
     return new WifiParsedResult(type, ssid, pass, hidden);
   }
+
+  @Override
+  String[] getPrefixes() {
+    return new String[] {"WIFI:"};
+  }
+
 }
\ No newline at end of file
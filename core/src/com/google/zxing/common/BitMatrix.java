@@ -144,6 +144,40 @@ public final class BitMatrix {
     return row;
   }
 
+  /**
+   * Copies a rectangle of this matrix, a word at a time rather than bit by bit.
+   *
+   * @param left The horizontal position to begin at (inclusive)
+   * @param top The vertical position to begin at (inclusive)
+   * @param width The width of the region
+   * @param height The height of the region
+   * @return a new matrix of the given size, whose top left bit is the one at (left, top) here
+   */
+  public BitMatrix crop(int left, int top, int width, int height) {
+    if (top < 0 || left < 0 || top + height > this.height || left + width > this.width) {
+      throw new IllegalArgumentException("The region must fit inside the matrix");
+    }
+    BitMatrix cropped = new BitMatrix(width, height);
+    int croppedRowSize = cropped.rowSize;
+    int shift = left & 0x1f;
+    // Bits past the cropped width in the last word of each row are cleared
+    int lastWordMask = (width & 0x1f) == 0 ? -1 : (1 << (width & 0x1f)) - 1;
+    for (int y = 0; y < height; y++) {
+      int offset = (top + y) * rowSize + (left >> 5);
+      int rowEnd = (top + y + 1) * rowSize;
+      int croppedOffset = y * croppedRowSize;
+      for (int i = 0; i < croppedRowSize; i++) {
+        int word = bits[offset + i] >>> shift;
+        if (shift != 0 && offset + i + 1 < rowEnd) {
+          word |= bits[offset + i + 1] << (32 - shift);
+        }
+        cropped.bits[croppedOffset + i] = word;
+      }
+      cropped.bits[croppedOffset + croppedRowSize - 1] &= lastWordMask;
+    }
+    return cropped;
+  }
+
   /**
    * @param y row to set
    * @param row {@link BitArray} to copy from
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+/**
+ * Guesses the character encoding of bytes in a barcode which does not say what it is, in place of
+ * {@link StringUtils#guessEncoding(byte[], java.util.Map)}'s heuristic. Passed as
+ * {@link com.google.zxing.DecodeHintType#CHARACTER_SET_GUESSER}.
+ *
+ * @see StringUtils#guessEncoding(byte[], java.util.Map)
+ */
+public interface CharacterSetGuesser {
+
+  /**
+   * @param bytes bytes encoding a string
+   * @return name of the guessed encoding, or null to fall back to the built-in heuristic
+   */
+  String guessCharacterSet(byte[] bytes);
+
+}
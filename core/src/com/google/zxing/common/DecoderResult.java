@@ -33,6 +33,7 @@ public final class DecoderResult {
   private final String ecLevel;
   private Integer errorsCorrected;
   private Integer erasures;
+  private Integer errorCorrectionAttempts;
   private Object other;
 
   public DecoderResult(byte[] rawBytes,
@@ -76,6 +77,18 @@ public final class DecoderResult {
   public void setErasures(Integer erasures) {
     this.erasures = erasures;
   }
+
+  /**
+   * @return number of times error correction was run before the codewords decoded, where a decoder
+   *  tries several guesses at them
+   */
+  public Integer getErrorCorrectionAttempts() {
+    return errorCorrectionAttempts;
+  }
+
+  public void setErrorCorrectionAttempts(Integer errorCorrectionAttempts) {
+    this.errorCorrectionAttempts = errorCorrectionAttempts;
+  }
   
   public Object getOther() {
     return other;
@@ -34,8 +34,8 @@ import com.google.zxing.NotFoundException;
 public class GlobalHistogramBinarizer extends Binarizer {
 
   private static final int LUMINANCE_BITS = 5;
-  private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
-  private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+  static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
+  static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
   private static final byte[] EMPTY = new byte[0];
 
   private byte[] luminances;
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.LuminanceSource;
+
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * <p>Takes a cheap first look at an image, before any reader does, to tell whether it could hold
+ * a barcode at all and, if so, which kinds. The image is sampled on a decimated grid; nothing is
+ * binarized.</p>
+ *
+ * <p>An image can hold no barcode if its luminance histogram, bucketed as by
+ * {@link GlobalHistogramBinarizer}, spans too narrow a range for any pixel to stand out, or if no
+ * sampled row or column crosses enough strong edges to be a barcode, as in blank, uniform or very
+ * blurry images.</p>
+ *
+ * <p>Otherwise the grid is split into cells, and each cell with enough edges is taken to look
+ * linear if its edges run mostly in one direction, like the bars of a 1D barcode, or to look like
+ * a matrix if they run both ways. If nearly all such cells look linear, matrix codes are ruled
+ * out; if none does, 1D barcodes are. PDF417, whose rows of bars may look either way, is never
+ * ruled out that way.</p>
+ *
+ * @see com.google.zxing.DecodeHintType#TRIAGE
+ */
+public final class ImageTriage {
+
+  // Samples at most this many pixels along each side, but never every pixel
+  private static final int MAX_SAMPLES_PER_SIDE = 512;
+  private static final int MIN_SAMPLE_STEP = 2;
+  private static final int CELL_SAMPLES_POWER = 4;
+  private static final int CELL_SAMPLES = 1 << CELL_SAMPLES_POWER;
+  // Same contrast threshold that HybridBinarizer uses to decide a block has any detail at all
+  private static final int MIN_DYNAMIC_RANGE = 24;
+  private static final int MIN_EDGE_CONTRAST = 24;
+  // Samples at either end of the histogram which are taken to be noise
+  private static final int HISTOGRAM_TAIL_FRACTION = 4096;
+  // Even a small barcode, sampled coarsely, crosses this many edges along some line
+  private static final int MIN_LINE_TRANSITIONS = 6;
+  // A cell is busy if its samples differ from their neighbors by this much on average
+  private static final int MIN_GRADIENT_PER_CELL = 16 * CELL_SAMPLES * CELL_SAMPLES;
+  // A busy cell looks linear if its gradients add up to this many times more in one direction
+  private static final int LINEAR_ANISOTROPY = 2;
+  // Share of busy cells, in percent, which must look linear to rule out matrix codes
+  private static final int MIN_LINEAR_PERCENT = 80;
+
+  private static final Collection<BarcodeFormat> MATRIX_FORMATS =
+      EnumSet.of(BarcodeFormat.AZTEC, BarcodeFormat.DATA_MATRIX, BarcodeFormat.MAXICODE, BarcodeFormat.QR_CODE);
+  private static final Collection<BarcodeFormat> ONE_D_FORMATS =
+      EnumSet.complementOf(EnumSet.of(BarcodeFormat.AZTEC, BarcodeFormat.DATA_MATRIX, BarcodeFormat.MAXICODE,
+                                      BarcodeFormat.QR_CODE, BarcodeFormat.PDF_417));
+
+  private final int dynamicRange;
+  private final int maxLineTransitions;
+  private final int linearCells;
+  private final int matrixCells;
+
+  private ImageTriage(int dynamicRange, int maxLineTransitions, int linearCells, int matrixCells) {
+    this.dynamicRange = dynamicRange;
+    this.maxLineTransitions = maxLineTransitions;
+    this.linearCells = linearCells;
+    this.matrixCells = matrixCells;
+  }
+
+  /**
+   * @param source luminance data to examine
+   * @return what the image could hold
+   */
+  public static ImageTriage examine(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int step = Math.max(MIN_SAMPLE_STEP, (Math.max(width, height) + MAX_SAMPLES_PER_SIDE - 1) / MAX_SAMPLES_PER_SIDE);
+    int samplesWide = (width + step - 1) / step;
+    int samplesHigh = (height + step - 1) / step;
+    int gridWidth = (samplesWide + CELL_SAMPLES - 1) >> CELL_SAMPLES_POWER;
+    int gridHeight = (samplesHigh + CELL_SAMPLES - 1) >> CELL_SAMPLES_POWER;
+
+    int[] buckets = new int[GlobalHistogramBinarizer.LUMINANCE_BUCKETS];
+    // Luminance differences between each sample and its right neighbor, and its lower neighbor, by cell
+    int[] horizontalGradients = new int[gridWidth * gridHeight];
+    int[] verticalGradients = new int[gridWidth * gridHeight];
+    int[] columnTransitions = new int[samplesWide];
+    int maxLineTransitions = 0;
+
+    byte[] row = new byte[width];
+    byte[] previousRow = new byte[width];
+    for (int sampleY = 0; sampleY < samplesHigh; sampleY++) {
+      row = source.getRow(sampleY * step, row);
+      int cellOffset = (sampleY >> CELL_SAMPLES_POWER) * gridWidth;
+      int rowTransitions = 0;
+      for (int sampleX = 0; sampleX < samplesWide; sampleX++) {
+        int x = sampleX * step;
+        int pixel = row[x] & 0xFF;
+        buckets[pixel >> GlobalHistogramBinarizer.LUMINANCE_SHIFT]++;
+        int cell = cellOffset + (sampleX >> CELL_SAMPLES_POWER);
+        if (sampleX + 1 < samplesWide) {
+          int gradient = Math.abs(pixel - (row[x + step] & 0xFF));
+          horizontalGradients[cell] += gradient;
+          if (gradient >= MIN_EDGE_CONTRAST) {
+            rowTransitions++;
+          }
+        }
+        if (sampleY > 0) {
+          int gradient = Math.abs(pixel - (previousRow[x] & 0xFF));
+          verticalGradients[cell] += gradient;
+          if (gradient >= MIN_EDGE_CONTRAST) {
+            columnTransitions[sampleX]++;
+          }
+        }
+      }
+      maxLineTransitions = Math.max(maxLineTransitions, rowTransitions);
+      byte[] temp = previousRow;
+      previousRow = row;
+      row = temp;
+    }
+    for (int transitions : columnTransitions) {
+      maxLineTransitions = Math.max(maxLineTransitions, transitions);
+    }
+
+    int linearCells = 0;
+    int matrixCells = 0;
+    for (int cell = 0; cell < horizontalGradients.length; cell++) {
+      int horizontal = horizontalGradients[cell];
+      int vertical = verticalGradients[cell];
+      if (horizontal + vertical < MIN_GRADIENT_PER_CELL) {
+        continue;
+      }
+      if (Math.min(horizontal, vertical) * LINEAR_ANISOTROPY < Math.max(horizontal, vertical)) {
+        linearCells++;
+      } else {
+        matrixCells++;
+      }
+    }
+
+    return new ImageTriage(calculateDynamicRange(buckets, samplesWide * samplesHigh),
+                           maxLineTransitions, linearCells, matrixCells);
+  }
+
+  /**
+   * @return difference between the darkest and lightest buckets of the histogram, ignoring a
+   *  few outlying samples at either end
+   */
+  private static int calculateDynamicRange(int[] buckets, int samples) {
+    int tail = samples / HISTOGRAM_TAIL_FRACTION;
+    int low = 0;
+    for (int count = buckets[0]; count <= tail && low < buckets.length - 1; count += buckets[++low]) {
+      // find the darkest bucket past the tail
+    }
+    int high = buckets.length - 1;
+    for (int count = buckets[high]; count <= tail && high > 0; count += buckets[--high]) {
+      // find the lightest bucket past the tail
+    }
+    return Math.max(0, high - low) << GlobalHistogramBinarizer.LUMINANCE_SHIFT;
+  }
+
+  /**
+   * @return false if the image can hold no barcode, so that it need not be decoded at all
+   */
+  public boolean isBarcodePossible() {
+    return dynamicRange > MIN_DYNAMIC_RANGE && maxLineTransitions >= MIN_LINE_TRANSITIONS;
+  }
+
+  /**
+   * @return false if the image looks to hold only 2D codes, so that 1D barcodes need not be tried
+   */
+  public boolean isOneDPossible() {
+    // Even a small 1D barcode among text makes some cell look linear
+    return isBarcodePossible() && (linearCells > 0 || matrixCells == 0);
+  }
+
+  /**
+   * @return false if the image looks to hold only 1D barcodes, so that matrix codes like QR Codes
+   *  need not be tried
+   */
+  public boolean isMatrixPossible() {
+    return isBarcodePossible() && (linearCells == 0 || linearCells * 100 < (linearCells + matrixCells) * MIN_LINEAR_PERCENT);
+  }
+
+  /**
+   * @param formats formats which the caller would look for, or null for all of them
+   * @return those of them which the image could hold; empty if it can hold no barcode
+   */
+  public Collection<BarcodeFormat> narrowFormats(Collection<BarcodeFormat> formats) {
+    Collection<BarcodeFormat> narrowed = EnumSet.noneOf(BarcodeFormat.class);
+    if (!isBarcodePossible()) {
+      return narrowed;
+    }
+    boolean oneDPossible = isOneDPossible();
+    boolean matrixPossible = isMatrixPossible();
+    for (BarcodeFormat format : formats == null ? EnumSet.allOf(BarcodeFormat.class) : formats) {
+      if (ONE_D_FORMATS.contains(format) ? oneDPossible : !MATRIX_FORMATS.contains(format) || matrixPossible) {
+        narrowed.add(format);
+      }
+    }
+    return narrowed;
+  }
+
+  @Override
+  public String toString() {
+    return "range=" + dynamicRange + " transitions=" + maxLineTransitions + " linearCells=" + linearCells +
+        " matrixCells=" + matrixCells;
+  }
+
+}
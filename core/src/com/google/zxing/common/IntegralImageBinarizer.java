@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * <p>This class implements a local thresholding algorithm in the style of Bradley and Roth's
+ * "Adaptive Thresholding Using the Integral Image". A summed-area table of the luminances is
+ * built once, after which the mean over any window around a pixel costs four lookups. A pixel
+ * is black if it is darker than that mean by some margin.</p>
+ *
+ * <p>Unlike {@link HybridBinarizer}, the window is centered on each pixel rather than fixed to
+ * a grid of blocks, so it does not produce block artifacts under uneven lighting, and the window
+ * size is configurable. It should be larger than the largest module expected in the image,
+ * since the inside of a black area much larger than the window is indistinguishable from a
+ * uniform background.</p>
+ *
+ * <p>Like {@link HybridBinarizer}, it uses the histogram approach for 1D readers. Given an
+ * {@link ExecutorService}, building the table and thresholding run in parallel bands.</p>
+ */
+public final class IntegralImageBinarizer extends GlobalHistogramBinarizer {
+
+  private static final int MINIMUM_DIMENSION = 40;
+  private static final int MIN_WINDOW_SIZE = 16;
+  // A pixel must be this many percent darker than its window's mean to be black
+  private static final int THRESHOLD_PERCENT = 10;
+
+  private final int windowSize;
+  private final ExecutorService executor;
+  private BitMatrix matrix;
+
+  /**
+   * Uses a window of one eighth of the smaller image dimension, and the calling thread.
+   */
+  public IntegralImageBinarizer(LuminanceSource source) {
+    this(source, 0, null);
+  }
+
+  /**
+   * @param source luminance data to binarize
+   * @param windowSize side of the square window whose mean is the basis for each pixel's
+   *  threshold, or 0 to use one eighth of the smaller image dimension
+   * @param executor runs the work in parallel bands of rows, or null to use the calling thread
+   */
+  public IntegralImageBinarizer(LuminanceSource source, int windowSize, ExecutorService executor) {
+    super(source);
+    if (windowSize < 0) {
+      throw new IllegalArgumentException("Window size must not be negative");
+    }
+    this.windowSize = windowSize;
+    this.executor = executor;
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    if (matrix != null) {
+      return matrix;
+    }
+    LuminanceSource source = getLuminanceSource();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (width >= MINIMUM_DIMENSION && height >= MINIMUM_DIMENSION) {
+      byte[] luminances = source.getMatrix();
+      int[] integral = calculateIntegralImage(luminances, width, height, executor);
+      int size = windowSize > 0 ? windowSize : Math.max(MIN_WINDOW_SIZE, Math.min(width, height) >> 3);
+      matrix = threshold(luminances, integral, width, height, size >> 1, executor);
+    } else {
+      // If the image is too small, fall back to the global histogram approach.
+      matrix = super.getBlackMatrix();
+    }
+    return matrix;
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new IntegralImageBinarizer(source, windowSize, executor);
+  }
+
+  /**
+   * Builds the summed-area table, with a leading row and column of zeroes: entry (x+1,y+1) is
+   * the sum of all luminances in the rectangle from (0,0) to (x,y) inclusive. Row sums are
+   * computed first, then accumulated down each column, so both passes split into bands.
+   *
+   * The totals overflow an int for images over about 8 megapixels, but the table is only ever
+   * used to compute sums over a window through additions and subtractions. Two's complement
+   * arithmetic makes those exact as long as the window's own sum fits in an int, which holds
+   * for any window under 8 megapixels.
+   */
+  private static int[] calculateIntegralImage(final byte[] luminances,
+                                              final int width,
+                                              int height,
+                                              ExecutorService executor) {
+    final int stride = width + 1;
+    final int[] integral = new int[stride * (height + 1)];
+    RowBands.run(executor, height, new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
+        for (int y = startRow; y < endRow; y++) {
+          int sum = 0;
+          int inputOffset = y * width;
+          int outputOffset = (y + 1) * stride + 1;
+          for (int x = 0; x < width; x++) {
+            sum += luminances[inputOffset + x] & 0xFF;
+            integral[outputOffset + x] = sum;
+          }
+        }
+      }
+    });
+    final int rows = height + 1;
+    // Bands of columns, this time
+    RowBands.run(executor, stride, new RowBands.Task() {
+      @Override
+      public void processRows(int startColumn, int endColumn) {
+        for (int y = 2; y < rows; y++) {
+          int offset = y * stride;
+          for (int x = startColumn; x < endColumn; x++) {
+            integral[offset + x] += integral[offset - stride + x];
+          }
+        }
+      }
+    });
+    return integral;
+  }
+
+  /**
+   * Compares each pixel against the mean of the window of the given radius around it, clipped to
+   * the image. Bits are assembled 32 at a time and stored a whole row at a time.
+   */
+  private static BitMatrix threshold(final byte[] luminances,
+                                     final int[] integral,
+                                     final int width,
+                                     final int height,
+                                     final int radius,
+                                     ExecutorService executor) {
+    final BitMatrix matrix = new BitMatrix(width, height);
+    final int stride = width + 1;
+    RowBands.run(executor, height, new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
+        BitArray row = new BitArray(width);
+        for (int y = startRow; y < endRow; y++) {
+          int top = Math.max(0, y - radius);
+          int bottom = Math.min(height, y + radius + 1);
+          int windowHeight = bottom - top;
+          int topOffset = top * stride;
+          int bottomOffset = bottom * stride;
+          int inputOffset = y * width;
+          for (int wordStart = 0; wordStart < width; wordStart += 32) {
+            int wordEnd = Math.min(width, wordStart + 32);
+            int bits = 0;
+            for (int x = wordStart; x < wordEnd; x++) {
+              int left = Math.max(0, x - radius);
+              int right = Math.min(width, x + radius + 1);
+              int sum = integral[bottomOffset + right] - integral[bottomOffset + left] -
+                  integral[topOffset + right] + integral[topOffset + left];
+              long count = (long) (right - left) * windowHeight;
+              int pixel = luminances[inputOffset + x] & 0xFF;
+              // Comparison needs to be <= so that black == 0 pixels are black even if the mean is 0.
+              if (pixel * count * 100 <= (long) sum * (100 - THRESHOLD_PERCENT)) {
+                bits |= 1 << (x & 0x1F);
+              }
+            }
+            row.setBulk(wordStart, bits);
+          }
+          matrix.setRow(y, row);
+        }
+      }
+    });
+    return matrix;
+  }
+
+}
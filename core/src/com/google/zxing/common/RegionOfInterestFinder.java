@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Proposes rectangular regions of an image which are likely to contain a barcode, without
+ * binarizing it. The image is sampled on a decimated grid and split into cells; a cell's saliency
+ * is the number of strong horizontal and vertical luminance transitions seen in it. Salient cells
+ * are dilated by one cell for the quiet zone and grouped into connected components, and each
+ * component's bounding box becomes a candidate region.</p>
+ *
+ * <p>This is meant for large images in which the barcode covers a small part of the frame, where
+ * binarizing only the candidate regions is much cheaper than binarizing the whole image.</p>
+ */
+public final class RegionOfInterestFinder {
+
+  // Cells are 32x32 pixels, sampled every other pixel in each direction.
+  private static final int CELL_SIZE_POWER = 5;
+  private static final int CELL_SIZE = 1 << CELL_SIZE_POWER;
+  private static final int SAMPLE_STEP = 2;
+  private static final int SAMPLES_PER_CELL = 2 * (CELL_SIZE / SAMPLE_STEP) * (CELL_SIZE / SAMPLE_STEP);
+  // Same contrast threshold that HybridBinarizer uses to decide a block has any detail at all
+  private static final int MIN_EDGE_CONTRAST = 24;
+  // A cell must have at least this many edge samples, regardless of how busy the rest of the image is
+  private static final int MIN_EDGES_PER_CELL = SAMPLES_PER_CELL >> 5;
+  private static final int MIN_CELLS_PER_REGION = 4;
+  private static final int MIN_GRID_DIMENSION = 4;
+  private static final int MAX_REGIONS = 8;
+  // If the regions cover more than this much of the image, cropping buys nothing
+  private static final int MAX_COVERAGE_PERCENT = 60;
+
+  private RegionOfInterestFinder() {
+  }
+
+  /**
+   * @param source luminance data to examine
+   * @return candidate regions as {left,top,width,height} rectangles, most salient first. This is
+   *  empty if the image is too small to benefit, if nothing stands out, or if the candidates
+   *  together cover most of the image; callers should then examine the whole image.
+   */
+  public static List<int[]> findRegions(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int gridWidth = width >> CELL_SIZE_POWER;
+    int gridHeight = height >> CELL_SIZE_POWER;
+    if (gridWidth < MIN_GRID_DIMENSION || gridHeight < MIN_GRID_DIMENSION) {
+      return Collections.emptyList();
+    }
+
+    int[] edgeCounts = calculateEdgeCounts(source, gridWidth, gridHeight);
+
+    long totalEdges = 0;
+    for (int count : edgeCounts) {
+      totalEdges += count;
+    }
+    // A cell stands out if it is at least twice as busy as the average cell
+    int threshold = Math.max(MIN_EDGES_PER_CELL, (int) (2 * totalEdges / edgeCounts.length));
+    boolean[] salient = new boolean[edgeCounts.length];
+    for (int i = 0; i < edgeCounts.length; i++) {
+      salient[i] = edgeCounts[i] >= threshold;
+    }
+
+    List<Region> regions = findConnectedRegions(salient, edgeCounts, gridWidth, gridHeight);
+    if (regions.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Collections.sort(regions, new SaliencyComparator());
+
+    List<int[]> rectangles = new ArrayList<int[]>(Math.min(regions.size(), MAX_REGIONS));
+    long coveredArea = 0;
+    for (Region region : regions) {
+      if (rectangles.size() == MAX_REGIONS) {
+        break;
+      }
+      // Cells in the last row and column absorb the pixels left over after dividing into cells
+      int left = region.minX << CELL_SIZE_POWER;
+      int top = region.minY << CELL_SIZE_POWER;
+      int right = region.maxX + 1 == gridWidth ? width : (region.maxX + 1) << CELL_SIZE_POWER;
+      int bottom = region.maxY + 1 == gridHeight ? height : (region.maxY + 1) << CELL_SIZE_POWER;
+      rectangles.add(new int[] {left, top, right - left, bottom - top});
+      coveredArea += (long) (right - left) * (bottom - top);
+    }
+    if (coveredArea * 100 > (long) width * height * MAX_COVERAGE_PERCENT) {
+      return Collections.emptyList();
+    }
+    return rectangles;
+  }
+
+  /**
+   * Counts, for each cell, the sampled pixels which differ strongly from their right or lower
+   * sampled neighbor. Only every {@link #SAMPLE_STEP}th row is fetched from the source.
+   */
+  private static int[] calculateEdgeCounts(LuminanceSource source, int gridWidth, int gridHeight) {
+    int sampledWidth = gridWidth << CELL_SIZE_POWER;
+    int sampledHeight = gridHeight << CELL_SIZE_POWER;
+    int[] edgeCounts = new int[gridWidth * gridHeight];
+    byte[] row = new byte[source.getWidth()];
+    byte[] previousRow = new byte[source.getWidth()];
+    for (int y = 0; y < sampledHeight; y += SAMPLE_STEP) {
+      row = source.getRow(y, row);
+      int cellOffset = (y >> CELL_SIZE_POWER) * gridWidth;
+      for (int x = 0; x < sampledWidth; x += SAMPLE_STEP) {
+        int pixel = row[x] & 0xFF;
+        int edges = 0;
+        if (x + SAMPLE_STEP < sampledWidth && Math.abs(pixel - (row[x + SAMPLE_STEP] & 0xFF)) >= MIN_EDGE_CONTRAST) {
+          edges++;
+        }
+        if (y > 0 && Math.abs(pixel - (previousRow[x] & 0xFF)) >= MIN_EDGE_CONTRAST) {
+          edges++;
+        }
+        edgeCounts[cellOffset + (x >> CELL_SIZE_POWER)] += edges;
+      }
+      byte[] temp = previousRow;
+      previousRow = row;
+      row = temp;
+    }
+    return edgeCounts;
+  }
+
+  /**
+   * Groups salient cells into 8-connected components, after dilating them by one cell. Dilating
+   * both pads each component for the quiet zone and lets it grow across the interior of large
+   * modules, where there are no edges at all.
+   */
+  private static List<Region> findConnectedRegions(boolean[] salient,
+                                                   int[] edgeCounts,
+                                                   int gridWidth,
+                                                   int gridHeight) {
+    boolean[] dilated = new boolean[salient.length];
+    for (int y = 0; y < gridHeight; y++) {
+      for (int x = 0; x < gridWidth; x++) {
+        if (salient[y * gridWidth + x]) {
+          for (int yy = Math.max(0, y - 1); yy <= Math.min(gridHeight - 1, y + 1); yy++) {
+            for (int xx = Math.max(0, x - 1); xx <= Math.min(gridWidth - 1, x + 1); xx++) {
+              dilated[yy * gridWidth + xx] = true;
+            }
+          }
+        }
+      }
+    }
+
+    List<Region> regions = new ArrayList<Region>();
+    boolean[] visited = new boolean[salient.length];
+    int[] stack = new int[salient.length];
+    for (int start = 0; start < salient.length; start++) {
+      if (!dilated[start] || visited[start]) {
+        continue;
+      }
+      Region region = new Region(start % gridWidth, start / gridWidth);
+      int stackSize = 0;
+      stack[stackSize++] = start;
+      visited[start] = true;
+      while (stackSize > 0) {
+        int cell = stack[--stackSize];
+        int cellX = cell % gridWidth;
+        int cellY = cell / gridWidth;
+        region.add(cellX, cellY, salient[cell], edgeCounts[cell]);
+        for (int neighborY = Math.max(0, cellY - 1); neighborY <= Math.min(gridHeight - 1, cellY + 1); neighborY++) {
+          for (int neighborX = Math.max(0, cellX - 1); neighborX <= Math.min(gridWidth - 1, cellX + 1); neighborX++) {
+            int neighbor = neighborY * gridWidth + neighborX;
+            if (dilated[neighbor] && !visited[neighbor]) {
+              visited[neighbor] = true;
+              stack[stackSize++] = neighbor;
+            }
+          }
+        }
+      }
+      if (region.salientCells >= MIN_CELLS_PER_REGION) {
+        regions.add(region);
+      }
+    }
+    return regions;
+  }
+
+  private static final class Region {
+
+    private int minX;
+    private int minY;
+    private int maxX;
+    private int maxY;
+    private int salientCells;
+    private long edges;
+
+    Region(int x, int y) {
+      minX = x;
+      maxX = x;
+      minY = y;
+      maxY = y;
+    }
+
+    void add(int x, int y, boolean salient, int cellEdges) {
+      if (x < minX) {
+        minX = x;
+      }
+      if (x > maxX) {
+        maxX = x;
+      }
+      if (y < minY) {
+        minY = y;
+      }
+      if (y > maxY) {
+        maxY = y;
+      }
+      if (salient) {
+        salientCells++;
+      }
+      edges += cellEdges;
+    }
+
+  }
+
+  /**
+   * Orders regions by decreasing total edge count.
+   */
+  private static final class SaliencyComparator implements Comparator<Region> {
+    @Override
+    public int compare(Region a, Region b) {
+      return a.edges > b.edges ? -1 : a.edges == b.edges ? 0 : 1;
+    }
+  }
+
+}
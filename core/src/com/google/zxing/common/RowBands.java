@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits per-row image work into horizontal bands which run concurrently on an
+ * {@link ExecutorService}, for the image processing steps which offer a parallel mode.
+ */
+public final class RowBands {
+
+  // Bands smaller than this are not worth the overhead of a separate task
+  private static final int MIN_ROWS_PER_BAND = 32;
+
+  /**
+   * Work on a contiguous range of rows.
+   */
+  public interface Task {
+    /**
+     * @param startRow first row to process, inclusive
+     * @param endRow last row to process, exclusive
+     */
+    void processRows(int startRow, int endRow);
+  }
+
+  private RowBands() {
+  }
+
+  /**
+   * Runs task over rows 0 through height - 1, in one band per available processor, and waits
+   * for all bands to finish. With a null executor, or too few rows to split, the task simply
+   * runs on the calling thread.
+   *
+   * @param executor where to run bands, or null to run on the calling thread
+   * @param height number of rows
+   * @param task work to do on each band
+   */
+  public static void run(ExecutorService executor, int height, final Task task) {
+    int bands = Math.min(Runtime.getRuntime().availableProcessors(), height / MIN_ROWS_PER_BAND);
+    if (executor == null || bands <= 1) {
+      task.processRows(0, height);
+      return;
+    }
+    Collection<Future<?>> futures = new ArrayList<Future<?>>(bands);
+    for (int band = 0; band < bands; band++) {
+      final int startRow = height * band / bands;
+      final int endRow = height * (band + 1) / bands;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          task.processRows(startRow, endRow);
+          return null;
+        }
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+}
@@ -16,6 +16,7 @@
 
 package com.google.zxing.common;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import com.google.zxing.DecodeHintType;
@@ -39,6 +40,125 @@ public final class StringUtils {
       SHIFT_JIS.equalsIgnoreCase(PLATFORM_DEFAULT_ENCODING) ||
       EUC_JP.equalsIgnoreCase(PLATFORM_DEFAULT_ENCODING);
 
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  // What each encoding makes of a byte. For UTF-8: ASCII, continuation, lead of a 2, 3 or 4 byte
+  // character, or invalid.
+  private static final int UTF8_ASCII = 0;
+  private static final int UTF8_CONTINUATION = 1;
+  private static final int UTF8_LEAD_2 = 2;
+  private static final int UTF8_LEAD_3 = 3;
+  private static final int UTF8_LEAD_4 = 4;
+  private static final int UTF8_INVALID_BYTE = 5;
+  private static final int UTF8_CLASSES = 6;
+  // For Shift_JIS: what it is as the first byte of a character, and whether it can be the second.
+  private static final int SJIS_LOW_NOT_TRAIL = 0;
+  private static final int SJIS_LOW = 1;
+  private static final int SJIS_KATAKANA = 2;
+  private static final int SJIS_DOUBLE_BYTE_LEAD = 3;
+  private static final int SJIS_TRAIL_ONLY = 4;
+  private static final int SJIS_INVALID_BYTE = 5;
+  private static final int SJIS_CLASSES = 6;
+  // For ISO-8859-1: a letter or ASCII, a control character, or some other "upper" character.
+  private static final int ISO88591_OK = 0;
+  private static final int ISO88591_INVALID_BYTE = 1;
+  private static final int ISO88591_HIGH_OTHER = 2;
+
+  // The three classes of each byte, packed
+  private static final byte[] BYTE_CLASSES = new byte[256];
+  private static final int SJIS_SHIFT = 3;
+  private static final int ISO88591_SHIFT = 6;
+
+  // UTF-8 states are the number of continuation bytes still expected, or UTF8_INVALID
+  private static final int UTF8_INVALID = 4;
+  private static final byte[] UTF8_TRANSITIONS = new byte[(UTF8_INVALID + 1) * UTF8_CLASSES];
+  private static final int SJIS_EXPECT_LEAD = 0;
+  private static final int SJIS_EXPECT_TRAIL = 1;
+  private static final int SJIS_INVALID = 2;
+  private static final byte[] SJIS_TRANSITIONS = new byte[(SJIS_INVALID + 1) * SJIS_CLASSES];
+
+  static {
+    for (int value = 0; value < 256; value++) {
+      int utf8Class;
+      if (value < 0x80) {
+        utf8Class = UTF8_ASCII;
+      } else if (value < 0xC0) {
+        utf8Class = UTF8_CONTINUATION;
+      } else if (value < 0xE0) {
+        utf8Class = UTF8_LEAD_2;
+      } else if (value < 0xF0) {
+        utf8Class = UTF8_LEAD_3;
+      } else if (value < 0xF8) {
+        utf8Class = UTF8_LEAD_4;
+      } else {
+        utf8Class = UTF8_INVALID_BYTE;
+      }
+
+      boolean sjisTrail = value >= 0x40 && value != 0x7F && value <= 0xFC;
+      int sjisClass;
+      if (value < 0x80) {
+        sjisClass = sjisTrail ? SJIS_LOW : SJIS_LOW_NOT_TRAIL;
+      } else if (value == 0x80 || value == 0xA0 || value > 0xEF) {
+        sjisClass = sjisTrail ? SJIS_TRAIL_ONLY : SJIS_INVALID_BYTE;
+      } else if (value > 0xA0 && value < 0xE0) {
+        sjisClass = SJIS_KATAKANA;
+      } else {
+        sjisClass = SJIS_DOUBLE_BYTE_LEAD;
+      }
+
+      int isoClass;
+      if (value > 0x7F && value < 0xA0) {
+        isoClass = ISO88591_INVALID_BYTE;
+      } else if (value > 0x9F && (value < 0xC0 || value == 0xD7 || value == 0xF7)) {
+        isoClass = ISO88591_HIGH_OTHER;
+      } else {
+        isoClass = ISO88591_OK;
+      }
+
+      BYTE_CLASSES[value] = (byte) (utf8Class | sjisClass << SJIS_SHIFT | isoClass << ISO88591_SHIFT);
+    }
+
+    for (int state = 0; state <= UTF8_INVALID; state++) {
+      for (int utf8Class = 0; utf8Class < UTF8_CLASSES; utf8Class++) {
+        int next;
+        if (state == UTF8_INVALID) {
+          next = UTF8_INVALID;
+        } else if (state > 0) {
+          // Any byte with the high bit set is taken as a continuation
+          next = utf8Class == UTF8_ASCII ? UTF8_INVALID : state - 1;
+        } else if (utf8Class == UTF8_ASCII) {
+          next = 0;
+        } else if (utf8Class >= UTF8_LEAD_2 && utf8Class <= UTF8_LEAD_4) {
+          next = utf8Class - UTF8_LEAD_2 + 1;
+        } else {
+          next = UTF8_INVALID;
+        }
+        UTF8_TRANSITIONS[state * UTF8_CLASSES + utf8Class] = (byte) next;
+      }
+    }
+
+    for (int sjisClass = 0; sjisClass < SJIS_CLASSES; sjisClass++) {
+      int next;
+      switch (sjisClass) {
+        case SJIS_LOW_NOT_TRAIL:
+        case SJIS_LOW:
+        case SJIS_KATAKANA:
+          next = SJIS_EXPECT_LEAD;
+          break;
+        case SJIS_DOUBLE_BYTE_LEAD:
+          next = SJIS_EXPECT_TRAIL;
+          break;
+        default:
+          next = SJIS_INVALID;
+          break;
+      }
+      SJIS_TRANSITIONS[SJIS_EXPECT_LEAD * SJIS_CLASSES + sjisClass] = (byte) next;
+      SJIS_TRANSITIONS[SJIS_EXPECT_TRAIL * SJIS_CLASSES + sjisClass] =
+          (byte) (sjisClass == SJIS_LOW_NOT_TRAIL || sjisClass == SJIS_INVALID_BYTE ? SJIS_INVALID : SJIS_EXPECT_LEAD);
+      SJIS_TRANSITIONS[SJIS_INVALID * SJIS_CLASSES + sjisClass] = (byte) SJIS_INVALID;
+    }
+  }
+
   private StringUtils() {}
 
   /**
@@ -54,28 +174,33 @@ public final class StringUtils {
       if (characterSet != null) {
         return characterSet;
       }
+      CharacterSetGuesser guesser = (CharacterSetGuesser) hints.get(DecodeHintType.CHARACTER_SET_GUESSER);
+      if (guesser != null) {
+        characterSet = guesser.guessCharacterSet(bytes);
+        if (characterSet != null) {
+          return characterSet;
+        }
+      }
     }
     // For now, merely tries to distinguish ISO-8859-1, UTF-8 and Shift_JIS,
     // which should be by far the most common encodings.
     int length = bytes.length;
+    int start = getASCIIPrefixLength(bytes);
+    if (start == length) {
+      // Any of them would do. This is what the checks below come to without the bytes to go on.
+      return ASSUME_SHIFT_JIS || length == 0 ? SHIFT_JIS : ISO88591;
+    }
+
+    // Before start, all three read ASCII and stay in their initial states
     boolean canBeISO88591 = true;
-    boolean canBeShiftJIS = true;
-    boolean canBeUTF8 = true;
-    int utf8BytesLeft = 0;
-    //int utf8LowChars = 0;
-    int utf2BytesChars = 0;
-    int utf3BytesChars = 0;
-    int utf4BytesChars = 0;
-    int sjisBytesLeft = 0;
-    //int sjisLowChars = 0;
+    int utf8State = 0;
+    boolean utf8MultiByteChars = false;
+    int sjisState = SJIS_EXPECT_LEAD;
     int sjisKatakanaChars = 0;
-    //int sjisDoubleBytesChars = 0;
     int sjisCurKatakanaWordLength = 0;
     int sjisCurDoubleBytesWordLength = 0;
     int sjisMaxKatakanaWordLength = 0;
     int sjisMaxDoubleBytesWordLength = 0;
-    //int isoLowChars = 0;
-    //int isoHighChars = 0;
     int isoHighOther = 0;
 
     boolean utf8bom = bytes.length > 3 &&
@@ -83,103 +208,56 @@ public final class StringUtils {
         bytes[1] == (byte) 0xBB &&
         bytes[2] == (byte) 0xBF;
 
-    for (int i = 0;
-         i < length && (canBeISO88591 || canBeShiftJIS || canBeUTF8);
+    for (int i = start;
+         i < length && (canBeISO88591 || sjisState != SJIS_INVALID || utf8State != UTF8_INVALID);
          i++) {
 
-      int value = bytes[i] & 0xFF;
+      int byteClass = BYTE_CLASSES[bytes[i] & 0xFF] & 0xFF;
 
-      // UTF-8 stuff
-      if (canBeUTF8) {
-        if (utf8BytesLeft > 0) {
-          if ((value & 0x80) == 0) {
-            canBeUTF8 = false;
-          } else {
-            utf8BytesLeft--;
-          }
-        } else if ((value & 0x80) != 0) {
-          if ((value & 0x40) == 0) {
-            canBeUTF8 = false;
-          } else {
-            utf8BytesLeft++;
-            if ((value & 0x20) == 0) {
-              utf2BytesChars++;
-            } else {
-              utf8BytesLeft++;
-              if ((value & 0x10) == 0) {
-                utf3BytesChars++;
-              } else {
-                utf8BytesLeft++;
-                if ((value & 0x08) == 0) {
-                  utf4BytesChars++;
-                } else {
-                  canBeUTF8 = false;
-                }
-              }
-            }
-          }
-        } //else {
-          //utf8LowChars++;
-        //}
+      // UTF-8 stuff. Only a lead byte leaves the initial state.
+      utf8State = UTF8_TRANSITIONS[utf8State * UTF8_CLASSES + (byteClass & 0x07)];
+      if (utf8State != 0 && utf8State != UTF8_INVALID) {
+        utf8MultiByteChars = true;
       }
 
       // ISO-8859-1 stuff
-      if (canBeISO88591) {
-        if (value > 0x7F && value < 0xA0) {
-          canBeISO88591 = false;
-        } else if (value > 0x9F) {
-          if (value < 0xC0 || value == 0xD7 || value == 0xF7) {
-            isoHighOther++;
-          } //else {
-            //isoHighChars++;
-          //}
-        } //else {
-          //isoLowChars++;
-        //}
+      int isoClass = byteClass >> ISO88591_SHIFT;
+      if (isoClass == ISO88591_INVALID_BYTE) {
+        canBeISO88591 = false;
+      } else if (isoClass == ISO88591_HIGH_OTHER) {
+        isoHighOther++;
       }
 
       // Shift_JIS stuff
-      if (canBeShiftJIS) {
-        if (sjisBytesLeft > 0) {
-          if (value < 0x40 || value == 0x7F || value > 0xFC) {
-            canBeShiftJIS = false;
-          } else {
-            sjisBytesLeft--;
-          }
-        } else if (value == 0x80 || value == 0xA0 || value > 0xEF) {
-          canBeShiftJIS = false;
-        } else if (value > 0xA0 && value < 0xE0) {
+      int sjisClass = (byteClass >> SJIS_SHIFT) & 0x07;
+      if (sjisState == SJIS_EXPECT_LEAD) {
+        if (sjisClass == SJIS_KATAKANA) {
           sjisKatakanaChars++;
           sjisCurDoubleBytesWordLength = 0;
           sjisCurKatakanaWordLength++;
           if (sjisCurKatakanaWordLength > sjisMaxKatakanaWordLength) {
             sjisMaxKatakanaWordLength = sjisCurKatakanaWordLength;
           }
-        } else if (value > 0x7F) {
-          sjisBytesLeft++;
-          //sjisDoubleBytesChars++;
+        } else if (sjisClass == SJIS_DOUBLE_BYTE_LEAD) {
           sjisCurKatakanaWordLength = 0;
           sjisCurDoubleBytesWordLength++;
           if (sjisCurDoubleBytesWordLength > sjisMaxDoubleBytesWordLength) {
             sjisMaxDoubleBytesWordLength = sjisCurDoubleBytesWordLength;
           }
         } else {
-          //sjisLowChars++;
           sjisCurKatakanaWordLength = 0;
           sjisCurDoubleBytesWordLength = 0;
         }
       }
+      sjisState = SJIS_TRANSITIONS[sjisState * SJIS_CLASSES + sjisClass];
     }
 
-    if (canBeUTF8 && utf8BytesLeft > 0) {
-      canBeUTF8 = false;
-    }
-    if (canBeShiftJIS && sjisBytesLeft > 0) {
-      canBeShiftJIS = false;
-    }
+    // A character cut off at the end rules out the encoding
+    boolean canBeUTF8 = utf8State == 0;
+    boolean canBeShiftJIS = sjisState == SJIS_EXPECT_LEAD;
 
     // Easy -- if there is BOM or at least 1 valid not-single byte character (and no evidence it can't be UTF-8), done
-    if (canBeUTF8 && (utf8bom || utf2BytesChars + utf3BytesChars + utf4BytesChars > 0)) {
+    if (canBeUTF8 && (utf8bom || utf8MultiByteChars)) {
       return UTF8;
     }
     // Easy -- if assuming Shift_JIS or at least 3 valid consecutive not-ascii characters (and no evidence it can't be), done
@@ -210,4 +288,24 @@ public final class StringUtils {
     return PLATFORM_DEFAULT_ENCODING;
   }
 
+  /**
+   * @return index of the first byte which is not ASCII, or the length if all are
+   */
+  private static int getASCIIPrefixLength(byte[] bytes) {
+    int length = bytes.length;
+    int i = 0;
+    if (length >= 8) {
+      // Eight bytes at a time, as long as the high bits of all are clear
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      int end = length - 8;
+      while (i <= end && (buffer.getLong(i) & HIGH_BITS) == 0) {
+        i += 8;
+      }
+    }
+    while (i < length && bytes[i] >= 0) {
+      i++;
+    }
+    return i;
+  }
+
 }
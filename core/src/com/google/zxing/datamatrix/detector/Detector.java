@@ -48,6 +48,19 @@ public final class Detector {
     rectangleDetector = new WhiteRectangleDetector(image);
   }
 
+  /**
+   * @param image image to search
+   * @param initSize size of the square, around the given point, from which to search outwards for
+   *  the white border around the code
+   * @param x x coordinate of a point inside the code
+   * @param y y coordinate of a point inside the code
+   * @throws NotFoundException if the square does not fit in the image
+   */
+  public Detector(BitMatrix image, int initSize, int x, int y) throws NotFoundException {
+    this.image = image;
+    rectangleDetector = new WhiteRectangleDetector(image, initSize, x, y);
+  }
+
   /**
    * <p>Detects a Data Matrix Code in an image.</p>
    *
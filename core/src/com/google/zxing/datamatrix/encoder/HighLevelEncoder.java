@@ -30,7 +30,7 @@ public final class HighLevelEncoder {
   /**
    * Padding character
    */
-  private static final char PAD = 129;
+  static final char PAD = 129;
   /**
    * mode latch to C40 encodation mode
    */
@@ -58,11 +58,11 @@ public final class HighLevelEncoder {
   /**
    * 05 Macro
    */
-  private static final char MACRO_05 = 236;
+  static final char MACRO_05 = 236;
   /**
    * 06 Macro
    */
-  private static final char MACRO_06 = 237;
+  static final char MACRO_06 = 237;
   /**
    * mode latch to ANSI X.12 encodation mode
    */
@@ -92,15 +92,15 @@ public final class HighLevelEncoder {
   /**
    * 05 Macro header
    */
-  private static final String MACRO_05_HEADER = "[)>\u001E05\u001D";
+  static final String MACRO_05_HEADER = "[)>\u001E05\u001D";
   /**
    * 06 Macro header
    */
-  private static final String MACRO_06_HEADER = "[)>\u001E06\u001D";
+  static final String MACRO_06_HEADER = "[)>\u001E06\u001D";
   /**
    * Macro trailer
    */
-  private static final String MACRO_TRAILER = "\u001E\u0004";
+  static final String MACRO_TRAILER = "\u001E\u0004";
 
   static final int ASCII_ENCODATION = 0;
   static final int C40_ENCODATION = 1;
@@ -123,7 +123,7 @@ public final class HighLevelEncoder {
     return msg.getBytes(Charset.forName("cp437")); //See 4.4.3 and annex B of ISO/IEC 15438:2001(E)
   }
 
-  private static char randomize253State(char ch, int codewordPosition) {
+  static char randomize253State(char ch, int codewordPosition) {
     int pseudoRandom = ((149 * codewordPosition) % 253) + 1;
     int tempVariable = ch + pseudoRandom;
     return tempVariable <= 254 ? (char) tempVariable : (char) (tempVariable - 254);
@@ -387,15 +387,15 @@ public final class HighLevelEncoder {
     return ch >= 128 && ch <= 255;
   }
 
-  private static boolean isNativeC40(char ch) {
+  static boolean isNativeC40(char ch) {
     return (ch == ' ') || (ch >= '0' && ch <= '9') || (ch >= 'A' && ch <= 'Z');
   }
 
-  private static boolean isNativeText(char ch) {
+  static boolean isNativeText(char ch) {
     return (ch == ' ') || (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'z');
   }
 
-  private static boolean isNativeX12(char ch) {
+  static boolean isNativeX12(char ch) {
     return isX12TermSep(ch) || (ch == ' ') || (ch >= '0' && ch <= '9') || (ch >= 'A' && ch <= 'Z');
   }
 
@@ -405,7 +405,7 @@ public final class HighLevelEncoder {
         || (ch == '>');
   }
 
-  private static boolean isNativeEDIFACT(char ch) {
+  static boolean isNativeEDIFACT(char ch) {
     return ch >= ' ' && ch <= '^';
   }
 
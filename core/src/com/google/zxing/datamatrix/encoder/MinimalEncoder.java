@@ -0,0 +1,459 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.datamatrix.encoder;
+
+import com.google.zxing.Dimension;
+
+import java.util.Arrays;
+
+/**
+ * <p>DataMatrix ECC 200 data encoder which finds the shortest possible codeword sequence,
+ * rather than following the look-ahead heuristic of annex P of ISO/IEC 16022:2000(E) as
+ * {@link HighLevelEncoder} does. Its output has the same form, and is never longer.</p>
+ *
+ * <p>The search is a single pass over the message. At each position, it keeps the cheapest
+ * way to arrive in each state: ASCII, C40, Text or X12 with 0 to 2 values of an unfinished
+ * triplet, or EDIFACT with 0 to 3 characters of an unfinished group. Base 256 segments are
+ * edges from one ASCII state to a later one, whose best start is tracked with a sliding window
+ * minimum, so the whole search takes linear time.</p>
+ *
+ * <p>Near the end of a symbol, the decoder returns to ASCII without an unlatch, which can save
+ * a codeword but depends on the symbol's capacity. The search is therefore run once without
+ * a symbol, then against the candidate symbols in order of size until the result fits.</p>
+ */
+public final class MinimalEncoder {
+
+  // States at each position. C40, Text and X12 add the number of values in the unfinished
+  // triplet; EDIFACT adds the number of characters in the unfinished group.
+  private static final int ASCII = 0;
+  private static final int C40 = 1;
+  private static final int TEXT = 4;
+  private static final int X12 = 7;
+  private static final int EDIFACT = 10;
+  private static final int STATE_COUNT = 14;
+
+  // The edge by which a state was reached
+  private static final byte CHARACTER = 1;
+  private static final byte DIGIT_PAIR = 2;
+  private static final byte LATCH = 3;
+  private static final byte UNLATCH = 4;
+  private static final byte IMPLICIT_UNLATCH = 5;
+  private static final byte BASE256 = 6;
+  private static final byte SHIFT_PAD = 7;
+  private static final byte BASE256_TO_END = 8;
+
+  private static final int UNREACHABLE = Integer.MAX_VALUE;
+  private static final int MAX_SHORT_BASE256_LENGTH = 249;
+  private static final int MAX_BASE256_LENGTH = 1555;
+  private static final char EDIFACT_UNLATCH = 31;
+  // Codewords to finish an EDIFACT group with the unlatch, by the number of characters in it
+  private static final int[] EDIFACT_UNLATCH_LENGTHS = {1, 2, 3, 3};
+
+  private MinimalEncoder() {
+  }
+
+  /**
+   * Performs minimal message encoding of a DataMatrix message.
+   *
+   * @param msg the message
+   * @return the encoded message (the char values range from 0 to 255)
+   */
+  public static String encodeHighLevel(String msg) {
+    return encodeHighLevel(msg, SymbolShapeHint.FORCE_NONE, null, null);
+  }
+
+  /**
+   * Performs minimal message encoding of a DataMatrix message.
+   *
+   * @param msg     the message
+   * @param shape   requested shape. May be {@code SymbolShapeHint.FORCE_NONE},
+   *                {@code SymbolShapeHint.FORCE_SQUARE} or {@code SymbolShapeHint.FORCE_RECTANGLE}.
+   * @param minSize the minimum symbol size constraint or null for no constraint
+   * @param maxSize the maximum symbol size constraint or null for no constraint
+   * @return the encoded message (the char values range from 0 to 255)
+   */
+  public static String encodeHighLevel(String msg,
+                                       SymbolShapeHint shape,
+                                       Dimension minSize,
+                                       Dimension maxSize) {
+    for (int i = 0; i < msg.length(); i++) {
+      if (msg.charAt(i) > 255) {
+        throw new IllegalArgumentException("Message contains characters outside ISO-8859-1 encoding.");
+      }
+    }
+
+    StringBuilder codewords = new StringBuilder(msg.length());
+    String data = msg;
+    if (msg.startsWith(HighLevelEncoder.MACRO_05_HEADER) && msg.endsWith(HighLevelEncoder.MACRO_TRAILER)) {
+      codewords.append(HighLevelEncoder.MACRO_05);
+      data = msg.substring(HighLevelEncoder.MACRO_05_HEADER.length(),
+                           msg.length() - HighLevelEncoder.MACRO_TRAILER.length());
+    } else if (msg.startsWith(HighLevelEncoder.MACRO_06_HEADER) && msg.endsWith(HighLevelEncoder.MACRO_TRAILER)) {
+      codewords.append(HighLevelEncoder.MACRO_06);
+      data = msg.substring(HighLevelEncoder.MACRO_06_HEADER.length(),
+                           msg.length() - HighLevelEncoder.MACRO_TRAILER.length());
+    }
+
+    Search search = new Search(data, codewords.length());
+    // Returning to ASCII without an unlatch saves at most one codeword over the
+    // unconstrained minimum, so no smaller symbol can do.
+    int minimum = search.run(Integer.MAX_VALUE);
+    SymbolInfo symbolInfo = SymbolInfo.lookup(Math.max(1, minimum - 1), shape, minSize, maxSize, true);
+    while (search.run(symbolInfo.getDataCapacity()) == UNREACHABLE) {
+      symbolInfo = SymbolInfo.lookup(symbolInfo.getDataCapacity() + 1, shape, minSize, maxSize, true);
+    }
+    search.write(codewords);
+
+    //Padding
+    int capacity = symbolInfo.getDataCapacity();
+    if (codewords.length() < capacity) {
+      codewords.append(HighLevelEncoder.PAD);
+    }
+    while (codewords.length() < capacity) {
+      codewords.append(HighLevelEncoder.randomize253State(HighLevelEncoder.PAD, codewords.length() + 1));
+    }
+    return codewords.toString();
+  }
+
+  private static int c40ValueCount(char c, boolean text) {
+    if (HighLevelEncoder.isExtendedASCII(c)) {
+      return 2 + c40ValueCount((char) (c - 128), text);
+    }
+    return (text ? HighLevelEncoder.isNativeText(c) : HighLevelEncoder.isNativeC40(c)) ? 1 : 2;
+  }
+
+  /**
+   * The cheapest cost, and the edge it came by, of each state at each position, for one
+   * symbol capacity.
+   */
+  private static final class Search {
+
+    private final String data;
+    private final int initialCost;
+    private final int[] costs;
+    private final int[] parents;
+    private final byte[] edges;
+    // Monotonic queues of earlier positions from which to start a Base 256 segment, with a
+    // one and a two codeword length field
+    private final int[] shortStarts;
+    private final int[] longStarts;
+    private int capacity;
+
+    Search(String data, int initialCost) {
+      this.data = data;
+      this.initialCost = initialCost;
+      int size = (data.length() + 1) * STATE_COUNT;
+      costs = new int[size];
+      parents = new int[size];
+      edges = new byte[size];
+      shortStarts = new int[data.length() + 1];
+      longStarts = new int[data.length() + 1];
+    }
+
+    /**
+     * @param capacity data capacity of the symbol, or {@link Integer#MAX_VALUE} for none
+     * @return fewest codewords with which the data fits, or {@link #UNREACHABLE}
+     */
+    int run(int capacity) {
+      this.capacity = capacity;
+      Arrays.fill(costs, UNREACHABLE);
+      int length = data.length();
+      int shortHead = 0;
+      int shortTail = 0;
+      int longHead = 0;
+      int longTail = 0;
+      costs[ASCII] = initialCost <= capacity ? initialCost : UNREACHABLE;
+
+      for (int pos = 0; pos <= length; pos++) {
+        int offset = pos * STATE_COUNT;
+
+        if (pos == length) {
+          // A final single value is padded with a Shift 1 to complete the triplet
+          relax(offset + C40 + 2, offset + C40, 2, SHIFT_PAD);
+          relax(offset + TEXT + 2, offset + TEXT, 2, SHIFT_PAD);
+        }
+
+        // Into ASCII
+        for (int mode = C40; mode < EDIFACT; mode += 3) {
+          int cost = costs[offset + mode];
+          if (cost != UNREACHABLE) {
+            // With one codeword left, the decoder returns to ASCII by itself
+            relax(offset + mode, offset + ASCII, capacity - cost <= 1 ? 0 : 1,
+                  capacity - cost <= 1 ? IMPLICIT_UNLATCH : UNLATCH);
+          }
+        }
+        for (int pending = 0; pending < 4; pending++) {
+          int cost = costs[offset + EDIFACT + pending];
+          if (cost != UNREACHABLE) {
+            // No group starts with two codewords or fewer left; the decoder is in ASCII then
+            if (capacity - cost >= 3) {
+              relax(offset + EDIFACT + pending, offset + ASCII, EDIFACT_UNLATCH_LENGTHS[pending], UNLATCH);
+            } else if (pending == 0) {
+              relax(offset + EDIFACT, offset + ASCII, 0, IMPLICIT_UNLATCH);
+            }
+          }
+        }
+        if (pos > MAX_SHORT_BASE256_LENGTH) {
+          // Segments from this one on need a two codeword length field
+          int start = pos - MAX_SHORT_BASE256_LENGTH - 1;
+          while (shortHead < shortTail && shortStarts[shortHead] <= start) {
+            shortHead++;
+          }
+          if (costs[start * STATE_COUNT] != UNREACHABLE) {
+            longTail = push(longStarts, longHead, longTail, start);
+          }
+        }
+        while (longHead < longTail && longStarts[longHead] < pos - MAX_BASE256_LENGTH) {
+          longHead++;
+        }
+        if (shortHead < shortTail) {
+          int start = shortStarts[shortHead];
+          relax(start * STATE_COUNT, offset + ASCII, 2 + pos - start, BASE256);
+        }
+        if (longHead < longTail) {
+          int start = longStarts[longHead];
+          relax(start * STATE_COUNT, offset + ASCII, 3 + pos - start, BASE256);
+        }
+        if (pos == length && costs[offset + ASCII] > capacity - 1) {
+          // A segment which fills the symbol exactly needs no length, however long it is
+          for (int start = 0; start < length; start++) {
+            int cost = costs[start * STATE_COUNT];
+            if (cost != UNREACHABLE && cost + 2 + length - start == capacity) {
+              relax(start * STATE_COUNT, offset + ASCII, 2 + length - start, BASE256_TO_END);
+              break;
+            }
+          }
+        }
+
+        // Out of ASCII
+        int asciiCost = costs[offset + ASCII];
+        if (asciiCost == UNREACHABLE) {
+          continue;
+        }
+        if (pos < length) {
+          shortTail = push(shortStarts, shortHead, shortTail, pos);
+        }
+        relax(offset + ASCII, offset + C40, 1, LATCH);
+        relax(offset + ASCII, offset + TEXT, 1, LATCH);
+        relax(offset + ASCII, offset + X12, 1, LATCH);
+        relax(offset + ASCII, offset + EDIFACT, 1, LATCH);
+
+        if (pos < length) {
+          relaxCharacter(pos);
+        }
+      }
+      return costs[length * STATE_COUNT + ASCII];
+    }
+
+    /**
+     * Adds a position to the back of a queue of Base 256 starts, first dropping those which
+     * are now no better than it from the back.
+     */
+    private int push(int[] starts, int head, int tail, int pos) {
+      int value = costs[pos * STATE_COUNT] - pos;
+      while (tail > head && costs[starts[tail - 1] * STATE_COUNT] - starts[tail - 1] >= value) {
+        tail--;
+      }
+      starts[tail] = pos;
+      return tail + 1;
+    }
+
+    private void relaxCharacter(int pos) {
+      char c = data.charAt(pos);
+      int offset = pos * STATE_COUNT;
+      int next = offset + STATE_COUNT;
+
+      if (HighLevelEncoder.isDigit(c) && pos + 1 < data.length() && HighLevelEncoder.isDigit(data.charAt(pos + 1))) {
+        relax(offset + ASCII, next + STATE_COUNT + ASCII, 1, DIGIT_PAIR);
+      }
+      relax(offset + ASCII, next + ASCII, HighLevelEncoder.isExtendedASCII(c) ? 2 : 1, CHARACTER);
+
+      int c40Values = c40ValueCount(c, false);
+      int textValues = c40ValueCount(c, true);
+      boolean x12 = HighLevelEncoder.isNativeX12(c);
+      for (int pending = 0; pending < 3; pending++) {
+        relaxValues(offset + C40, next + C40, pending, c40Values);
+        relaxValues(offset + TEXT, next + TEXT, pending, textValues);
+        if (x12) {
+          relaxValues(offset + X12, next + X12, pending, 1);
+        }
+      }
+
+      if (HighLevelEncoder.isNativeEDIFACT(c)) {
+        int cost = costs[offset + EDIFACT];
+        if (cost != UNREACHABLE && capacity - cost >= 3) {
+          relax(offset + EDIFACT, next + EDIFACT + 1, 0, CHARACTER);
+        }
+        relax(offset + EDIFACT + 1, next + EDIFACT + 2, 0, CHARACTER);
+        relax(offset + EDIFACT + 2, next + EDIFACT + 3, 0, CHARACTER);
+        relax(offset + EDIFACT + 3, next + EDIFACT, 3, CHARACTER);
+      }
+    }
+
+    private void relaxValues(int from, int to, int pending, int values) {
+      int total = pending + values;
+      relax(from + pending, to + total % 3, (total / 3) * 2, CHARACTER);
+    }
+
+    private void relax(int from, int to, int added, byte edge) {
+      int cost = costs[from];
+      if (cost == UNREACHABLE) {
+        return;
+      }
+      cost += added;
+      if (cost <= capacity && cost < costs[to]) {
+        costs[to] = cost;
+        parents[to] = from;
+        edges[to] = edge;
+      }
+    }
+
+    /**
+     * Writes the codewords along the cheapest path found by the last {@link #run(int)}.
+     */
+    void write(StringBuilder codewords) {
+      int[] path = new int[costs.length];
+      int count = 0;
+      for (int node = data.length() * STATE_COUNT + ASCII; node != ASCII; node = parents[node]) {
+        path[count++] = node;
+      }
+
+      C40Encoder c40Encoder = new C40Encoder();
+      C40Encoder textEncoder = new TextEncoder();
+      C40Encoder x12Encoder = new X12Encoder();
+      StringBuilder values = new StringBuilder(4);
+      for (int i = count - 1; i >= 0; i--) {
+        int node = path[i];
+        int from = parents[node];
+        int state = node % STATE_COUNT;
+        int fromState = from % STATE_COUNT;
+        int pos = from / STATE_COUNT;
+        switch (edges[node]) {
+          case CHARACTER:
+            char c = data.charAt(pos);
+            if (state == ASCII) {
+              if (HighLevelEncoder.isExtendedASCII(c)) {
+                codewords.append(HighLevelEncoder.UPPER_SHIFT);
+                codewords.append((char) (c - 128 + 1));
+              } else {
+                codewords.append((char) (c + 1));
+              }
+            } else if (state >= EDIFACT) {
+              values.append((char) (c & 0x3F));
+              if (values.length() == 4) {
+                writeEdifactGroup(values, codewords);
+              }
+            } else {
+              C40Encoder encoder = state >= X12 ? x12Encoder : state >= TEXT ? textEncoder : c40Encoder;
+              encoder.encodeChar(c, values);
+              writeTriplets(values, codewords);
+            }
+            break;
+          case DIGIT_PAIR:
+            int num = (data.charAt(pos) - '0') * 10 + (data.charAt(pos + 1) - '0');
+            codewords.append((char) (num + 130));
+            break;
+          case LATCH:
+            if (state == C40) {
+              codewords.append(HighLevelEncoder.LATCH_TO_C40);
+            } else if (state == TEXT) {
+              codewords.append(HighLevelEncoder.LATCH_TO_TEXT);
+            } else if (state == X12) {
+              codewords.append(HighLevelEncoder.LATCH_TO_ANSIX12);
+            } else {
+              codewords.append(HighLevelEncoder.LATCH_TO_EDIFACT);
+            }
+            break;
+          case UNLATCH:
+            if (fromState >= EDIFACT) {
+              values.append(EDIFACT_UNLATCH);
+              writeEdifactGroup(values, codewords);
+            } else {
+              codewords.append(HighLevelEncoder.C40_UNLATCH);
+            }
+            break;
+          case IMPLICIT_UNLATCH:
+            break;
+          case SHIFT_PAD:
+            values.append('\0');
+            writeTriplets(values, codewords);
+            break;
+          case BASE256:
+            writeBase256Segment(data.substring(pos, node / STATE_COUNT), true, codewords);
+            break;
+          case BASE256_TO_END:
+            writeBase256Segment(data.substring(pos), false, codewords);
+            break;
+          default:
+            throw new IllegalStateException("Illegal edge: " + edges[node]);
+        }
+      }
+    }
+
+    private static void writeTriplets(StringBuilder values, StringBuilder codewords) {
+      while (values.length() >= 3) {
+        int v = 1600 * values.charAt(0) + 40 * values.charAt(1) + values.charAt(2) + 1;
+        codewords.append((char) (v / 256));
+        codewords.append((char) (v % 256));
+        values.delete(0, 3);
+      }
+    }
+
+    /**
+     * Packs up to four 6-bit values into as many codewords as they take up.
+     */
+    private static void writeEdifactGroup(StringBuilder values, StringBuilder codewords) {
+      int count = values.length();
+      int v = 0;
+      for (int i = 0; i < 4; i++) {
+        v = (v << 6) | (i < count ? values.charAt(i) : 0);
+      }
+      codewords.append((char) ((v >> 16) & 0xFF));
+      if (count >= 2) {
+        codewords.append((char) ((v >> 8) & 0xFF));
+      }
+      if (count >= 3) {
+        codewords.append((char) (v & 0xFF));
+      }
+      values.setLength(0);
+    }
+
+    private static void writeBase256Segment(String bytes, boolean withLength, StringBuilder codewords) {
+      codewords.append(HighLevelEncoder.LATCH_TO_BASE256);
+      int length = bytes.length();
+      if (!withLength) {
+        appendRandomized(codewords, 0);
+      } else if (length <= MAX_SHORT_BASE256_LENGTH) {
+        appendRandomized(codewords, length);
+      } else {
+        appendRandomized(codewords, length / 250 + 249);
+        appendRandomized(codewords, length % 250);
+      }
+      for (int i = 0; i < length; i++) {
+        appendRandomized(codewords, bytes.charAt(i));
+      }
+    }
+
+    private static void appendRandomized(StringBuilder codewords, int ch) {
+      int pseudoRandom = ((149 * (codewords.length() + 1)) % 255) + 1;
+      int tempVariable = ch + pseudoRandom;
+      codewords.append((char) (tempVariable <= 255 ? tempVariable : tempVariable - 256));
+    }
+
+  }
+
+}
@@ -58,28 +58,28 @@ public final class ByQuadrantReader implements Reader {
     int halfWidth = width / 2;
     int halfHeight = height / 2;
 
-    BinaryBitmap topLeft = image.crop(0, 0, halfWidth, halfHeight);
+    BinaryBitmap topLeft = crop(image, 0, 0, halfWidth, halfHeight, hints);
     try {
       return delegate.decode(topLeft, hints);
     } catch (NotFoundException re) {
       // continue
     }
 
-    BinaryBitmap topRight = image.crop(halfWidth, 0, halfWidth, halfHeight);
+    BinaryBitmap topRight = crop(image, halfWidth, 0, halfWidth, halfHeight, hints);
     try {
       return delegate.decode(topRight, hints);
     } catch (NotFoundException re) {
       // continue
     }
 
-    BinaryBitmap bottomLeft = image.crop(0, halfHeight, halfWidth, halfHeight);
+    BinaryBitmap bottomLeft = crop(image, 0, halfHeight, halfWidth, halfHeight, hints);
     try {
       return delegate.decode(bottomLeft, hints);
     } catch (NotFoundException re) {
       // continue
     }
 
-    BinaryBitmap bottomRight = image.crop(halfWidth, halfHeight, halfWidth, halfHeight);
+    BinaryBitmap bottomRight = crop(image, halfWidth, halfHeight, halfWidth, halfHeight, hints);
     try {
       return delegate.decode(bottomRight, hints);
     } catch (NotFoundException re) {
@@ -88,10 +88,17 @@ public final class ByQuadrantReader implements Reader {
 
     int quarterWidth = halfWidth / 2;
     int quarterHeight = halfHeight / 2;
-    BinaryBitmap center = image.crop(quarterWidth, quarterHeight, halfWidth, halfHeight);
+    BinaryBitmap center = crop(image, quarterWidth, quarterHeight, halfWidth, halfHeight, hints);
     return delegate.decode(center, hints);
   }
 
+  private static BinaryBitmap crop(BinaryBitmap image, int left, int top, int width, int height,
+                                   Map<DecodeHintType,?> hints) {
+    return hints != null && hints.containsKey(DecodeHintType.CROP_BLACK_MATRIX) ?
+        image.cropBlackMatrix(left, top, width, height) :
+        image.crop(left, top, width, height);
+  }
+
   @Override
   public void reset() {
     delegate.reset();
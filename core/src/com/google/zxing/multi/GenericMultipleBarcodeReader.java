@@ -25,8 +25,15 @@ import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * <p>Attempts to locate multiple barcodes in an image by repeatedly decoding portion of the image.
@@ -40,6 +47,18 @@ import java.util.Map;
  * <p>That is, instead of passing a {@link Reader} a caller might pass
  * {@code new ByQuadrantReader(reader)}.</p>
  *
+ * <p>With {@link DecodeHintType#SCAN_REGIONS_OF_INTEREST}, the search starts from each region
+ * proposed by {@link BinaryBitmap#findRegionsOfInterest()} rather than from the whole image, which
+ * is only examined if none of the regions contained a barcode.</p>
+ *
+ * <p>A barcode found again in another part of the image, with the same text and format and in about
+ * the same place, is only reported once. A part of the image which was already scanned, at the
+ * same or a lesser depth, is not scanned again.</p>
+ *
+ * <p>Given an {@link ExecutorService}, the parts around each barcode are scanned concurrently,
+ * one level of the recursion at a time. Results are then reported level by level rather than
+ * depth first, but otherwise do not depend on the order in which the parts finish.</p>
+ *
  * @author Sean Owen
  */
 public final class GenericMultipleBarcodeReader implements MultipleBarcodeReader {
@@ -48,9 +67,24 @@ public final class GenericMultipleBarcodeReader implements MultipleBarcodeReader
   private static final int MAX_DEPTH = 4;
 
   private final Reader delegate;
+  private final ReaderFactory readerFactory;
+  private final ExecutorService executor;
 
   public GenericMultipleBarcodeReader(Reader delegate) {
     this.delegate = delegate;
+    this.readerFactory = null;
+    this.executor = null;
+  }
+
+  /**
+   * @param readerFactory creates a reader for each part of the image to scan
+   * @param executor scans the parts around each barcode concurrently, or null to scan them one
+   *  after the other with a single reader
+   */
+  public GenericMultipleBarcodeReader(ReaderFactory readerFactory, ExecutorService executor) {
+    this.delegate = null;
+    this.readerFactory = readerFactory;
+    this.executor = executor;
   }
 
   @Override
@@ -62,42 +96,146 @@ public final class GenericMultipleBarcodeReader implements MultipleBarcodeReader
   public Result[] decodeMultiple(BinaryBitmap image, Map<DecodeHintType,?> hints)
       throws NotFoundException {
     List<Result> results = new ArrayList<Result>();
-    doDecodeMultiple(image, hints, results, 0, 0, 0);
+    Map<Region,Integer> scanned = new HashMap<Region,Integer>();
+    if (hints != null && hints.containsKey(DecodeHintType.SCAN_REGIONS_OF_INTEREST) && image.isCropSupported()) {
+      // Regions are handled here; the delegate needn't look for them again inside each one
+      Map<DecodeHintType,Object> delegateHints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+      delegateHints.putAll(hints);
+      delegateHints.remove(DecodeHintType.SCAN_REGIONS_OF_INTEREST);
+      List<Region> regions = new ArrayList<Region>();
+      for (int[] region : image.findRegionsOfInterest()) {
+        regions.add(new Region(image.crop(region[0], region[1], region[2], region[3]),
+                               region[0], region[1],
+                               0));
+      }
+      decodeRegions(regions, delegateHints, results, scanned);
+      if (results.isEmpty()) {
+        decodeRegions(Collections.singletonList(new Region(image, 0, 0, 0)), delegateHints, results, scanned);
+      }
+    } else {
+      decodeRegions(Collections.singletonList(new Region(image, 0, 0, 0)), hints, results, scanned);
+    }
     if (results.isEmpty()) {
       throw NotFoundException.getNotFoundInstance();
     }
     return results.toArray(new Result[results.size()]);
   }
 
-  private void doDecodeMultiple(BinaryBitmap image,
-                                Map<DecodeHintType,?> hints,
-                                List<Result> results,
-                                int xOffset,
-                                int yOffset,
-                                int currentDepth) {
-    if (currentDepth > MAX_DEPTH) {
+  private void decodeRegions(List<Region> regions,
+                             Map<DecodeHintType,?> hints,
+                             List<Result> results,
+                             Map<Region,Integer> scanned) {
+    if (executor == null) {
+      Reader reader = delegate == null ? readerFactory.createReader() : delegate;
+      for (Region region : regions) {
+        doDecodeMultiple(reader, region, hints, results, scanned);
+      }
       return;
     }
-    
-    Result result;
-    try {
-      result = delegate.decode(image, hints);
-    } catch (ReaderException ignored) {
+
+    // Each level of the recursion is submitted from here, so no task ever waits on another
+    List<Region> level = regions;
+    while (!level.isEmpty()) {
+      List<RegionTask> tasks = new ArrayList<RegionTask>(level.size());
+      List<Future<Result>> futures = new ArrayList<Future<Result>>(level.size());
+      try {
+        for (Region region : level) {
+          if (markScanned(scanned, region)) {
+            RegionTask task = new RegionTask(readerFactory.createReader(), region, hints);
+            tasks.add(task);
+            futures.add(executor.submit(task));
+          }
+        }
+        List<Region> nextLevel = new ArrayList<Region>();
+        for (int i = 0; i < futures.size(); i++) {
+          Result result = getResult(futures.get(i));
+          if (result != null) {
+            addResult(results, result);
+            nextLevel.addAll(tasks.get(i).subRegions);
+          }
+        }
+        level = nextLevel;
+      } finally {
+        for (Future<Result> future : futures) {
+          future.cancel(true);
+        }
+      }
+    }
+  }
+
+  private static void doDecodeMultiple(Reader reader,
+                                       Region region,
+                                       Map<DecodeHintType,?> hints,
+                                       List<Result> results,
+                                       Map<Region,Integer> scanned) {
+    if (!markScanned(scanned, region)) {
       return;
     }
-    boolean alreadyFound = false;
-    for (Result existingResult : results) {
-      if (existingResult.getText().equals(result.getText())) {
-        alreadyFound = true;
-        break;
+    List<Region> subRegions = new ArrayList<Region>(4);
+    Result result = decodeRegion(reader, region, hints, subRegions);
+    if (result == null) {
+      return;
+    }
+    addResult(results, result);
+    for (Region subRegion : subRegions) {
+      doDecodeMultiple(reader, subRegion, hints, results, scanned);
+    }
+  }
+
+  /**
+   * @return false if the region was already scanned at the same or a lesser depth, where at least
+   *  as much was found in it as would be now
+   */
+  private static boolean markScanned(Map<Region,Integer> scanned, Region region) {
+    Integer depth = scanned.get(region);
+    if (depth != null && depth <= region.depth) {
+      return false;
+    }
+    scanned.put(region, region.depth);
+    return true;
+  }
+
+  private static Result getResult(Future<Result> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
       }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
     }
-    if (!alreadyFound) {
-      results.add(translateResultPoints(result, xOffset, yOffset));
+  }
+
+  /**
+   * Decodes a region, and adds the regions left, above, right and below its barcode, if any,
+   * to {@code subRegions}.
+   *
+   * @return the barcode, with its points in the coordinates of the whole image, or null if none
+   *  was found
+   */
+  private static Result decodeRegion(Reader reader,
+                                     Region region,
+                                     Map<DecodeHintType,?> hints,
+                                     List<Region> subRegions) {
+    BinaryBitmap image = region.image;
+    Result result;
+    try {
+      result = reader.decode(image, hints);
+    } catch (ReaderException ignored) {
+      return null;
     }
+    int xOffset = region.xOffset;
+    int yOffset = region.yOffset;
     ResultPoint[] resultPoints = result.getResultPoints();
-    if (resultPoints == null || resultPoints.length == 0) {
-      return;
+    if (resultPoints == null || resultPoints.length == 0 || region.depth == MAX_DEPTH) {
+      return translateResultPoints(result, xOffset, yOffset);
     }
     int width = image.getWidth();
     int height = image.getHeight();
@@ -122,34 +260,96 @@ public final class GenericMultipleBarcodeReader implements MultipleBarcodeReader
       }
     }
 
+    int depth = region.depth + 1;
     // Decode left of barcode
     if (minX > MIN_DIMENSION_TO_RECUR) {
-      doDecodeMultiple(image.crop(0, 0, (int) minX, height),
-                       hints, results, 
-                       xOffset, yOffset, 
-                       currentDepth + 1);
+      subRegions.add(new Region(crop(image, 0, 0, (int) minX, height, hints),
+                                xOffset, yOffset,
+                                depth));
     }
     // Decode above barcode
     if (minY > MIN_DIMENSION_TO_RECUR) {
-      doDecodeMultiple(image.crop(0, 0, width, (int) minY),
-                       hints, results, 
-                       xOffset, yOffset, 
-                       currentDepth + 1);
+      subRegions.add(new Region(crop(image, 0, 0, width, (int) minY, hints),
+                                xOffset, yOffset,
+                                depth));
     }
     // Decode right of barcode
     if (maxX < width - MIN_DIMENSION_TO_RECUR) {
-      doDecodeMultiple(image.crop((int) maxX, 0, width - (int) maxX, height),
-                       hints, results, 
-                       xOffset + (int) maxX, yOffset, 
-                       currentDepth + 1);
+      subRegions.add(new Region(crop(image, (int) maxX, 0, width - (int) maxX, height, hints),
+                                xOffset + (int) maxX, yOffset,
+                                depth));
     }
     // Decode below barcode
     if (maxY < height - MIN_DIMENSION_TO_RECUR) {
-      doDecodeMultiple(image.crop(0, (int) maxY, width, height - (int) maxY),
-                       hints, results, 
-                       xOffset, yOffset + (int) maxY, 
-                       currentDepth + 1);
+      subRegions.add(new Region(crop(image, 0, (int) maxY, width, height - (int) maxY, hints),
+                                xOffset, yOffset + (int) maxY,
+                                depth));
+    }
+    if (!subRegions.isEmpty() && hints != null && hints.containsKey(DecodeHintType.CROP_BLACK_MATRIX)) {
+      // Computed now, so that crops scanned concurrently just read it
+      try {
+        image.getBlackMatrix();
+      } catch (NotFoundException ignored) {
+        // The crops will find out for themselves
+      }
     }
+    return translateResultPoints(result, xOffset, yOffset);
+  }
+
+  private static BinaryBitmap crop(BinaryBitmap image, int left, int top, int width, int height,
+                                   Map<DecodeHintType,?> hints) {
+    return hints != null && hints.containsKey(DecodeHintType.CROP_BLACK_MATRIX) ?
+        image.cropBlackMatrix(left, top, width, height) :
+        image.crop(left, top, width, height);
+  }
+
+  private static void addResult(List<Result> results, Result result) {
+    for (Result existingResult : results) {
+      if (isSameBarcode(existingResult, result)) {
+        return;
+      }
+    }
+    results.add(result);
+  }
+
+  // Two results are the same barcode if their text and format match, and their centers are no
+  // farther apart than the larger extent of either. A 1D barcode's points lie on whichever row it
+  // was read from, so another read of it may be well above or below. Without points, text and
+  // format must do.
+  private static boolean isSameBarcode(Result result, Result other) {
+    if (result.getBarcodeFormat() != other.getBarcodeFormat() ||
+        !result.getText().equals(other.getText())) {
+      return false;
+    }
+    float[] bounds = getBounds(result.getResultPoints());
+    float[] otherBounds = getBounds(other.getResultPoints());
+    if (bounds == null || otherBounds == null) {
+      return true;
+    }
+    float extent = Math.max(Math.max(bounds[2] - bounds[0], bounds[3] - bounds[1]),
+                            Math.max(otherBounds[2] - otherBounds[0], otherBounds[3] - otherBounds[1]));
+    float dx = (bounds[0] + bounds[2]) - (otherBounds[0] + otherBounds[2]);
+    float dy = (bounds[1] + bounds[3]) - (otherBounds[1] + otherBounds[3]);
+    // The differences are of sums, so twice the distance between centers
+    return dx * dx + dy * dy <= 4.0f * extent * extent;
+  }
+
+  // Returns minX, minY, maxX, maxY of the points, or null if there are none
+  private static float[] getBounds(ResultPoint[] points) {
+    if (points == null || points.length == 0) {
+      return null;
+    }
+    float[] bounds = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+    for (ResultPoint point : points) {
+      if (point == null) {
+        continue;
+      }
+      bounds[0] = Math.min(bounds[0], point.getX());
+      bounds[1] = Math.min(bounds[1], point.getY());
+      bounds[2] = Math.max(bounds[2], point.getX());
+      bounds[3] = Math.max(bounds[3], point.getY());
+    }
+    return bounds[0] <= bounds[2] ? bounds : null;
   }
 
   private static Result translateResultPoints(Result result, int xOffset, int yOffset) {
@@ -167,4 +367,60 @@ public final class GenericMultipleBarcodeReader implements MultipleBarcodeReader
     return newResult;
   }
 
+  /**
+   * A part of the image to scan, with its position in the whole image. Equal regions cover the
+   * same rectangle, whatever their depth.
+   */
+  private static final class Region {
+
+    private final BinaryBitmap image;
+    private final int xOffset;
+    private final int yOffset;
+    private final int depth;
+
+    Region(BinaryBitmap image, int xOffset, int yOffset, int depth) {
+      this.image = image;
+      this.xOffset = xOffset;
+      this.yOffset = yOffset;
+      this.depth = depth;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Region)) {
+        return false;
+      }
+      Region other = (Region) o;
+      return xOffset == other.xOffset && yOffset == other.yOffset &&
+          image.getWidth() == other.image.getWidth() && image.getHeight() == other.image.getHeight();
+    }
+
+    @Override
+    public int hashCode() {
+      return ((xOffset * 31 + yOffset) * 31 + image.getWidth()) * 31 + image.getHeight();
+    }
+
+  }
+
+  private static final class RegionTask implements Callable<Result> {
+
+    private final Reader reader;
+    private final Region region;
+    private final Map<DecodeHintType,?> hints;
+    private final List<Region> subRegions;
+
+    RegionTask(Reader reader, Region region, Map<DecodeHintType,?> hints) {
+      this.reader = reader;
+      this.region = region;
+      this.hints = hints;
+      subRegions = new ArrayList<Region>(4);
+    }
+
+    @Override
+    public Result call() {
+      return decodeRegion(reader, region, hints, subRegions);
+    }
+
+  }
+
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi.aztec;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.aztec.AztecDetectorResult;
+import com.google.zxing.aztec.decoder.Decoder;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.multi.MultipleBarcodeReader;
+import com.google.zxing.multi.aztec.detector.MultiDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This implementation can detect and decode multiple Aztec codes in an image, finding all of them
+ * in one scan rather than decoding the image over and over.
+ */
+public final class AztecMultiReader implements MultipleBarcodeReader {
+
+  private static final Result[] EMPTY_RESULT_ARRAY = new Result[0];
+
+  @Override
+  public Result[] decodeMultiple(BinaryBitmap image) throws NotFoundException {
+    return decodeMultiple(image, null);
+  }
+
+  @Override
+  public Result[] decodeMultiple(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
+    MultiDetector detector = new MultiDetector(image.getBlackMatrix());
+    AztecDetectorResult[] detectorResults = detector.detectMulti(false);
+    AztecDetectorResult[] mirroredDetectorResults = null;
+    ResultPoint[] centers = detector.getCenters();
+    List<Result> results = new ArrayList<Result>();
+    for (int i = 0; i < detectorResults.length; i++) {
+      // A code may have more than one bull's eye candidate, such as where reference grid lines cross
+      if (isInsideAny(centers[i], results)) {
+        continue;
+      }
+      Result result = decode(detectorResults[i]);
+      if (result == null) {
+        if (mirroredDetectorResults == null) {
+          mirroredDetectorResults = detector.detectMulti(true);
+        }
+        result = decode(mirroredDetectorResults[i]);
+      }
+      if (result != null) {
+        results.add(result);
+      }
+    }
+
+    if (hints != null) {
+      ResultPointCallback rpcb = (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+      if (rpcb != null) {
+        for (Result result : results) {
+          for (ResultPoint point : result.getResultPoints()) {
+            rpcb.foundPossibleResultPoint(point);
+          }
+        }
+      }
+    }
+
+    if (results.isEmpty()) {
+      return EMPTY_RESULT_ARRAY;
+    } else {
+      return results.toArray(new Result[results.size()]);
+    }
+  }
+
+  private static Result decode(AztecDetectorResult detectorResult) {
+    if (detectorResult == null) {
+      return null;
+    }
+    DecoderResult decoderResult;
+    try {
+      decoderResult = new Decoder().decode(detectorResult);
+    } catch (FormatException fe) {
+      return null;
+    }
+    Result result = new Result(decoderResult.getText(), decoderResult.getRawBytes(),
+                               detectorResult.getPoints(), BarcodeFormat.AZTEC);
+    List<byte[]> byteSegments = decoderResult.getByteSegments();
+    if (byteSegments != null) {
+      result.putMetadata(ResultMetadataType.BYTE_SEGMENTS, byteSegments);
+    }
+    String ecLevel = decoderResult.getECLevel();
+    if (ecLevel != null) {
+      result.putMetadata(ResultMetadataType.ERROR_CORRECTION_LEVEL, ecLevel);
+    }
+    return result;
+  }
+
+  private static boolean isInsideAny(ResultPoint point, List<Result> results) {
+    for (Result result : results) {
+      float minX = Float.MAX_VALUE;
+      float minY = Float.MAX_VALUE;
+      float maxX = -Float.MAX_VALUE;
+      float maxY = -Float.MAX_VALUE;
+      for (ResultPoint corner : result.getResultPoints()) {
+        minX = Math.min(minX, corner.getX());
+        minY = Math.min(minY, corner.getY());
+        maxX = Math.max(maxX, corner.getX());
+        maxY = Math.max(maxY, corner.getY());
+      }
+      if (point.getX() >= minX && point.getX() <= maxX && point.getY() >= minY && point.getY() <= maxY) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi.aztec.detector;
+
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.aztec.AztecDetectorResult;
+import com.google.zxing.aztec.detector.Detector;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.detector.MathUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Encapsulates logic that can detect one or more Aztec Codes in an image.</p>
+ *
+ * <p>The image is scanned once, row by row, for the bull's eye at the center of each code: a line
+ * through its center crosses five black and four white rings of one module each, which is checked
+ * again down the column through the center. Each bull's eye found is then handed to
+ * {@link Detector}, as if it were the one nearest the center of the image.</p>
+ */
+public final class MultiDetector {
+
+  // Runs across the inner rings of the bull's eye, from black through the center module to black
+  private static final int RUN_COUNT = 9;
+
+  private final BitMatrix image;
+  private ResultPoint[] centers;
+
+  public MultiDetector(BitMatrix image) {
+    this.image = image;
+  }
+
+  /**
+   * @param isMirror whether to detect the codes as mirrored
+   * @return for each bull's eye found, in the order of {@link #getCenters()}, the code detected
+   *  around it, or null if there was none
+   * @throws NotFoundException if no bull's eye was found
+   */
+  public AztecDetectorResult[] detectMulti(boolean isMirror) throws NotFoundException {
+    ResultPoint[] centers = getCenters();
+    if (centers.length == 0) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    AztecDetectorResult[] results = new AztecDetectorResult[centers.length];
+    Detector detector = new Detector(image);
+    for (int i = 0; i < centers.length; i++) {
+      try {
+        results[i] = detector.detect(isMirror,
+                                     MathUtils.round(centers[i].getX()),
+                                     MathUtils.round(centers[i].getY()));
+      } catch (NotFoundException ignored) {
+        // leave it null
+      }
+    }
+    return results;
+  }
+
+  /**
+   * @return centers of the bull's eyes in the image, from top to bottom
+   */
+  public ResultPoint[] getCenters() {
+    if (centers == null) {
+      centers = findCenters();
+    }
+    return centers;
+  }
+
+  private ResultPoint[] findCenters() {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    List<Center> found = new ArrayList<Center>();
+    BitArray row = new BitArray(width);
+    int[] runs = new int[RUN_COUNT];
+    int[] runStarts = new int[RUN_COUNT];
+    for (int y = 0; y < height; y++) {
+      row = image.getRow(y, row);
+      int runCount = 0;
+      int x = row.getNextSet(0);
+      while (x < width) {
+        // Runs are added in pairs, so the last RUN_COUNT start and end with a black one
+        int blackEnd = row.getNextUnset(x);
+        runCount = addRun(runs, runStarts, runCount, x, blackEnd);
+        float moduleSize = runCount == RUN_COUNT ? getModuleSize(runs) : Float.NaN;
+        if (!Float.isNaN(moduleSize)) {
+          int middle = RUN_COUNT / 2;
+          float centerX = runStarts[middle] + runs[middle] / 2.0f;
+          float centerY = crossCheckVertical((int) centerX, y, moduleSize);
+          if (!Float.isNaN(centerY)) {
+            addCenter(found, centerX, centerY, moduleSize);
+          }
+        }
+        x = row.getNextSet(blackEnd);
+        if (x < width) {
+          runCount = addRun(runs, runStarts, runCount, blackEnd, x);
+        }
+      }
+    }
+
+    ResultPoint[] result = new ResultPoint[found.size()];
+    for (int i = 0; i < result.length; i++) {
+      Center center = found.get(i);
+      result[i] = new ResultPoint(center.x, center.y);
+    }
+    return result;
+  }
+
+  private static int addRun(int[] runs, int[] runStarts, int runCount, int start, int end) {
+    if (runCount == RUN_COUNT) {
+      System.arraycopy(runs, 1, runs, 0, RUN_COUNT - 1);
+      System.arraycopy(runStarts, 1, runStarts, 0, RUN_COUNT - 1);
+      runCount--;
+    }
+    runs[runCount] = end - start;
+    runStarts[runCount] = start;
+    return runCount + 1;
+  }
+
+  /**
+   * @return the module size, if the runs are those across a bull's eye, or {@link Float#NaN}
+   */
+  private static float getModuleSize(int[] runs) {
+    // The outermost black ring may run into black modules of the mode message next to it, so
+    // the runs inside it must all be about as wide as each other, and it just as wide or wider
+    int total = 0;
+    for (int i = 1; i < RUN_COUNT - 1; i++) {
+      total += runs[i];
+    }
+    float moduleSize = total / (float) (RUN_COUNT - 2);
+    float maxVariance = moduleSize / 2.0f;
+    for (int i = 1; i < RUN_COUNT - 1; i++) {
+      if (Math.abs(moduleSize - runs[i]) >= maxVariance) {
+        return Float.NaN;
+      }
+    }
+    if (runs[0] <= moduleSize - maxVariance || runs[RUN_COUNT - 1] <= moduleSize - maxVariance) {
+      return Float.NaN;
+    }
+    return moduleSize;
+  }
+
+  /**
+   * Checks that the column through a horizontal bull's eye's center crosses the same rings.
+   *
+   * @return center of the bull's eye in the column, or {@link Float#NaN} if it does not
+   */
+  private float crossCheckVertical(int centerX, int startY, float horizontalModuleSize) {
+    int height = image.getHeight();
+    int[] runs = new int[RUN_COUNT];
+    int middle = RUN_COUNT / 2;
+
+    // Up from the center, then down
+    int y = startY;
+    boolean color = true;
+    for (int i = middle; i >= 0; i--) {
+      while (y >= 0 && image.get(centerX, y) == color) {
+        runs[i]++;
+        y--;
+      }
+      if (y < 0 && i > 0) {
+        return Float.NaN;
+      }
+      color = !color;
+    }
+    int centerTop = startY - runs[middle] + 1;
+    y = startY + 1;
+    color = true;
+    for (int i = middle; i < RUN_COUNT; i++) {
+      while (y < height && image.get(centerX, y) == color) {
+        runs[i]++;
+        y++;
+      }
+      if (y >= height && i < RUN_COUNT - 1) {
+        return Float.NaN;
+      }
+      color = !color;
+    }
+    // The code may be rotated or skewed, but not by this much
+    float moduleSize = getModuleSize(runs);
+    if (Float.isNaN(moduleSize) ||
+        moduleSize > 2.0f * horizontalModuleSize || 2.0f * moduleSize < horizontalModuleSize) {
+      return Float.NaN;
+    }
+    return centerTop + runs[middle] / 2.0f;
+  }
+
+  /**
+   * Adds a center, unless it is one found before on another row, which it is then averaged into.
+   */
+  private static void addCenter(List<Center> found, float x, float y, float moduleSize) {
+    for (Center center : found) {
+      if (Math.abs(center.x - x) <= moduleSize && Math.abs(center.y - y) <= moduleSize) {
+        int count = center.count + 1;
+        center.x = (center.x * center.count + x) / count;
+        center.y = (center.y * center.count + y) / count;
+        center.count = count;
+        return;
+      }
+    }
+    found.add(new Center(x, y));
+  }
+
+  private static final class Center {
+
+    private float x;
+    private float y;
+    private int count;
+
+    Center(float x, float y) {
+      this.x = x;
+      this.y = y;
+      count = 1;
+    }
+
+  }
+
+}
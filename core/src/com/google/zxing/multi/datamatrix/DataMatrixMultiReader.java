@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi.datamatrix;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.common.DecoderResult;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.datamatrix.decoder.Decoder;
+import com.google.zxing.multi.MultipleBarcodeReader;
+import com.google.zxing.multi.datamatrix.detector.MultiDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This implementation can detect and decode multiple Data Matrix codes in an image, finding all of
+ * them in one scan rather than decoding the image over and over.
+ */
+public final class DataMatrixMultiReader implements MultipleBarcodeReader {
+
+  private static final Result[] EMPTY_RESULT_ARRAY = new Result[0];
+
+  private final Decoder decoder = new Decoder();
+
+  @Override
+  public Result[] decodeMultiple(BinaryBitmap image) throws NotFoundException {
+    return decodeMultiple(image, null);
+  }
+
+  @Override
+  public Result[] decodeMultiple(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
+    List<Result> results = new ArrayList<Result>();
+    DetectorResult[] detectorResults = new MultiDetector(image.getBlackMatrix()).detectMulti();
+    for (DetectorResult detectorResult : detectorResults) {
+      try {
+        DecoderResult decoderResult = decoder.decode(detectorResult.getBits());
+        Result result = new Result(decoderResult.getText(), decoderResult.getRawBytes(),
+                                   detectorResult.getPoints(), BarcodeFormat.DATA_MATRIX);
+        List<byte[]> byteSegments = decoderResult.getByteSegments();
+        if (byteSegments != null) {
+          result.putMetadata(ResultMetadataType.BYTE_SEGMENTS, byteSegments);
+        }
+        String ecLevel = decoderResult.getECLevel();
+        if (ecLevel != null) {
+          result.putMetadata(ResultMetadataType.ERROR_CORRECTION_LEVEL, ecLevel);
+        }
+        results.add(result);
+      } catch (ReaderException re) {
+        // ignore and continue
+      }
+    }
+    if (results.isEmpty()) {
+      return EMPTY_RESULT_ARRAY;
+    } else {
+      return results.toArray(new Result[results.size()]);
+    }
+  }
+
+}
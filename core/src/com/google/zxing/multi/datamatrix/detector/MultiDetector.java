@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi.datamatrix.detector;
+
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.datamatrix.detector.Detector;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Encapsulates logic that can detect one or more Data Matrix Codes in an image.</p>
+ *
+ * <p>The image is scanned once, row by row, to find the bounding boxes of its connected black
+ * regions. The solid "L" of a Data Matrix Code joins up most of the code, so its region spans the
+ * whole code. Starting from the middle of each region big enough to be a code, largest first,
+ * {@link Detector} looks outwards for the white border around it. A region inside a code already
+ * found is skipped.</p>
+ */
+public final class MultiDetector {
+
+  private static final DetectorResult[] EMPTY_DETECTOR_RESULTS = new DetectorResult[0];
+
+  // The smallest code is 10x10 modules, so at least that many pixels
+  private static final int MIN_SIZE = 10;
+  // The longest rectangular code is 8x18 modules; skewed, it may look longer
+  private static final int MAX_ASPECT_RATIO = 4;
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final BitMatrix image;
+
+  // Union-find forest of the black regions, over runs of black pixels in a row
+  private int[] parents;
+  // Bounding box of each region at its root, as {left, top, right, bottom}
+  private int[] bounds;
+  private int regionCount;
+
+  public MultiDetector(BitMatrix image) {
+    this.image = image;
+  }
+
+  /**
+   * @return the Data Matrix Codes detected, from the largest
+   * @throws NotFoundException if there is no region in the image which could be a code
+   */
+  public DetectorResult[] detectMulti() throws NotFoundException {
+    List<int[]> candidates = findCandidates();
+    if (candidates.isEmpty()) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+
+    List<DetectorResult> result = new ArrayList<DetectorResult>();
+    List<float[]> claimed = new ArrayList<float[]>();
+    for (int[] candidate : candidates) {
+      int width = candidate[2] - candidate[0] + 1;
+      int height = candidate[3] - candidate[1] + 1;
+      int x = candidate[0] + width / 2;
+      int y = candidate[1] + height / 2;
+      if (isClaimed(claimed, x, y)) {
+        continue;
+      }
+      try {
+        DetectorResult detectorResult = new Detector(image, Math.min(width, height) / 2, x, y).detect();
+        result.add(detectorResult);
+        claimed.add(getBounds(detectorResult.getPoints()));
+      } catch (NotFoundException ignored) {
+        // not a code, or not one which can be found from here
+      }
+    }
+    if (result.isEmpty()) {
+      return EMPTY_DETECTOR_RESULTS;
+    } else {
+      return result.toArray(new DetectorResult[result.size()]);
+    }
+  }
+
+  /**
+   * @return bounding boxes of the black regions which could be codes, from the largest
+   */
+  private List<int[]> findCandidates() {
+    findRegions();
+    List<int[]> candidates = new ArrayList<int[]>();
+    for (int region = 0; region < regionCount; region++) {
+      if (parents[region] != region) {
+        continue;
+      }
+      int offset = region << 2;
+      int width = bounds[offset + 2] - bounds[offset] + 1;
+      int height = bounds[offset + 3] - bounds[offset + 1] + 1;
+      int minSide = Math.min(width, height);
+      if (minSide >= MIN_SIZE && Math.max(width, height) <= MAX_ASPECT_RATIO * minSide) {
+        candidates.add(Arrays.copyOfRange(bounds, offset, offset + 4));
+      }
+    }
+    Collections.sort(candidates, new AreaComparator());
+    return candidates;
+  }
+
+  /**
+   * Labels the black regions of the image, which are 8-connected, by joining each run of black
+   * pixels to those it touches in the row above.
+   */
+  private void findRegions() {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    parents = new int[INITIAL_CAPACITY];
+    bounds = new int[INITIAL_CAPACITY << 2];
+    regionCount = 0;
+
+    BitArray row = new BitArray(width);
+    // Runs of the row above and of this row: start, end (exclusive) and region, in threes
+    int[] previousRuns = new int[3 * ((width + 1) / 2)];
+    int previousRunCount = 0;
+    int[] runs = new int[previousRuns.length];
+    for (int y = 0; y < height; y++) {
+      row = image.getRow(y, row);
+      int runCount = 0;
+      int previous = 0;
+      int x = row.getNextSet(0);
+      while (x < width) {
+        int end = row.getNextUnset(x);
+        // Runs above which end before this one starts, diagonally, can't touch any later run
+        while (previous < previousRunCount && previousRuns[3 * previous + 1] < x) {
+          previous++;
+        }
+        int region = -1;
+        for (int i = previous; i < previousRunCount && previousRuns[3 * i] <= end; i++) {
+          int other = find(previousRuns[3 * i + 2]);
+          region = region < 0 ? other : union(region, other);
+        }
+        if (region < 0) {
+          region = newRegion(x, y, end - 1);
+        } else {
+          extend(region, x, y, end - 1);
+        }
+        runs[3 * runCount] = x;
+        runs[3 * runCount + 1] = end;
+        runs[3 * runCount + 2] = region;
+        runCount++;
+        x = row.getNextSet(end);
+      }
+      int[] temp = previousRuns;
+      previousRuns = runs;
+      runs = temp;
+      previousRunCount = runCount;
+    }
+  }
+
+  private int newRegion(int left, int y, int right) {
+    if (regionCount == parents.length) {
+      parents = Arrays.copyOf(parents, regionCount << 1);
+      bounds = Arrays.copyOf(bounds, regionCount << 3);
+    }
+    int region = regionCount++;
+    parents[region] = region;
+    int offset = region << 2;
+    bounds[offset] = left;
+    bounds[offset + 1] = y;
+    bounds[offset + 2] = right;
+    bounds[offset + 3] = y;
+    return region;
+  }
+
+  private void extend(int region, int left, int y, int right) {
+    int offset = region << 2;
+    bounds[offset] = Math.min(bounds[offset], left);
+    bounds[offset + 1] = Math.min(bounds[offset + 1], y);
+    bounds[offset + 2] = Math.max(bounds[offset + 2], right);
+    bounds[offset + 3] = Math.max(bounds[offset + 3], y);
+  }
+
+  private int find(int region) {
+    while (parents[region] != region) {
+      parents[region] = parents[parents[region]];
+      region = parents[region];
+    }
+    return region;
+  }
+
+  /**
+   * Joins two roots, and returns the root of the joined region.
+   */
+  private int union(int root, int otherRoot) {
+    if (root == otherRoot) {
+      return root;
+    }
+    parents[otherRoot] = root;
+    int offset = otherRoot << 2;
+    extend(root, bounds[offset], bounds[offset + 1], bounds[offset + 2]);
+    extend(root, bounds[offset], bounds[offset + 3], bounds[offset + 2]);
+    return root;
+  }
+
+  private static boolean isClaimed(List<float[]> claimed, int x, int y) {
+    for (float[] box : claimed) {
+      if (x >= box[0] && x <= box[2] && y >= box[1] && y <= box[3]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static float[] getBounds(ResultPoint[] points) {
+    float[] box = {Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+    for (ResultPoint point : points) {
+      box[0] = Math.min(box[0], point.getX());
+      box[1] = Math.min(box[1], point.getY());
+      box[2] = Math.max(box[2], point.getX());
+      box[3] = Math.max(box[3], point.getY());
+    }
+    return box;
+  }
+
+  /**
+   * Orders bounding boxes by area, descending.
+   */
+  private static final class AreaComparator implements Comparator<int[]>, Serializable {
+    @Override
+    public int compare(int[] a, int[] b) {
+      long areaA = (long) (a[2] - a[0] + 1) * (a[3] - a[1] + 1);
+      long areaB = (long) (b[2] - b[0] + 1) * (b[3] - b[1] + 1);
+      return areaA > areaB ? -1 : areaA < areaB ? 1 : 0;
+    }
+  }
+
+}
@@ -40,6 +40,8 @@ public final class MultiDetector extends Detector {
 
   private static final DetectorResult[] EMPTY_DETECTOR_RESULTS = new DetectorResult[0];
 
+  private int triplesExamined;
+
   public MultiDetector(BitMatrix image) {
     super(image);
   }
@@ -49,7 +51,12 @@ public final class MultiDetector extends Detector {
     ResultPointCallback resultPointCallback =
         hints == null ? null : (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
     MultiFinderPatternFinder finder = new MultiFinderPatternFinder(image, resultPointCallback);
-    FinderPatternInfo[] infos = finder.findMulti(hints);
+    FinderPatternInfo[] infos;
+    try {
+      infos = finder.findMulti(hints);
+    } finally {
+      triplesExamined = finder.getTriplesExamined();
+    }
 
     if (infos.length == 0) {
       throw NotFoundException.getNotFoundInstance();
@@ -70,4 +77,12 @@ public final class MultiDetector extends Detector {
     }
   }
 
+  /**
+   * @return number of tuples of three finder patterns checked, as possibly the three corners of a
+   *  code, by the last call to {@link #detectMulti(Map)}
+   */
+  public int getTriplesExamined() {
+    return triplesExamined;
+  }
+
 }
@@ -27,6 +27,7 @@ import com.google.zxing.qrcode.detector.FinderPatternInfo;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -46,7 +47,7 @@ import java.util.Map;
  * @author Sean Owen
  * @author Hannes Erven
  */
-final class MultiFinderPatternFinder extends FinderPatternFinder {
+class MultiFinderPatternFinder extends FinderPatternFinder {
 
   private static final FinderPatternInfo[] EMPTY_RESULT_ARRAY = new FinderPatternInfo[0];
 
@@ -72,6 +73,45 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
    */
   private static final float DIFF_MODSIZE_CUTOFF = 0.5f;
 
+  /**
+   * Two finder patterns might still be in one tuple if their module sizes differ by up to twice
+   * the cutoffs above, one step through the third pattern, and a little more for rounding.
+   */
+  private static final float POSSIBLE_DIFF_MODSIZE_CUTOFF_PERCENT = 0.11f;
+  private static final float POSSIBLE_DIFF_MODSIZE_CUTOFF = 1.1f;
+
+  /**
+   * In a tuple which passes the checks, the sides along the right angle differ by less than 10%,
+   * and the angle is within about 12.2° of 90°, so the third pattern is less than a quarter of a
+   * side's length away from where it would be if the triangle were exact. This leaves some room.
+   */
+  private static final float MAX_CORNER_ERROR = 0.3f;
+
+  /**
+   * Bounds on the length of a side along the right angle, in modules of the largest pattern, which
+   * follow from the bounds on the module count and the 10% difference between the sides.
+   */
+  private static final float MIN_MODULES_PER_SIDE = 8.0f;
+  private static final float MAX_MODULES_PER_SIDE = 190.0f;
+
+  /**
+   * Cells of the grid of finder patterns are this many modules wide, about the distance between
+   * the finder patterns of a small code.
+   */
+  private static final float MODULES_PER_CELL = 16.0f;
+
+  /**
+   * Most tuples to check, however many finder patterns there are, to bound the time and memory
+   * spent on images crowded with them. Well over the number found in a page full of codes.
+   */
+  private static final int MAX_CANDIDATE_TRIPLES = 1 << 20;
+
+  // Each tuple is packed into a long as three indexes of this many bits
+  private static final int TRIPLE_INDEX_BITS = 21;
+  private static final int TRIPLE_INDEX_MASK = (1 << TRIPLE_INDEX_BITS) - 1;
+
+  private int triplesExamined;
+
 
   /**
    * A comparator that orders FinderPatterns by their estimated module size.
@@ -90,7 +130,7 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
    * @param image image to search
    */
   MultiFinderPatternFinder(BitMatrix image) {
-    super(image);
+    this(image, null);
   }
 
   MultiFinderPatternFinder(BitMatrix image, ResultPointCallback resultPointCallback) {
@@ -106,6 +146,7 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
   private FinderPattern[][] selectMutipleBestPatterns() throws NotFoundException {
     List<FinderPattern> possibleCenters = getPossibleCenters();
     int size = possibleCenters.size();
+    triplesExamined = 0;
 
     if (size < 3) {
       // Couldn't find enough finder patterns
@@ -141,84 +182,59 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
      * we cannot make a good quality decision whether the three finders actually represent
      * a QR code, or are just by chance layouted so it looks like there might be a QR code there.
      * So, if the layout seems right, lets have the decoder try to decode.     
+     *
+     * Rather than checking every tuple, only those found by findCandidateTriples() are checked,
+     * in the same order, which include every one that can pass.
      */
 
-     List<FinderPattern[]> results = new ArrayList<FinderPattern[]>(); // holder for the results
+    List<FinderPattern[]> results = new ArrayList<FinderPattern[]>(); // holder for the results
+
+    long[] candidates = findCandidateTriples(possibleCenters);
+    triplesExamined = candidates.length;
+    for (long candidate : candidates) {
+      FinderPattern p1 = possibleCenters.get((int) (candidate >>> (2 * TRIPLE_INDEX_BITS)));
+      FinderPattern p2 = possibleCenters.get((int) (candidate >>> TRIPLE_INDEX_BITS) & TRIPLE_INDEX_MASK);
+      FinderPattern p3 = possibleCenters.get((int) candidate & TRIPLE_INDEX_MASK);
 
-    for (int i1 = 0; i1 < (size - 2); i1++) {
-      FinderPattern p1 = possibleCenters.get(i1);
-      if (p1 == null) {
+      // Compare the expected module sizes; if they are really off, skip
+      if (!isSimilarModuleSize(p1, p2) || !isSimilarModuleSize(p2, p3)) {
         continue;
       }
 
-      for (int i2 = i1 + 1; i2 < (size - 1); i2++) {
-        FinderPattern p2 = possibleCenters.get(i2);
-        if (p2 == null) {
-          continue;
-        }
-
-        // Compare the expected module sizes; if they are really off, skip
-        float vModSize12 = (p1.getEstimatedModuleSize() - p2.getEstimatedModuleSize()) /
-            Math.min(p1.getEstimatedModuleSize(), p2.getEstimatedModuleSize());
-        float vModSize12A = Math.abs(p1.getEstimatedModuleSize() - p2.getEstimatedModuleSize());
-        if (vModSize12A > DIFF_MODSIZE_CUTOFF && vModSize12 >= DIFF_MODSIZE_CUTOFF_PERCENT) {
-          // break, since elements are ordered by the module size deviation there cannot be
-          // any more interesting elements for the given p1.
-          break;
-        }
+      FinderPattern[] test = {p1, p2, p3};
+      ResultPoint.orderBestPatterns(test);
 
-        for (int i3 = i2 + 1; i3 < size; i3++) {
-          FinderPattern p3 = possibleCenters.get(i3);
-          if (p3 == null) {
-            continue;
-          }
+      // Calculate the distances: a = topleft-bottomleft, b=topleft-topright, c = diagonal
+      FinderPatternInfo info = new FinderPatternInfo(test);
+      float dA = ResultPoint.distance(info.getTopLeft(), info.getBottomLeft());
+      float dC = ResultPoint.distance(info.getTopRight(), info.getBottomLeft());
+      float dB = ResultPoint.distance(info.getTopLeft(), info.getTopRight());
 
-          // Compare the expected module sizes; if they are really off, skip
-          float vModSize23 = (p2.getEstimatedModuleSize() - p3.getEstimatedModuleSize()) /
-              Math.min(p2.getEstimatedModuleSize(), p3.getEstimatedModuleSize());
-          float vModSize23A = Math.abs(p2.getEstimatedModuleSize() - p3.getEstimatedModuleSize());
-          if (vModSize23A > DIFF_MODSIZE_CUTOFF && vModSize23 >= DIFF_MODSIZE_CUTOFF_PERCENT) {
-            // break, since elements are ordered by the module size deviation there cannot be
-            // any more interesting elements for the given p1.
-            break;
-          }
-
-          FinderPattern[] test = {p1, p2, p3};
-          ResultPoint.orderBestPatterns(test);
-
-          // Calculate the distances: a = topleft-bottomleft, b=topleft-topright, c = diagonal
-          FinderPatternInfo info = new FinderPatternInfo(test);
-          float dA = ResultPoint.distance(info.getTopLeft(), info.getBottomLeft());
-          float dC = ResultPoint.distance(info.getTopRight(), info.getBottomLeft());
-          float dB = ResultPoint.distance(info.getTopLeft(), info.getTopRight());
-
-          // Check the sizes
-          float estimatedModuleCount = (dA + dB) / (p1.getEstimatedModuleSize() * 2.0f);
-          if (estimatedModuleCount > MAX_MODULE_COUNT_PER_EDGE ||
-              estimatedModuleCount < MIN_MODULE_COUNT_PER_EDGE) {
-            continue;
-          }
+      // Check the sizes
+      float estimatedModuleCount = (dA + dB) / (p1.getEstimatedModuleSize() * 2.0f);
+      if (estimatedModuleCount > MAX_MODULE_COUNT_PER_EDGE ||
+          estimatedModuleCount < MIN_MODULE_COUNT_PER_EDGE) {
+        continue;
+      }
 
-          // Calculate the difference of the edge lengths in percent
-          float vABBC = Math.abs((dA - dB) / Math.min(dA, dB));
-          if (vABBC >= 0.1f) {
-            continue;
-          }
+      // Calculate the difference of the edge lengths in percent
+      float vABBC = Math.abs((dA - dB) / Math.min(dA, dB));
+      if (vABBC >= 0.1f) {
+        continue;
+      }
 
-          // Calculate the diagonal length by assuming a 90° angle at topleft
-          float dCpy = (float) Math.sqrt(dA * dA + dB * dB);
-          // Compare to the real distance in %
-          float vPyC = Math.abs((dC - dCpy) / Math.min(dC, dCpy));
+      // Calculate the diagonal length by assuming a 90° angle at topleft
+      float dCpy = (float) Math.sqrt(dA * dA + dB * dB);
+      // Compare to the real distance in %
+      float vPyC = Math.abs((dC - dCpy) / Math.min(dC, dCpy));
 
-          if (vPyC >= 0.1f) {
-            continue;
-          }
+      if (vPyC >= 0.1f) {
+        continue;
+      }
 
-          // All tests passed!
-          results.add(test);
-        } // end iterate p3
-      } // end iterate p2
-    } // end iterate p1
+      // All tests passed!
+      results.add(test);
+    }
 
     if (!results.isEmpty()) {
       return results.toArray(new FinderPattern[results.size()][]);
@@ -228,6 +244,118 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
     throw NotFoundException.getNotFoundInstance();
   }
 
+  /**
+   * Finds the tuples of three finder patterns which might pass the checks in
+   * {@link #selectMutipleBestPatterns()}. Those which do form a right triangle, so along either
+   * side at the right angle, the third pattern is near one of the two places it would be if the
+   * triangle were exact. Only those places are looked up, in a grid of the patterns.
+   *
+   * @param possibleCenters patterns, sorted by module size, largest first
+   * @return indexes of each tuple's patterns in ascending order, packed into a long. The tuples
+   *  are in ascending order too, as the patterns would be enumerated one inside the other.
+   */
+  long[] findCandidateTriples(List<FinderPattern> possibleCenters) {
+    int size = Math.min(possibleCenters.size(), TRIPLE_INDEX_MASK + 1);
+    BitMatrix image = getImage();
+    CenterGrid grid = new CenterGrid(possibleCenters, size, image.getWidth(), image.getHeight());
+    int[] found = new int[size];
+    long[] triples = new long[64];
+    int count = 0;
+
+    outer:
+    for (int i = 0; i < size - 1; i++) {
+      FinderPattern a = possibleCenters.get(i);
+      for (int j = i + 1; j < size; j++) {
+        FinderPattern b = possibleCenters.get(j);
+        if (!isPossiblySimilarModuleSize(a, b)) {
+          // Elements are ordered by module size, so none further on can be either
+          break;
+        }
+        float sideX = b.getX() - a.getX();
+        float sideY = b.getY() - a.getY();
+        float side = (float) Math.sqrt(sideX * sideX + sideY * sideY);
+        // The largest pattern of the tuple is at least as large as a, and not much larger
+        float largestModuleSize = Math.max(a.getEstimatedModuleSize() + POSSIBLE_DIFF_MODSIZE_CUTOFF,
+            a.getEstimatedModuleSize() * (1.0f + POSSIBLE_DIFF_MODSIZE_CUTOFF_PERCENT));
+        if (side < MIN_MODULES_PER_SIDE * a.getEstimatedModuleSize() ||
+            side > MAX_MODULES_PER_SIDE * largestModuleSize) {
+          continue;
+        }
+
+        float radius = MAX_CORNER_ERROR * side;
+        for (int corner = 0; corner < 4; corner++) {
+          // The right angle may be at either end, with the third pattern on either side
+          FinderPattern vertex = corner < 2 ? a : b;
+          float sign = (corner & 1) == 0 ? 1.0f : -1.0f;
+          int foundCount = grid.find(vertex.getX() - sign * sideY, vertex.getY() + sign * sideX, radius, found);
+          for (int f = 0; f < foundCount; f++) {
+            int k = found[f];
+            if (k == i || k == j) {
+              continue;
+            }
+            FinderPattern c = possibleCenters.get(k);
+            if (!isPossiblySimilarModuleSize(a, c) || !isPossiblySimilarModuleSize(b, c)) {
+              continue;
+            }
+            if (count == triples.length) {
+              triples = Arrays.copyOf(triples, count << 1);
+            }
+            triples[count++] = packTriple(i, j, k);
+            if (count == MAX_CANDIDATE_TRIPLES) {
+              break outer;
+            }
+          }
+        }
+      }
+    }
+
+    // Each tuple is found from both of its sides along the right angle
+    Arrays.sort(triples, 0, count);
+    int unique = 0;
+    for (int i = 0; i < count; i++) {
+      if (unique == 0 || triples[i] != triples[unique - 1]) {
+        triples[unique++] = triples[i];
+      }
+    }
+    return Arrays.copyOf(triples, unique);
+  }
+
+  static long packTriple(int i, int j, int k) {
+    // i < j already
+    int first = Math.min(i, k);
+    int last = Math.max(j, k);
+    int middle = i + j + k - first - last;
+    return ((long) first << (2 * TRIPLE_INDEX_BITS)) | ((long) middle << TRIPLE_INDEX_BITS) | last;
+  }
+
+  /**
+   * @return true unless the module sizes differ too much for the patterns to be next to one another
+   *  in a tuple, where p1 is the larger
+   */
+  static boolean isSimilarModuleSize(FinderPattern p1, FinderPattern p2) {
+    float vModSize = (p1.getEstimatedModuleSize() - p2.getEstimatedModuleSize()) /
+        Math.min(p1.getEstimatedModuleSize(), p2.getEstimatedModuleSize());
+    float vModSizeA = Math.abs(p1.getEstimatedModuleSize() - p2.getEstimatedModuleSize());
+    return vModSizeA <= DIFF_MODSIZE_CUTOFF || vModSize < DIFF_MODSIZE_CUTOFF_PERCENT;
+  }
+
+  /**
+   * @return true unless the module sizes differ too much for the patterns to be in one tuple at all
+   */
+  private static boolean isPossiblySimilarModuleSize(FinderPattern p1, FinderPattern p2) {
+    float vModSizeA = Math.abs(p1.getEstimatedModuleSize() - p2.getEstimatedModuleSize());
+    float vModSize = vModSizeA / Math.min(p1.getEstimatedModuleSize(), p2.getEstimatedModuleSize());
+    return vModSizeA <= POSSIBLE_DIFF_MODSIZE_CUTOFF || vModSize < POSSIBLE_DIFF_MODSIZE_CUTOFF_PERCENT;
+  }
+
+  /**
+   * @return number of tuples of three finder patterns checked by the last call to
+   *  {@link #findMulti(Map)}
+   */
+  int getTriplesExamined() {
+    return triplesExamined;
+  }
+
   public FinderPatternInfo[] findMulti(Map<DecodeHintType,?> hints) throws NotFoundException {
     boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
     BitMatrix image = getImage();
@@ -307,4 +435,78 @@ final class MultiFinderPatternFinder extends FinderPatternFinder {
     }
   }
 
+  /**
+   * Finder patterns bucketed into square cells by their centers, so that those near a point can
+   * be found without looking at all of them.
+   */
+  private static final class CenterGrid {
+
+    private final List<FinderPattern> centers;
+    private final float cellSize;
+    private final int columns;
+    private final int rows;
+    // Indexes of the patterns in each cell are at cellStarts[cell] until cellStarts[cell + 1]
+    private final int[] cellStarts;
+    private final int[] cellCenters;
+
+    CenterGrid(List<FinderPattern> centers, int size, int width, int height) {
+      this.centers = centers;
+      cellSize = Math.max(1.0f, MODULES_PER_CELL * centers.get(size / 2).getEstimatedModuleSize());
+      columns = (int) (width / cellSize) + 1;
+      rows = (int) (height / cellSize) + 1;
+      cellStarts = new int[columns * rows + 1];
+      for (int i = 0; i < size; i++) {
+        cellStarts[getCell(centers.get(i)) + 1]++;
+      }
+      for (int cell = 0; cell < columns * rows; cell++) {
+        cellStarts[cell + 1] += cellStarts[cell];
+      }
+      cellCenters = new int[size];
+      int[] cellEnds = Arrays.copyOf(cellStarts, cellStarts.length - 1);
+      for (int i = 0; i < size; i++) {
+        cellCenters[cellEnds[getCell(centers.get(i))]++] = i;
+      }
+    }
+
+    /**
+     * @param found receives the indexes of the patterns within the radius of the point
+     * @return how many were found
+     */
+    int find(float x, float y, float radius, int[] found) {
+      int minColumn = getColumn(x - radius);
+      int maxColumn = getColumn(x + radius);
+      int minRow = getRow(y - radius);
+      int maxRow = getRow(y + radius);
+      float maxDistanceSquared = radius * radius;
+      int count = 0;
+      for (int row = minRow; row <= maxRow; row++) {
+        for (int column = minColumn; column <= maxColumn; column++) {
+          int cell = row * columns + column;
+          for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            FinderPattern center = centers.get(cellCenters[i]);
+            float dx = center.getX() - x;
+            float dy = center.getY() - y;
+            if (dx * dx + dy * dy <= maxDistanceSquared) {
+              found[count++] = cellCenters[i];
+            }
+          }
+        }
+      }
+      return count;
+    }
+
+    private int getCell(FinderPattern center) {
+      return getRow(center.getY()) * columns + getColumn(center.getX());
+    }
+
+    private int getColumn(float x) {
+      return Math.max(0, Math.min(columns - 1, (int) (x / cellSize)));
+    }
+
+    private int getRow(float y) {
+      return Math.max(0, Math.min(rows - 1, (int) (y / cellSize)));
+    }
+
+  }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.pdf417;
+
+/**
+ * <p>Converts between the decimal digits and the base 900 codewords of Numeric Compaction mode
+ * (see 5.4.4). A group of up to 44 digits, with a 1 prefixed, becomes up to 15 codewords.</p>
+ *
+ * <p>Rather than going through {@link java.math.BigInteger}, the conversions work directly on
+ * the codeword array, treating it as the limbs of the number: up to nine decimal digits are
+ * multiplied in or divided out per pass, which {@code long} arithmetic holds exactly.</p>
+ */
+public final class Base900 {
+
+  /**
+   * Most codewords in one group
+   */
+  public static final int MAX_CODEWORDS = 15;
+
+  private static final int DIGITS_PER_PASS = 9;
+  private static final int[] POWERS_OF_TEN = {
+      1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000, 1000000000};
+
+  private Base900() {
+  }
+
+  /**
+   * Encodes a group of digits, with a leading 1, as base 900 codewords.
+   *
+   * @param digits    the digits
+   * @param start     index of the first digit of the group
+   * @param count     number of digits in the group, at most 44
+   * @param codewords receives the codewords, most significant first. Must have room for
+   *                  {@link #MAX_CODEWORDS}.
+   * @return number of codewords written
+   */
+  public static int encode(CharSequence digits, int start, int count, int[] codewords) {
+    // Built up least significant limb first, then reversed
+    codewords[0] = 1;
+    int length = 1;
+    int end = start + count;
+    for (int i = start; i < end; i += DIGITS_PER_PASS) {
+      int passEnd = Math.min(end, i + DIGITS_PER_PASS);
+      int value = 0;
+      for (int j = i; j < passEnd; j++) {
+        value = value * 10 + (digits.charAt(j) - '0');
+      }
+      long multiplier = POWERS_OF_TEN[passEnd - i];
+      long carry = value;
+      for (int limb = 0; limb < length; limb++) {
+        long product = codewords[limb] * multiplier + carry;
+        codewords[limb] = (int) (product % 900);
+        carry = product / 900;
+      }
+      while (carry > 0) {
+        codewords[length++] = (int) (carry % 900);
+        carry /= 900;
+      }
+    }
+    for (int i = 0, j = length - 1; i < j; i++, j--) {
+      int temp = codewords[i];
+      codewords[i] = codewords[j];
+      codewords[j] = temp;
+    }
+    return length;
+  }
+
+  /**
+   * Decodes base 900 codewords into decimal digits. The number's leading digit must be 1, which
+   * is dropped.
+   *
+   * @param codewords the codewords, most significant first. They are overwritten.
+   * @param count     number of codewords
+   * @param result    receives the digits
+   * @return false if the number does not start with a 1, in which case nothing is appended
+   */
+  public static boolean decode(int[] codewords, int count, StringBuilder result) {
+    int start = result.length();
+    int first = 0;
+    while (first < count && codewords[first] == 0) {
+      first++;
+    }
+    // Each pass divides out the nine least significant decimal digits, which go in front of
+    // those from previous passes
+    while (first < count) {
+      long remainder = 0;
+      for (int i = first; i < count; i++) {
+        long current = remainder * 900 + codewords[i];
+        codewords[i] = (int) (current / POWERS_OF_TEN[DIGITS_PER_PASS]);
+        remainder = current % POWERS_OF_TEN[DIGITS_PER_PASS];
+      }
+      while (first < count && codewords[first] == 0) {
+        first++;
+      }
+      int digits = first < count ? DIGITS_PER_PASS : 0;
+      for (long r = remainder; r > 0 || digits > 0; r /= 10, digits--) {
+        result.insert(start, (char) ('0' + r % 10));
+      }
+    }
+    if (result.length() == start || result.charAt(start) != '1') {
+      result.setLength(start);
+      return false;
+    }
+    result.deleteCharAt(start);
+    return true;
+  }
+
+}
@@ -65,37 +65,69 @@ public final class PDF417Common {
    * @return the codeword corresponding to the symbol.
    */
   public static int getCodeword(long symbol) {
-    long sym = symbol & 0x3FFFF;
-    int i = findCodewordIndex(sym);
-    if (i == -1) {
+    int slot = findSymbolSlot((int) (symbol & 0x3FFFF));
+    if (slot == -1) {
       return -1;
     }
-    return (CODEWORD_TABLE[i] - 1) % NUMBER_OF_CODEWORDS;
+    return SYMBOL_HASH_VALUES[slot] & CODEWORD_MASK;
   }
 
   /**
-   * Use a binary search to find the index of the codeword corresponding to
-   * this symbol.
+   * Determine the cluster of the symbol, which tells in which rows it may occur.
+   *
+   * @return the cluster number (0, 3 or 6) of the symbol, or -1 if it is not a valid symbol.
+   */
+  public static int getClusterNumber(long symbol) {
+    int slot = findSymbolSlot((int) (symbol & 0x3FFFF));
+    if (slot == -1) {
+      return -1;
+    }
+    return (SYMBOL_HASH_VALUES[slot] >> CLUSTER_SHIFT) * 3;
+  }
+
+  /**
+   * Look up the symbol in the hash table.
    *
    * @param symbol the symbol from the barcode.
-   * @return the index into the codeword table.
+   * @return the slot holding the symbol, or -1 if it is not a valid symbol.
    */
-  private static int findCodewordIndex(long symbol) {
-    int first = 0;
-    int upto = SYMBOL_TABLE.length;
-    while (first < upto) {
-      int mid = (first + upto) >>> 1; // Compute mid point.
-      if (symbol < SYMBOL_TABLE[mid]) {
-        upto = mid; // continue search in bottom half.
-      } else if (symbol > SYMBOL_TABLE[mid]) {
-        first = mid + 1; // continue search in top half.
-      } else {
-        return mid; // Found it. return position
+  private static int findSymbolSlot(int symbol) {
+    int slot = hashSlot(symbol);
+    int key;
+    while ((key = SYMBOL_HASH_KEYS[slot]) != 0) {
+      if (key == symbol) {
+        return slot;
       }
+      slot = (slot + 1) & (SYMBOL_HASH_KEYS.length - 1);
     }
     return -1;
   }
 
+  private static int hashSlot(int symbol) {
+    return (symbol * 0x9E3779B9) >>> (32 - SYMBOL_HASH_BITS);
+  }
+
+  /**
+   * Counts the modules in each bar and space of the symbol, from left to right.
+   */
+  private static int[] getBitCountForSymbol(int symbol) {
+    int[] result = new int[BARS_IN_MODULE];
+    int previousValue = 0;
+    int i = result.length - 1;
+    while (true) {
+      if ((symbol & 0x1) != previousValue) {
+        previousValue = symbol & 0x1;
+        i--;
+        if (i < 0) {
+          break;
+        }
+      }
+      result[i]++;
+      symbol >>= 1;
+    }
+    return result;
+  }
+
   /**
    * The sorted table of all possible symbols. Extracted from the PDF417
    * specification. The index of a symbol in this table corresponds to the
@@ -480,4 +512,28 @@ public final class PDF417Common {
       2058, 2054, 1145, 1142, 2005, 2002, 1999, 2009, 1488, 1429, 1426, 2200, 1698, 1659, 1656, 1975, 1053, 1957, 1954,
       1001, 998, 1924, 1921, 1918, 1928, 937, 934, 931, 1879, 1876, 1873, 1870, 945, 1885, 1882, 1323, 1273, 1270,
       2105, 1202, 1199, 1196, 1211, 2061, 2057, 1576, 1543, 1540, 1484, 1481, 1478, 1491, 1700};
+
+  // Open addressing hash table from each symbol to its codeword, with its cluster number
+  // divided by 3 in the bits above. Decoding looks up thousands of symbols per image, which
+  // this keeps to one or two probes rather than a binary search over the whole table.
+  private static final int SYMBOL_HASH_BITS = 13;
+  private static final int CODEWORD_MASK = 0x3FF;
+  private static final int CLUSTER_SHIFT = 10;
+  private static final int[] SYMBOL_HASH_KEYS = new int[1 << SYMBOL_HASH_BITS];
+  private static final char[] SYMBOL_HASH_VALUES = new char[SYMBOL_HASH_KEYS.length];
+  static {
+    for (int i = 0; i < SYMBOL_TABLE.length; i++) {
+      int symbol = SYMBOL_TABLE[i];
+      int slot = hashSlot(symbol);
+      while (SYMBOL_HASH_KEYS[slot] != 0) {
+        slot = (slot + 1) & (SYMBOL_HASH_KEYS.length - 1);
+      }
+      int[] bitCount = getBitCountForSymbol(symbol);
+      int cluster = (bitCount[0] - bitCount[2] + bitCount[4] - bitCount[6] + 9) % 9;
+      SYMBOL_HASH_KEYS[slot] = symbol;
+      SYMBOL_HASH_VALUES[slot] =
+          (char) (((CODEWORD_TABLE[i] - 1) % NUMBER_OF_CODEWORDS) | (cluster / 3) << CLUSTER_SHIFT);
+    }
+  }
+
 }
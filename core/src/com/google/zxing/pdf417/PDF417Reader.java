@@ -35,6 +35,7 @@ import com.google.zxing.pdf417.detector.PDF417DetectorResult;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This implementation can detect and decode PDF417 codes in an image.
@@ -43,6 +44,20 @@ import java.util.Map;
  */
 public final class PDF417Reader implements Reader, MultipleBarcodeReader {
 
+  private final ExecutorService executor;
+
+  public PDF417Reader() {
+    this(null);
+  }
+
+  /**
+   * @param executor decodes the columns of each code concurrently, or null to decode them one after the
+   *  other. This pays off on codes with many columns in large images.
+   */
+  public PDF417Reader(ExecutorService executor) {
+    this.executor = executor;
+  }
+
   /**
    * Locates and decodes a PDF417 code in an image.
    *
@@ -81,18 +96,25 @@ public final class PDF417Reader implements Reader, MultipleBarcodeReader {
     }
   }
 
-  private static Result[] decode(BinaryBitmap image, Map<DecodeHintType, ?> hints, boolean multiple) 
+  private Result[] decode(BinaryBitmap image, Map<DecodeHintType, ?> hints, boolean multiple) 
       throws NotFoundException, FormatException, ChecksumException {
+    int maxErrorCorrectionAttempts = PDF417ScanningDecoder.DEFAULT_MAX_ERROR_CORRECTION_ATTEMPTS;
+    if (hints != null && hints.containsKey(DecodeHintType.PDF417_MAX_ERROR_CORRECTION_ATTEMPTS)) {
+      maxErrorCorrectionAttempts = (Integer) hints.get(DecodeHintType.PDF417_MAX_ERROR_CORRECTION_ATTEMPTS);
+    }
     List<Result> results = new ArrayList<Result>();
     PDF417DetectorResult detectorResult = Detector.detect(image, hints, multiple);
     for (ResultPoint[] points : detectorResult.getPoints()) {
       DecoderResult decoderResult = PDF417ScanningDecoder.decode(detectorResult.getBits(), points[4], points[5],
-          points[6], points[7], getMinCodewordWidth(points), getMaxCodewordWidth(points));
+          points[6], points[7], getMinCodewordWidth(points), getMaxCodewordWidth(points), executor,
+          maxErrorCorrectionAttempts);
       if (decoderResult == null) {
         throw NotFoundException.getNotFoundInstance();
       }
       Result result = new Result(decoderResult.getText(), decoderResult.getRawBytes(), points, BarcodeFormat.PDF_417);
       result.putMetadata(ResultMetadataType.ERROR_CORRECTION_LEVEL, decoderResult.getECLevel());
+      result.putMetadata(ResultMetadataType.PDF417_ERROR_CORRECTION_ATTEMPTS,
+          decoderResult.getErrorCorrectionAttempts());
       PDF417ResultMetadata pdf417ResultMetadata = (PDF417ResultMetadata) decoderResult.getOther();
       if (pdf417ResultMetadata != null) {
         result.putMetadata(ResultMetadataType.PDF417_EXTRA_METADATA, pdf417ResultMetadata);
@@ -18,9 +18,9 @@ package com.google.zxing.pdf417.decoder;
 
 import com.google.zxing.FormatException;
 import com.google.zxing.common.DecoderResult;
+import com.google.zxing.pdf417.Base900;
 import com.google.zxing.pdf417.PDF417ResultMetadata;
 
-import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
@@ -68,21 +68,6 @@ final class DecodedBitStreamParser {
       '\r', '\t', ',', ':', '#', '-', '.', '$', '/', '+', '%', '*',
       '=', '^'};
 
-  /**
-   * Table containing values for the exponent of 900.
-   * This is used in the numeric compaction decode algorithm.
-   */
-  private static final BigInteger[] EXP900;
-  static {
-    EXP900 = new BigInteger[16];
-    EXP900[0] = BigInteger.ONE;
-    BigInteger nineHundred = BigInteger.valueOf(900);
-    EXP900[1] = nineHundred;
-    for (int i = 2; i < EXP900.length; i++) {
-      EXP900[i] = EXP900[i - 1].multiply(nineHundred);
-    }
-  }
-
   private static final int NUMBER_OF_SEQUENCE_CODEWORDS = 2;
 
   private DecodedBitStreamParser() {
@@ -150,8 +135,9 @@ final class DecodedBitStreamParser {
     for (int i = 0; i < NUMBER_OF_SEQUENCE_CODEWORDS; i++, codeIndex++) {
       segmentIndexArray[i] = codewords[codeIndex];
     }
-    resultMetadata.setSegmentIndex(Integer.parseInt(decodeBase900toBase10(segmentIndexArray,
-        NUMBER_OF_SEQUENCE_CODEWORDS)));
+    StringBuilder segmentIndex = new StringBuilder();
+    decodeBase900toBase10(segmentIndexArray, NUMBER_OF_SEQUENCE_CODEWORDS, segmentIndex);
+    resultMetadata.setSegmentIndex(Integer.parseInt(segmentIndex.toString()));
 
     StringBuilder fileId = new StringBuilder();
     codeIndex = textCompaction(codewords, codeIndex, fileId);
@@ -564,8 +550,7 @@ final class DecodedBitStreamParser {
         // while in Numeric Compaction mode) serves  to terminate the
         // current Numeric Compaction mode grouping as described in 5.4.4.2,
         // and then to start a new one grouping.
-        String s = decodeBase900toBase10(numericCodewords, count);
-        result.append(s);
+        decodeBase900toBase10(numericCodewords, count, result);
         count = 0;
       }
     }
@@ -575,9 +560,9 @@ final class DecodedBitStreamParser {
   /**
    * Convert a list of Numeric Compacted codewords from Base 900 to Base 10.
    *
-   * @param codewords The array of codewords
+   * @param codewords The array of codewords, which is overwritten
    * @param count     The number of codewords
-   * @return The decoded string representing the Numeric data.
+   * @param result    The decoded Numeric data is appended to the result.
    */
   /*
      EXAMPLE
@@ -615,16 +600,11 @@ final class DecodedBitStreamParser {
 
      Remove leading 1 =>  Result is 000213298174000
    */
-  private static String decodeBase900toBase10(int[] codewords, int count) throws FormatException {
-    BigInteger result = BigInteger.ZERO;
-    for (int i = 0; i < count; i++) {
-      result = result.add(EXP900[count - i - 1].multiply(BigInteger.valueOf(codewords[i])));
-    }
-    String resultString = result.toString();
-    if (resultString.charAt(0) != '1') {
+  private static void decodeBase900toBase10(int[] codewords, int count, StringBuilder result)
+      throws FormatException {
+    if (!Base900.decode(codewords, count, result)) {
       throw FormatException.getFormatInstance();
     }
-    return resultString.substring(1);
   }
 
 }
@@ -48,46 +48,37 @@ final class PDF417CodewordDecoder {
   }
 
   static int getDecodedValue(int[] moduleBitCount) {
-    int decodedValue = getDecodedCodewordValue(sampleBitCounts(moduleBitCount));
-    if (decodedValue != -1) {
+    // Most codewords are read well enough that sampling them gives a valid symbol, in which
+    // case there is no need for the search by ratios
+    int decodedValue = getSampledValue(moduleBitCount);
+    if (PDF417Common.getCodeword(decodedValue) != -1) {
       return decodedValue;
     }
     return getClosestDecodedValue(moduleBitCount);
   }
 
-  private static int[] sampleBitCounts(int[] moduleBitCount) {
-    float bitCountSum = PDF417Common.getBitCountSum(moduleBitCount);
-    int[] result = new int[PDF417Common.BARS_IN_MODULE];
+  /**
+   * Samples the bars and spaces at the middle of each of the 17 modules, and assembles the
+   * samples' bits as it goes. Positions are scaled by twice the number of modules so that the
+   * arithmetic is exact.
+   */
+  private static int getSampledValue(int[] moduleBitCount) {
+    int bitCountSum = PDF417Common.getBitCountSum(moduleBitCount);
+    int scale = 2 * PDF417Common.MODULES_IN_CODEWORD;
     int bitCountIndex = 0;
     int sumPreviousBits = 0;
+    int result = 0;
     for (int i = 0; i < PDF417Common.MODULES_IN_CODEWORD; i++) {
-      float sampleIndex = 
-          bitCountSum / (2 * PDF417Common.MODULES_IN_CODEWORD) + 
-          (i * bitCountSum) / PDF417Common.MODULES_IN_CODEWORD;
-      if (sumPreviousBits + moduleBitCount[bitCountIndex] <= sampleIndex) {
+      int scaledSampleIndex = (2 * i + 1) * bitCountSum;
+      if ((sumPreviousBits + moduleBitCount[bitCountIndex]) * scale <= scaledSampleIndex) {
         sumPreviousBits += moduleBitCount[bitCountIndex];
         bitCountIndex++;
       }
-      result[bitCountIndex]++;
+      result = (result << 1) | (bitCountIndex % 2 == 0 ? 1 : 0);
     }
     return result;
   }
 
-  private static int getDecodedCodewordValue(int[] moduleBitCount) {
-    int decodedValue = getBitValue(moduleBitCount);
-    return PDF417Common.getCodeword(decodedValue) == -1 ? -1 : decodedValue;
-  }
-
-  private static int getBitValue(int[] moduleBitCount) {
-    long result = 0;
-    for (int i = 0; i < moduleBitCount.length; i++) {
-      for (int bit = 0; bit < moduleBitCount[i]; bit++) {
-        result = (result << 1) | (i % 2 == 0 ? 1 : 0);
-      }
-    }
-    return (int) result;
-  }
-
   private static int getClosestDecodedValue(int[] moduleBitCount) {
     int bitCountSum = PDF417Common.getBitCountSum(moduleBitCount);
     float[] bitCountRatios = new float[PDF417Common.BARS_IN_MODULE];
@@ -29,6 +29,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author Guenther Grau
@@ -41,6 +46,11 @@ public final class PDF417ScanningDecoder {
   private static final int MAX_EC_CODEWORDS = 512;
   private static final ErrorCorrection errorCorrection = new ErrorCorrection();
 
+  /**
+   * Most combinations of values for ambiguous codewords tried by default
+   */
+  public static final int DEFAULT_MAX_ERROR_CORRECTION_ATTEMPTS = 100;
+
   private PDF417ScanningDecoder() {
   }
 
@@ -55,6 +65,49 @@ public final class PDF417ScanningDecoder {
                                      ResultPoint imageBottomRight,
                                      int minCodewordWidth,
                                      int maxCodewordWidth) throws NotFoundException, FormatException, ChecksumException {
+    return decode(image, imageTopLeft, imageBottomLeft, imageTopRight, imageBottomRight, minCodewordWidth,
+        maxCodewordWidth, null);
+  }
+
+  /**
+   * Decodes the barcode, optionally decoding its columns concurrently. Normally each column is located
+   * from the codewords found in the column before it. Given an executor, each column is instead located
+   * only from the row indicator columns and its own codewords, so that all columns can be decoded at
+   * once; the result does not depend on the order in which they finish. If the codewords found that way
+   * cannot be decoded, the columns are decoded again one after the other.
+   *
+   * @param executor decodes columns concurrently, or null to decode them one after the other. The calling
+   *  thread decodes any column the executor has not started on yet, rather than wait for it, so this may
+   *  be called from a thread of the same executor even when all of its threads are busy.
+   */
+  public static DecoderResult decode(BitMatrix image,
+                                     ResultPoint imageTopLeft,
+                                     ResultPoint imageBottomLeft,
+                                     ResultPoint imageTopRight,
+                                     ResultPoint imageBottomRight,
+                                     int minCodewordWidth,
+                                     int maxCodewordWidth,
+                                     ExecutorService executor)
+      throws NotFoundException, FormatException, ChecksumException {
+    return decode(image, imageTopLeft, imageBottomLeft, imageTopRight, imageBottomRight, minCodewordWidth,
+        maxCodewordWidth, executor, DEFAULT_MAX_ERROR_CORRECTION_ATTEMPTS);
+  }
+
+  /**
+   * @param maxErrorCorrectionAttempts most combinations of values for ambiguous codewords to try error
+   *  correction with
+   * @see #decode(BitMatrix, ResultPoint, ResultPoint, ResultPoint, ResultPoint, int, int, ExecutorService)
+   */
+  public static DecoderResult decode(BitMatrix image,
+                                     ResultPoint imageTopLeft,
+                                     ResultPoint imageBottomLeft,
+                                     ResultPoint imageTopRight,
+                                     ResultPoint imageBottomRight,
+                                     int minCodewordWidth,
+                                     int maxCodewordWidth,
+                                     ExecutorService executor,
+                                     int maxErrorCorrectionAttempts)
+      throws NotFoundException, FormatException, ChecksumException {
     BoundingBox boundingBox = new BoundingBox(image, imageTopLeft, imageBottomLeft, imageTopRight, imageBottomRight);
     DetectionResultRowIndicatorColumn leftRowIndicatorColumn = null;
     DetectionResultRowIndicatorColumn rightRowIndicatorColumn = null;
@@ -86,41 +139,158 @@ public final class PDF417ScanningDecoder {
     detectionResult.setDetectionResultColumn(maxBarcodeColumn, rightRowIndicatorColumn);
 
     boolean leftToRight = leftRowIndicatorColumn != null;
+    if (executor != null) {
+      decodeColumnsConcurrently(image, detectionResult, leftToRight, minCodewordWidth, maxCodewordWidth, executor);
+      try {
+        return createDecoderResult(detectionResult, maxErrorCorrectionAttempts);
+      } catch (FormatException ignored) {
+        // fall through
+      } catch (ChecksumException ignored) {
+        // fall through
+      } catch (NotFoundException ignored) {
+        // fall through
+      }
+      // Too few codewords were found without looking at the neighbouring columns; start over and look at them
+      return decode(image, imageTopLeft, imageBottomLeft, imageTopRight, imageBottomRight, minCodewordWidth,
+          maxCodewordWidth, null, maxErrorCorrectionAttempts);
+    }
+    int[] codewordWidths = {minCodewordWidth, maxCodewordWidth};
     for (int barcodeColumnCount = 1; barcodeColumnCount <= maxBarcodeColumn; barcodeColumnCount++) {
       int barcodeColumn = leftToRight ? barcodeColumnCount : maxBarcodeColumn - barcodeColumnCount;
       if (detectionResult.getDetectionResultColumn(barcodeColumn) != null) {
         // This will be the case for the opposite row indicator column, which doesn't need to be decoded again.
         continue;
       }
-      DetectionResultColumn detectionResultColumn;
-      if (barcodeColumn == 0 || barcodeColumn == maxBarcodeColumn) {
-        detectionResultColumn = new DetectionResultRowIndicatorColumn(boundingBox, barcodeColumn == 0);
-      } else {
-        detectionResultColumn = new DetectionResultColumn(boundingBox);
-      }
+      DetectionResultColumn detectionResultColumn = createDetectionResultColumn(detectionResult, barcodeColumn);
       detectionResult.setDetectionResultColumn(barcodeColumn, detectionResultColumn);
-      int startColumn = -1;
-      int previousStartColumn = startColumn;
-      // TODO start at a row for which we know the start position, then detect upwards and downwards from there.
-      for (int imageRow = boundingBox.getMinY(); imageRow <= boundingBox.getMaxY(); imageRow++) {
+      decodeColumn(image, detectionResult, detectionResultColumn, barcodeColumn, leftToRight, codewordWidths, false);
+    }
+    return createDecoderResult(detectionResult, maxErrorCorrectionAttempts);
+  }
+
+  private static DetectionResultColumn createDetectionResultColumn(DetectionResult detectionResult,
+                                                                   int barcodeColumn) {
+    BoundingBox boundingBox = detectionResult.getBoundingBox();
+    if (barcodeColumn == 0 || barcodeColumn == detectionResult.getBarcodeColumnCount() + 1) {
+      return new DetectionResultRowIndicatorColumn(boundingBox, barcodeColumn == 0);
+    }
+    return new DetectionResultColumn(boundingBox);
+  }
+
+  /**
+   * Detects the codewords of one column in each image row.
+   *
+   * @param codewordWidths minimum and maximum codeword width, which are widened to those of the codewords found
+   * @param independent whether to locate codewords without looking at the other data columns
+   */
+  private static void decodeColumn(BitMatrix image,
+                                   DetectionResult detectionResult,
+                                   DetectionResultColumn detectionResultColumn,
+                                   int barcodeColumn,
+                                   boolean leftToRight,
+                                   int[] codewordWidths,
+                                   boolean independent) {
+    BoundingBox boundingBox = detectionResult.getBoundingBox();
+    int startColumn = -1;
+    int previousStartColumn = startColumn;
+    // TODO start at a row for which we know the start position, then detect upwards and downwards from there.
+    for (int imageRow = boundingBox.getMinY(); imageRow <= boundingBox.getMaxY(); imageRow++) {
+      if (independent) {
+        startColumn = getIndependentStartColumn(detectionResult, detectionResultColumn, barcodeColumn, imageRow,
+            leftToRight);
+      } else {
         startColumn = getStartColumn(detectionResult, barcodeColumn, imageRow, leftToRight);
-        if (startColumn < 0 || startColumn > boundingBox.getMaxX()) {
-          if (previousStartColumn == -1) {
-            continue;
-          }
-          startColumn = previousStartColumn;
+      }
+      if (startColumn < 0 || startColumn > boundingBox.getMaxX()) {
+        if (previousStartColumn == -1) {
+          continue;
         }
-        Codeword codeword = detectCodeword(image, boundingBox.getMinX(), boundingBox.getMaxX(), leftToRight,
-            startColumn, imageRow, minCodewordWidth, maxCodewordWidth);
-        if (codeword != null) {
-          detectionResultColumn.setCodeword(imageRow, codeword);
-          previousStartColumn = startColumn;
-          minCodewordWidth = Math.min(minCodewordWidth, codeword.getWidth());
-          maxCodewordWidth = Math.max(maxCodewordWidth, codeword.getWidth());
+        startColumn = previousStartColumn;
+      }
+      Codeword codeword = detectCodeword(image, boundingBox.getMinX(), boundingBox.getMaxX(), leftToRight,
+          startColumn, imageRow, codewordWidths[0], codewordWidths[1]);
+      if (codeword != null) {
+        detectionResultColumn.setCodeword(imageRow, codeword);
+        previousStartColumn = startColumn;
+        codewordWidths[0] = Math.min(codewordWidths[0], codeword.getWidth());
+        codewordWidths[1] = Math.max(codewordWidths[1], codeword.getWidth());
+      }
+    }
+  }
+
+  /**
+   * Decodes every column not yet decoded in a task of its own. The row indicator columns found so far are
+   * only read, and each task starts from the same codeword widths, so the columns come out the same whatever
+   * the order in which the tasks run. They are put in place once all are done. The calling thread runs
+   * each task the executor has not started, so that it never waits on a task queued behind itself.
+   */
+  private static void decodeColumnsConcurrently(final BitMatrix image,
+                                                final DetectionResult detectionResult,
+                                                final boolean leftToRight,
+                                                final int minCodewordWidth,
+                                                final int maxCodewordWidth,
+                                                ExecutorService executor) {
+    int maxBarcodeColumn = detectionResult.getBarcodeColumnCount() + 1;
+    List<Integer> barcodeColumns = new ArrayList<Integer>(maxBarcodeColumn + 1);
+    List<FutureTask<DetectionResultColumn>> tasks =
+        new ArrayList<FutureTask<DetectionResultColumn>>(maxBarcodeColumn + 1);
+    for (int barcodeColumn = 0; barcodeColumn <= maxBarcodeColumn; barcodeColumn++) {
+      if (detectionResult.getDetectionResultColumn(barcodeColumn) != null) {
+        continue;
+      }
+      final int column = barcodeColumn;
+      barcodeColumns.add(column);
+      tasks.add(new FutureTask<DetectionResultColumn>(new Callable<DetectionResultColumn>() {
+        @Override
+        public DetectionResultColumn call() {
+          DetectionResultColumn detectionResultColumn = createDetectionResultColumn(detectionResult, column);
+          int[] codewordWidths = {minCodewordWidth, maxCodewordWidth};
+          decodeColumn(image, detectionResult, detectionResultColumn, column, leftToRight, codewordWidths, true);
+          return detectionResultColumn;
+        }
+      }));
+    }
+    DetectionResultColumn[] detectionResultColumns = new DetectionResultColumn[tasks.size()];
+    try {
+      for (FutureTask<DetectionResultColumn> task : tasks) {
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException ree) {
+          // Run here below instead
+          break;
         }
       }
+      // Does nothing for a task already started or done
+      for (FutureTask<DetectionResultColumn> task : tasks) {
+        task.run();
+      }
+      for (int i = 0; i < detectionResultColumns.length; i++) {
+        detectionResultColumns[i] = getColumn(tasks.get(i));
+      }
+    } finally {
+      for (FutureTask<DetectionResultColumn> task : tasks) {
+        task.cancel(true);
+      }
+    }
+    for (int i = 0; i < detectionResultColumns.length; i++) {
+      detectionResult.setDetectionResultColumn(barcodeColumns.get(i), detectionResultColumns[i]);
+    }
+  }
+
+  private static DetectionResultColumn getColumn(FutureTask<DetectionResultColumn> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      // Nothing checked is thrown
+      throw (RuntimeException) cause;
     }
-    return createDecoderResult(detectionResult);
   }
 
   private static DetectionResult merge(DetectionResultRowIndicatorColumn leftRowIndicatorColumn,
@@ -242,14 +412,15 @@ public final class PDF417ScanningDecoder {
     }
   }
 
-  private static DecoderResult createDecoderResult(DetectionResult detectionResult) throws FormatException,
-      ChecksumException, NotFoundException {
+  private static DecoderResult createDecoderResult(DetectionResult detectionResult, int maxErrorCorrectionAttempts)
+      throws FormatException, ChecksumException, NotFoundException {
     BarcodeValue[][] barcodeMatrix = createBarcodeMatrix(detectionResult);
     adjustCodewordCount(detectionResult, barcodeMatrix);
     Collection<Integer> erasures = new ArrayList<Integer>();
     int[] codewords = new int[detectionResult.getBarcodeRowCount() * detectionResult.getBarcodeColumnCount()];
     List<int[]> ambiguousIndexValuesList = new ArrayList<int[]>();
     List<Integer> ambiguousIndexesList = new ArrayList<Integer>();
+    List<Integer> ambiguousConfidencesList = new ArrayList<Integer>();
     for (int row = 0; row < detectionResult.getBarcodeRowCount(); row++) {
       for (int column = 0; column < detectionResult.getBarcodeColumnCount(); column++) {
         int[] values = barcodeMatrix[row][column + 1].getValue();
@@ -261,6 +432,7 @@ public final class PDF417ScanningDecoder {
         } else {
           ambiguousIndexesList.add(codewordIndex);
           ambiguousIndexValuesList.add(values);
+          ambiguousConfidencesList.add(barcodeMatrix[row][column + 1].getConfidence(values[0]));
         }
       }
     }
@@ -269,7 +441,8 @@ public final class PDF417ScanningDecoder {
       ambiguousIndexValues[i] = ambiguousIndexValuesList.get(i);
     }
     return createDecoderResultFromAmbiguousValues(detectionResult.getBarcodeECLevel(), codewords,
-        PDF417Common.toIntArray(erasures), PDF417Common.toIntArray(ambiguousIndexesList), ambiguousIndexValues);
+        PDF417Common.toIntArray(erasures), PDF417Common.toIntArray(ambiguousIndexesList), ambiguousIndexValues,
+        PDF417Common.toIntArray(ambiguousConfidencesList), maxErrorCorrectionAttempts);
   }
 
   /**
@@ -280,41 +453,88 @@ public final class PDF417ScanningDecoder {
    * ambiguous values and try to decode again. This usually only happens on very hard to read and decode barcodes,
    * so decoding the normal barcodes is not affected by this. 
    *
+   * <p>The values of the codewords seen least often, which are the least certain, are changed most often. Changing
+   * one value only changes one term of each syndrome, so the syndromes are kept up to date rather than computed
+   * again, and a combination without errors is decoded without running error correction at all.</p>
+   *
    * @param erasureArray contains the indexes of erasures
    * @param ambiguousIndexes array with the indexes that have more than one most likely value
    * @param ambiguousIndexValues two dimensional array that contains the ambiguous values. The first dimension must
    * be the same length as the ambiguousIndexes array
+   * @param ambiguousConfidences how often the values of each ambiguous codeword were seen
+   * @param maxAttempts most combinations of values to try
    */
   private static DecoderResult createDecoderResultFromAmbiguousValues(int ecLevel,
                                                                       int[] codewords,
                                                                       int[] erasureArray,
                                                                       int[] ambiguousIndexes,
-                                                                      int[][] ambiguousIndexValues)
+                                                                      int[][] ambiguousIndexValues,
+                                                                      int[] ambiguousConfidences,
+                                                                      int maxAttempts)
       throws FormatException, ChecksumException {
-    int[] ambiguousIndexCount = new int[ambiguousIndexes.length];
+    if (codewords.length == 0) {
+      throw FormatException.getFormatInstance();
+    }
+    int numECCodewords = 1 << (ecLevel + 1);
+    checkErrorCorrectionParameters(erasureArray, numECCodewords);
+
+    // Stable sort by confidence, so that the least certain codewords come first
+    for (int i = 1; i < ambiguousIndexes.length; i++) {
+      int index = ambiguousIndexes[i];
+      int[] values = ambiguousIndexValues[i];
+      int confidence = ambiguousConfidences[i];
+      int j = i;
+      for (; j > 0 && ambiguousConfidences[j - 1] > confidence; j--) {
+        ambiguousIndexes[j] = ambiguousIndexes[j - 1];
+        ambiguousIndexValues[j] = ambiguousIndexValues[j - 1];
+        ambiguousConfidences[j] = ambiguousConfidences[j - 1];
+      }
+      ambiguousIndexes[j] = index;
+      ambiguousIndexValues[j] = values;
+      ambiguousConfidences[j] = confidence;
+    }
 
-    int tries = 100;
-    while (tries-- > 0) {
-      for (int i = 0; i < ambiguousIndexCount.length; i++) {
-        codewords[ambiguousIndexes[i]] = ambiguousIndexValues[i][ambiguousIndexCount[i]];
+    for (int i = 0; i < ambiguousIndexes.length; i++) {
+      codewords[ambiguousIndexes[i]] = ambiguousIndexValues[i][0];
+    }
+    int[] syndromes = new int[numECCodewords];
+    boolean hasErrors = errorCorrection.computeSyndromes(codewords, syndromes);
+    int[] ambiguousIndexCount = new int[ambiguousIndexes.length];
+    for (int attempts = 1; attempts <= maxAttempts; attempts++) {
+      // Error correction and verification work on a copy, so that the codewords keep matching the syndromes
+      int[] received = codewords.clone();
+      int correctedErrorsCount = 0;
+      boolean corrected = true;
+      if (hasErrors) {
+        try {
+          correctedErrorsCount = errorCorrection.decode(received, numECCodewords, erasureArray, syndromes);
+        } catch (ChecksumException ignored) {
+          corrected = false;
+        }
       }
-      try {
-        return decodeCodewords(codewords, ecLevel, erasureArray);
-      } catch (ChecksumException ignored) {
-        //
+      if (corrected) {
+        DecoderResult decoderResult = decodeCorrectedCodewords(received, ecLevel, numECCodewords);
+        decoderResult.setErrorsCorrected(correctedErrorsCount);
+        decoderResult.setErasures(erasureArray.length);
+        decoderResult.setErrorCorrectionAttempts(attempts);
+        return decoderResult;
       }
       if (ambiguousIndexCount.length == 0) {
         throw ChecksumException.getChecksumInstance();
       }
       for (int i = 0; i < ambiguousIndexCount.length; i++) {
-        if (ambiguousIndexCount[i] < ambiguousIndexValues[i].length - 1) {
-          ambiguousIndexCount[i]++;
+        int oldValue = ambiguousIndexValues[i][ambiguousIndexCount[i]];
+        boolean carry = ambiguousIndexCount[i] == ambiguousIndexValues[i].length - 1;
+        ambiguousIndexCount[i] = carry ? 0 : ambiguousIndexCount[i] + 1;
+        int newValue = ambiguousIndexValues[i][ambiguousIndexCount[i]];
+        codewords[ambiguousIndexes[i]] = newValue;
+        hasErrors = errorCorrection.updateSyndromes(syndromes, codewords.length, ambiguousIndexes[i], oldValue,
+            newValue);
+        if (!carry) {
           break;
-        } else {
-          ambiguousIndexCount[i] = 0;
-          if (i == ambiguousIndexCount.length - 1) {
-            throw ChecksumException.getChecksumInstance();
-          }
+        }
+        if (i == ambiguousIndexCount.length - 1) {
+          throw ChecksumException.getChecksumInstance();
         }
       }
     }
@@ -389,6 +609,55 @@ public final class PDF417ScanningDecoder {
     return leftToRight ? detectionResult.getBoundingBox().getMinX() : detectionResult.getBoundingBox().getMaxX();
   }
 
+  /**
+   * Like {@link #getStartColumn(DetectionResult, int, int, boolean)}, but only looks at the column being
+   * decoded and at the row indicator columns. Between two row indicator codewords, the data columns are
+   * spaced evenly; with only one, they are placed at its codeword width from it.
+   */
+  private static int getIndependentStartColumn(DetectionResult detectionResult,
+                                               DetectionResultColumn detectionResultColumn,
+                                               int barcodeColumn,
+                                               int imageRow,
+                                               boolean leftToRight) {
+    Codeword codeword = detectionResultColumn.getCodewordNearby(imageRow);
+    if (codeword != null) {
+      return leftToRight ? codeword.getStartX() : codeword.getEndX();
+    }
+    int barcodeColumnCount = detectionResult.getBarcodeColumnCount();
+    int maxBarcodeColumn = barcodeColumnCount + 1;
+    Codeword left = getRowIndicatorCodewordNearby(detectionResult.getDetectionResultColumn(0), imageRow);
+    Codeword right =
+        getRowIndicatorCodewordNearby(detectionResult.getDetectionResultColumn(maxBarcodeColumn), imageRow);
+    if (left != null && right != null && left.getEndX() < right.getStartX()) {
+      int dataWidth = right.getStartX() - left.getEndX();
+      int column = leftToRight ? barcodeColumn - 1 : barcodeColumn;
+      return left.getEndX() + column * dataWidth / barcodeColumnCount;
+    }
+    if (leftToRight && left != null) {
+      return left.getEndX() + (barcodeColumn - 1) * left.getWidth();
+    }
+    if (!leftToRight && right != null) {
+      return right.getStartX() - (maxBarcodeColumn - 1 - barcodeColumn) * right.getWidth();
+    }
+    return leftToRight ? detectionResult.getBoundingBox().getMinX() : detectionResult.getBoundingBox().getMaxX();
+  }
+
+  private static Codeword getRowIndicatorCodewordNearby(DetectionResultColumn rowIndicatorColumn, int imageRow) {
+    if (rowIndicatorColumn == null) {
+      return null;
+    }
+    Codeword codeword = rowIndicatorColumn.getCodewordNearby(imageRow);
+    if (codeword != null) {
+      return codeword;
+    }
+    for (Codeword rowIndicatorCodeword : rowIndicatorColumn.getCodewords()) {
+      if (rowIndicatorCodeword != null) {
+        return rowIndicatorCodeword;
+      }
+    }
+    return null;
+  }
+
   private static Codeword detectCodeword(BitMatrix image,
                                          int minColumn,
                                          int maxColumn,
@@ -444,7 +713,7 @@ public final class PDF417ScanningDecoder {
     if (codeword == -1) {
       return null;
     }
-    return new Codeword(startColumn, endColumn, getCodewordBucketNumber(decodedValue), codeword);
+    return new Codeword(startColumn, endColumn, PDF417Common.getClusterNumber(decodedValue), codeword);
   }
 
   private static int[] getModuleBitCount(BitMatrix image,
@@ -507,33 +776,20 @@ public final class PDF417ScanningDecoder {
         codewordSize <= maxCodewordWidth + CODEWORD_SKEW_SIZE;
   }
 
-  private static DecoderResult decodeCodewords(int[] codewords, int ecLevel, int[] erasures) throws FormatException,
-      ChecksumException {
-    if (codewords.length == 0) {
-      throw FormatException.getFormatInstance();
-    }
-
-    int numECCodewords = 1 << (ecLevel + 1);
-    int correctedErrorsCount = correctErrors(codewords, erasures, numECCodewords);
+  private static DecoderResult decodeCorrectedCodewords(int[] codewords, int ecLevel, int numECCodewords)
+      throws FormatException {
     verifyCodewordCount(codewords, numECCodewords);
-
-    // Decode the codewords
-    DecoderResult decoderResult = DecodedBitStreamParser.decode(codewords, String.valueOf(ecLevel));
-    decoderResult.setErrorsCorrected(correctedErrorsCount);
-    decoderResult.setErasures(erasures.length);
-    return decoderResult;
+    return DecodedBitStreamParser.decode(codewords, String.valueOf(ecLevel));
   }
 
   /**
-   * <p>Given data and error-correction codewords received, possibly corrupted by errors, attempts to
-   * correct the errors in-place.</p>
+   * Checks that error correction can work with the given erasures and number of error correction codewords.
    *
-   * @param codewords   data and error correction codewords
    * @param erasures positions of any known erasures
    * @param numECCodewords number of error correction codewords that are available in codewords
-   * @throws ChecksumException if error correction fails
+   * @throws ChecksumException if error correction would fail
    */
-  private static int correctErrors(int[] codewords, int[] erasures, int numECCodewords) throws ChecksumException {
+  private static void checkErrorCorrectionParameters(int[] erasures, int numECCodewords) throws ChecksumException {
     if (erasures != null &&
         erasures.length > numECCodewords / 2 + MAX_ERRORS ||
         numECCodewords < 0 ||
@@ -541,7 +797,6 @@ public final class PDF417ScanningDecoder {
       // Too many errors or EC Codewords is corrupted
       throw ChecksumException.getChecksumInstance();
     }
-    return errorCorrection.decode(codewords, numECCodewords, erasures);
   }
 
   /**
@@ -570,32 +825,6 @@ public final class PDF417ScanningDecoder {
     }
   }
 
-  private static int[] getBitCountForCodeword(int codeword) {
-    int[] result = new int[8];
-    int previousValue = 0;
-    int i = result.length - 1;
-    while (true) {
-      if ((codeword & 0x1) != previousValue) {
-        previousValue = codeword & 0x1;
-        i--;
-        if (i < 0) {
-          break;
-        }
-      }
-      result[i]++;
-      codeword >>= 1;
-    }
-    return result;
-  }
-
-  private static int getCodewordBucketNumber(int codeword) {
-    return getCodewordBucketNumber(getBitCountForCodeword(codeword));
-  }
-
-  private static int getCodewordBucketNumber(int[] moduleBitCount) {
-    return (moduleBitCount[0] - moduleBitCount[2] + moduleBitCount[4] - moduleBitCount[6] + 9) % 9;
-  }
-
   public static String toString(BarcodeValue[][] barcodeMatrix) {
     Formatter formatter = new Formatter();
     for (int row = 0; row < barcodeMatrix.length; row++) {
@@ -41,22 +41,68 @@ public final class ErrorCorrection {
   public int decode(int[] received,
                     int numECCodewords,
                     int[] erasures) throws ChecksumException {
+    int[] S = new int[numECCodewords];
+    if (!computeSyndromes(received, S)) {
+      return 0;
+    }
+    return decode(received, numECCodewords, erasures, S);
+  }
 
+  /**
+   * Evaluates the received codewords at each root of the generator polynomial.
+   *
+   * @param syndromes receives the syndromes; its length is the number of error correction codewords
+   * @return true if any syndrome is non-zero, that is, if there are errors
+   */
+  public boolean computeSyndromes(int[] received, int[] syndromes) {
     ModulusPoly poly = new ModulusPoly(field, received);
-    int[] S = new int[numECCodewords];
+    int numECCodewords = syndromes.length;
     boolean error = false;
     for (int i = numECCodewords; i > 0; i--) {
       int eval = poly.evaluateAt(field.exp(i));
-      S[numECCodewords - i] = eval;
+      syndromes[numECCodewords - i] = eval;
       if (eval != 0) {
         error = true;
       }
     }
+    return error;
+  }
 
-    if (!error) {
-      return 0;
+  /**
+   * Updates syndromes from {@link #computeSyndromes(int[], int[])} for one received codeword changing
+   * value, which takes one term per syndrome rather than evaluating all the codewords again.
+   *
+   * @param receivedLength number of received codewords
+   * @param position index of the codeword which changed
+   * @return true if any syndrome is non-zero
+   */
+  public boolean updateSyndromes(int[] syndromes, int receivedLength, int position, int oldValue, int newValue) {
+    int difference = field.subtract(newValue, oldValue);
+    int numECCodewords = syndromes.length;
+    int degree = receivedLength - 1 - position;
+    boolean error = false;
+    for (int i = numECCodewords; i > 0; i--) {
+      if (difference != 0) {
+        int term = field.multiply(difference, field.exp(i * degree % (field.getSize() - 1)));
+        syndromes[numECCodewords - i] = field.add(syndromes[numECCodewords - i], term);
+      }
+      if (syndromes[numECCodewords - i] != 0) {
+        error = true;
+      }
     }
+    return error;
+  }
 
+  /**
+   * Like {@link #decode(int[], int, int[])}, given the received codewords' syndromes, which must not
+   * all be zero. They are not modified.
+   *
+   * @return number of errors
+   */
+  public int decode(int[] received,
+                    int numECCodewords,
+                    int[] erasures,
+                    int[] syndromes) throws ChecksumException {
     ModulusPoly knownErrors = field.getOne();
     for (int erasure : erasures) {
       int b = field.exp(received.length - 1 - erasure);
@@ -65,7 +111,7 @@ public final class ErrorCorrection {
       knownErrors = knownErrors.multiply(term);
     }
 
-    ModulusPoly syndrome = new ModulusPoly(field, S);
+    ModulusPoly syndrome = new ModulusPoly(field, syndromes);
     //syndrome = syndrome.multiply(knownErrors);
 
     ModulusPoly[] sigmaOmega =
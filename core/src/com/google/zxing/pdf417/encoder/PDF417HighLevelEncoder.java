@@ -21,8 +21,8 @@
 package com.google.zxing.pdf417.encoder;
 
 import com.google.zxing.WriterException;
+import com.google.zxing.pdf417.Base900;
 
-import java.math.BigInteger;
 import java.util.Arrays;
 
 /**
@@ -395,23 +395,12 @@ final class PDF417HighLevelEncoder {
 
   private static void encodeNumeric(String msg, int startpos, int count, StringBuilder sb) {
     int idx = 0;
-    StringBuilder tmp = new StringBuilder(count / 3 + 1);
-    BigInteger num900 = BigInteger.valueOf(900);
-    BigInteger num0 = BigInteger.valueOf(0);
+    int[] codewords = new int[Base900.MAX_CODEWORDS];
     while (idx < count - 1) {
-      tmp.setLength(0);
       int len = Math.min(44, count - idx);
-      String part = '1' + msg.substring(startpos + idx, startpos + idx + len);
-      BigInteger bigint = new BigInteger(part);
-      do {
-        BigInteger c = bigint.mod(num900);
-        tmp.append((char) c.intValue());
-        bigint = bigint.divide(num900);
-      } while (!bigint.equals(num0));
-
-      //Reverse temporary string
-      for (int i = tmp.length() - 1; i >= 0; i--) {
-        sb.append(tmp.charAt(i));
+      int codewordCount = Base900.encode(msg, startpos + idx, len, codewords);
+      for (int i = 0; i < codewordCount; i++) {
+        sb.append((char) codewords[i]);
       }
       idx += len;
     }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests {@link CascadingDecoder}.
+ */
+public final class CascadingDecoderTestCase extends Assert {
+
+  private static final int DIMENSION = 300;
+
+  @Test
+  public void testFallsThroughToSecondBinarizer() throws Exception {
+    LuminanceSource source = createUnevenlyLitCode("cascade");
+    List<Binarizer> binarizers = createBinarizers(source);
+    CascadingDecoder decoder = new CascadingDecoder(binarizers, null);
+    assertEquals("cascade", decoder.decode(source).getText());
+    assertSame(binarizers.get(1), decoder.getLastSuccessfulBinarizer());
+    assertArrayEquals(new int[] {0, 1}, decoder.getSuccessCounts());
+    assertEquals(0, decoder.getFailureCount());
+  }
+
+  @Test
+  public void testParallelPrefersEarlierBinarizer() throws Exception {
+    LuminanceSource evenSource = createCode("even", 0);
+    LuminanceSource unevenSource = createUnevenlyLitCode("uneven");
+    List<Binarizer> binarizers = createBinarizers(evenSource);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      CascadingDecoder decoder = new CascadingDecoder(binarizers, null, executor);
+      assertEquals("even", decoder.decode(evenSource).getText());
+      assertSame(binarizers.get(0), decoder.getLastSuccessfulBinarizer());
+      assertEquals("uneven", decoder.decode(unevenSource).getText());
+      assertSame(binarizers.get(1), decoder.getLastSuccessfulBinarizer());
+      assertArrayEquals(new int[] {1, 1}, decoder.getSuccessCounts());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFailure() {
+    LuminanceSource source = createCode(null, 0);
+    CascadingDecoder decoder = new CascadingDecoder(createBinarizers(source), null);
+    try {
+      decoder.decode(source);
+      fail("Should not decode a blank image");
+    } catch (NotFoundException nfe) {
+      // good
+    }
+    assertNull(decoder.getLastSuccessfulBinarizer());
+    assertEquals(1, decoder.getFailureCount());
+  }
+
+  private static List<Binarizer> createBinarizers(LuminanceSource source) {
+    return Arrays.<Binarizer>asList(new GlobalHistogramBinarizer(source), new HybridBinarizer(source));
+  }
+
+  private static LuminanceSource createUnevenlyLitCode(String contents) {
+    return createCode(contents, 200);
+  }
+
+  /**
+   * Renders a QR code, or a blank image, which darkens by up to the given amount from left to right.
+   */
+  private static LuminanceSource createCode(String contents, int shading) {
+    BitMatrix code = null;
+    if (contents != null) {
+      try {
+        code = new QRCodeWriter().encode(contents, BarcodeFormat.QR_CODE, DIMENSION, DIMENSION);
+      } catch (WriterException we) {
+        throw new IllegalStateException(we);
+      }
+    }
+    byte[] luminances = new byte[DIMENSION * DIMENSION];
+    for (int y = 0; y < DIMENSION; y++) {
+      for (int x = 0; x < DIMENSION; x++) {
+        int white = 255 - shading * x / DIMENSION;
+        boolean black = code != null && code.get(x, y);
+        luminances[y * DIMENSION + x] = (byte) (black ? white / 4 : white);
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, DIMENSION, DIMENSION, 0, 0, DIMENSION, DIMENSION, false);
+  }
+
+}
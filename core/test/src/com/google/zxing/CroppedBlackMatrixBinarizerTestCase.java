@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.ByQuadrantReader;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tests {@link BinaryBitmap#cropBlackMatrix(int, int, int, int)}, which is backed by
+ * {@link CroppedBlackMatrixBinarizer}.
+ */
+public final class CroppedBlackMatrixBinarizerTestCase extends Assert {
+
+  private static final int DIMENSION = 400;
+  private static final int CODE_DIMENSION = 150;
+
+  @Test
+  public void testMatrixMatchesParent() throws Exception {
+    BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(createImage(new int[][] {{30, 40}, {210, 190}})));
+    BitMatrix parentMatrix = image.getBlackMatrix();
+    int[][] regions = {{0, 0, DIMENSION, DIMENSION}, {13, 27, 150, 111}, {200, 200, 200, 200}, {399, 0, 1, 400}};
+    for (int[] region : regions) {
+      BinaryBitmap cropped = image.cropBlackMatrix(region[0], region[1], region[2], region[3]);
+      assertEquals(region[2], cropped.getWidth());
+      assertEquals(region[3], cropped.getHeight());
+      assertRegionEquals(parentMatrix, region[0], region[1], cropped);
+    }
+  }
+
+  @Test
+  public void testCropOfCrop() throws Exception {
+    BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(createImage(new int[][] {{30, 40}})));
+    BinaryBitmap cropped = image.cropBlackMatrix(20, 10, 300, 250).cropBlackMatrix(7, 9, 120, 100);
+    assertRegionEquals(image.getBlackMatrix(), 27, 19, cropped);
+  }
+
+  @Test
+  public void testRowsAreCleared() throws Exception {
+    BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(createImage(new int[][] {{30, 40}})));
+    BinaryBitmap cropped = image.cropBlackMatrix(25, 35, 100, 100);
+    // A reused row with every bit set must come back with only the black pixels set
+    BitArray row = new BitArray(200);
+    row.setRange(0, 200);
+    row = cropped.getBlackRow(50, row);
+    for (int x = 0; x < 100; x++) {
+      assertEquals(image.getBlackMatrix().get(25 + x, 85), row.get(x));
+    }
+  }
+
+  @Test
+  public void testByQuadrantReader() throws Exception {
+    LuminanceSource source = createImage(new int[][] {{230, 220}});
+    Result expected = new ByQuadrantReader(new QRCodeReader()).decode(new BinaryBitmap(new HybridBinarizer(source)));
+    Result result = new ByQuadrantReader(new QRCodeReader()).decode(new BinaryBitmap(new HybridBinarizer(source)),
+                                                                    createCropBlackMatrixHints());
+    assertResultEquals(expected, result);
+  }
+
+  @Test
+  public void testMultipleBarcodesMappedToWholeImage() throws Exception {
+    int[][] positions = {{30, 40}, {210, 190}};
+    LuminanceSource source = createImage(positions);
+    Result[] expected =
+        new GenericMultipleBarcodeReader(new QRCodeReader()).decodeMultiple(new BinaryBitmap(new HybridBinarizer(source)));
+    Result[] results = new GenericMultipleBarcodeReader(new QRCodeReader()).decodeMultiple(
+        new BinaryBitmap(new HybridBinarizer(source)), createCropBlackMatrixHints());
+    assertEquals(positions.length, results.length);
+    sortByText(expected);
+    sortByText(results);
+    for (int i = 0; i < results.length; i++) {
+      assertResultEquals(expected[i], results[i]);
+      // Points lie on the barcode where it was drawn in the whole image, not in some crop of it
+      int[] position = positions[Integer.parseInt(results[i].getText().substring(5))];
+      for (ResultPoint point : results[i].getResultPoints()) {
+        assertTrue(point.getX() >= position[0] && point.getX() < position[0] + CODE_DIMENSION);
+        assertTrue(point.getY() >= position[1] && point.getY() < position[1] + CODE_DIMENSION);
+      }
+    }
+  }
+
+  private static Map<DecodeHintType,Object> createCropBlackMatrixHints() {
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.CROP_BLACK_MATRIX, Boolean.TRUE);
+    return hints;
+  }
+
+  private static void assertRegionEquals(BitMatrix parentMatrix, int left, int top, BinaryBitmap cropped)
+      throws NotFoundException {
+    BitMatrix matrix = cropped.getBlackMatrix();
+    BitArray row = null;
+    for (int y = 0; y < cropped.getHeight(); y++) {
+      row = cropped.getBlackRow(y, row);
+      for (int x = 0; x < cropped.getWidth(); x++) {
+        boolean expected = parentMatrix.get(left + x, top + y);
+        assertEquals(expected, matrix.get(x, y));
+        assertEquals(expected, row.get(x));
+      }
+    }
+  }
+
+  private static void assertResultEquals(Result expected, Result result) {
+    assertEquals(expected.getText(), result.getText());
+    assertSame(expected.getBarcodeFormat(), result.getBarcodeFormat());
+    ResultPoint[] expectedPoints = expected.getResultPoints();
+    ResultPoint[] points = result.getResultPoints();
+    assertEquals(expectedPoints.length, points.length);
+    for (int i = 0; i < points.length; i++) {
+      assertEquals(expectedPoints[i].getX(), points[i].getX(), 0.01f);
+      assertEquals(expectedPoints[i].getY(), points[i].getY(), 0.01f);
+    }
+  }
+
+  private static void sortByText(Result[] results) {
+    Arrays.sort(results, new Comparator<Result>() {
+      @Override
+      public int compare(Result a, Result b) {
+        return a.getText().compareTo(b.getText());
+      }
+    });
+  }
+
+  /**
+   * Renders a QR code at each position, encoding "code " and its index, on a background which
+   * darkens from left to right so that binarizing a crop on its own would come out differently.
+   */
+  private static LuminanceSource createImage(int[][] positions) throws WriterException {
+    byte[] luminances = new byte[DIMENSION * DIMENSION];
+    for (int y = 0; y < DIMENSION; y++) {
+      for (int x = 0; x < DIMENSION; x++) {
+        luminances[y * DIMENSION + x] = (byte) (255 - 80 * x / DIMENSION);
+      }
+    }
+    for (int i = 0; i < positions.length; i++) {
+      BitMatrix code = new QRCodeWriter().encode("code " + i, BarcodeFormat.QR_CODE, CODE_DIMENSION, CODE_DIMENSION);
+      for (int y = 0; y < CODE_DIMENSION; y++) {
+        for (int x = 0; x < CODE_DIMENSION; x++) {
+          if (code.get(x, y)) {
+            luminances[(positions[i][1] + y) * DIMENSION + positions[i][0] + x] = (byte) 20;
+          }
+        }
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, DIMENSION, DIMENSION, 0, 0, DIMENSION, DIMENSION, false);
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tests {@link DownscaledLuminanceSource} and the {@link DecodeHintType#MULTI_SCALE} strategy.
+ */
+public final class DownscaledLuminanceSourceTestCase extends Assert {
+
+  @Test
+  public void testAverages() {
+    byte[] luminances = {
+        0, 2, 10, 20, 7,
+        4, 6, 30, 40, 7,
+        1, 1, 1, 1, 1,
+    };
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, 5, 3, 0, 0, 5, 3, false);
+    DownscaledLuminanceSource scaled = new DownscaledLuminanceSource(source, 2);
+    assertEquals(2, scaled.getWidth());
+    assertEquals(1, scaled.getHeight());
+    byte[] row = scaled.getRow(0, null);
+    assertEquals(3, row[0]);
+    assertEquals(25, row[1]);
+    byte[] matrix = scaled.getMatrix();
+    assertEquals(3, matrix[0]);
+    assertEquals(25, matrix[1]);
+    // Sums left over from earlier calls must not leak into later ones
+    row = scaled.getRow(0, row);
+    assertEquals(3, row[0]);
+    assertEquals(25, row[1]);
+  }
+
+  @Test
+  public void testCrop() {
+    byte[] luminances = new byte[8 * 8];
+    for (int i = 0; i < luminances.length; i++) {
+      luminances[i] = (byte) i;
+    }
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, 8, 8, 0, 0, 8, 8, false);
+    LuminanceSource cropped = new DownscaledLuminanceSource(source, 2).crop(1, 1, 2, 2);
+    assertEquals(2, cropped.getWidth());
+    // Block at rows 2-3, columns 2-3: (18 + 19 + 26 + 27) / 4, rounded
+    assertEquals(23, cropped.getRow(0, null)[0]);
+  }
+
+  @Test
+  public void testMultiScaleDecode() throws Exception {
+    int dimension = 1200;
+    BitMatrix code = new QRCodeWriter().encode("multi-scale", BarcodeFormat.QR_CODE, dimension, dimension);
+    byte[] luminances = new byte[dimension * dimension];
+    for (int y = 0; y < dimension; y++) {
+      for (int x = 0; x < dimension; x++) {
+        luminances[y * dimension + x] = (byte) (code.get(x, y) ? 0 : 255);
+      }
+    }
+    LuminanceSource source =
+        new PlanarYUVLuminanceSource(luminances, dimension, dimension, 0, 0, dimension, dimension, false);
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.MULTI_SCALE, Boolean.TRUE);
+    Result result = new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+    assertEquals("multi-scale", result.getText());
+
+    Result fullResult = new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(source)));
+    ResultPoint[] points = result.getResultPoints();
+    ResultPoint[] fullPoints = fullResult.getResultPoints();
+    for (int i = 0; i < fullPoints.length; i++) {
+      assertEquals(fullPoints[i].getX(), points[i].getX(), 2.0f);
+      assertEquals(fullPoints[i].getY(), points[i].getY(), 2.0f);
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests {@link FrameStreamDecoder} with sequences of frames in which a blackbox test image moves
+ * across a larger background, as on a conveyor.
+ */
+public final class FrameStreamDecoderTestCase extends Assert {
+
+  private static final int FRAMES = 20;
+  private static final int STEP_X = 6;
+  private static final int STEP_Y = 2;
+
+  @Test
+  public void testTracksQRCode() throws IOException {
+    BufferedImage image = readImage("qrcode-2/14.png");
+    FrameStreamDecoder decoder = new FrameStreamDecoder(null);
+    for (int i = 0; i < FRAMES; i++) {
+      assertEquals("frame " + i, "http://bbc.co.uk/programmes",
+                   decodeFrame(decoder, image, i * STEP_X, i * STEP_Y));
+      assertSame(BarcodeFormat.QR_CODE, decoder.getTrackedFormat());
+    }
+    assertTrue(decoder.getModuleSize() > 1.0f);
+    // Only the first frame and every tenth after it are decoded whole
+    assertEquals(2, decoder.getFullFrameCount());
+    assertEquals(FRAMES - 2, decoder.getTrackedCount());
+    assertEquals(0, decoder.getFailureCount());
+  }
+
+  @Test
+  public void testTracksEAN13() throws IOException {
+    BufferedImage image = readImage("ean13-1/1.png");
+    FrameStreamDecoder decoder = new FrameStreamDecoder(null);
+    for (int i = 0; i < FRAMES; i++) {
+      assertEquals("frame " + i, "8413000065504", decodeFrame(decoder, image, i * STEP_X, i * STEP_Y));
+    }
+    assertSame(BarcodeFormat.EAN_13, decoder.getTrackedFormat());
+    assertEquals(FRAMES - 2, decoder.getTrackedCount());
+    assertEquals(0, decoder.getFailureCount());
+  }
+
+  @Test
+  public void testLosesBarcodeAndFindsNext() throws IOException {
+    BufferedImage qrCode = readImage("qrcode-2/14.png");
+    BufferedImage ean13 = readImage("ean13-1/1.png");
+    FrameStreamDecoder decoder = new FrameStreamDecoder(null, 4);
+    assertNotNull(decodeFrame(decoder, qrCode, 0, 0));
+    assertNotNull(decodeFrame(decoder, qrCode, STEP_X, STEP_Y));
+    // A different barcode takes its place; the area around the QR code alone is examined at first
+    assertNull(decodeFrame(decoder, ean13, 0, 0));
+    assertNull(decodeFrame(decoder, ean13, 0, 0));
+    assertSame(BarcodeFormat.QR_CODE, decoder.getTrackedFormat());
+    // Then the whole frame is decoded, and the new barcode is tracked instead
+    assertEquals("8413000065504", decodeFrame(decoder, ean13, 0, 0));
+    assertSame(BarcodeFormat.EAN_13, decoder.getTrackedFormat());
+    assertEquals(2, decoder.getFullFrameCount());
+    assertEquals(2, decoder.getFailureCount());
+
+    decoder.reset();
+    assertNull(decoder.getTrackedFormat());
+    assertEquals("http://bbc.co.uk/programmes", decodeFrame(decoder, qrCode, 0, 0));
+    assertEquals(3, decoder.getFullFrameCount());
+  }
+
+  @Test
+  public void testEveryFullFrame() throws IOException {
+    BufferedImage image = readImage("qrcode-2/14.png");
+    FrameStreamDecoder decoder = new FrameStreamDecoder(null, 1);
+    for (int i = 0; i < 3; i++) {
+      assertNotNull(decodeFrame(decoder, image, i * STEP_X, 0));
+    }
+    assertEquals(3, decoder.getFullFrameCount());
+    assertEquals(0, decoder.getTrackedCount());
+  }
+
+  /**
+   * @return text decoded from a frame showing the image at the given offset, or null if none was
+   */
+  private static String decodeFrame(FrameStreamDecoder decoder, BufferedImage image, int x, int y) {
+    BufferedImage frame = new BufferedImage(image.getWidth() + FRAMES * STEP_X,
+                                            image.getHeight() + FRAMES * STEP_Y,
+                                            BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D graphics = frame.createGraphics();
+    try {
+      graphics.setColor(Color.LIGHT_GRAY);
+      graphics.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+      graphics.drawImage(image, x, y, null);
+    } finally {
+      graphics.dispose();
+    }
+    try {
+      Result result = decoder.decode(new BufferedImageLuminanceSource(frame));
+      for (ResultPoint point : result.getResultPoints()) {
+        assertTrue(point.getX() >= x && point.getX() < x + image.getWidth());
+        assertTrue(point.getY() >= y && point.getY() < y + image.getHeight());
+      }
+      return result.getText();
+    } catch (NotFoundException nfe) {
+      return null;
+    }
+  }
+
+  private static BufferedImage readImage(String path) throws IOException {
+    File file = new File("test/data/blackbox/" + path);
+    if (!file.exists()) {
+      // Support running from project root too
+      file = new File("core/test/data/blackbox/" + path);
+    }
+    return ImageIO.read(file);
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests {@link InterleavedRGBLuminanceSource}.
+ */
+public final class InterleavedRGBLuminanceSourceTestCase extends Assert {
+
+  private static final byte[] RGB = {
+      (byte) 255, 0, 0,   0, (byte) 255, 0,   0, 0, (byte) 255,
+      (byte) 255, (byte) 255, (byte) 255,   0, 0, 0,   100, 100, 100,
+  };
+
+  @Test
+  public void testRGB() {
+    LuminanceSource source = new InterleavedRGBLuminanceSource(RGB, 3, 2, 0, 0, 3, 2, false);
+    assertArrayEquals(new byte[] {76, (byte) 150, 29}, source.getRow(0, null));
+    assertArrayEquals(new byte[] {76, (byte) 150, 29, (byte) 255, 0, 100}, source.getMatrix());
+  }
+
+  @Test
+  public void testBGR() {
+    LuminanceSource source = new InterleavedRGBLuminanceSource(RGB, 3, 2, 0, 0, 3, 2, true);
+    assertArrayEquals(new byte[] {29, (byte) 150, 76}, source.getRow(0, null));
+  }
+
+  @Test
+  public void testCrop() {
+    LuminanceSource source = new InterleavedRGBLuminanceSource(RGB, 3, 2, 0, 0, 3, 2, false).crop(1, 1, 2, 1);
+    assertArrayEquals(new byte[] {0, 100}, source.getMatrix());
+    assertArrayEquals(new byte[] {0, 100}, source.getRow(0, new byte[1]));
+  }
+
+  @Test
+  public void testParallel() {
+    int width = 101;
+    int height = 250;
+    byte[] rgb = new byte[width * height * 3];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = (byte) (i * 31);
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      assertArrayEquals(
+          new InterleavedRGBLuminanceSource(rgb, width, height, 1, 2, 99, 240, false).getMatrix(),
+          new InterleavedRGBLuminanceSource(rgb, width, height, 1, 2, 99, 240, false, executor).getMatrix());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
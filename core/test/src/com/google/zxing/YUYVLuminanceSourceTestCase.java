@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link YUYVLuminanceSource}.
+ */
+public final class YUYVLuminanceSourceTestCase extends Assert {
+
+  // Y0 U Y1 V, for a 4x2 image
+  private static final byte[] YUYV = {
+      10, -1, 11, -2, 12, -1, 13, -2,
+      20, -1, 21, -2, 22, -1, 23, -2,
+  };
+
+  @Test
+  public void testLuminance() {
+    LuminanceSource source = new YUYVLuminanceSource(YUYV, 4, 2, 0, 0, 4, 2);
+    assertArrayEquals(new byte[] {20, 21, 22, 23}, source.getRow(1, null));
+    assertArrayEquals(new byte[] {10, 11, 12, 13, 20, 21, 22, 23}, source.getMatrix());
+  }
+
+  @Test
+  public void testCrop() {
+    LuminanceSource source = new YUYVLuminanceSource(YUYV, 4, 2, 0, 0, 4, 2).crop(1, 0, 2, 2);
+    assertArrayEquals(new byte[] {11, 12, 21, 22}, source.getMatrix());
+    // An odd crop offset starts on the second pixel of a pair
+    assertArrayEquals(new byte[] {22, 23}, source.crop(1, 1, 2, 1).getRow(0, null));
+  }
+
+}
@@ -184,6 +184,15 @@ public final class ParsedReaderResultTestCase extends Assert {
     doTestResult("geography", "geography", ParsedResultType.TEXT);
   }
 
+  @Test
+  public void testPrefixCase() {
+    // Prefixes are matched ignoring case, and each parser still decides for itself
+    doTestResult("Geo:1,2", "1.0, 2.0", ParsedResultType.GEO);
+    doTestResult("begin:vcard\r\nN:Owen;Sean\r\nEND:VCARD", "Sean Owen", ParsedResultType.ADDRESSBOOK);
+    doTestResult("Tel:+15551212", "Tel:+15551212", ParsedResultType.URI);
+    doTestResult("\ufeffWIFI:S:TenChars;P:hello;;", "TenChars\nnopass\nhello\nfalse", ParsedResultType.WIFI);
+  }
+
   @Test
   public void testTel() {
     doTestResult("tel:+15551212", "+15551212", ParsedResultType.TEL);
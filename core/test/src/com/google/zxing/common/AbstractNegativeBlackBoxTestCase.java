@@ -131,7 +131,7 @@ public abstract class AbstractNegativeBlackBoxTestCase extends AbstractBlackBoxT
   private boolean checkForFalsePositives(BufferedImage image, float rotationInDegrees) {
     BufferedImage rotatedImage = rotateImage(image, rotationInDegrees);
     LuminanceSource source = new BufferedImageLuminanceSource(rotatedImage);
-    BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+    BinaryBitmap bitmap = new BinaryBitmap(createBinarizer(source));
     Result result;
     try {
       result = getReader().decode(bitmap);
@@ -19,6 +19,8 @@ package com.google.zxing.common;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Random;
+
 /**
  * @author Sean Owen
  * @author dswitkin@google.com (Daniel Switkin)
@@ -127,4 +129,33 @@ public final class BitMatrixTestCase extends Assert {
     }
   }
 
+  @Test
+  public void testCrop() {
+    BitMatrix matrix = new BitMatrix(100, 40);
+    Random random = new Random(0xC0FFEE);
+    for (int y = 0; y < 40; y++) {
+      for (int x = 0; x < 100; x++) {
+        if (random.nextBoolean()) {
+          matrix.set(x, y);
+        }
+      }
+    }
+    int[][] regions = {{0, 0, 100, 40}, {1, 2, 31, 5}, {32, 0, 64, 40}, {37, 11, 63, 29}, {99, 39, 1, 1}};
+    for (int[] region : regions) {
+      BitMatrix cropped = matrix.crop(region[0], region[1], region[2], region[3]);
+      assertEquals(region[2], cropped.getWidth());
+      assertEquals(region[3], cropped.getHeight());
+      BitMatrix expected = new BitMatrix(region[2], region[3]);
+      for (int y = 0; y < region[3]; y++) {
+        for (int x = 0; x < region[2]; x++) {
+          if (matrix.get(region[0] + x, region[1] + y)) {
+            expected.set(x, y);
+          }
+        }
+      }
+      // Also compares the bits past the width in each row, which must be clear
+      assertEquals(expected, cropped);
+    }
+  }
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.WriterException;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests {@link ImageTriage}.
+ */
+public final class ImageTriageTestCase extends Assert {
+
+  private static final int IMAGE_WIDTH = 640;
+  private static final int IMAGE_HEIGHT = 480;
+  private static final int CODE_LEFT = 120;
+  private static final int CODE_TOP = 100;
+  // Amplitude of the sensor noise added to test images
+  private static final int NOISE = 8;
+
+  @Test
+  public void testUniformImage() {
+    ImageTriage triage = ImageTriage.examine(createImage(null, 0));
+    assertFalse(triage.isBarcodePossible());
+    assertTrue(triage.narrowFormats(null).isEmpty());
+  }
+
+  @Test
+  public void testNoisyImage() {
+    // Sensor noise spans a range of luminance, but is not a barcode
+    ImageTriage triage = ImageTriage.examine(createImage(null, NOISE));
+    assertFalse(triage.isBarcodePossible());
+  }
+
+  @Test
+  public void testBlurryImage() throws WriterException {
+    LuminanceSource source = createImage(encodeQRCode(), 0);
+    ImageTriage triage = ImageTriage.examine(blur(source, 12));
+    assertFalse(triage.isBarcodePossible());
+  }
+
+  @Test
+  public void testQRCode() throws WriterException {
+    ImageTriage triage = ImageTriage.examine(createImage(encodeQRCode(), NOISE));
+    assertTrue(triage.isBarcodePossible());
+    assertTrue(triage.isMatrixPossible());
+    Collection<BarcodeFormat> formats = triage.narrowFormats(null);
+    assertTrue(formats.contains(BarcodeFormat.QR_CODE));
+    assertTrue(formats.contains(BarcodeFormat.PDF_417));
+  }
+
+  @Test
+  public void testEAN13() throws WriterException {
+    ImageTriage triage = ImageTriage.examine(createImage(encodeEAN13(), NOISE));
+    assertTrue(triage.isBarcodePossible());
+    assertTrue(triage.isOneDPossible());
+    assertFalse(triage.isMatrixPossible());
+    Collection<BarcodeFormat> formats = triage.narrowFormats(null);
+    assertTrue(formats.contains(BarcodeFormat.EAN_13));
+    assertTrue(formats.contains(BarcodeFormat.PDF_417));
+    assertFalse(formats.contains(BarcodeFormat.QR_CODE));
+  }
+
+  @Test
+  public void testDecodeWithTriage() throws WriterException, ReaderException {
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.TRIAGE, Boolean.TRUE);
+    hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    MultiFormatReader reader = new MultiFormatReader();
+    assertEquals("http://example.com/triage",
+                 reader.decode(new BinaryBitmap(new HybridBinarizer(createImage(encodeQRCode(), NOISE))), hints).getText());
+    assertEquals("5901234123457",
+                 reader.decode(new BinaryBitmap(new HybridBinarizer(createImage(encodeEAN13(), NOISE))), hints).getText());
+    try {
+      reader.decode(new BinaryBitmap(new HybridBinarizer(createImage(null, NOISE))), hints);
+      fail("Should not find a barcode in noise");
+    } catch (NotFoundException nfe) {
+      // continue
+    }
+  }
+
+  private static BitMatrix encodeQRCode() throws WriterException {
+    return new QRCodeWriter().encode("http://example.com/triage", BarcodeFormat.QR_CODE, 250, 250);
+  }
+
+  private static BitMatrix encodeEAN13() throws WriterException {
+    return new EAN13Writer().encode("5901234123457", BarcodeFormat.EAN_13, 300, 120);
+  }
+
+  /**
+   * @param noise amplitude of random noise added to every pixel
+   */
+  private static LuminanceSource createImage(BitMatrix code, int noise) {
+    byte[] luminances = new byte[IMAGE_WIDTH * IMAGE_HEIGHT];
+    Random random = new Random(0xDEADBEEF);
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        int luminance = 180;
+        if (code != null && x >= CODE_LEFT && x < CODE_LEFT + code.getWidth() &&
+            y >= CODE_TOP && y < CODE_TOP + code.getHeight()) {
+          luminance = code.get(x - CODE_LEFT, y - CODE_TOP) ? 30 : 220;
+        }
+        if (noise > 0) {
+          luminance += random.nextInt(2 * noise + 1) - noise;
+        }
+        luminances[y * IMAGE_WIDTH + x] = (byte) luminance;
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, IMAGE_WIDTH, IMAGE_HEIGHT, 0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, false);
+  }
+
+  /**
+   * Averages each pixel with those within the radius of it, horizontally and then vertically.
+   */
+  private static LuminanceSource blur(LuminanceSource source, int radius) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    byte[] luminances = blurLines(source.getMatrix(), height, width, width, 1, radius);
+    luminances = blurLines(luminances, width, height, 1, width, radius);
+    return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+  }
+
+  private static byte[] blurLines(byte[] luminances, int lines, int length, int lineStep, int step, int radius) {
+    byte[] blurred = new byte[luminances.length];
+    for (int line = 0; line < lines; line++) {
+      int start = line * lineStep;
+      for (int i = 0; i < length; i++) {
+        int sum = 0;
+        int count = 0;
+        for (int j = Math.max(0, i - radius); j <= Math.min(length - 1, i + radius); j++) {
+          sum += luminances[start + j * step] & 0xFF;
+          count++;
+        }
+        blurred[start + i * step] = (byte) (sum / count);
+      }
+    }
+    return blurred;
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests {@link IntegralImageBinarizer}.
+ */
+public final class IntegralImageBinarizerTestCase extends Assert {
+
+  private static final int WIDTH = 301;
+  private static final int HEIGHT = 257;
+
+  @Test
+  public void testUnevenLighting() throws NotFoundException {
+    BitMatrix matrix = new IntegralImageBinarizer(createImage(), 32, null).getBlackMatrix();
+    // Dark squares are black even where the background is darker than the squares on the other side
+    assertTrue(matrix.get(20, 20));
+    assertTrue(matrix.get(260, 230));
+    assertFalse(matrix.get(40, 20));
+    assertFalse(matrix.get(250, 230));
+  }
+
+  @Test
+  public void testParallelMatchesSequential() throws NotFoundException {
+    LuminanceSource source = createImage();
+    BitMatrix sequential = new IntegralImageBinarizer(source, 24, null).getBlackMatrix();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      BitMatrix parallel = new IntegralImageBinarizer(source, 24, executor).getBlackMatrix();
+      assertEquals(sequential, parallel);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Dark 8x8 squares every 30 pixels, over a background which brightens from left to right and
+   * top to bottom by more than the contrast of any one square against its surroundings.
+   */
+  private static LuminanceSource createImage() {
+    byte[] luminances = new byte[WIDTH * HEIGHT];
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int background = 40 + (x + y) * 200 / (WIDTH + HEIGHT);
+        boolean square = x % 30 >= 16 && x % 30 < 24 && y % 30 >= 16 && y % 30 < 24;
+        luminances[y * WIDTH + x] = (byte) (square ? background * 2 / 3 : background);
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link RegionOfInterestFinder}.
+ */
+public final class RegionOfInterestFinderTestCase extends Assert {
+
+  private static final int IMAGE_WIDTH = 1600;
+  private static final int IMAGE_HEIGHT = 1200;
+  private static final int CODE_LEFT = 1100;
+  private static final int CODE_TOP = 700;
+
+  @Test
+  public void testUniformImage() {
+    LuminanceSource source = createImage(null);
+    assertTrue(RegionOfInterestFinder.findRegions(source).isEmpty());
+  }
+
+  @Test
+  public void testSmallImage() throws WriterException {
+    BitMatrix code = new QRCodeWriter().encode("small", BarcodeFormat.QR_CODE, 100, 100);
+    byte[] luminances = new byte[100 * 100];
+    paint(code, luminances, 100, 0, 0);
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, 100, 100, 0, 0, 100, 100, false);
+    assertTrue(RegionOfInterestFinder.findRegions(source).isEmpty());
+  }
+
+  @Test
+  public void testFindsCode() throws WriterException {
+    BitMatrix code = encode();
+    List<int[]> regions = RegionOfInterestFinder.findRegions(createImage(code));
+    assertFalse(regions.isEmpty());
+    int[] region = regions.get(0);
+    // The region must cover all the dark modules, though not necessarily all of the quiet zone
+    int[] symbol = code.getEnclosingRectangle();
+    assertTrue(region[0] <= CODE_LEFT + symbol[0]);
+    assertTrue(region[1] <= CODE_TOP + symbol[1]);
+    assertTrue(region[0] + region[2] >= CODE_LEFT + symbol[0] + symbol[2]);
+    assertTrue(region[1] + region[3] >= CODE_TOP + symbol[1] + symbol[3]);
+    // The region should be much smaller than the image
+    assertTrue(region[2] * region[3] * 4 < IMAGE_WIDTH * IMAGE_HEIGHT);
+  }
+
+  @Test
+  public void testDecodeRegionsOfInterest() throws WriterException, ReaderException {
+    BitMatrix code = encode();
+    BinaryBitmap image = new BinaryBitmap(new HybridBinarizer(createImage(code)));
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.SCAN_REGIONS_OF_INTEREST, Boolean.TRUE);
+    Result result = new MultiFormatReader().decode(image, hints);
+    assertEquals("http://example.com/region", result.getText());
+    // Points must be in the coordinates of the whole image
+    for (ResultPoint point : result.getResultPoints()) {
+      assertTrue(point.getX() >= CODE_LEFT && point.getX() < CODE_LEFT + code.getWidth());
+      assertTrue(point.getY() >= CODE_TOP && point.getY() < CODE_TOP + code.getHeight());
+    }
+  }
+
+  private static BitMatrix encode() throws WriterException {
+    return new QRCodeWriter().encode("http://example.com/region", BarcodeFormat.QR_CODE, 250, 250);
+  }
+
+  private static LuminanceSource createImage(BitMatrix code) {
+    byte[] luminances = new byte[IMAGE_WIDTH * IMAGE_HEIGHT];
+    // A gentle gradient, which should not count as detail
+    for (int y = 0; y < IMAGE_HEIGHT; y++) {
+      for (int x = 0; x < IMAGE_WIDTH; x++) {
+        luminances[y * IMAGE_WIDTH + x] = (byte) (160 + x * 64 / IMAGE_WIDTH);
+      }
+    }
+    if (code != null) {
+      paint(code, luminances, IMAGE_WIDTH, CODE_LEFT, CODE_TOP);
+    }
+    return new PlanarYUVLuminanceSource(luminances, IMAGE_WIDTH, IMAGE_HEIGHT, 0, 0, IMAGE_WIDTH, IMAGE_HEIGHT, false);
+  }
+
+  private static void paint(BitMatrix code, byte[] luminances, int stride, int left, int top) {
+    for (int y = 0; y < code.getHeight(); y++) {
+      for (int x = 0; x < code.getWidth(); x++) {
+        luminances[(top + y) * stride + left + x] = (byte) (code.get(x, y) ? 20 : 235);
+      }
+    }
+  }
+
+}
@@ -16,10 +16,13 @@
 
 package com.google.zxing.common;
 
+import com.google.zxing.DecodeHintType;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.Map;
 
 public final class StringUtilsTestCase extends Assert {
 
@@ -43,6 +46,31 @@ public final class StringUtilsTestCase extends Assert {
            "SJIS");
   }
 
+  @Test
+  public void testUTF8AfterASCII() {
+    // http://example.com/café
+    doTest(new byte[] { (byte) 0x68, (byte) 0x74, (byte) 0x74, (byte) 0x70, (byte) 0x3a, (byte) 0x2f,
+                        (byte) 0x2f, (byte) 0x65, (byte) 0x78, (byte) 0x61, (byte) 0x6d, (byte) 0x70,
+                        (byte) 0x6c, (byte) 0x65, (byte) 0x2e, (byte) 0x63, (byte) 0x6f, (byte) 0x6d,
+                        (byte) 0x2f, (byte) 0x63, (byte) 0x61, (byte) 0x66, (byte) 0xc3, (byte) 0xa9, },
+           "UTF-8");
+  }
+
+  @Test
+  public void testCharacterSetGuesser() {
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.CHARACTER_SET_GUESSER, new CharacterSetGuesser() {
+      @Override
+      public String guessCharacterSet(byte[] bytes) {
+        return bytes.length == 1 ? "UTF-16BE" : null;
+      }
+    });
+    assertEquals("UTF-16BE", StringUtils.guessEncoding(new byte[] { (byte) 0x41, }, hints));
+    // Falls back to the built-in guess
+    assertEquals(Charset.forName("SJIS"), Charset.forName(StringUtils.guessEncoding(
+        new byte[] { (byte) 0x8b, (byte) 0xe0, (byte) 0x8b, (byte) 0x9b, }, hints)));
+  }
+
   private static void doTest(byte[] bytes, String charsetName) {
     Charset charset = Charset.forName(charsetName);
     String guessedName = StringUtils.guessEncoding(bytes, null);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.datamatrix.encoder;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.ReaderException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.datamatrix.DataMatrixWriter;
+import com.google.zxing.datamatrix.decoder.Decoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for {@link MinimalEncoder}.
+ */
+public final class MinimalEncoderTestCase extends Assert {
+
+  private static final String[] ALPHABETS = {
+      "0123456789",
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789",
+      "abcdefghijklmnopqrstuvwxyz 0123",
+      "ABC*>\r 019",
+      "!\"#$%&'()*+,-./:;<=>?@[\\]^ AB12",
+      "éüÿ\u0080aB1 ",
+  };
+
+  @Test
+  public void testReturnToASCIIWithoutUnlatch() {
+    // The last character is in ASCII, which the decoder returns to by itself
+    // with one codeword left
+    assertEquals("239 91 11 91 11 91 11 40", encodeHighLevel("aimaimaim'"));
+    assertEquals("239 91 11 91 11 91 11 254 40 129",
+                 HighLevelEncodeTestCase.visualize(HighLevelEncoder.encodeHighLevel("aimaimaim'")));
+  }
+
+  @Test
+  public void testLatchLate() {
+    assertEquals("68 240 72 86 45 80 19 186 105 105", encodeHighLevel("CREX-TAN:hh"));
+  }
+
+  @Test
+  public void testBase256ToEndOfSymbol() {
+    StringBuilder message = new StringBuilder();
+    for (int i = 0; i < 278; i++) {
+      message.append('é');
+    }
+    // 278 bytes fill a 280 codeword symbol exactly, with the "rest of symbol" length field
+    String encoded = MinimalEncoder.encodeHighLevel(message.toString());
+    assertEquals(280, encoded.length());
+    assertEquals(message.toString(), encodeAndDecode(message.toString(), true));
+  }
+
+  @Test
+  public void testMacro() {
+    assertEquals("236 185 185 29 196 196 129 56", encodeHighLevel("[)>\u001E05\u001D5555\u001C6666\u001E\u0004"));
+  }
+
+  @Test
+  public void testNeverLongerThanHighLevelEncoder() {
+    Random random = new Random(0xDA7A);
+    for (int i = 0; i < 500; i++) {
+      String message = createMessage(random);
+      assertEquals(message, encodeAndDecode(message, true));
+      // HighLevelEncoder does not get every message right, in which case there is nothing to compare
+      if (message.equals(encodeAndDecode(message, false))) {
+        String minimal = MinimalEncoder.encodeHighLevel(message);
+        assertTrue(message, minimal.length() <= HighLevelEncoder.encodeHighLevel(message).length());
+      }
+    }
+  }
+
+  private static String createMessage(Random random) {
+    StringBuilder message = new StringBuilder();
+    int segments = 1 + random.nextInt(4);
+    for (int i = 0; i < segments; i++) {
+      String alphabet = ALPHABETS[random.nextInt(ALPHABETS.length)];
+      int length = 1 + random.nextInt(20);
+      for (int j = 0; j < length; j++) {
+        message.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+    }
+    return message.toString();
+  }
+
+  private static String encodeAndDecode(String message, boolean compact) {
+    Map<EncodeHintType,Object> hints = new EnumMap<EncodeHintType,Object>(EncodeHintType.class);
+    hints.put(EncodeHintType.DATA_MATRIX_COMPACT, compact);
+    BitMatrix matrix = new DataMatrixWriter().encode(message, BarcodeFormat.DATA_MATRIX, 0, 0, hints);
+    try {
+      return new Decoder().decode(matrix).getText();
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private static String encodeHighLevel(String msg) {
+    return HighLevelEncodeTestCase.visualize(MinimalEncoder.encodeHighLevel(msg));
+  }
+
+}
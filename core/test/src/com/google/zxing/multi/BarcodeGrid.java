@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Writer;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.Arrays;
+
+/**
+ * Draws a sheet of barcodes, one centered in each cell of a grid, for the multi reader tests.
+ */
+public final class BarcodeGrid {
+
+  private static final int MODULE_SIZE = 3;
+  private static final int CELL_SIZE = 120;
+
+  private BarcodeGrid() {
+  }
+
+  /**
+   * @param contents text of each barcode, filling the grid a row at a time
+   * @param columns number of cells across the grid
+   * @return black modules of the grid, which has at least one row of cells even if it is empty
+   */
+  public static BitMatrix createGrid(Writer writer, BarcodeFormat format, String[] contents, int columns)
+      throws WriterException {
+    int[] moduleSizes = new int[contents.length];
+    Arrays.fill(moduleSizes, MODULE_SIZE);
+    return createGrid(writer, format, contents, moduleSizes, columns);
+  }
+
+  /**
+   * @param moduleSizes size in pixels of the modules of each barcode; cells are made large enough
+   *  for the largest barcode
+   * @see #createGrid(Writer, BarcodeFormat, String[], int)
+   */
+  public static BitMatrix createGrid(Writer writer,
+                                     BarcodeFormat format,
+                                     String[] contents,
+                                     int[] moduleSizes,
+                                     int columns) throws WriterException {
+    BitMatrix[] codes = new BitMatrix[contents.length];
+    int cellSize = CELL_SIZE;
+    for (int i = 0; i < contents.length; i++) {
+      codes[i] = writer.encode(contents[i], format, 0, 0);
+      cellSize = Math.max(cellSize, Math.max(codes[i].getWidth(), codes[i].getHeight()) * moduleSizes[i]);
+    }
+    int rows = Math.max(1, (contents.length + columns - 1) / columns);
+    BitMatrix image = new BitMatrix(columns * cellSize, rows * cellSize);
+    for (int i = 0; i < contents.length; i++) {
+      BitMatrix code = codes[i];
+      int moduleSize = moduleSizes[i];
+      int left = (i % columns) * cellSize + (cellSize - code.getWidth() * moduleSize) / 2;
+      int top = (i / columns) * cellSize + (cellSize - code.getHeight() * moduleSize) / 2;
+      for (int y = 0; y < code.getHeight() * moduleSize; y++) {
+        for (int x = 0; x < code.getWidth() * moduleSize; x++) {
+          if (code.get(x / moduleSize, y / moduleSize)) {
+            image.set(left + x, top + y);
+          }
+        }
+      }
+    }
+    return image;
+  }
+
+  /**
+   * @return the grid drawn in black on white, to be binarized as a photo of it would be
+   * @see #createGrid(Writer, BarcodeFormat, String[], int)
+   */
+  public static BinaryBitmap createGridImage(Writer writer, BarcodeFormat format, String[] contents, int columns)
+      throws WriterException {
+    BitMatrix grid = createGrid(writer, format, contents, columns);
+    int width = grid.getWidth();
+    int height = grid.getHeight();
+    int[] pixels = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        pixels[y * width + x] = grid.get(x, y) ? 0xFF000000 : 0xFFFFFFFF;
+      }
+    }
+    return new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(width, height, pixels)));
+  }
+
+  /**
+   * @return "Label 0", "Label 1", ... with every third label made longer, so that codes of
+   *  several sizes share the grid
+   */
+  public static String[] createLabels(int count) {
+    String[] contents = new String[count];
+    for (int i = 0; i < count; i++) {
+      contents[i] = "Label " + i + (i % 3 == 0 ? " with a longer text" : "");
+    }
+    return contents;
+  }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Reader;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link GenericMultipleBarcodeReader}, scanning serially and with an executor.
+ */
+public final class GenericMultipleBarcodeReaderTestCase extends Assert {
+
+  private static final int DIMENSION = 400;
+  private static final int CODE_DIMENSION = 150;
+
+  private static final ReaderFactory QR_CODE_READER_FACTORY = new ReaderFactory() {
+    @Override
+    public Reader createReader() {
+      return new QRCodeReader();
+    }
+  };
+
+  @Test
+  public void testSerialAndExecutorAgree() throws Exception {
+    LuminanceSource source = createImage(new String[] {"code 0", "code 1", "code 2"},
+                                         new int[][] {{10, 20}, {235, 15}, {120, 240}});
+    Result[] expected = new GenericMultipleBarcodeReader(new QRCodeReader()).decodeMultiple(
+        new BinaryBitmap(new HybridBinarizer(source)));
+    assertEquals(3, expected.length);
+    sortByText(expected);
+
+    Result[] serial = new GenericMultipleBarcodeReader(QR_CODE_READER_FACTORY, null).decodeMultiple(
+        new BinaryBitmap(new HybridBinarizer(source)));
+    assertResultsEqual(expected, serial);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 3; i++) {
+        Result[] concurrent = new GenericMultipleBarcodeReader(QR_CODE_READER_FACTORY, executor).decodeMultiple(
+            new BinaryBitmap(new HybridBinarizer(source)));
+        assertResultsEqual(expected, concurrent);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testIdenticalBarcodesAtDifferentPositions() throws Exception {
+    int[][] positions = {{30, 40}, {210, 190}};
+    LuminanceSource source = createImage(new String[] {"same", "same"}, positions);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (GenericMultipleBarcodeReader reader : new GenericMultipleBarcodeReader[] {
+          new GenericMultipleBarcodeReader(new QRCodeReader()),
+          new GenericMultipleBarcodeReader(QR_CODE_READER_FACTORY, executor)}) {
+        Result[] results = reader.decodeMultiple(new BinaryBitmap(new HybridBinarizer(source)));
+        assertEquals(2, results.length);
+        // One of each, wherever they were found first
+        boolean[] found = new boolean[positions.length];
+        for (Result result : results) {
+          assertEquals("same", result.getText());
+          for (int i = 0; i < positions.length; i++) {
+            if (isWithin(result, positions[i], CODE_DIMENSION)) {
+              found[i] = true;
+            }
+          }
+        }
+        assertTrue(found[0]);
+        assertTrue(found[1]);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSameBarcodeFromOverlappingRegionsSerial() throws NotFoundException {
+    doTestSameBarcodeFromOverlappingRegions(null);
+  }
+
+  @Test
+  public void testSameBarcodeFromOverlappingRegionsWithExecutor() throws NotFoundException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      doTestSameBarcodeFromOverlappingRegions(executor);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * A {@link SquareReader} finds the square again in the regions right of and below it, whose
+   * crops start on its last column and row. From there, the region right of the square's last
+   * column is the same region again, and must not be scanned again.
+   */
+  private static void doTestSameBarcodeFromOverlappingRegions(ExecutorService executor) throws NotFoundException {
+    final List<String> scanned = Collections.synchronizedList(new ArrayList<String>());
+    final AtomicInteger found = new AtomicInteger();
+    ReaderFactory factory = new ReaderFactory() {
+      @Override
+      public Reader createReader() {
+        return new SquareReader(found);
+      }
+    };
+    SquareSource source = new SquareSource(150, 150, 40, scanned);
+    Result[] results = new GenericMultipleBarcodeReader(factory, executor).decodeMultiple(
+        new BinaryBitmap(new GlobalHistogramBinarizer(source)));
+
+    assertEquals(1, results.length);
+    assertEquals("square", results[0].getText());
+    assertTrue(isWithin(results[0], new int[] {150, 150}, 40));
+    // Found from the whole image, and again from the regions right of and below it
+    assertTrue(found.get() >= 3);
+
+    assertTrue(scanned.contains("0,0,400,400"));
+    assertTrue(scanned.contains("189,0,211,400"));
+    assertTrue(scanned.contains("0,189,400,211"));
+    assertEquals(scanned.toString(), new HashSet<String>(scanned).size(), scanned.size());
+  }
+
+  private static boolean isWithin(Result result, int[] position, int dimension) {
+    for (ResultPoint point : result.getResultPoints()) {
+      if (point.getX() < position[0] || point.getX() >= position[0] + dimension ||
+          point.getY() < position[1] || point.getY() >= position[1] + dimension) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void assertResultsEqual(Result[] expected, Result[] results) {
+    assertEquals(expected.length, results.length);
+    sortByText(results);
+    for (int i = 0; i < results.length; i++) {
+      assertEquals(expected[i].getText(), results[i].getText());
+      assertSame(expected[i].getBarcodeFormat(), results[i].getBarcodeFormat());
+      ResultPoint[] expectedPoints = expected[i].getResultPoints();
+      ResultPoint[] points = results[i].getResultPoints();
+      assertEquals(expectedPoints.length, points.length);
+      for (int j = 0; j < points.length; j++) {
+        assertEquals(expectedPoints[j].getX(), points[j].getX(), 0.01f);
+        assertEquals(expectedPoints[j].getY(), points[j].getY(), 0.01f);
+      }
+    }
+  }
+
+  private static void sortByText(Result[] results) {
+    Arrays.sort(results, new Comparator<Result>() {
+      @Override
+      public int compare(Result a, Result b) {
+        return a.getText().compareTo(b.getText());
+      }
+    });
+  }
+
+  /**
+   * Renders a QR code of each text at its position, on white.
+   */
+  private static LuminanceSource createImage(String[] contents, int[][] positions) throws WriterException {
+    byte[] luminances = new byte[DIMENSION * DIMENSION];
+    Arrays.fill(luminances, (byte) 255);
+    for (int i = 0; i < positions.length; i++) {
+      BitMatrix code = new QRCodeWriter().encode(contents[i], BarcodeFormat.QR_CODE, CODE_DIMENSION, CODE_DIMENSION);
+      for (int y = 0; y < CODE_DIMENSION; y++) {
+        for (int x = 0; x < CODE_DIMENSION; x++) {
+          if (code.get(x, y)) {
+            luminances[(positions[i][1] + y) * DIMENSION + positions[i][0] + x] = 0;
+          }
+        }
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, DIMENSION, DIMENSION, 0, 0, DIMENSION, DIMENSION, false);
+  }
+
+  /**
+   * A black square on white, which records the region of the whole image each crop of it covers,
+   * as "left,top,width,height", whenever the crop is binarized.
+   */
+  private static final class SquareSource extends LuminanceSource {
+
+    private final int squareLeft;
+    private final int squareTop;
+    private final int squareDimension;
+    private final List<String> scanned;
+    private final int left;
+    private final int top;
+
+    SquareSource(int squareLeft, int squareTop, int squareDimension, List<String> scanned) {
+      this(squareLeft, squareTop, squareDimension, scanned, 0, 0, DIMENSION, DIMENSION);
+    }
+
+    private SquareSource(int squareLeft, int squareTop, int squareDimension, List<String> scanned,
+                         int left, int top, int width, int height) {
+      super(width, height);
+      this.squareLeft = squareLeft;
+      this.squareTop = squareTop;
+      this.squareDimension = squareDimension;
+      this.scanned = scanned;
+      this.left = left;
+      this.top = top;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+      int width = getWidth();
+      if (row == null || row.length < width) {
+        row = new byte[width];
+      }
+      for (int x = 0; x < width; x++) {
+        int imageX = left + x - squareLeft;
+        int imageY = top + y - squareTop;
+        boolean black = imageX >= 0 && imageX < squareDimension && imageY >= 0 && imageY < squareDimension;
+        row[x] = black ? 0 : (byte) 255;
+      }
+      return row;
+    }
+
+    @Override
+    public byte[] getMatrix() {
+      scanned.add(left + "," + top + ',' + getWidth() + ',' + getHeight());
+      int width = getWidth();
+      byte[] matrix = new byte[width * getHeight()];
+      byte[] row = null;
+      for (int y = 0; y < getHeight(); y++) {
+        row = getRow(y, row);
+        System.arraycopy(row, 0, matrix, y * width, width);
+      }
+      return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+      return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int left, int top, int width, int height) {
+      return new SquareSource(squareLeft, squareTop, squareDimension, scanned,
+                              this.left + left, this.top + top, width, height);
+    }
+
+  }
+
+  /**
+   * "Decodes" the first black rectangle in the image, with points at its top left and bottom right
+   * pixels.
+   */
+  private static final class SquareReader implements Reader {
+
+    private final AtomicInteger found;
+
+    SquareReader(AtomicInteger found) {
+      this.found = found;
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image) throws NotFoundException {
+      return decode(image, null);
+    }
+
+    @Override
+    public Result decode(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
+      BitMatrix matrix = image.getBlackMatrix();
+      int[] topLeft = matrix.getTopLeftOnBit();
+      if (topLeft == null) {
+        throw NotFoundException.getNotFoundInstance();
+      }
+      int right = topLeft[0];
+      while (right + 1 < matrix.getWidth() && matrix.get(right + 1, topLeft[1])) {
+        right++;
+      }
+      int bottom = topLeft[1];
+      while (bottom + 1 < matrix.getHeight() && matrix.get(topLeft[0], bottom + 1)) {
+        bottom++;
+      }
+      found.incrementAndGet();
+      return new Result("square", null,
+                        new ResultPoint[] {new ResultPoint(topLeft[0], topLeft[1]), new ResultPoint(right, bottom)},
+                        BarcodeFormat.QR_CODE);
+    }
+
+    @Override
+    public void reset() {
+      // do nothing
+    }
+
+  }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.BufferedImageLuminanceSource;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.datamatrix.DataMatrixReader;
+import com.google.zxing.multi.aztec.AztecMultiReader;
+import com.google.zxing.multi.datamatrix.DataMatrixMultiReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests {@link DataMatrixMultiReader} and {@link AztecMultiReader} on the blackbox test images,
+ * each on its own and several to a sheet, in four rotations.
+ */
+public final class MultiReaderBlackBoxTestCase extends Assert {
+
+  private static final int SHEET_COLUMNS = 3;
+  private static final int SHEET_ROWS = 2;
+
+  @Test
+  public void testDataMatrix() throws IOException {
+    doTestFindsWhatSingleReaderFinds("datamatrix-1", new DataMatrixReader(), new DataMatrixMultiReader(), 72);
+    doTestFindsWhatSingleReaderFinds("datamatrix-2", new DataMatrixReader(), new DataMatrixMultiReader(), 49);
+    doTestSheet("datamatrix-1", new DataMatrixReader(), new DataMatrixMultiReader());
+    doTestSheet("datamatrix-2", new DataMatrixReader(), new DataMatrixMultiReader());
+  }
+
+  @Test
+  public void testAztec() throws IOException {
+    doTestFindsWhatSingleReaderFinds("aztec-1", new AztecReader(), new AztecMultiReader(), 48);
+    doTestFindsWhatSingleReaderFinds("aztec-2", new AztecReader(), new AztecMultiReader(), 19);
+    doTestSheet("aztec-1", new AztecReader(), new AztecMultiReader());
+    doTestSheet("aztec-2", new AztecReader(), new AztecMultiReader());
+  }
+
+  /**
+   * Every image, in every rotation, which the single reader decodes must be decoded by the multi
+   * reader too.
+   *
+   * @param singleCount number of images and rotations the single reader decodes
+   */
+  private static void doTestFindsWhatSingleReaderFinds(String directory,
+                                                      Reader reader,
+                                                      MultipleBarcodeReader multiReader,
+                                                      int singleCount) throws IOException {
+    int decoded = 0;
+    for (File file : getImageFiles(directory)) {
+      String expected = readExpectedText(file);
+      BufferedImage image = ImageIO.read(file);
+      for (int quadrants = 0; quadrants < 4; quadrants++) {
+        BufferedImage rotated = rotate(image, quadrants);
+        if (expected.equals(decode(reader, rotated))) {
+          decoded++;
+          assertTrue(file + " rotated " + quadrants * 90,
+                     decodeMultiple(multiReader, rotated).contains(expected));
+        }
+      }
+    }
+    assertEquals(directory, singleCount, decoded);
+  }
+
+  /**
+   * Tiles a sheet with images which the single reader decodes in any rotation, and expects the multi
+   * reader to find all of them on the sheet in every rotation.
+   */
+  private static void doTestSheet(String directory,
+                                  Reader reader,
+                                  MultipleBarcodeReader multiReader) throws IOException {
+    List<BufferedImage> images = new ArrayList<BufferedImage>();
+    Set<String> expected = new HashSet<String>();
+    for (File file : getImageFiles(directory)) {
+      if (images.size() == SHEET_COLUMNS * SHEET_ROWS) {
+        break;
+      }
+      String text = readExpectedText(file);
+      BufferedImage image = ImageIO.read(file);
+      boolean decodesInAnyRotation = true;
+      for (int quadrants = 0; quadrants < 4 && decodesInAnyRotation; quadrants++) {
+        decodesInAnyRotation = text.equals(decode(reader, rotate(image, quadrants)));
+      }
+      if (decodesInAnyRotation) {
+        images.add(image);
+        expected.add(text);
+      }
+    }
+    assertFalse(directory, images.isEmpty());
+
+    BufferedImage sheet = createSheet(images);
+    for (int quadrants = 0; quadrants < 4; quadrants++) {
+      assertEquals(directory + " sheet rotated " + quadrants * 90,
+                   expected, decodeMultiple(multiReader, rotate(sheet, quadrants)));
+    }
+  }
+
+  private static String decode(Reader reader, BufferedImage image) {
+    try {
+      return reader.decode(new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)))).getText();
+    } catch (ReaderException re) {
+      return null;
+    }
+  }
+
+  private static Set<String> decodeMultiple(MultipleBarcodeReader multiReader, BufferedImage image) {
+    Set<String> texts = new HashSet<String>();
+    try {
+      for (Result result : multiReader.decodeMultiple(
+          new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))))) {
+        texts.add(result.getText());
+      }
+    } catch (ReaderException re) {
+      // none found
+    }
+    return texts;
+  }
+
+  private static BufferedImage createSheet(List<BufferedImage> images) {
+    int cellSize = 0;
+    for (BufferedImage image : images) {
+      cellSize = Math.max(cellSize, Math.max(image.getWidth(), image.getHeight()));
+    }
+    BufferedImage sheet =
+        new BufferedImage(SHEET_COLUMNS * cellSize, SHEET_ROWS * cellSize, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = sheet.createGraphics();
+    try {
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+      for (int i = 0; i < images.size(); i++) {
+        graphics.drawImage(images.get(i), (i % SHEET_COLUMNS) * cellSize, (i / SHEET_COLUMNS) * cellSize, null);
+      }
+    } finally {
+      graphics.dispose();
+    }
+    return sheet;
+  }
+
+  /**
+   * @return image rotated clockwise by a number of quarter turns, exactly, without interpolation
+   */
+  private static BufferedImage rotate(BufferedImage image, int quadrants) {
+    if (quadrants == 0) {
+      return image;
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean swap = quadrants % 2 == 1;
+    BufferedImage rotated = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+    AffineTransform transform = new AffineTransform();
+    transform.translate(rotated.getWidth() / 2.0, rotated.getHeight() / 2.0);
+    transform.quadrantRotate(quadrants);
+    transform.translate(-width / 2.0, -height / 2.0);
+    Graphics2D graphics = rotated.createGraphics();
+    try {
+      graphics.drawImage(image, transform, null);
+    } finally {
+      graphics.dispose();
+    }
+    return rotated;
+  }
+
+  private static File[] getImageFiles(String directory) {
+    File path = new File("test/data/blackbox/" + directory);
+    if (!path.exists()) {
+      // Support running from project root too
+      path = new File("core/test/data/blackbox/" + directory);
+    }
+    File[] files = path.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".png");
+      }
+    });
+    assertNotNull(path.toString(), files);
+    Arrays.sort(files);
+    return files;
+  }
+
+  private static String readExpectedText(File imageFile) throws IOException {
+    String name = imageFile.getName();
+    File file = new File(imageFile.getParentFile(), name.substring(0, name.lastIndexOf('.')) + ".txt");
+    StringBuilder result = new StringBuilder((int) file.length());
+    InputStreamReader reader = new InputStreamReader(new FileInputStream(file), Charset.forName("UTF8"));
+    try {
+      char[] buffer = new char[256];
+      int charsRead;
+      while ((charsRead = reader.read(buffer)) > 0) {
+        result.append(buffer, 0, charsRead);
+      }
+    } finally {
+      reader.close();
+    }
+    return result.toString();
+  }
+
+}
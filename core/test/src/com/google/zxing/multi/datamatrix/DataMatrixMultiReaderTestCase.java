@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi.datamatrix;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+import com.google.zxing.datamatrix.DataMatrixWriter;
+import com.google.zxing.multi.BarcodeGrid;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests {@link DataMatrixMultiReader}.
+ */
+public final class DataMatrixMultiReaderTestCase extends Assert {
+
+  @Test
+  public void testGrid() throws NotFoundException, WriterException {
+    String[] contents = BarcodeGrid.createLabels(12);
+    BinaryBitmap image = BarcodeGrid.createGridImage(new DataMatrixWriter(), BarcodeFormat.DATA_MATRIX, contents, 4);
+
+    Set<String> expected = new HashSet<String>(Arrays.asList(contents));
+    Set<String> actual = new HashSet<String>();
+    Result[] results = new DataMatrixMultiReader().decodeMultiple(image);
+    for (Result result : results) {
+      assertEquals(BarcodeFormat.DATA_MATRIX, result.getBarcodeFormat());
+      actual.add(result.getText());
+    }
+    assertEquals(contents.length, results.length);
+    assertEquals(expected, actual);
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void testBlank() throws NotFoundException, WriterException {
+    new DataMatrixMultiReader().decodeMultiple(
+        BarcodeGrid.createGridImage(new DataMatrixWriter(), BarcodeFormat.DATA_MATRIX, new String[0], 2));
+  }
+
+}
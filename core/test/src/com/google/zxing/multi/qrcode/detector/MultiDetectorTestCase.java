@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.multi.qrcode.detector;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DetectorResult;
+import com.google.zxing.multi.BarcodeGrid;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.detector.FinderPattern;
+import com.google.zxing.qrcode.detector.FinderPatternInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link MultiDetector}.
+ */
+public final class MultiDetectorTestCase extends Assert {
+
+  @Test
+  public void testGrid() throws NotFoundException, WriterException {
+    int codes = 12;
+    // No finder patterns of different codes have similar module sizes, so only the codes are
+    // possible tuples. Small codes are only found when every row is scanned.
+    int[] moduleSizes = new int[codes];
+    for (int i = 0; i < codes; i++) {
+      moduleSizes[i] = 2 + i;
+    }
+    BitMatrix image = BarcodeGrid.createGrid(new QRCodeWriter(), BarcodeFormat.QR_CODE, createLabels(codes), moduleSizes, 4);
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    DetectorResult[] results = new MultiDetector(image).detectMulti(hints);
+    assertEquals(codes, results.length);
+    assertSameTuplesAsExhaustiveSearch(image, hints);
+  }
+
+  @Test
+  public void testGridOfSameSize() throws NotFoundException, WriterException {
+    // Finder patterns of neighbouring codes line up too, so there are many more tuples than codes
+    BitMatrix image = BarcodeGrid.createGrid(new QRCodeWriter(), BarcodeFormat.QR_CODE, createLabels(12), 4);
+    MultiFinderPatternFinder finder = assertSameTuplesAsExhaustiveSearch(image, null);
+    ExhaustiveFinder exhaustiveFinder = new ExhaustiveFinder(image);
+    int tuples = exhaustiveFinder.findMulti(null).length;
+    // All 7140 tuples of the 36 finder patterns were checked before
+    assertEquals(7140, exhaustiveFinder.getTriplesExamined());
+    // Now hardly more than those which pass
+    int triplesExamined = finder.getTriplesExamined();
+    assertTrue(triplesExamined >= tuples);
+    assertTrue(triplesExamined <= 4 * tuples);
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void testBlank() throws NotFoundException, WriterException {
+    new MultiDetector(BarcodeGrid.createGrid(new QRCodeWriter(), BarcodeFormat.QR_CODE, new String[0], 2))
+        .detectMulti(null);
+  }
+
+  /**
+   * @return finder which looked up candidate tuples in the image, after checking that it found the
+   *  same tuples, in the same order, as checking every tuple does
+   */
+  private static MultiFinderPatternFinder assertSameTuplesAsExhaustiveSearch(BitMatrix image,
+                                                                            Map<DecodeHintType,?> hints)
+      throws NotFoundException {
+    MultiFinderPatternFinder finder = new MultiFinderPatternFinder(image);
+    List<String> tuples = toStrings(finder.findMulti(hints));
+    List<String> exhaustiveTuples = toStrings(new ExhaustiveFinder(image).findMulti(hints));
+    assertFalse(tuples.isEmpty());
+    assertEquals(exhaustiveTuples, tuples);
+    return finder;
+  }
+
+  private static List<String> toStrings(FinderPatternInfo[] infos) {
+    List<String> strings = new ArrayList<String>(infos.length);
+    for (FinderPatternInfo info : infos) {
+      strings.add(info.getTopLeft() + " " + info.getTopRight() + " " + info.getBottomLeft());
+    }
+    return strings;
+  }
+
+  private static String[] createLabels(int codes) {
+    String[] contents = new String[codes];
+    for (int i = 0; i < codes; i++) {
+      contents[i] = "Label " + i;
+    }
+    return contents;
+  }
+
+  /**
+   * Checks every tuple of three finder patterns, as the finder did before it looked up candidate
+   * tuples, to compare the two.
+   */
+  private static final class ExhaustiveFinder extends MultiFinderPatternFinder {
+
+    ExhaustiveFinder(BitMatrix image) {
+      super(image);
+    }
+
+    /**
+     * @return every tuple of three patterns whose module sizes, next to one another, are similar,
+     *  packed and ordered as by {@link MultiFinderPatternFinder#findCandidateTriples(List)}
+     */
+    @Override
+    long[] findCandidateTriples(List<FinderPattern> possibleCenters) {
+      int size = possibleCenters.size();
+      long[] triples = new long[64];
+      int count = 0;
+      for (int i = 0; i < size - 2; i++) {
+        for (int j = i + 1; j < size - 1; j++) {
+          if (!isSimilarModuleSize(possibleCenters.get(i), possibleCenters.get(j))) {
+            // Elements are ordered by module size, so none further on can be either
+            break;
+          }
+          for (int k = j + 1; k < size; k++) {
+            if (!isSimilarModuleSize(possibleCenters.get(j), possibleCenters.get(k))) {
+              break;
+            }
+            if (count == triples.length) {
+              triples = Arrays.copyOf(triples, count << 1);
+            }
+            triples[count++] = packTriple(i, j, k);
+          }
+        }
+      }
+      return Arrays.copyOf(triples, count);
+    }
+
+  }
+
+}
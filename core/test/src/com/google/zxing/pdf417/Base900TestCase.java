@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.pdf417;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests {@link Base900}.
+ */
+public final class Base900TestCase extends Assert {
+
+  @Test
+  public void testSpecificationExample() {
+    int[] codewords = new int[Base900.MAX_CODEWORDS];
+    int count = Base900.encode("000213298174000", 0, 15, codewords);
+    assertArrayEquals(new int[] {1, 624, 434, 632, 282, 200}, Arrays.copyOf(codewords, count));
+
+    StringBuilder result = new StringBuilder("x");
+    assertTrue(Base900.decode(codewords, count, result));
+    assertEquals("x000213298174000", result.toString());
+  }
+
+  @Test
+  public void testAgainstBigInteger() {
+    Random random = new Random(900);
+    BigInteger nineHundred = BigInteger.valueOf(900);
+    int[] codewords = new int[Base900.MAX_CODEWORDS];
+    for (int i = 0; i < 2000; i++) {
+      int length = random.nextInt(45);
+      StringBuilder digits = new StringBuilder();
+      for (int j = 0; j < length; j++) {
+        digits.append((char) ('0' + random.nextInt(10)));
+      }
+      // Leading and trailing zeroes are the interesting cases
+      if (random.nextBoolean()) {
+        for (int j = 0; j < length / 2; j++) {
+          digits.setCharAt(random.nextBoolean() ? j : length - 1 - j, '0');
+        }
+      }
+
+      BigInteger expected = new BigInteger('1' + digits.toString());
+      int count = Base900.encode(digits, 0, length, codewords);
+      BigInteger actual = BigInteger.ZERO;
+      for (int j = 0; j < count; j++) {
+        assertTrue(codewords[j] < 900);
+        actual = actual.multiply(nineHundred).add(BigInteger.valueOf(codewords[j]));
+      }
+      assertEquals(expected, actual);
+      assertTrue(codewords[0] > 0);
+
+      StringBuilder result = new StringBuilder();
+      assertTrue(Base900.decode(codewords, count, result));
+      assertEquals(digits.toString(), result.toString());
+    }
+  }
+
+  @Test
+  public void testDecodeRequiresLeadingOne() {
+    StringBuilder result = new StringBuilder("x");
+    assertFalse(Base900.decode(new int[] {3, 0}, 2, result));
+    assertFalse(Base900.decode(new int[] {0, 0}, 2, result));
+    assertFalse(Base900.decode(new int[0], 0, result));
+    assertEquals("x", result.toString());
+    assertTrue(Base900.decode(new int[] {0, 1}, 2, result));
+    assertEquals("x", result.toString());
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.pdf417;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests {@link PDF417Common}.
+ */
+public final class PDF417CommonTestCase extends Assert {
+
+  @Test
+  public void testSymbolLookup() {
+    // Each codeword appears once in each of the three clusters
+    int[][] seen = new int[9][PDF417Common.NUMBER_OF_CODEWORDS];
+    for (int symbol : PDF417Common.SYMBOL_TABLE) {
+      int codeword = PDF417Common.getCodeword(symbol);
+      int cluster = PDF417Common.getClusterNumber(symbol);
+      assertTrue(codeword >= 0 && codeword < PDF417Common.NUMBER_OF_CODEWORDS);
+      assertTrue(cluster == 0 || cluster == 3 || cluster == 6);
+      seen[cluster][codeword]++;
+    }
+    for (int cluster = 0; cluster < 9; cluster += 3) {
+      for (int count : seen[cluster]) {
+        assertEquals(1, count);
+      }
+    }
+  }
+
+  @Test
+  public void testNotASymbol() {
+    for (int symbol = 0; symbol < 0x40000; symbol++) {
+      if (Arrays.binarySearch(PDF417Common.SYMBOL_TABLE, symbol) < 0) {
+        assertEquals(-1, PDF417Common.getCodeword(symbol));
+        assertEquals(-1, PDF417Common.getClusterNumber(symbol));
+      }
+    }
+  }
+
+}
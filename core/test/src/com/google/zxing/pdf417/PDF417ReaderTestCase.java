@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.pdf417;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ReaderException;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link PDF417Reader}.
+ */
+public final class PDF417ReaderTestCase extends Assert {
+
+  @Test
+  public void testDecodeColumnsConcurrently() throws ReaderException, WriterException {
+    String contents = createContents();
+    BinaryBitmap image = createImage(contents);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      assertEquals(contents, new PDF417Reader(executor).decode(image).getText());
+      assertEquals(contents, new PDF417Reader().decode(image).getText());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDecodeOnThreadOfExecutor() throws Exception {
+    String contents = createContents();
+    final BinaryBitmap image = createImage(contents);
+    // The only thread of the executor decodes, so no other thread can decode its columns
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> text = executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws ReaderException {
+          return new PDF417Reader(executor).decode(image).getText();
+        }
+      });
+      assertEquals(contents, text.get(20L, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static String createContents() {
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i < 40; i++) {
+      contents.append("Column ").append(i).append(", ");
+    }
+    return contents.toString();
+  }
+
+  private static BinaryBitmap createImage(String contents) throws WriterException {
+    BitMatrix matrix = new PDF417Writer().encode(contents, BarcodeFormat.PDF_417, 1200, 400);
+    int width = matrix.getWidth();
+    int height = matrix.getHeight();
+    int[] pixels = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        pixels[y * width + x] = matrix.get(x, y) ? 0xFF000000 : 0xFFFFFFFF;
+      }
+    }
+    return new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(width, height, pixels)));
+  }
+
+}
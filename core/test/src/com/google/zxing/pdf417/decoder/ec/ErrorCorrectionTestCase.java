@@ -118,6 +118,29 @@ public final class ErrorCorrectionTestCase extends AbstractErrorCorrectionTestCa
   }
    */
 
+  @Test
+  public void testUpdateSyndromes() throws ChecksumException {
+    Random random = getRandom();
+    int[] received = PDF417_TEST_WITH_EC.clone();
+    int[] syndromes = new int[ECC_BYTES];
+    assertFalse(ec.computeSyndromes(received, syndromes));
+    int[] expected = new int[ECC_BYTES];
+    for (int i = 0; i < 100; i++) {
+      int position = random.nextInt(received.length);
+      int newValue = random.nextInt(929);
+      boolean hasErrors =
+          ec.updateSyndromes(syndromes, received.length, position, received[position], newValue);
+      received[position] = newValue;
+      assertEquals(ec.computeSyndromes(received, expected), hasErrors);
+      assertArrayEquals(expected, syndromes);
+    }
+    received = PDF417_TEST_WITH_EC.clone();
+    corrupt(received, MAX_ERRORS, random);
+    assertTrue(ec.computeSyndromes(received, syndromes));
+    ec.decode(received, ECC_BYTES, new int[0], syndromes);
+    assertArrayEquals(PDF417_TEST_WITH_EC, received);
+  }
+
   private void checkDecode(int[] received) throws ChecksumException {
     checkDecode(received, new int[0]);
   }
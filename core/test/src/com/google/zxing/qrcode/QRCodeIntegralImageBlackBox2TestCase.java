@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.common.AbstractBlackBoxTestCase;
+import com.google.zxing.common.IntegralImageBinarizer;
+
+/**
+ * Runs the images of {@link QRCodeBlackBox2TestCase} through {@link IntegralImageBinarizer}.
+ */
+public final class QRCodeIntegralImageBlackBox2TestCase extends AbstractBlackBoxTestCase {
+
+  public QRCodeIntegralImageBlackBox2TestCase() {
+    super("test/data/blackbox/qrcode-2", new MultiFormatReader(), BarcodeFormat.QR_CODE);
+    addTest(30, 32, 0.0f);
+    addTest(31, 32, 90.0f);
+    addTest(31, 32, 180.0f);
+    addTest(30, 32, 270.0f);
+  }
+
+  @Override
+  protected Binarizer createBinarizer(LuminanceSource source) {
+    return new IntegralImageBinarizer(source);
+  }
+
+}
@@ -17,11 +17,20 @@
 package com.google.zxing.client.j2se;
 
 import com.google.zxing.LuminanceSource;
+import com.google.zxing.common.RowBands;
 
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This LuminanceSource implementation is meant for J2SE clients and our blackbox unit tests.
@@ -52,10 +61,29 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
   }
 
   public BufferedImageLuminanceSource(BufferedImage image, int left, int top, int width, int height) {
+    this(image, left, top, width, height, null);
+  }
+
+  /**
+   * @param image image to take luminance from. It is never modified.
+   * @param left left edge of the crop rectangle within image
+   * @param top top edge of the crop rectangle within image
+   * @param width width of the crop rectangle
+   * @param height height of the crop rectangle
+   * @param executor converts the crop in parallel bands of rows, or null to use the calling thread
+   */
+  public BufferedImageLuminanceSource(BufferedImage image,
+                                      int left,
+                                      int top,
+                                      int width,
+                                      int height,
+                                      ExecutorService executor) {
     super(width, height);
 
     if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
       this.image = image;
+      this.left = left;
+      this.top = top;
     } else {
       int sourceWidth = image.getWidth();
       int sourceHeight = image.getHeight();
@@ -63,61 +91,206 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
         throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
       }
 
-      this.image = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_BYTE_GRAY);
+      // Only the crop is converted, so it becomes the whole of the grayscale image
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+      this.left = 0;
+      this.top = 0;
+      byte[] luminances = ((DataBufferByte) this.image.getRaster().getDataBuffer()).getData();
+
+      RowBands.Task converter = createRasterConverter(image, left, top, width, luminances);
+      if (converter == null) {
+        if (EXPLICIT_LUMINANCE_CONVERSION || image.getAlphaRaster() != null) {
+          // Transparent pixels have to be made white, which drawImage() can't do without
+          // modifying the caller's image
+          converter = createRGBConverter(image, left, top, width, luminances);
+        } else {
+          // Create a grayscale copy, no need to calculate the luminance manually
+          Graphics2D g = this.image.createGraphics();
+          g.drawImage(image, -left, -top, null);
+          g.dispose();
+        }
+      }
+      if (converter != null) {
+        RowBands.run(executor, height, converter);
+      }
+    }
+  }
+
+  /**
+   * The color of fully-transparent pixels is irrelevant. They are often, technically, fully-transparent
+   * black (0 alpha, and then 0 RGB). They are often used, of course as the "white" area in a
+   * barcode image. Such pixels are treated as white.
+   *
+   * @return .299R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC) of an ARGB pixel
+   */
+  private static int luminance(int pixel) {
+    if ((pixel & 0xFF000000) == 0) {
+      return 0xFF; // = white
+    }
+    return luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+  }
 
-      if (EXPLICIT_LUMINANCE_CONVERSION) {
+  private static int luminance(int red, int green, int blue) {
+    return (306 * red + 601 * green + 117 * blue + 0x200) >> 10;
+  }
 
-        WritableRaster raster = this.image.getRaster();
+  /**
+   * Reads the crop of image through {@link BufferedImage#getRGB(int, int, int, int, int[], int, int)},
+   * which works for any image type.
+   */
+  private static RowBands.Task createRGBConverter(final BufferedImage image,
+                                                  final int left,
+                                                  final int top,
+                                                  final int width,
+                                                  final byte[] luminances) {
+    return new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
         int[] buffer = new int[width];
-        for (int y = top; y < top + height; y++) {
-          image.getRGB(left, y, width, 1, buffer, 0, sourceWidth);
+        for (int y = startRow; y < endRow; y++) {
+          image.getRGB(left, top + y, width, 1, buffer, 0, width);
+          int offset = y * width;
           for (int x = 0; x < width; x++) {
-            int pixel = buffer[x];
+            luminances[offset + x] = (byte) luminance(buffer[x]);
+          }
+        }
+      }
+    };
+  }
 
-            // see comments in implicit branch
-            if ((pixel & 0xFF000000) == 0) {
-              pixel = 0xFFFFFFFF; // = white
-            }
+  /**
+   * Reads the crop of image straight from its {@link DataBuffer}, for the image types which
+   * {@link javax.imageio.ImageIO} and cameras commonly produce.
+   *
+   * @return converter for image, or null if its layout isn't one of those handled here
+   */
+  private static RowBands.Task createRasterConverter(BufferedImage image,
+                                                     int left,
+                                                     int top,
+                                                     int width,
+                                                     byte[] luminances) {
+    WritableRaster raster = image.getRaster();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    if (dataBuffer.getNumBanks() != 1) {
+      return null;
+    }
+    SampleModel sampleModel = raster.getSampleModel();
+    // Images obtained from getSubimage() share a larger raster
+    int x0 = left - raster.getSampleModelTranslateX();
+    int y0 = top - raster.getSampleModelTranslateY();
+    switch (image.getType()) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        if (sampleModel instanceof SinglePixelPackedSampleModel) {
+          int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+          int offset = dataBuffer.getOffset() + y0 * stride + x0;
+          boolean opaque = image.getType() == BufferedImage.TYPE_INT_RGB;
+          return createIntConverter(((DataBufferInt) dataBuffer).getData(), offset, stride, opaque, width, luminances);
+        }
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        if (sampleModel instanceof ComponentSampleModel) {
+          ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+          int stride = componentModel.getScanlineStride();
+          int pixelStride = componentModel.getPixelStride();
+          int offset = dataBuffer.getOffset() + y0 * stride + x0 * pixelStride;
+          // Bands are red, green, blue, then alpha if present
+          int[] bandOffsets = componentModel.getBandOffsets();
+          return createByteConverter(((DataBufferByte) dataBuffer).getData(),
+                                     offset, stride, pixelStride, bandOffsets, width, luminances);
+        }
+        break;
+      case BufferedImage.TYPE_BYTE_INDEXED:
+        if (sampleModel instanceof ComponentSampleModel && image.getColorModel() instanceof IndexColorModel) {
+          int stride = ((ComponentSampleModel) sampleModel).getScanlineStride();
+          int offset = dataBuffer.getOffset() + y0 * stride + x0;
+          IndexColorModel colorModel = (IndexColorModel) image.getColorModel();
+          byte[] palette = new byte[256];
+          for (int i = 0; i < colorModel.getMapSize(); i++) {
+            palette[i] = (byte) luminance(colorModel.getRGB(i));
+          }
+          return createIndexedConverter(((DataBufferByte) dataBuffer).getData(),
+                                        offset, stride, palette, width, luminances);
+        }
+        break;
+    }
+    return null;
+  }
 
-            // .229R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC)
-            buffer[x] = 
-                (306 * ((pixel >> 16) & 0xFF) +
-                 601 * ((pixel >> 8) & 0xFF) +
-                 117 * (pixel & 0xFF) +
-                 0x200) >> 10;
+  private static RowBands.Task createIntConverter(final int[] pixels,
+                                                  final int offset,
+                                                  final int stride,
+                                                  final boolean opaque,
+                                                  final int width,
+                                                  final byte[] luminances) {
+    return new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
+        for (int y = startRow; y < endRow; y++) {
+          int inputOffset = offset + y * stride;
+          int outputOffset = y * width;
+          for (int x = 0; x < width; x++) {
+            int pixel = pixels[inputOffset + x];
+            luminances[outputOffset + x] = (byte) (opaque ?
+                luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF) : luminance(pixel));
           }
-          raster.setPixels(left, y, width, 1, buffer);
         }
+      }
+    };
+  }
 
-      } else {
-
-        // The color of fully-transparent pixels is irrelevant. They are often, technically, fully-transparent
-        // black (0 alpha, and then 0 RGB). They are often used, of course as the "white" area in a
-        // barcode image. Force any such pixel to be white:
-        if (image.getAlphaRaster() != null) {
-          int[] buffer = new int[width];
-          for (int y = top; y < top + height; y++) {
-            image.getRGB(left, y, width, 1, buffer, 0, sourceWidth);
-            boolean rowChanged = false;
-            for (int x = 0; x < width; x++) {
-              if ((buffer[x] & 0xFF000000) == 0) {
-                buffer[x] = 0xFFFFFFFF; // = white
-                rowChanged = true;
-              }
-            }
-            if (rowChanged) {
-              image.setRGB(left, y, width, 1, buffer, 0, sourceWidth);
+  private static RowBands.Task createByteConverter(final byte[] pixels,
+                                                   final int offset,
+                                                   final int stride,
+                                                   final int pixelStride,
+                                                   int[] bandOffsets,
+                                                   final int width,
+                                                   final byte[] luminances) {
+    final int redOffset = bandOffsets[0];
+    final int greenOffset = bandOffsets[1];
+    final int blueOffset = bandOffsets[2];
+    final int alphaOffset = bandOffsets.length > 3 ? bandOffsets[3] : -1;
+    return new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
+        for (int y = startRow; y < endRow; y++) {
+          int inputOffset = offset + y * stride;
+          int outputOffset = y * width;
+          for (int x = 0; x < width; x++, inputOffset += pixelStride) {
+            int luminance;
+            if (alphaOffset >= 0 && pixels[inputOffset + alphaOffset] == 0) {
+              luminance = 0xFF; // transparent, so white
+            } else {
+              luminance = luminance(pixels[inputOffset + redOffset] & 0xFF,
+                                    pixels[inputOffset + greenOffset] & 0xFF,
+                                    pixels[inputOffset + blueOffset] & 0xFF);
             }
+            luminances[outputOffset + x] = (byte) luminance;
           }
         }
+      }
+    };
+  }
 
-        // Create a grayscale copy, no need to calculate the luminance manually
-        this.image.getGraphics().drawImage(image, 0, 0, null);
-
+  private static RowBands.Task createIndexedConverter(final byte[] pixels,
+                                                      final int offset,
+                                                      final int stride,
+                                                      final byte[] palette,
+                                                      final int width,
+                                                      final byte[] luminances) {
+    return new RowBands.Task() {
+      @Override
+      public void processRows(int startRow, int endRow) {
+        for (int y = startRow; y < endRow; y++) {
+          int inputOffset = offset + y * stride;
+          int outputOffset = y * width;
+          for (int x = 0; x < width; x++) {
+            luminances[outputOffset + x] = palette[pixels[inputOffset + x] & 0xFF];
+          }
+        }
       }
-    }
-    this.left = left;
-    this.top = top;
+    };
   }
 
   @Override
@@ -84,6 +84,12 @@ public final class CommandLineRunner {
         case "--recursive":
           config.setRecursive(true);
           break;
+        case "--multi_scale":
+          config.setMultiScale(true);
+          break;
+        case "--triage":
+          config.setTriage(true);
+          break;
         case "--crop":
           int[] crop = new int[4];
           String[] tokens = COMMA.split(argValue[1]);
@@ -199,6 +205,12 @@ public final class CommandLineRunner {
     if (config.isPureBarcode()) {
       hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
     }
+    if (config.isMultiScale()) {
+      hints.put(DecodeHintType.MULTI_SCALE, Boolean.TRUE);
+    }
+    if (config.isTriage()) {
+      hints.put(DecodeHintType.TRIAGE, Boolean.TRUE);
+    }
     return hints;
   }
 
@@ -214,6 +226,8 @@ public final class CommandLineRunner {
     System.err.println("  --multi: Scans image for multiple barcodes");
     System.err.println("  --brief: Only output one line per file, omitting the contents");
     System.err.println("  --recursive: Descend into subdirectories");
+    System.err.println("  --multi_scale: Decode a scaled down copy of large images first");
+    System.err.println("  --triage: Skip images which can hold no barcode, and readers for kinds they don't hold");
     System.err.println("  --crop=left,top,width,height: Only examine cropped region of input image(s)");
     StringBuilder builder = new StringBuilder();
     builder.append("  --possibleFormats=barcodeFormat[,barcodeFormat2...] where barcodeFormat is any of: ");
@@ -31,6 +31,8 @@ final class Config {
   private boolean multi;
   private boolean brief;
   private boolean recursive;
+  private boolean multiScale;
+  private boolean triage;
   private int[] crop;
   private String[] possibleFormats;
 
@@ -106,6 +108,22 @@ final class Config {
     this.recursive = recursive;
   }
 
+  boolean isMultiScale() {
+    return multiScale;
+  }
+
+  void setMultiScale(boolean multiScale) {
+    this.multiScale = multiScale;
+  }
+
+  boolean isTriage() {
+    return triage;
+  }
+
+  void setTriage(boolean triage) {
+    this.triage = triage;
+  }
+
   int[] getCrop() {
     return crop;
   }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.client.j2se;
+
+import com.google.zxing.LuminanceSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests that {@link BufferedImageLuminanceSource} reads the same luminance straight from each
+ * kind of image data as it would through {@link BufferedImage#getRGB(int, int)}.
+ */
+public final class BufferedImageLuminanceSourceTestCase extends Assert {
+
+  private static final int WIDTH = 37;
+  private static final int HEIGHT = 23;
+
+  @Test
+  public void testIntRGB() {
+    doTestAllCrops(createImage(BufferedImage.TYPE_INT_RGB, false));
+  }
+
+  @Test
+  public void testIntARGB() {
+    doTestAllCrops(createImage(BufferedImage.TYPE_INT_ARGB, true));
+  }
+
+  @Test
+  public void test3ByteBGR() {
+    doTestAllCrops(createImage(BufferedImage.TYPE_3BYTE_BGR, false));
+  }
+
+  @Test
+  public void test4ByteABGR() {
+    doTestAllCrops(createImage(BufferedImage.TYPE_4BYTE_ABGR, true));
+  }
+
+  @Test
+  public void testByteIndexed() {
+    byte[] reds = new byte[256];
+    byte[] greens = new byte[256];
+    byte[] blues = new byte[256];
+    Random random = new Random(0xCAFE);
+    random.nextBytes(reds);
+    random.nextBytes(greens);
+    random.nextBytes(blues);
+    IndexColorModel colorModel = new IndexColorModel(8, 256, reds, greens, blues);
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        image.getRaster().setSample(x, y, 0, random.nextInt(256));
+      }
+    }
+    doTestAllCrops(image);
+  }
+
+  @Test
+  public void testPremultipliedAlpha() {
+    // Not read straight from the data buffer, but still through getRGB() rather than drawImage()
+    doTestAllCrops(createImage(BufferedImage.TYPE_INT_ARGB_PRE, true));
+  }
+
+  @Test
+  public void testTransparentIsWhite() {
+    BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+    image.setRGB(0, 0, 0x00000000);
+    image.setRGB(1, 0, 0xFF000000);
+    byte[] row = new BufferedImageLuminanceSource(image).getRow(0, null);
+    assertEquals(0xFF, row[0] & 0xFF);
+    assertEquals(0, row[1] & 0xFF);
+    // The caller's transparent pixel is left as it was
+    assertEquals(0x00000000, image.getRGB(0, 0));
+  }
+
+  @Test
+  public void testParallel() {
+    BufferedImage image = createImage(BufferedImage.TYPE_INT_ARGB, true);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      LuminanceSource source = new BufferedImageLuminanceSource(image, 1, 2, WIDTH - 3, HEIGHT - 5, executor);
+      assertLuminance(image, 1, 2, source);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Checks the whole image, a crop of it, and crops of a subimage which shares its data buffer at
+   * an offset, all without changing the image.
+   */
+  private static void doTestAllCrops(BufferedImage image) {
+    int[] before = image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+
+    assertLuminance(image, 0, 0, new BufferedImageLuminanceSource(image));
+    assertLuminance(image, 3, 5, new BufferedImageLuminanceSource(image, 3, 5, 20, 11));
+
+    BufferedImage subimage = image.getSubimage(4, 3, 25, 17);
+    assertLuminance(subimage, 0, 0, new BufferedImageLuminanceSource(subimage));
+    assertLuminance(subimage, 2, 1, new BufferedImageLuminanceSource(subimage, 2, 1, 21, 15));
+    // Cropping the source again works from the converted crop
+    LuminanceSource cropped = new BufferedImageLuminanceSource(subimage, 2, 1, 21, 15).crop(5, 4, 10, 8);
+    assertLuminance(subimage, 7, 5, cropped);
+
+    assertArrayEquals(before, image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+  }
+
+  /**
+   * Checks each row and the matrix of source against the luminance of the image's pixels,
+   * starting at (left,top).
+   */
+  private static void assertLuminance(BufferedImage image, int left, int top, LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    byte[] matrix = source.getMatrix();
+    assertEquals(width * height, matrix.length);
+    byte[] row = null;
+    for (int y = 0; y < height; y++) {
+      row = source.getRow(y, row);
+      for (int x = 0; x < width; x++) {
+        int expected = luminance(image.getRGB(left + x, top + y));
+        String where = "(" + x + ',' + y + ") of " + image;
+        assertEquals(where, expected, row[x] & 0xFF);
+        assertEquals(where, expected, matrix[y * width + x] & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * @return luminance of an ARGB pixel, as computed when converting through getRGB(), with fully
+   *  transparent pixels taken to be white
+   */
+  private static int luminance(int pixel) {
+    if ((pixel & 0xFF000000) == 0) {
+      return 0xFF;
+    }
+    return (306 * ((pixel >> 16) & 0xFF) + 601 * ((pixel >> 8) & 0xFF) + 117 * (pixel & 0xFF) + 0x200) >> 10;
+  }
+
+  /**
+   * @param transparent whether to make some pixels fully transparent, and others partly so
+   */
+  private static BufferedImage createImage(int type, boolean transparent) {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+    Random random = new Random(type);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int rgb = random.nextInt() & 0xFFFFFF;
+        int alpha = 0xFF;
+        if (transparent) {
+          switch (random.nextInt(4)) {
+            case 0:
+              alpha = 0;
+              break;
+            case 1:
+              alpha = 1 + random.nextInt(0xFE);
+              break;
+          }
+        }
+        image.setRGB(x, y, (alpha << 24) | rgb);
+      }
+    }
+    return image;
+  }
+
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>{@link HttpServlet} which decodes a batch of images in one request, and answers in JSON.
+ * The images are POSTed either as the file parts of a multipart request, or as the entries of a
+ * ZIP file sent as the body with type {@code application/zip}.</p>
+ *
+ * <p>Once the whole batch has been read, its images are decoded concurrently on the web app's
+ * {@link DecodePool}, a few at a time so that one batch does not crowd out other requests. The
+ * response is a JSON array with an object for each image, written as soon as that image is done,
+ * so in the order they finish rather than the order they were sent:</p>
+ *
+ * <pre>{@code
+ * [{"index":1,"name":"b.png","error":"notfound","queuedMillis":0,"decodeMillis":40},
+ *  {"index":0,"name":"a.png","results":[{"text":"...","format":"QR_CODE","points":[[10.5,20.0],...]}],
+ *   "queuedMillis":0,"decodeMillis":85}]
+ * }</pre>
+ *
+ * <p>An image which could not be decoded has an {@code error}: {@code notfound} or {@code format}
+ * if no barcode could be read from it, {@code badimage} if it is not an image, {@code toolarge},
+ * {@code busy} if the server had no room to decode it, or {@code internal}.</p>
+ */
+public final class BatchDecodeServlet extends HttpServlet {
+
+  private static final Logger log = Logger.getLogger(BatchDecodeServlet.class.getName());
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final int MAX_BATCH_IMAGES = 100;
+  private static final long MAX_BATCH_SIZE = 20000000L;
+  // Enough for a full batch decoded a few at a time
+  private static final long ASYNC_TIMEOUT_MS = 5L * 60L * 1000L;
+
+  private DecodePool decodePool;
+
+  @Override
+  public void init(ServletConfig servletConfig) throws ServletException {
+    decodePool = DecodePool.get(servletConfig.getServletContext());
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+
+    if (decodePool.isOverloaded()) {
+      DecodePool.sendUnavailable(response);
+      return;
+    }
+
+    // Turn away a batch which says up front that it is too large, before reading any of it
+    if (request.getContentLength() > MAX_BATCH_SIZE) {
+      log.info("Batch too large: " + request.getContentLength());
+      response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+      return;
+    }
+
+    long start = System.nanoTime();
+    List<BatchImage> images;
+    try {
+      String contentType = request.getContentType();
+      if (contentType != null && contentType.startsWith("application/zip")) {
+        images = readZip(request);
+      } else if (ServletFileUpload.isMultipartContent(request)) {
+        images = readMultipart(request);
+      } else {
+        log.info("Batch was neither multipart nor ZIP: " + contentType);
+        response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+        return;
+      }
+    } catch (FileUploadException | IOException e) {
+      log.info(e.toString());
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    if (images == null) {
+      log.info("Batch too large");
+      response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+      return;
+    }
+    if (images.isEmpty()) {
+      log.info("Batch was empty");
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+    log.info("Decoding batch of " + images.size() + " images, read in " + toMillis(System.nanoTime() - start) + "ms");
+
+    new BatchJob(request, response, images, start).start();
+  }
+
+  /**
+   * @return images in the file parts of the request, or null if there are too many
+   */
+  private static List<BatchImage> readMultipart(HttpServletRequest request)
+      throws FileUploadException, IOException {
+    List<BatchImage> images = new ArrayList<>();
+    long batchSize = 0;
+    FileItemIterator items = new ServletFileUpload().getItemIterator(request);
+    while (items.hasNext()) {
+      FileItemStream item = items.next();
+      if (item.isFormField()) {
+        continue;
+      }
+      if (images.size() == MAX_BATCH_IMAGES) {
+        return null;
+      }
+      byte[] imageBytes;
+      try (InputStream is = item.openStream()) {
+        imageBytes = DecodePool.readImageBytes(is, 0);
+      }
+      BatchImage image = new BatchImage(images.size(), item.getName(), imageBytes);
+      images.add(image);
+      batchSize += image.getSize();
+      if (batchSize > MAX_BATCH_SIZE) {
+        return null;
+      }
+    }
+    return images;
+  }
+
+  /**
+   * @return images in the ZIP file which is the body of the request, or null if there are too many,
+   *  or if more than {@link #MAX_BATCH_SIZE} bytes, including those of entries too large to keep,
+   *  would have to be inflated to read them
+   */
+  private static List<BatchImage> readZip(HttpServletRequest request) throws IOException {
+    List<BatchImage> images = new ArrayList<>();
+    long batchSize = 0;
+    try (ZipInputStream zip = new ZipInputStream(request.getInputStream())) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (entry.isDirectory()) {
+          continue;
+        }
+        if (images.size() == MAX_BATCH_IMAGES) {
+          return null;
+        }
+        // The size is often not known until the entry has been read
+        int expectedLength = (int) Math.min(entry.getSize(), DecodePool.MAX_IMAGE_SIZE);
+        byte[] imageBytes = DecodePool.readImageBytes(zip, expectedLength);
+        images.add(new BatchImage(images.size(), entry.getName(), imageBytes));
+        if (imageBytes == null) {
+          // Inflate the rest of the entry here, counting it against the batch, as getNextEntry
+          // would inflate all of it just to skip it
+          batchSize += DecodePool.MAX_IMAGE_SIZE + 1 + skip(zip, MAX_BATCH_SIZE - batchSize);
+        } else {
+          batchSize += imageBytes.length;
+        }
+        if (batchSize > MAX_BATCH_SIZE) {
+          return null;
+        }
+      }
+    }
+    return images;
+  }
+
+  /**
+   * Reads past the rest of a stream, but no further than one byte past a limit.
+   *
+   * @return number of bytes skipped
+   */
+  private static long skip(InputStream is, long limit) throws IOException {
+    byte[] buffer = new byte[8192];
+    long skipped = 0;
+    while (skipped <= limit) {
+      int read = is.read(buffer, 0, (int) Math.min(buffer.length, limit - skipped + 1));
+      if (read < 0) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * Appends a string to JSON output, quoted and escaped.
+   */
+  private static void appendQuoted(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          json.append("\\\"");
+          break;
+        case '\\':
+          json.append("\\\\");
+          break;
+        case '\n':
+          json.append("\\n");
+          break;
+        case '\r':
+          json.append("\\r");
+          break;
+        case '\t':
+          json.append("\\t");
+          break;
+        default:
+          // Also escape the separators which are not allowed in JavaScript strings
+          if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+      }
+    }
+    json.append('"');
+  }
+
+  private static void appendResults(StringBuilder json, Collection<Result> results) {
+    json.append('[');
+    boolean firstResult = true;
+    for (Result result : results) {
+      if (!firstResult) {
+        json.append(',');
+      }
+      firstResult = false;
+      json.append("{\"text\":");
+      appendQuoted(json, result.getText());
+      json.append(",\"format\":");
+      appendQuoted(json, result.getBarcodeFormat().toString());
+      json.append(",\"points\":[");
+      ResultPoint[] points = result.getResultPoints();
+      if (points != null) {
+        boolean firstPoint = true;
+        for (ResultPoint point : points) {
+          if (!firstPoint) {
+            json.append(',');
+          }
+          firstPoint = false;
+          if (point == null) {
+            json.append("null");
+          } else {
+            json.append('[').append(point.getX()).append(',').append(point.getY()).append(']');
+          }
+        }
+      }
+      json.append("]}");
+    }
+    json.append(']');
+  }
+
+  /**
+   * One image of a batch.
+   */
+  private static final class BatchImage {
+
+    private final int index;
+    private final String name;
+    private final byte[] bytes;
+
+    /**
+     * @param bytes the image, or null if it was too large to be read
+     */
+    BatchImage(int index, String name, byte[] bytes) {
+      this.index = index;
+      this.name = name;
+      this.bytes = bytes;
+    }
+
+    int getSize() {
+      return bytes == null ? (int) DecodePool.MAX_IMAGE_SIZE : bytes.length;
+    }
+
+  }
+
+  /**
+   * <p>One batch, from when it is put into asynchronous mode until the response is complete.</p>
+   *
+   * <p>Images which were decoded recently are answered from the cache right away. The rest are
+   * handed to the pool, at most one for every two decoding threads at a time (but at least one),
+   * so that a batch leaves threads for other requests, and as each one finishes the next is
+   * handed over. The array is closed once every image is done, or when the batch times out,
+   * after which nothing more is written.</p>
+   */
+  private final class BatchJob implements AsyncListener {
+
+    private final HttpServletResponse response;
+    private final AsyncContext asyncContext;
+    private final List<BatchImage> images;
+    private final long startTime;
+    private final AtomicInteger nextImage;
+    private final AtomicInteger remaining;
+    private final AtomicInteger cachedCount;
+    private Writer out;
+    private boolean firstElement;
+    private volatile boolean closed;
+
+    BatchJob(HttpServletRequest request, HttpServletResponse response, List<BatchImage> images, long startTime) {
+      this.response = response;
+      this.images = images;
+      this.startTime = startTime;
+      nextImage = new AtomicInteger();
+      remaining = new AtomicInteger(images.size());
+      cachedCount = new AtomicInteger();
+      firstElement = true;
+      asyncContext = request.startAsync(request, response);
+      asyncContext.setTimeout(ASYNC_TIMEOUT_MS);
+      asyncContext.addListener(this);
+    }
+
+    void start() throws IOException {
+      response.setContentType("application/json");
+      response.setCharacterEncoding("UTF8");
+      synchronized (this) {
+        out = new OutputStreamWriter(response.getOutputStream(), UTF8);
+        out.write('[');
+      }
+      List<BatchImage> toDecode = new ArrayList<>(images.size());
+      for (BatchImage image : images) {
+        if (image.bytes == null) {
+          finish(image, null, "toolarge", 0L, 0L);
+          continue;
+        }
+        DecodeResultCache.Outcome outcome =
+            decodePool.getCachedOutcome(decodePool.getResultCache().getKey(image.bytes));
+        if (outcome == null) {
+          toDecode.add(image);
+        } else {
+          cachedCount.incrementAndGet();
+          finish(image, outcome.getResults(), getError(outcome.getFailurePage()), 0L, 0L);
+        }
+      }
+      images.clear();
+      images.addAll(toDecode);
+      int inFlight = Math.min(Math.max(1, decodePool.getThreadCount() / 2), toDecode.size());
+      for (int i = 0; i < inFlight; i++) {
+        submitNext();
+      }
+    }
+
+    /**
+     * Hands the next image which has not been yet to the pool, if there is one.
+     */
+    private void submitNext() {
+      int next = nextImage.getAndIncrement();
+      if (next >= images.size()) {
+        return;
+      }
+      BatchImage image = images.get(next);
+      try {
+        decodePool.execute(new DecodeTask(image));
+      } catch (RejectedExecutionException ree) {
+        finish(image, null, "busy", 0L, 0L);
+        submitNext();
+      }
+    }
+
+    /**
+     * Writes what came of decoding an image, and closes the array if it was the last one.
+     */
+    private void finish(BatchImage image, Collection<Result> results, String error,
+                        long queuedNanos, long decodeNanos) {
+      StringBuilder json = new StringBuilder(128);
+      json.append("{\"index\":").append(image.index).append(",\"name\":");
+      if (image.name == null) {
+        json.append("null");
+      } else {
+        appendQuoted(json, image.name);
+      }
+      if (results == null) {
+        json.append(",\"error\":");
+        appendQuoted(json, error);
+      } else {
+        json.append(",\"results\":");
+        appendResults(json, results);
+      }
+      json.append(",\"queuedMillis\":").append(toMillis(queuedNanos));
+      json.append(",\"decodeMillis\":").append(toMillis(decodeNanos)).append('}');
+      write(json);
+      if (remaining.decrementAndGet() == 0) {
+        close();
+      }
+    }
+
+    private synchronized void write(CharSequence element) {
+      if (closed) {
+        return;
+      }
+      try {
+        if (!firstElement) {
+          out.write(",\n");
+        }
+        firstElement = false;
+        out.append(element);
+        // Let the client see each result as soon as it is ready
+        out.flush();
+      } catch (IOException ioe) {
+        log.info(ioe.toString());
+      }
+    }
+
+    private synchronized void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        out.write("]\n");
+        out.close();
+      } catch (IOException ioe) {
+        log.info(ioe.toString());
+      } finally {
+        asyncContext.complete();
+      }
+      log.info("Decoded batch in " + toMillis(System.nanoTime() - startTime) + "ms, " +
+               cachedCount + " cached");
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      log.info("Batch timed out after " + toMillis(System.nanoTime() - startTime) + "ms with " +
+               remaining + " images left");
+      close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      log.info("Batch failed: " + event.getThrowable());
+      close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      // do nothing
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // do nothing
+    }
+
+    /**
+     * Reads and decodes one image, then hands over the next.
+     */
+    private final class DecodeTask implements Runnable {
+
+      private final BatchImage image;
+      private final long submitTime;
+
+      DecodeTask(BatchImage image) {
+        this.image = image;
+        submitTime = System.nanoTime();
+      }
+
+      @Override
+      public void run() {
+        long decodeStart = System.nanoTime();
+        Collection<Result> results = null;
+        String error = "internal";
+        try {
+          if (closed) {
+            return;
+          }
+          DecodeResultCache.Key key = decodePool.getResultCache().getKey(image.bytes);
+          BufferedImage bufferedImage = DecodePool.readImage(new ByteArrayInputStream(image.bytes));
+          if (bufferedImage == null) {
+            decodePool.getResultCache().putFailure(key, "badimage.jspx");
+            error = "badimage";
+          } else {
+            try {
+              results = decodePool.decodeImage(bufferedImage);
+              decodePool.getResultCache().putResults(key, Collections.unmodifiableCollection(results));
+            } catch (ReaderException re) {
+              String failurePage = DecodePool.getFailurePage(re);
+              decodePool.getResultCache().putFailure(key, failurePage);
+              error = getError(failurePage);
+            }
+          }
+        } catch (RuntimeException re) {
+          log.log(Level.WARNING, "Unexpected exception from library", re);
+        } finally {
+          finish(image, results, error, decodeStart - submitTime, System.nanoTime() - decodeStart);
+          submitNext();
+        }
+      }
+
+    }
+
+  }
+
+  /**
+   * @return error reported for an image, from the page which explains it to users of the web page
+   */
+  private static String getError(String failurePage) {
+    return failurePage == null ? null : failurePage.substring(0, failurePage.indexOf('.'));
+  }
+
+}
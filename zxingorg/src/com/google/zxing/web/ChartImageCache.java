@@ -0,0 +1,237 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Remembers the PNG images which {@link ChartServlet} rendered recently, keyed by everything
+ * which went into rendering them, so that a popular barcode need not be encoded and compressed
+ * again each time it is asked for.</p>
+ *
+ * <p>The cache holds at most so many bytes of images, dropping the least recently used ones to
+ * make room. Rendering is deterministic, so entries never go stale.</p>
+ */
+final class ChartImageCache {
+
+  private final long maxBytes;
+  private final Map<Key,Image> entries;
+  private long bytes;
+  private final AtomicLong hitCount;
+  private final AtomicLong missCount;
+
+  /**
+   * @param maxBytes most bytes of images, and of their contents, to hold
+   */
+  ChartImageCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+    hitCount = new AtomicLong();
+    missCount = new AtomicLong();
+  }
+
+  /**
+   * @return the image rendered before, or null if there is none
+   */
+  Image get(Key key) {
+    Image image;
+    synchronized (entries) {
+      image = entries.get(key);
+    }
+    (image == null ? missCount : hitCount).incrementAndGet();
+    return image;
+  }
+
+  void put(Key key, Image image) {
+    long size = getSize(key, image);
+    if (size > maxBytes) {
+      return;
+    }
+    synchronized (entries) {
+      Image previous = entries.put(key, image);
+      if (previous != null) {
+        bytes -= getSize(key, previous);
+      }
+      bytes += size;
+      Iterator<Map.Entry<Key,Image>> eldest = entries.entrySet().iterator();
+      while (bytes > maxBytes) {
+        Map.Entry<Key,Image> entry = eldest.next();
+        bytes -= getSize(entry.getKey(), entry.getValue());
+        eldest.remove();
+      }
+    }
+  }
+
+  private static long getSize(Key key, Image image) {
+    return image.getPNG().length + 2L * key.contents.length();
+  }
+
+  long getHitCount() {
+    return hitCount.get();
+  }
+
+  long getMissCount() {
+    return missCount.get();
+  }
+
+  @Override
+  public String toString() {
+    int size;
+    long currentBytes;
+    synchronized (entries) {
+      size = entries.size();
+      currentBytes = bytes;
+    }
+    return "size=" + size + " bytes=" + currentBytes + '/' + maxBytes + " hits=" + hitCount +
+        " misses=" + missCount;
+  }
+
+  /**
+   * Everything which goes into rendering an image.
+   */
+  static final class Key {
+
+    private final String contents;
+    private final BarcodeFormat format;
+    private final int width;
+    private final int height;
+    private final String ecLevel;
+    private final int margin;
+    private final String charset;
+
+    /**
+     * @param ecLevel error correction level as requested, or null for the default
+     * @param margin margin as requested, or -1 for the default
+     */
+    Key(String contents, BarcodeFormat format, int width, int height, String ecLevel, int margin, String charset) {
+      this.contents = contents;
+      this.format = format;
+      this.width = width;
+      this.height = height;
+      this.ecLevel = ecLevel;
+      this.margin = margin;
+      this.charset = charset;
+    }
+
+    String getContents() {
+      return contents;
+    }
+
+    BarcodeFormat getFormat() {
+      return format;
+    }
+
+    int getWidth() {
+      return width;
+    }
+
+    int getHeight() {
+      return height;
+    }
+
+    /**
+     * @return error correction level, or null for the default
+     */
+    String getECLevel() {
+      return ecLevel;
+    }
+
+    /**
+     * @return margin, or -1 for the default
+     */
+    int getMargin() {
+      return margin;
+    }
+
+    String getCharset() {
+      return charset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return contents.equals(other.contents) && format == other.format &&
+          width == other.width && height == other.height &&
+          (ecLevel == null ? other.ecLevel == null : ecLevel.equals(other.ecLevel)) &&
+          margin == other.margin && charset.equals(other.charset);
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = contents.hashCode();
+      hash = 31 * hash + format.hashCode();
+      hash = 31 * hash + width;
+      hash = 31 * hash + height;
+      hash = 31 * hash + (ecLevel == null ? 0 : ecLevel.hashCode());
+      hash = 31 * hash + margin;
+      return 31 * hash + charset.hashCode();
+    }
+
+  }
+
+  /**
+   * A rendered PNG image, and the strong entity tag which identifies its bytes.
+   */
+  static final class Image {
+
+    private final byte[] png;
+    private final String eTag;
+
+    Image(byte[] png) {
+      this.png = png;
+      MessageDigest digest;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException nsae) {
+        // Every Java platform has SHA-256
+        throw new IllegalStateException(nsae);
+      }
+      byte[] hash = digest.digest(png);
+      StringBuilder tag = new StringBuilder(34);
+      tag.append('"');
+      // Half of the digest is plenty to tell images apart
+      for (int i = 0; i < hash.length / 2; i++) {
+        int value = hash[i] & 0xFF;
+        tag.append(OutputUtils.hexChar(value / 16)).append(OutputUtils.hexChar(value % 16));
+      }
+      eTag = tag.append('"').toString();
+    }
+
+    byte[] getPNG() {
+      return png;
+    }
+
+    /**
+     * @return entity tag of the image, quoted as in an {@code ETag} header
+     */
+    String getETag() {
+      return eTag;
+    }
+
+  }
+
+}
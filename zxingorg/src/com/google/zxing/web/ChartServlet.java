@@ -0,0 +1,353 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.Code128Writer;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>{@link HttpServlet} which encodes text as a barcode, and answers with a PNG image of it.
+ * Its parameters follow those of the Google Chart API for QR codes:</p>
+ *
+ * <ul>
+ *  <li>{@code chl}: text to encode</li>
+ *  <li>{@code chs}: size of the image, like {@code 300x200}</li>
+ *  <li>{@code cht}: {@code qr}, the default, or the name of another {@link BarcodeFormat} like
+ *   {@code DATA_MATRIX} or {@code PDF_417}</li>
+ *  <li>{@code chld}: error correction level and margin, like {@code M|2}; the level is one of
+ *   L, M, Q or H for QR codes, or the percentage of the symbol given over to error correction for
+ *   Aztec codes. The margin is in modules for 2D codes, and in pixels for 1D codes and PDF417</li>
+ *  <li>{@code choe}: encoding of the text in the barcode, UTF-8 by default</li>
+ * </ul>
+ *
+ * <p>Images rendered recently are kept in a {@link ChartImageCache} and served again without
+ * being encoded or compressed again. Each image has a strong entity tag, so a client which
+ * already has it is told it has not changed. Only so many images are rendered at once; past that
+ * a request waits its turn for a while, and is then turned away.</p>
+ */
+public final class ChartServlet extends HttpServlet {
+
+  private static final Logger log = Logger.getLogger(ChartServlet.class.getName());
+
+  // The most characters any format can hold, which is in a QR code of alphanumeric text
+  private static final int MAX_CONTENTS_LENGTH = 4296;
+  private static final int MAX_DIMENSION = 4096;
+  private static final int MAX_PIXELS = 1 << 20;
+  private static final Pattern SIZE = Pattern.compile("(\\d{1,4})x(\\d{1,4})");
+  private static final Pattern EC_AND_MARGIN = Pattern.compile("([^|]*)(?:\\|(\\d{1,2}))?");
+  // Quiet zone laid out around codes whose writers do not add one
+  private static final int DEFAULT_MODULE_MARGIN = 1;
+  // Margins the writers use when none is given, in modules for QR codes and pixels otherwise
+  private static final int QR_CODE_DEFAULT_MARGIN = 4;
+  private static final int PDF_417_DEFAULT_MARGIN = 30;
+  private static final int UPC_EAN_DEFAULT_MARGIN = new EAN13Writer().getDefaultMargin();
+  private static final int ONE_D_DEFAULT_MARGIN = new Code128Writer().getDefaultMargin();
+
+  private static final long CACHE_MAX_BYTES = 32L * 1024L * 1024L;
+  private static final int CACHE_STATS_LOG_INTERVAL = 1000;
+  // Popular codes are asked for over and over; they never change once rendered
+  private static final long MAX_AGE_SECONDS = 24L * 60L * 60L;
+  private static final long RENDER_WAIT_MS = 1000L;
+  private static final int RETRY_AFTER_SECONDS = 5;
+
+  private ChartImageCache imageCache;
+  private Semaphore renderPermits;
+
+  @Override
+  public void init(ServletConfig servletConfig) throws ServletException {
+    imageCache = new ChartImageCache(CACHE_MAX_BYTES);
+    int permits = Runtime.getRuntime().availableProcessors();
+    renderPermits = new Semaphore(permits);
+    log.info("Rendering at most " + permits + " charts at once");
+  }
+
+  @Override
+  public void destroy() {
+    log.info("Chart cache: " + imageCache);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+
+    ChartImageCache.Key key;
+    try {
+      key = parseKey(request);
+    } catch (IllegalArgumentException iae) {
+      log.info("Bad chart parameters: " + iae.getMessage());
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    ChartImageCache.Image image = imageCache.get(key);
+    if ((imageCache.getHitCount() + imageCache.getMissCount()) % CACHE_STATS_LOG_INTERVAL == 0) {
+      log.info("Chart cache: " + imageCache);
+    }
+    if (image == null) {
+      try {
+        if (!renderPermits.tryAcquire(RENDER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+          log.info("Too busy, turning chart request away");
+          response.setIntHeader("Retry-After", RETRY_AFTER_SECONDS);
+          response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+          return;
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        return;
+      }
+      try {
+        image = new ChartImageCache.Image(render(key));
+      } catch (WriterException | IllegalArgumentException e) {
+        log.info("Could not encode chart: " + e);
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+        return;
+      } finally {
+        renderPermits.release();
+      }
+      imageCache.put(key, image);
+    }
+
+    response.setHeader("ETag", image.getETag());
+    response.setHeader("Cache-Control", "public, max-age=" + MAX_AGE_SECONDS);
+    if (matchesETag(request.getHeader("If-None-Match"), image.getETag())) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+    byte[] png = image.getPNG();
+    response.setContentType("image/png");
+    response.setContentLength(png.length);
+    try (OutputStream out = response.getOutputStream()) {
+      out.write(png);
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if a parameter is missing or does not make sense
+   */
+  static ChartImageCache.Key parseKey(HttpServletRequest request) {
+    String contents = request.getParameter("chl");
+    if (contents == null || contents.isEmpty()) {
+      throw new IllegalArgumentException("No chl");
+    }
+    if (contents.length() > MAX_CONTENTS_LENGTH) {
+      throw new IllegalArgumentException("chl too long: " + contents.length());
+    }
+
+    String sizeParameter = request.getParameter("chs");
+    if (sizeParameter == null) {
+      throw new IllegalArgumentException("No chs");
+    }
+    Matcher size = SIZE.matcher(sizeParameter);
+    if (!size.matches()) {
+      throw new IllegalArgumentException("Bad chs: " + sizeParameter);
+    }
+    int width = Integer.parseInt(size.group(1));
+    int height = Integer.parseInt(size.group(2));
+    if (width < 1 || height < 1 || width > MAX_DIMENSION || height > MAX_DIMENSION ||
+        width * height > MAX_PIXELS) {
+      throw new IllegalArgumentException("Bad chs: " + sizeParameter);
+    }
+
+    String type = request.getParameter("cht");
+    BarcodeFormat format;
+    if (type == null || "qr".equals(type)) {
+      format = BarcodeFormat.QR_CODE;
+    } else {
+      format = BarcodeFormat.valueOf(type.toUpperCase(Locale.ENGLISH));
+    }
+
+    String ecLevel = null;
+    int margin = -1;
+    String ecAndMarginParameter = request.getParameter("chld");
+    if (ecAndMarginParameter != null) {
+      Matcher ecAndMargin = EC_AND_MARGIN.matcher(ecAndMarginParameter);
+      if (!ecAndMargin.matches()) {
+        throw new IllegalArgumentException("Bad chld: " + ecAndMarginParameter);
+      }
+      if (!ecAndMargin.group(1).isEmpty()) {
+        ecLevel = ecAndMargin.group(1).toUpperCase(Locale.ENGLISH);
+      }
+      if (ecAndMargin.group(2) != null) {
+        margin = Integer.parseInt(ecAndMargin.group(2));
+      }
+    }
+    // Only some formats have a choice of level; leave it out otherwise, so that it does not
+    // split the cache
+    switch (format) {
+      case QR_CODE:
+        if (ecLevel != null) {
+          ErrorCorrectionLevel.valueOf(ecLevel);
+        }
+        break;
+      case AZTEC:
+        if (ecLevel != null) {
+          int percent = Integer.parseInt(ecLevel);
+          if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Bad EC percentage: " + percent);
+          }
+          ecLevel = Integer.toString(percent);
+        }
+        break;
+      default:
+        ecLevel = null;
+    }
+    // Nor should asking for the margin a format gets anyway
+    if (margin == getDefaultMargin(format)) {
+      margin = -1;
+    }
+
+    String charset = request.getParameter("choe");
+    if (charset == null) {
+      charset = "UTF-8";
+    } else {
+      // Throws IllegalArgumentException if it is not known
+      charset = Charset.forName(charset).name();
+    }
+
+    return new ChartImageCache.Key(contents, format, width, height, ecLevel, margin, charset);
+  }
+
+  /**
+   * @return margin the barcode is rendered with when none is asked for
+   */
+  private static int getDefaultMargin(BarcodeFormat format) {
+    switch (format) {
+      case QR_CODE:
+        return QR_CODE_DEFAULT_MARGIN;
+      case DATA_MATRIX:
+      case AZTEC:
+        return DEFAULT_MODULE_MARGIN;
+      case PDF_417:
+        return PDF_417_DEFAULT_MARGIN;
+      case EAN_8:
+      case EAN_13:
+      case UPC_A:
+        return UPC_EAN_DEFAULT_MARGIN;
+      default:
+        return ONE_D_DEFAULT_MARGIN;
+    }
+  }
+
+  /**
+   * @return PNG image of the barcode
+   */
+  private static byte[] render(ChartImageCache.Key key) throws WriterException, IOException {
+    Map<EncodeHintType,Object> hints = new EnumMap<>(EncodeHintType.class);
+    hints.put(EncodeHintType.CHARACTER_SET, key.getCharset());
+    BitMatrix matrix;
+    switch (key.getFormat()) {
+      case DATA_MATRIX:
+      case AZTEC:
+        // These writers add no margin, and Data Matrix does not scale either
+        if (key.getECLevel() != null) {
+          hints.put(EncodeHintType.ERROR_CORRECTION, Integer.valueOf(key.getECLevel()));
+        }
+        matrix = new MultiFormatWriter().encode(key.getContents(), key.getFormat(), 0, 0, hints);
+        int margin = key.getMargin() < 0 ? DEFAULT_MODULE_MARGIN : key.getMargin();
+        matrix = layOut(matrix, margin, key.getWidth(), key.getHeight());
+        break;
+      default:
+        if (key.getECLevel() != null) {
+          hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.valueOf(key.getECLevel()));
+        }
+        if (key.getMargin() >= 0) {
+          hints.put(EncodeHintType.MARGIN, key.getMargin());
+        }
+        matrix = new MultiFormatWriter().encode(
+            key.getContents(), key.getFormat(), key.getWidth(), key.getHeight(), hints);
+        if (matrix.getWidth() < key.getWidth() || matrix.getHeight() < key.getHeight()) {
+          // PDF417 comes out only as large as whole pixels per module allow
+          matrix = layOut(matrix, 0, key.getWidth(), key.getHeight());
+        }
+    }
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    MatrixToImageWriter.writeToStream(matrix, "PNG", png);
+    return png.toByteArray();
+  }
+
+  /**
+   * Scales a barcode up by as much as fits in the requested size, with a margin of so many of its
+   * pixels, and centers it.
+   */
+  private static BitMatrix layOut(BitMatrix code, int margin, int width, int height) {
+    int codeWidth = code.getWidth();
+    int codeHeight = code.getHeight();
+    int multiple = Math.max(1, Math.min(width / (codeWidth + 2 * margin), height / (codeHeight + 2 * margin)));
+    int outputWidth = Math.max(width, (codeWidth + 2 * margin) * multiple);
+    int outputHeight = Math.max(height, (codeHeight + 2 * margin) * multiple);
+    int leftPadding = (outputWidth - codeWidth * multiple) / 2;
+    int topPadding = (outputHeight - codeHeight * multiple) / 2;
+
+    BitMatrix output = new BitMatrix(outputWidth, outputHeight);
+    for (int codeY = 0, outputY = topPadding; codeY < codeHeight; codeY++, outputY += multiple) {
+      for (int codeX = 0, outputX = leftPadding; codeX < codeWidth; codeX++, outputX += multiple) {
+        if (code.get(codeX, codeY)) {
+          output.setRegion(outputX, outputY, multiple, multiple);
+        }
+      }
+    }
+    return output;
+  }
+
+  /**
+   * @return true if an {@code If-None-Match} header names the entity tag, or any entity
+   */
+  private static boolean matchesETag(String ifNoneMatch, String eTag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      tag = tag.trim();
+      // If-None-Match compares weakly
+      if (tag.startsWith("W/")) {
+        tag = tag.substring(2);
+      }
+      if ("*".equals(tag) || eTag.equals(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
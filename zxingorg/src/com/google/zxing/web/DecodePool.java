@@ -0,0 +1,352 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.CascadingDecoder;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.MultipleBarcodeReader;
+
+import java.awt.color.CMMException;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>The threads on which the web app decodes images, one per processor, shared by its servlets,
+ * along with what came of decoding recent images and how images are read and decoded.</p>
+ *
+ * <p>Only so many images may wait for a thread. Callers should turn a request away rather than
+ * queue more, once {@link #isOverloaded()} or when {@link #execute(Runnable)} rejects it.</p>
+ */
+final class DecodePool {
+
+  private static final Logger log = Logger.getLogger(DecodePool.class.getName());
+
+  private static final String ATTRIBUTE = DecodePool.class.getName();
+
+  // No real reason to let people upload more than a 2MB image
+  static final long MAX_IMAGE_SIZE = 2000000L;
+  // No real reason to deal with more than maybe 8.3 megapixels
+  private static final int MAX_PIXELS = 1 << 23;
+  private static final Map<DecodeHintType,Object> HINTS;
+  private static final Map<DecodeHintType,Object> HINTS_PURE;
+
+  // Images waiting to be decoded, per decoding thread, before requests are turned away
+  private static final int QUEUE_SIZE_PER_THREAD = 4;
+  private static final int RETRY_AFTER_SECONDS = 5;
+  // Images whose results are remembered, and for how long; failures are retried sooner
+  private static final int RESULT_CACHE_SIZE = 1000;
+  private static final long RESULT_TTL_MS = 60L * 60L * 1000L;
+  private static final long FAILURE_TTL_MS = 60L * 1000L;
+  private static final int CACHE_STATS_LOG_INTERVAL = 100;
+
+  static {
+    HINTS = new EnumMap<>(DecodeHintType.class);
+    HINTS.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    HINTS.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.allOf(BarcodeFormat.class));
+    // Give up early on the many blank and blurry images people send
+    HINTS.put(DecodeHintType.TRIAGE, Boolean.TRUE);
+    HINTS_PURE = new EnumMap<>(HINTS);
+    HINTS_PURE.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+  }
+
+  // Binarizers tried in turn on photos, as created by createCascadeBinarizers
+  private static final String[] CASCADE_BINARIZER_NAMES = {
+      GlobalHistogramBinarizer.class.getSimpleName(), HybridBinarizer.class.getSimpleName(),
+  };
+
+  private final ThreadPoolExecutor executor;
+  private final DecodeResultCache resultCache;
+  // How often each binarizer of the cascade was the one to decode a photo, over all images
+  private final AtomicIntegerArray cascadeSuccessCounts;
+  private final AtomicInteger cascadeFailureCount;
+
+  DecodePool() {
+    int threads = Runtime.getRuntime().availableProcessors();
+    executor = new ThreadPoolExecutor(
+        threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(QUEUE_SIZE_PER_THREAD * threads),
+        new NamedThreadFactory("decode"));
+    resultCache = new DecodeResultCache(HINTS, RESULT_CACHE_SIZE, RESULT_TTL_MS, FAILURE_TTL_MS);
+    cascadeSuccessCounts = new AtomicIntegerArray(CASCADE_BINARIZER_NAMES.length);
+    cascadeFailureCount = new AtomicInteger();
+    log.info("Decoding on " + threads + " threads");
+  }
+
+  /**
+   * @return the pool of the web app
+   * @throws IllegalStateException if there is none, because {@link DecodePoolListener} is not
+   *  configured
+   */
+  static DecodePool get(ServletContext context) {
+    DecodePool pool = (DecodePool) context.getAttribute(ATTRIBUTE);
+    if (pool == null) {
+      throw new IllegalStateException("No " + ATTRIBUTE + "; is " + DecodePoolListener.class.getName() +
+                                      " configured?");
+    }
+    return pool;
+  }
+
+  void register(ServletContext context) {
+    context.setAttribute(ATTRIBUTE, this);
+  }
+
+  void unregister(ServletContext context) {
+    context.removeAttribute(ATTRIBUTE);
+    log.info("Result cache: " + resultCache);
+    log.info("Binarizer cascade: " + getCascadeStats());
+    executor.shutdownNow();
+  }
+
+  int getThreadCount() {
+    return executor.getMaximumPoolSize();
+  }
+
+  /**
+   * @return true if so many images are waiting to be decoded that another should not be accepted
+   */
+  boolean isOverloaded() {
+    return executor.getQueue().remainingCapacity() == 0;
+  }
+
+  /**
+   * Turns a request away because too many images are waiting to be decoded.
+   */
+  static void sendUnavailable(HttpServletResponse response) throws IOException {
+    log.info("Too busy, turning request away");
+    response.setIntHeader("Retry-After", RETRY_AFTER_SECONDS);
+    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+  }
+
+  /**
+   * @throws RejectedExecutionException if too many images are waiting already
+   */
+  void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  DecodeResultCache getResultCache() {
+    return resultCache;
+  }
+
+  /**
+   * @return what came of decoding the image before, or null if that is not known
+   */
+  DecodeResultCache.Outcome getCachedOutcome(DecodeResultCache.Key key) {
+    DecodeResultCache.Outcome outcome = resultCache.get(key);
+    long lookups = resultCache.getHitCount() + resultCache.getFailureHitCount() + resultCache.getMissCount();
+    if (lookups % CACHE_STATS_LOG_INTERVAL == 0) {
+      log.info("Result cache: " + resultCache);
+      log.info("Binarizer cascade: " + getCascadeStats());
+    }
+    return outcome;
+  }
+
+  /**
+   * Reads a stream into memory, never holding more than {@link #MAX_IMAGE_SIZE} bytes of it.
+   *
+   * @param expectedLength length the stream declares, or 0 or less if it is not known. The stream
+   *  may turn out shorter or longer than this.
+   * @return all of the stream, or null if it is, or declares it is, longer than {@link #MAX_IMAGE_SIZE}
+   */
+  static byte[] readImageBytes(InputStream is, int expectedLength) throws IOException {
+    if (expectedLength > MAX_IMAGE_SIZE) {
+      return null;
+    }
+    // One byte past the limit shows whether the stream goes on past it
+    int capacity = (int) MAX_IMAGE_SIZE + 1;
+    byte[] buffer = new byte[expectedLength > 0 ? Math.min(expectedLength, capacity - 1) + 1 : 1 << 16];
+    int length = 0;
+    while (true) {
+      if (length == buffer.length) {
+        if (length == capacity) {
+          return null;
+        }
+        buffer = Arrays.copyOf(buffer, Math.min(length << 1, capacity));
+      }
+      int read = is.read(buffer, length, buffer.length - length);
+      if (read < 0) {
+        break;
+      }
+      length += read;
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  /**
+   * @return image in the stream, or null if it could not be read or is unreasonably large, in
+   *  which case the reason has been logged
+   */
+  static BufferedImage readImage(InputStream is) {
+    BufferedImage image;
+    try {
+      image = ImageIO.read(is);
+    } catch (IOException | CMMException | IllegalArgumentException ioe) {
+      log.info(ioe.toString());
+      // Have seen these in some logs
+      return null;
+    }
+    if (image == null) {
+      return null;
+    }
+    if (image.getHeight() <= 1 || image.getWidth() <= 1 ||
+        image.getHeight() * image.getWidth() > MAX_PIXELS) {
+      log.info("Dimensions too large: " + image.getWidth() + 'x' + image.getHeight());
+      return null;
+    }
+    return image;
+  }
+
+  /**
+   * @return barcodes found in the image, of which there is at least one
+   * @throws ReaderException if none was found, from the last attempt
+   */
+  Collection<Result> decodeImage(BufferedImage image) throws ReaderException {
+
+    Reader reader = new MultiFormatReader();
+    LuminanceSource source = new BufferedImageLuminanceSource(image);
+    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(source));
+    Collection<Result> results = new ArrayList<>(1);
+    ReaderException savedException = null;
+
+    try {
+      // Look for multiple barcodes
+      MultipleBarcodeReader multiReader = new GenericMultipleBarcodeReader(reader);
+      Result[] theResults = multiReader.decodeMultiple(bitmap, HINTS);
+      if (theResults != null) {
+        results.addAll(Arrays.asList(theResults));
+      }
+    } catch (ReaderException re) {
+      savedException = re;
+    }
+
+    if (results.isEmpty()) {
+      try {
+        // Look for pure barcode
+        Result theResult = reader.decode(bitmap, HINTS_PURE);
+        if (theResult != null) {
+          results.add(theResult);
+        }
+      } catch (ReaderException re) {
+        savedException = re;
+      }
+    }
+
+    if (results.isEmpty()) {
+      try {
+        // Look for normal barcode in photo, then try again with other binarizer
+        results.add(decodeCascade(source));
+      } catch (ReaderException re) {
+        savedException = re;
+      }
+    }
+
+    if (results.isEmpty()) {
+      throw savedException;
+    }
+    return results;
+  }
+
+  /**
+   * Decodes the image with each binarizer in turn, and counts which one succeeded, so that the
+   * order can be tuned from what is seen in production.
+   */
+  private Result decodeCascade(LuminanceSource source) throws NotFoundException {
+    CascadingDecoder cascade = new CascadingDecoder(createCascadeBinarizers(source), HINTS);
+    try {
+      Result result = cascade.decode(source);
+      log.fine("Decoded with " + cascade.getLastSuccessfulBinarizer().getClass().getSimpleName());
+      return result;
+    } finally {
+      int[] successCounts = cascade.getSuccessCounts();
+      for (int i = 0; i < successCounts.length; i++) {
+        cascadeSuccessCounts.addAndGet(i, successCounts[i]);
+      }
+      cascadeFailureCount.addAndGet(cascade.getFailureCount());
+    }
+  }
+
+  private static List<Binarizer> createCascadeBinarizers(LuminanceSource source) {
+    return Arrays.<Binarizer>asList(new GlobalHistogramBinarizer(source), new HybridBinarizer(source));
+  }
+
+  /**
+   * @return for each binarizer of the cascade, the number of photos decoded with it, and the number
+   *  which could not be decoded with any, since the pool was created
+   */
+  String getCascadeStats() {
+    StringBuilder stats = new StringBuilder();
+    for (int i = 0; i < CASCADE_BINARIZER_NAMES.length; i++) {
+      stats.append(CASCADE_BINARIZER_NAMES[i]).append('=').append(cascadeSuccessCounts.get(i)).append(' ');
+    }
+    return stats.append("failed=").append(cascadeFailureCount.get()).toString();
+  }
+
+  /**
+   * @return page explaining why no barcode was found
+   */
+  static String getFailurePage(ReaderException re) {
+    if (re instanceof NotFoundException) {
+      log.info("Not found: " + re);
+      return "notfound.jspx";
+    }
+    if (re instanceof FormatException) {
+      log.info("Format problem: " + re);
+      return "format.jspx";
+    }
+    if (re instanceof ChecksumException) {
+      log.info("Checksum problem: " + re);
+      return "format.jspx";
+    }
+    log.info("Unknown problem: " + re);
+    return "notfound.jspx";
+  }
+
+}
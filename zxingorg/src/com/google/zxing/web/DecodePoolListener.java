@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Creates the {@link DecodePool} which the servlets share when the web app starts, and shuts it
+ * down when the web app stops.
+ */
+public final class DecodePoolListener implements ServletContextListener {
+
+  private DecodePool pool;
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    pool = new DecodePool();
+    pool.register(event.getServletContext());
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    pool.unregister(event.getServletContext());
+  }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Remembers what came of decoding an image, keyed by a digest of its bytes and of the hints
+ * it was decoded with, so that an image sent again need not be decoded again. Images which could
+ * not be decoded are remembered too, for a shorter time.</p>
+ *
+ * <p>The least recently used entry is dropped once the cache is full, as is any entry which has
+ * expired. The digest is SHA-256, so that nobody can craft an image which would be taken for
+ * another and be given its results.</p>
+ */
+final class DecodeResultCache {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final byte[] hintsBytes;
+  private final int maxSize;
+  private final long resultTTLNanos;
+  private final long failureTTLNanos;
+  private final Map<Key,Outcome> entries;
+  private final AtomicLong hitCount;
+  private final AtomicLong failureHitCount;
+  private final AtomicLong missCount;
+
+  /**
+   * @param hints hints which the images are decoded with
+   * @param maxSize most images to remember
+   * @param resultTTLMillis how long to remember the results of an image which was decoded
+   * @param failureTTLMillis how long to remember that an image could not be decoded
+   */
+  DecodeResultCache(Map<DecodeHintType,?> hints, final int maxSize, long resultTTLMillis, long failureTTLMillis) {
+    hintsBytes = String.valueOf(hints).getBytes(UTF8);
+    this.maxSize = maxSize;
+    resultTTLNanos = TimeUnit.MILLISECONDS.toNanos(resultTTLMillis);
+    failureTTLNanos = TimeUnit.MILLISECONDS.toNanos(failureTTLMillis);
+    entries = new LinkedHashMap<Key,Outcome>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key,Outcome> eldest) {
+        return size() > maxSize;
+      }
+    };
+    hitCount = new AtomicLong();
+    failureHitCount = new AtomicLong();
+    missCount = new AtomicLong();
+  }
+
+  /**
+   * @param imageBytes bytes of the image
+   * @return key of the image in this cache
+   */
+  Key getKey(byte[] imageBytes) {
+    return getKey("bytes:", imageBytes);
+  }
+
+  /**
+   * @param dataURI data URI holding the image
+   * @return key of the image in this cache
+   */
+  Key getKey(URI dataURI) {
+    return getKey("uri:", dataURI.toString().getBytes(UTF8));
+  }
+
+  /**
+   * @param source what the content is, so that no URI is taken for an image whose bytes are
+   *  the same as its text, or the other way around
+   */
+  private Key getKey(String source, byte[] content) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException nsae) {
+      // Every Java platform has SHA-256
+      throw new IllegalStateException(nsae);
+    }
+    digest.update(hintsBytes);
+    digest.update(source.getBytes(UTF8));
+    return new Key(digest.digest(content));
+  }
+
+  /**
+   * @return what came of decoding the image, or null if it is not known
+   */
+  Outcome get(Key key) {
+    Outcome outcome;
+    synchronized (entries) {
+      outcome = entries.get(key);
+      if (outcome != null && System.nanoTime() - outcome.expiryTime > 0) {
+        entries.remove(key);
+        outcome = null;
+      }
+    }
+    if (outcome == null) {
+      missCount.incrementAndGet();
+    } else if (outcome.getResults() == null) {
+      failureHitCount.incrementAndGet();
+    } else {
+      hitCount.incrementAndGet();
+    }
+    return outcome;
+  }
+
+  /**
+   * @param results barcodes found in the image
+   */
+  void putResults(Key key, Collection<Result> results) {
+    put(key, new Outcome(results, null, System.nanoTime() + resultTTLNanos));
+  }
+
+  /**
+   * @param failurePage page explaining why the image could not be decoded
+   */
+  void putFailure(Key key, String failurePage) {
+    put(key, new Outcome(null, failurePage, System.nanoTime() + failureTTLNanos));
+  }
+
+  private void put(Key key, Outcome outcome) {
+    synchronized (entries) {
+      entries.put(key, outcome);
+    }
+  }
+
+  /**
+   * @return number of lookups which found the results of decoding the image
+   */
+  long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return number of lookups which found that the image could not be decoded
+   */
+  long getFailureHitCount() {
+    return failureHitCount.get();
+  }
+
+  /**
+   * @return number of lookups which found nothing
+   */
+  long getMissCount() {
+    return missCount.get();
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + size() + '/' + maxSize + " hits=" + hitCount + " failureHits=" + failureHitCount +
+        " misses=" + missCount;
+  }
+
+  /**
+   * Digest of an image and the hints.
+   */
+  static final class Key {
+
+    private final byte[] digest;
+    private final int hashCode;
+
+    Key(byte[] digest) {
+      this.digest = digest;
+      hashCode = Arrays.hashCode(digest);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(digest, ((Key) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+  /**
+   * What came of decoding an image: either the barcodes found in it, or the page explaining why
+   * none could be.
+   */
+  static final class Outcome {
+
+    private final Collection<Result> results;
+    private final String failurePage;
+    private final long expiryTime;
+
+    Outcome(Collection<Result> results, String failurePage, long expiryTime) {
+      this.results = results;
+      this.failurePage = failurePage;
+      this.expiryTime = expiryTime;
+    }
+
+    /**
+     * @return barcodes found in the image, or null if it could not be decoded
+     */
+    Collection<Result> getResults() {
+      return results;
+    }
+
+    /**
+     * @return page explaining why the image could not be decoded, or null if it was
+     */
+    String getFailurePage() {
+      return failurePage;
+    }
+
+  }
+
+}
@@ -16,35 +16,18 @@
 
 package com.google.zxing.web;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.BinaryBitmap;
-import com.google.zxing.ChecksumException;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.FormatException;
-import com.google.zxing.LuminanceSource;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.NotFoundException;
-import com.google.zxing.Reader;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.client.j2se.ImageReader;
-import com.google.zxing.common.GlobalHistogramBinarizer;
-import com.google.zxing.common.HybridBinarizer;
 
-import com.google.zxing.multi.GenericMultipleBarcodeReader;
-import com.google.zxing.multi.MultipleBarcodeReader;
-import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
-import org.apache.commons.fileupload.servlet.FileCleanerCleanup;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
-import org.apache.commons.io.FileCleaningTracker;
 
-import java.awt.color.CMMException;
 import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -55,28 +38,43 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.EnumMap;
-import java.util.EnumSet;
-import java.util.Map;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
-import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * {@link HttpServlet} which decodes images containing barcodes. Given a URL, it will
- * retrieve the image and decode it. It can also process image files uploaded via POST.
+ * <p>{@link HttpServlet} which decodes images containing barcodes. Given a URL, it will
+ * retrieve the image and decode it. It can also process image files uploaded via POST.</p>
+ *
+ * <p>Requests are processed asynchronously, so that container threads are not held while
+ * waiting on slow image hosts or heavy decodes. Images are fetched on a pool of I/O threads,
+ * then decoded on the web app's {@link DecodePool}. Once enough images are waiting to be
+ * decoded, further images are turned away with a 503 and a Retry-After header.</p>
+ *
+ * <p>What came of decoding each image is remembered for a while, so the same image sent again is
+ * answered without decoding it, or even waiting for the decode pool. It is looked up as soon as
+ * the image is read, so an uploaded image or data URI is answered even while other images are
+ * being turned away. An image at a URL is turned away before it is fetched.</p>
  *
  * @author Sean Owen
  */
@@ -86,35 +84,24 @@ public final class DecodeServlet extends HttpServlet {
 
   private static final Charset UTF8 = Charset.forName("UTF-8");
 
-  // No real reason to let people upload more than a 2MB image
-  private static final long MAX_IMAGE_SIZE = 2000000L;
-  // No real reason to deal with more than maybe 8.3 megapixels
-  private static final int MAX_PIXELS = 1 << 23;
   private static final byte[] REMAINDER_BUFFER = new byte[8192];
-  private static final Map<DecodeHintType,Object> HINTS;
-  private static final Map<DecodeHintType,Object> HINTS_PURE;
-
-  static {
-    HINTS = new EnumMap<>(DecodeHintType.class);
-    HINTS.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-    HINTS.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.allOf(BarcodeFormat.class));
-    HINTS_PURE = new EnumMap<>(HINTS);
-    HINTS_PURE.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
-  }
 
-  private DiskFileItemFactory diskFileItemFactory;
+  // Fetching is mostly waiting on the network, so many can go on at once
+  private static final int FETCH_THREADS = 16;
+  private static final int FETCH_QUEUE_SIZE = 64;
+  // Enough for the connect and read timeouts of a fetch, and a slow decode
+  private static final long ASYNC_TIMEOUT_MS = 30000L;
+
   private Collection<String> blockedURLSubstrings;
+  private ExecutorService fetchExecutor;
+  private DecodePool decodePool;
 
   @Override
   public void init(ServletConfig servletConfig) throws ServletException {
     Logger logger = Logger.getLogger("com.google.zxing");
     ServletContext context = servletConfig.getServletContext();
     logger.addHandler(new ServletContextLogHandler(context));
-    File repository = (File) context.getAttribute("javax.servlet.context.tempdir");
-    FileCleaningTracker fileCleaningTracker = FileCleanerCleanup.getFileCleaningTracker(context);
-    diskFileItemFactory = new DiskFileItemFactory(1 << 16, repository);
-    diskFileItemFactory.setFileCleaningTracker(fileCleaningTracker);
-    
+
     blockedURLSubstrings = new ArrayList<>();
     try (BufferedReader reader = new BufferedReader(new InputStreamReader(
              DecodeServlet.class.getResourceAsStream("/private/uri-block-substrings.txt"), UTF8))) {
@@ -126,6 +113,18 @@ public final class DecodeServlet extends HttpServlet {
       throw new ServletException(ioe);
     }
     log.info("Blocking URIs containing: " + blockedURLSubstrings);
+
+    ThreadPoolExecutor fetchThreads = new ThreadPoolExecutor(
+        FETCH_THREADS, FETCH_THREADS, 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(FETCH_QUEUE_SIZE), new NamedThreadFactory("fetch"));
+    fetchThreads.allowCoreThreadTimeOut(true);
+    fetchExecutor = fetchThreads;
+    decodePool = DecodePool.get(context);
+  }
+
+  @Override
+  public void destroy() {
+    fetchExecutor.shutdownNow();
   }
 
   @Override
@@ -142,7 +141,7 @@ public final class DecodeServlet extends HttpServlet {
     imageURIString = imageURIString.trim();
     for (String substring : blockedURLSubstrings) {
       if (imageURIString.contains(substring)) {
-        log.info("Disallowed URI " + imageURIString);        
+        log.info("Disallowed URI " + imageURIString);
         response.sendRedirect("badurl.jspx");
         return;
       }
@@ -160,20 +159,14 @@ public final class DecodeServlet extends HttpServlet {
       response.sendRedirect("badurl.jspx");
       return;
     }
-    
+
     // Shortcut for data URI
     if ("data".equals(imageURI.getScheme())) {
-      try {
-        BufferedImage image = ImageReader.readDataURIImage(imageURI);
-        processImage(image, request, response);
-      } catch (IOException ioe) {
-        log.info(ioe.toString());
-        response.sendRedirect("badurl.jspx");
-      }
+      new DecodeJob(request, response, "data URI").decode(imageURI);
       return;
     }
-    
-    URL imageURL;    
+
+    URL imageURL;
     try {
       imageURL = imageURI.toURL();
     } catch (MalformedURLException ignored) {
@@ -182,13 +175,35 @@ public final class DecodeServlet extends HttpServlet {
       return;
     }
 
+    // Nothing is known of the image until it is fetched, so it can't be answered from the cache
+    // either; don't fetch it only to turn it away
+    if (decodePool.isOverloaded()) {
+      DecodePool.sendUnavailable(response);
+      return;
+    }
+
+    new DecodeJob(request, response, imageURL.toString()).fetch(imageURL);
+  }
+
+  /**
+   * @return image at the URL, or null if it could not be fetched, in which case the reason has
+   *  been logged and the page to redirect to set in the job
+   */
+  private static byte[] fetchImage(URL imageURL, DecodeJob job) {
+
     HttpURLConnection connection;
     try {
-      connection = (HttpURLConnection) imageURL.openConnection();
-    } catch (IllegalArgumentException ignored) {
+      URLConnection urlConnection = imageURL.openConnection();
+      if (!(urlConnection instanceof HttpURLConnection)) {
+        log.info("URI was not HTTP: " + imageURL);
+        job.redirect("badurl.jspx");
+        return null;
+      }
+      connection = (HttpURLConnection) urlConnection;
+    } catch (IllegalArgumentException | IOException e) {
       log.info("URI could not be opened: " + imageURL);
-      response.sendRedirect("badurl.jspx");
-      return;
+      job.redirect("badurl.jspx");
+      return null;
     }
 
     connection.setAllowUserInteraction(false);
@@ -208,8 +223,8 @@ public final class DecodeServlet extends HttpServlet {
         //  org.apache.http.NoHttpResponseException,
         //  org.apache.http.client.ClientProtocolException,
         log.info(ioe.toString());
-        response.sendRedirect("badurl.jspx");
-        return;
+        job.redirect("badurl.jspx");
+        return null;
       }
 
       InputStream is = null;
@@ -219,25 +234,35 @@ public final class DecodeServlet extends HttpServlet {
 
         if (connection.getResponseCode() != HttpServletResponse.SC_OK) {
           log.info("Unsuccessful return code: " + connection.getResponseCode());
-          response.sendRedirect("badurl.jspx");
-          return;
+          job.redirect("badurl.jspx");
+          return null;
         }
-        if (connection.getHeaderFieldInt("Content-Length", 0) > MAX_IMAGE_SIZE) {
+        int contentLength = connection.getHeaderFieldInt("Content-Length", 0);
+        if (contentLength > DecodePool.MAX_IMAGE_SIZE) {
           log.info("Too large");
-          response.sendRedirect("badimage.jspx");
-          return;
+          job.redirect("badimage.jspx");
+          return null;
         }
 
-        log.info("Decoding " + imageURL);
-        processStream(is, request, response);
+        byte[] imageBytes = DecodePool.readImageBytes(is, contentLength);
+        if (imageBytes == null) {
+          log.info("Too large");
+          job.redirect("badimage.jspx");
+        }
+        return imageBytes;
 
       } catch (IOException ioe) {
         log.info(ioe.toString());
-        response.sendRedirect("badurl.jspx");
+        job.redirect("badurl.jspx");
+        return null;
       } finally {
         if (is != null) {
           consumeRemainder(is);
-          is.close();
+          try {
+            is.close();
+          } catch (IOException ioe) {
+            // continue
+          }
         }
       }
 
@@ -269,21 +294,25 @@ public final class DecodeServlet extends HttpServlet {
       return;
     }
 
-    ServletFileUpload upload = new ServletFileUpload(diskFileItemFactory);
-    upload.setFileSizeMax(MAX_IMAGE_SIZE);
-
-    // Parse the request
+    // Stream the parts rather than have them written to disk, and keep only the image
+    ServletFileUpload upload = new ServletFileUpload();
     try {
-      for (FileItem item : upload.parseRequest(request)) {
+      FileItemIterator items = upload.getItemIterator(request);
+      while (items.hasNext()) {
+        FileItemStream item = items.next();
         if (!item.isFormField()) {
-          if (item.getSize() <= MAX_IMAGE_SIZE) {
-            log.info("Decoding uploaded file");
-            try (InputStream is = item.getInputStream()) {
-              processStream(is, request, response);
-            }
-          } else {
+          byte[] imageBytes;
+          try (InputStream is = item.openStream()) {
+            // The whole request is a little longer than the image, so is no reason to turn it away
+            int expectedLength = (int) Math.min(request.getContentLength(), DecodePool.MAX_IMAGE_SIZE);
+            imageBytes = DecodePool.readImageBytes(is, expectedLength);
+          }
+          if (imageBytes == null) {
             log.info("Too large");
             response.sendRedirect("badimage.jspx");
+          } else {
+            log.info("Decoding uploaded file");
+            new DecodeJob(request, response, "uploaded file").decode(imageBytes);
           }
           break;
         }
@@ -295,135 +324,283 @@ public final class DecodeServlet extends HttpServlet {
 
   }
 
-  private static void processStream(InputStream is,
-                                    ServletRequest request,
-                                    HttpServletResponse response) throws ServletException, IOException {
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
 
-    BufferedImage image;
-    try {
-      image = ImageIO.read(is);
-    } catch (IOException | CMMException | IllegalArgumentException ioe) {
-      log.info(ioe.toString());
-      // Have seen these in some logs
-      response.sendRedirect("badimage.jspx");
-      return;
+  /**
+   * <p>One request, from when it is put into asynchronous mode until the response is complete.
+   * The image is fetched, if need be, on the fetch pool, then read and decoded on the decode pool,
+   * and the time each stage takes is logged.</p>
+   *
+   * <p>The response is sent only once, by whichever of the stages or a timeout gets to it first.</p>
+   */
+  private final class DecodeJob implements AsyncListener {
+
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final AsyncContext asyncContext;
+    private final String description;
+    private final String resultPath;
+    private final AtomicBoolean finished;
+    private final long startTime;
+    private volatile long fetchTime;
+
+    DecodeJob(HttpServletRequest request, HttpServletResponse response, String description) {
+      this.request = request;
+      this.response = response;
+      this.description = description;
+      // Dispatch paths are from the root of the context, not relative to this servlet
+      String servletPath = request.getServletPath();
+      resultPath = servletPath.substring(0, servletPath.lastIndexOf('/') + 1) + "decoderesult.jspx";
+      finished = new AtomicBoolean();
+      startTime = System.nanoTime();
+      asyncContext = request.startAsync(request, response);
+      asyncContext.setTimeout(ASYNC_TIMEOUT_MS);
+      asyncContext.addListener(this);
     }
-    if (image == null) {
-      response.sendRedirect("badimage.jspx");
-      return;
+
+    void fetch(final URL imageURL) {
+      submitFetch(new Runnable() {
+        @Override
+        public void run() {
+          if (finished.get()) {
+            return;
+          }
+          long fetchStart = System.nanoTime();
+          byte[] imageBytes;
+          try {
+            imageBytes = fetchImage(imageURL, DecodeJob.this);
+          } catch (RuntimeException re) {
+            log.log(Level.WARNING, "Unexpected exception fetching " + imageURL, re);
+            sendError();
+            return;
+          }
+          fetchTime = System.nanoTime() - fetchStart;
+          if (imageBytes == null) {
+            log.info("Could not fetch " + imageURL + " after " + toMillis(fetchTime) + "ms");
+          } else {
+            log.info("Decoding " + imageURL);
+            decode(imageBytes);
+          }
+        }
+      });
     }
-    if (image.getHeight() <= 1 || image.getWidth() <= 1 ||
-        image.getHeight() * image.getWidth() > MAX_PIXELS) {
-      log.info("Dimensions too large: " + image.getWidth() + 'x' + image.getHeight());
-      response.sendRedirect("badimage.jspx");
-      return;
+
+    void decode(final byte[] imageBytes) {
+      DecodeResultCache.Key key = decodePool.getResultCache().getKey(imageBytes);
+      if (sendCached(key)) {
+        return;
+      }
+      submitDecode(new DecodeTask(key) {
+        @Override
+        BufferedImage readImage() {
+          return DecodePool.readImage(new ByteArrayInputStream(imageBytes));
+        }
+      });
     }
-    
-    processImage(image, request, response);
-  }
-  
-  private static void processImage(BufferedImage image,
-                                   ServletRequest request,
-                                   HttpServletResponse response) throws IOException, ServletException {
 
-    Reader reader = new MultiFormatReader();
-    LuminanceSource source = new BufferedImageLuminanceSource(image);
-    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(source));
-    Collection<Result> results = new ArrayList<>(1);
-    ReaderException savedException = null;
+    void decode(final URI dataURI) {
+      DecodeResultCache.Key key = decodePool.getResultCache().getKey(dataURI);
+      if (sendCached(key)) {
+        return;
+      }
+      submitDecode(new DecodeTask(key) {
+        @Override
+        BufferedImage readImage() {
+          try {
+            return ImageReader.readDataURIImage(dataURI);
+          } catch (IOException ioe) {
+            log.info(ioe.toString());
+            return null;
+          }
+        }
+      });
+    }
 
-    try {
+    /**
+     * Sends what came of decoding the image before, if that is known.
+     *
+     * @return true if it was, and so the response has been sent
+     */
+    private boolean sendCached(DecodeResultCache.Key key) {
+      DecodeResultCache.Outcome outcome = decodePool.getCachedOutcome(key);
+      if (outcome == null) {
+        return false;
+      }
+      if (outcome.getResults() == null) {
+        redirect(outcome.getFailurePage());
+      } else {
+        sendResults(outcome.getResults());
+      }
+      log.info("Processed " + description + " in " + toMillis(System.nanoTime() - startTime) + "ms: fetch " +
+               toMillis(fetchTime) + "ms, cached");
+      return true;
+    }
 
+    private void submitFetch(Runnable task) {
       try {
-        // Look for multiple barcodes
-        MultipleBarcodeReader multiReader = new GenericMultipleBarcodeReader(reader);
-        Result[] theResults = multiReader.decodeMultiple(bitmap, HINTS);
-        if (theResults != null) {
-          results.addAll(Arrays.asList(theResults));
-        }
-      } catch (ReaderException re) {
-        savedException = re;
+        fetchExecutor.execute(task);
+      } catch (RejectedExecutionException ree) {
+        unavailable();
       }
-  
-      if (results.isEmpty()) {
+    }
+
+    private void submitDecode(Runnable task) {
+      try {
+        decodePool.execute(task);
+      } catch (RejectedExecutionException ree) {
+        unavailable();
+      }
+    }
+
+    private boolean finish() {
+      return finished.compareAndSet(false, true);
+    }
+
+    void redirect(String page) {
+      if (finish()) {
         try {
-          // Look for pure barcode
-          Result theResult = reader.decode(bitmap, HINTS_PURE);
-          if (theResult != null) {
-            results.add(theResult);
-          }
-        } catch (ReaderException re) {
-          savedException = re;
+          response.sendRedirect(page);
+        } catch (IOException ioe) {
+          log.info(ioe.toString());
+        } finally {
+          asyncContext.complete();
         }
       }
-  
-      if (results.isEmpty()) {
+    }
+
+    void unavailable() {
+      if (finish()) {
         try {
-          // Look for normal barcode in photo
-          Result theResult = reader.decode(bitmap, HINTS);
-          if (theResult != null) {
-            results.add(theResult);
+          DecodePool.sendUnavailable(response);
+        } catch (IOException ioe) {
+          log.info(ioe.toString());
+        } finally {
+          asyncContext.complete();
+        }
+      }
+    }
+
+    private void sendResults(Collection<Result> results) {
+      if (!finish()) {
+        return;
+      }
+      String fullParameter = request.getParameter("full");
+      boolean minimalOutput = fullParameter != null && !Boolean.parseBoolean(fullParameter);
+      if (minimalOutput) {
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF8");
+        try (Writer out = new OutputStreamWriter(response.getOutputStream(), UTF8)) {
+          for (Result result : results) {
+            out.write(result.getText());
+            out.write('\n');
           }
-        } catch (ReaderException re) {
-          savedException = re;
+        } catch (IOException ioe) {
+          log.info(ioe.toString());
+        } finally {
+          asyncContext.complete();
         }
+      } else {
+        request.setAttribute("results", results);
+        asyncContext.dispatch(resultPath);
       }
-  
-      if (results.isEmpty()) {
+    }
+
+    private void sendError() {
+      if (finish()) {
         try {
-          // Try again with other binarizer
-          BinaryBitmap hybridBitmap = new BinaryBitmap(new HybridBinarizer(source));
-          Result theResult = reader.decode(hybridBitmap, HINTS);
-          if (theResult != null) {
-            results.add(theResult);
-          }
-        } catch (ReaderException re) {
-          savedException = re;
+          response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } catch (IOException ioe) {
+          log.info(ioe.toString());
+        } finally {
+          asyncContext.complete();
         }
       }
-  
-      if (results.isEmpty()) {
-        handleException(savedException, response);
-        return;
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      log.info("Timed out after " + toMillis(System.nanoTime() - startTime) + "ms: " + description);
+      unavailable();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      log.info("Failed: " + description + ": " + event.getThrowable());
+      if (finish()) {
+        asyncContext.complete();
       }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      // do nothing
+    }
 
-    } catch (RuntimeException re) {
-      // Call out unexpected errors in the log clearly
-      log.log(Level.WARNING, "Unexpected exception from library", re);
-      throw new ServletException(re);
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // do nothing
     }
 
-    String fullParameter = request.getParameter("full");
-    boolean minimalOutput = fullParameter != null && !Boolean.parseBoolean(fullParameter);
-    if (minimalOutput) {
-      response.setContentType("text/plain");
-      response.setCharacterEncoding("UTF8");
-      try (Writer out = new OutputStreamWriter(response.getOutputStream(), UTF8)) {
-        for (Result result : results) {
-          out.write(result.getText());
-          out.write('\n');
+    /**
+     * Reads and decodes the image, and sends the response.
+     */
+    private abstract class DecodeTask implements Runnable {
+
+      private final DecodeResultCache.Key key;
+      private final long submitTime;
+
+      DecodeTask(DecodeResultCache.Key key) {
+        this.key = key;
+        submitTime = System.nanoTime();
+      }
+
+      /**
+       * @return the image, or null if it could not be read, in which case the reason has been logged
+       */
+      abstract BufferedImage readImage();
+
+      @Override
+      public void run() {
+        long decodeStart = System.nanoTime();
+        // It may have timed out while waiting
+        if (finished.get()) {
+          return;
+        }
+        try {
+          BufferedImage image = readImage();
+          if (image == null) {
+            decodePool.getResultCache().putFailure(key, "badimage.jspx");
+            redirect("badimage.jspx");
+            return;
+          }
+          Collection<Result> results;
+          try {
+            results = decodePool.decodeImage(image);
+          } catch (ReaderException re) {
+            String failurePage = DecodePool.getFailurePage(re);
+            decodePool.getResultCache().putFailure(key, failurePage);
+            redirect(failurePage);
+            return;
+          }
+          decodePool.getResultCache().putResults(key, Collections.unmodifiableCollection(results));
+          sendResults(results);
+        } catch (RuntimeException re) {
+          // Call out unexpected errors in the log clearly
+          log.log(Level.WARNING, "Unexpected exception from library", re);
+        } finally {
+          // Unless a response was sent above, something went wrong
+          sendError();
+          long end = System.nanoTime();
+          log.info("Processed " + description + " in " + toMillis(end - startTime) + "ms: fetch " +
+                   toMillis(fetchTime) + "ms, queued " + toMillis(decodeStart - submitTime) + "ms, decode " +
+                   toMillis(end - decodeStart) + "ms");
         }
       }
-    } else {
-      request.setAttribute("results", results);
-      request.getRequestDispatcher("decoderesult.jspx").forward(request, response);
-    }
-  }
 
-  private static void handleException(ReaderException re, HttpServletResponse response) throws IOException {
-    if (re instanceof NotFoundException) {
-      log.info("Not found: " + re);
-      response.sendRedirect("notfound.jspx");
-    } else if (re instanceof FormatException) {
-      log.info("Format problem: " + re);
-      response.sendRedirect("format.jspx");
-    } else if (re instanceof ChecksumException) {
-      log.info("Checksum problem: " + re);
-      response.sendRedirect("format.jspx");
-    } else {
-      log.info("Unknown problem: " + re);
-      response.sendRedirect("notfound.jspx");
     }
+
   }
 
 }
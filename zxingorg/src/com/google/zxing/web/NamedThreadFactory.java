@@ -0,0 +1,42 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names the threads of a pool, and makes them daemons so that they do not keep the container up.
+ */
+final class NamedThreadFactory implements ThreadFactory {
+
+  private final String name;
+  private final AtomicInteger count;
+
+  NamedThreadFactory(String name) {
+    this.name = name;
+    count = new AtomicInteger();
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "zxingorg-" + name + '-' + count.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+}
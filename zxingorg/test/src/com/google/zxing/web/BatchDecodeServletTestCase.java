@@ -0,0 +1,388 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tests {@link BatchDecodeServlet}.
+ */
+public final class BatchDecodeServletTestCase extends Assert {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String BOUNDARY = "batchboundary";
+  private static final String MULTIPART_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+  private static final String ZIP_TYPE = "application/zip";
+  private static final int MAX_BATCH_IMAGES = 100;
+  private static final int MAX_BATCH_SIZE = 20000000;
+  private static final long WAIT_SECONDS = 20L;
+
+  private ServletContext context;
+  private DecodePoolListener poolListener;
+  private BatchDecodeServlet servlet;
+  private CountDownLatch unblock;
+
+  @Before
+  public void setUp() throws Exception {
+    context = ServletExchange.createContext();
+    poolListener = new DecodePoolListener();
+    poolListener.contextInitialized(new ServletContextEvent(context));
+    servlet = new BatchDecodeServlet();
+    servlet.init(ServletExchange.createConfig(context));
+    unblock = new CountDownLatch(1);
+  }
+
+  @After
+  public void tearDown() {
+    unblock.countDown();
+    servlet.destroy();
+    poolListener.contextDestroyed(new ServletContextEvent(context));
+  }
+
+  @Test
+  public void testMultipart() throws Exception {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    appendPart(body, "a.png", encodeQRCode("first"));
+    appendField(body, "note", "not an image either");
+    appendPart(body, "b.txt", "not an image".getBytes(UTF8));
+    String json = post(MULTIPART_TYPE, endMultipart(body));
+    assertEquals(2, countElements(json));
+    assertContains(json, "{\"index\":0,\"name\":\"a.png\",\"results\":[{\"text\":\"first\",\"format\":\"QR_CODE\"");
+    assertContains(json, "{\"index\":1,\"name\":\"b.txt\",\"error\":\"badimage\"");
+  }
+
+  @Test
+  public void testZip() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    zip.addDirectory("images/");
+    zip.add("images/a.png", encodeQRCode("first"));
+    zip.add("b.png", encodeQRCode("second"));
+    String json = post(ZIP_TYPE, zip.finish());
+    assertEquals(2, countElements(json));
+    assertContains(json, "{\"index\":0,\"name\":\"images/a.png\",\"results\":[{\"text\":\"first\"");
+    assertContains(json, "{\"index\":1,\"name\":\"b.png\",\"results\":[{\"text\":\"second\"");
+  }
+
+  @Test
+  public void testNeitherMultipartNorZip() throws Exception {
+    ServletExchange exchange = new ServletExchange().setContent("image/png", encodeQRCode("first"));
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    assertEquals(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, exchange.getStatus());
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    zip.addDirectory("images/");
+    ServletExchange exchange = new ServletExchange().setContent(ZIP_TYPE, zip.finish());
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, exchange.getStatus());
+  }
+
+  @Test
+  public void testTooManyImages() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    ByteArrayOutputStream multipart = new ByteArrayOutputStream();
+    for (int i = 0; i < MAX_BATCH_IMAGES; i++) {
+      zip.add(i + ".txt", new byte[] {(byte) i});
+      appendPart(multipart, i + ".txt", new byte[] {(byte) i});
+    }
+    byte[] zipBody = zip.finish();
+    assertEquals(MAX_BATCH_IMAGES, countElements(post(ZIP_TYPE, zipBody)));
+
+    zip = new ZipBuilder();
+    for (int i = 0; i <= MAX_BATCH_IMAGES; i++) {
+      zip.add(i + ".txt", new byte[] {(byte) i});
+    }
+    assertTooLarge(new ServletExchange().setContent(ZIP_TYPE, zip.finish()));
+
+    appendPart(multipart, "last.txt", new byte[1]);
+    assertTooLarge(new ServletExchange().setContent(MULTIPART_TYPE, endMultipart(multipart)));
+  }
+
+  @Test
+  public void testBatchTooLarge() throws Exception {
+    // Each image is allowed, but not all of them together
+    byte[] image = new byte[(int) DecodePool.MAX_IMAGE_SIZE];
+    ZipBuilder zip = new ZipBuilder();
+    for (int i = 0; i <= MAX_BATCH_SIZE / image.length; i++) {
+      zip.add(i + ".png", image);
+    }
+    assertTooLarge(new ServletExchange().setContent(ZIP_TYPE, zip.finish()));
+  }
+
+  @Test
+  public void testDeclaredTooLarge() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("a.png", encodeQRCode("first"));
+    byte[] body = zip.finish();
+    InputStream input = new ByteArrayInputStream(body);
+    ServletExchange exchange = new ServletExchange().setContent(ZIP_TYPE, input).setContentLength(MAX_BATCH_SIZE + 1);
+    assertTooLarge(exchange);
+    // Turned away without reading any of it
+    assertEquals(body.length, input.available());
+  }
+
+  @Test
+  public void testZipBomb() throws Exception {
+    // Deflates to a small fraction of the batch limit, but inflates to several times it
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("bomb.png", new byte[5 * MAX_BATCH_SIZE]);
+    byte[] body = zip.finish();
+    assertTrue(body.length < MAX_BATCH_SIZE / 50);
+    InputStream input = new ByteArrayInputStream(body);
+    assertTooLarge(new ServletExchange().setContent(ZIP_TYPE, input));
+    // Inflating stopped once it passed the limit
+    assertTrue(input.available() > body.length / 2);
+  }
+
+  @Test
+  public void testImageTooLarge() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("huge.png", new byte[(int) DecodePool.MAX_IMAGE_SIZE + 1]);
+    zip.add("a.png", encodeQRCode("first"));
+    String json = post(ZIP_TYPE, zip.finish());
+    assertEquals(2, countElements(json));
+    assertContains(json, "{\"index\":0,\"name\":\"huge.png\",\"error\":\"toolarge\"");
+    assertContains(json, "{\"index\":1,\"name\":\"a.png\",\"results\":[{\"text\":\"first\"");
+  }
+
+  @Test
+  public void testEscaping() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("a\"b\\c\nd\re\tf\u0001g\u2028h\u2029i\u00e9.png", encodeQRCode("say \"hi\"\nbye\\"));
+    String json = post(ZIP_TYPE, zip.finish());
+    assertContains(json, "\"name\":\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\\u2028h\\u2029i\u00e9.png\"");
+    assertContains(json, "\"text\":\"say \\\"hi\\\"\\nbye\\\\\"");
+  }
+
+  @Test
+  public void testOverloaded() throws Exception {
+    fillDecodePool();
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("a.png", encodeQRCode("first"));
+    ServletExchange exchange = new ServletExchange().setContent(ZIP_TYPE, zip.finish());
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    assertFalse(exchange.isAsyncStarted());
+    assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, exchange.getStatus());
+    assertNotNull(exchange.getResponseHeader("Retry-After"));
+  }
+
+  @Test
+  public void testBusy() throws Exception {
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("a.png", encodeQRCode("first"));
+    zip.add("b.png", encodeQRCode("second"));
+    final byte[] body = zip.finish();
+    // The pool fills up after the batch was let in, while it is being read
+    InputStream input = new ByteArrayInputStream(body) {
+      private boolean filled;
+      @Override
+      public synchronized int read(byte[] b, int off, int len) {
+        int read = super.read(b, off, len);
+        if (available() == 0 && !filled) {
+          filled = true;
+          try {
+            fillDecodePool();
+          } catch (InterruptedException ie) {
+            throw new IllegalStateException(ie);
+          }
+        }
+        return read;
+      }
+    };
+    ServletExchange exchange = new ServletExchange().setContent(ZIP_TYPE, input);
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    String json = awaitJSON(exchange);
+    assertEquals(2, countElements(json));
+    assertContains(json, "{\"index\":0,\"name\":\"a.png\",\"error\":\"busy\"");
+    assertContains(json, "{\"index\":1,\"name\":\"b.png\",\"error\":\"busy\"");
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    blockDecodeThreads();
+    ZipBuilder zip = new ZipBuilder();
+    zip.add("a.png", encodeQRCode("first"));
+    zip.add("b.png", encodeQRCode("second"));
+    ServletExchange exchange = new ServletExchange().setContent(ZIP_TYPE, zip.finish());
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    assertTrue(exchange.isAsyncStarted());
+    assertEquals(5L * 60L * 1000L, exchange.getAsyncTimeout());
+
+    exchange.timeOut();
+    assertEquals("[]\n", awaitJSON(exchange));
+
+    // The images decoded after all must not be written past the end of the array
+    unblock.countDown();
+    Thread.sleep(500L);
+    assertEquals("[]\n", exchange.getBodyText());
+    assertEquals(1, exchange.getCompletions());
+  }
+
+  /**
+   * Holds every decode thread until the test ends.
+   */
+  private void blockDecodeThreads() throws InterruptedException {
+    DecodePool decodePool = DecodePool.get(context);
+    CountDownLatch started = new CountDownLatch(decodePool.getThreadCount());
+    for (int i = 0; i < decodePool.getThreadCount(); i++) {
+      decodePool.execute(new Blocker(started));
+    }
+    assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Holds every decode thread, and fills the queue behind them, until the test ends.
+   */
+  private void fillDecodePool() throws InterruptedException {
+    blockDecodeThreads();
+    DecodePool decodePool = DecodePool.get(context);
+    while (!decodePool.isOverloaded()) {
+      decodePool.execute(new Blocker(new CountDownLatch(1)));
+    }
+  }
+
+  private String post(String contentType, byte[] body) throws Exception {
+    ServletExchange exchange = new ServletExchange().setContent(contentType, body);
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    assertEquals(HttpServletResponse.SC_OK, exchange.getStatus());
+    return awaitJSON(exchange);
+  }
+
+  private void assertTooLarge(ServletExchange exchange) throws Exception {
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    assertFalse(exchange.isAsyncStarted());
+    assertEquals(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, exchange.getStatus());
+  }
+
+  private static String awaitJSON(ServletExchange exchange) throws InterruptedException {
+    assertTrue(exchange.awaitCompletion(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, exchange.getCompletions());
+    assertEquals("application/json", exchange.getResponseHeader("Content-Type"));
+    String json = exchange.getBodyText();
+    assertTrue(json, json.startsWith("[") && json.endsWith("]\n"));
+    return json;
+  }
+
+  private static int countElements(String json) {
+    int count = 0;
+    for (int i = json.indexOf("{\"index\":"); i >= 0; i = json.indexOf("{\"index\":", i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  private static void assertContains(String json, String expected) {
+    assertTrue(json, json.contains(expected));
+  }
+
+  private static byte[] encodeQRCode(String contents) throws WriterException, IOException {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    MatrixToImageWriter.writeToStream(new QRCodeWriter().encode(contents, BarcodeFormat.QR_CODE, 200, 200), "png", png);
+    return png.toByteArray();
+  }
+
+  private static void appendPart(ByteArrayOutputStream body, String fileName, byte[] content) throws IOException {
+    body.write(("--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"image\"; filename=\"" + fileName + "\"\r\n" +
+                "Content-Type: application/octet-stream\r\n\r\n").getBytes(UTF8));
+    body.write(content);
+    body.write("\r\n".getBytes(UTF8));
+  }
+
+  private static void appendField(ByteArrayOutputStream body, String name, String value) throws IOException {
+    body.write(("--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" +
+                value + "\r\n").getBytes(UTF8));
+  }
+
+  private static byte[] endMultipart(ByteArrayOutputStream body) throws IOException {
+    body.write(("--" + BOUNDARY + "--\r\n").getBytes(UTF8));
+    return body.toByteArray();
+  }
+
+  private final class Blocker implements Runnable {
+
+    private final CountDownLatch started;
+
+    Blocker(CountDownLatch started) {
+      this.started = started;
+    }
+
+    @Override
+    public void run() {
+      started.countDown();
+      try {
+        unblock.await(WAIT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+  }
+
+  private static final class ZipBuilder {
+
+    private final ByteArrayOutputStream bytes;
+    private final ZipOutputStream zip;
+
+    ZipBuilder() {
+      bytes = new ByteArrayOutputStream();
+      zip = new ZipOutputStream(bytes, UTF8);
+    }
+
+    void add(String name, byte[] content) throws IOException {
+      zip.putNextEntry(new ZipEntry(name));
+      zip.write(content);
+      zip.closeEntry();
+    }
+
+    void addDirectory(String name) throws IOException {
+      zip.putNextEntry(new ZipEntry(name));
+      zip.closeEntry();
+    }
+
+    byte[] finish() throws IOException {
+      zip.close();
+      return bytes.toByteArray();
+    }
+
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link ChartImageCache}.
+ */
+public final class ChartImageCacheTestCase extends Assert {
+
+  // Each entry takes 10 bytes of image and 2 of its one character of contents
+  private static final int ENTRY_SIZE = 12;
+
+  @Test
+  public void testGet() {
+    ChartImageCache cache = new ChartImageCache(10 * ENTRY_SIZE);
+    ChartImageCache.Image image = createImage(1);
+    cache.put(createKey("a"), image);
+    assertSame(image, cache.get(createKey("a")));
+    assertNull(cache.get(createKey("b")));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    ChartImageCache cache = new ChartImageCache(3 * ENTRY_SIZE);
+    cache.put(createKey("a"), createImage(1));
+    cache.put(createKey("b"), createImage(2));
+    cache.put(createKey("c"), createImage(3));
+    assertNotNull(cache.get(createKey("a")));
+
+    cache.put(createKey("d"), createImage(4));
+    assertNull(cache.get(createKey("b")));
+    assertNotNull(cache.get(createKey("a")));
+    assertNotNull(cache.get(createKey("c")));
+    assertNotNull(cache.get(createKey("d")));
+    assertTrue(cache.toString(), cache.toString().contains("size=3 bytes=" + 3 * ENTRY_SIZE + '/'));
+  }
+
+  @Test
+  public void testEvictsUntilItFits() {
+    ChartImageCache cache = new ChartImageCache(3 * ENTRY_SIZE);
+    cache.put(createKey("a"), createImage(1));
+    cache.put(createKey("b"), createImage(2));
+    cache.put(createKey("c"), createImage(3));
+
+    // As large as two of the others
+    cache.put(createKey("d"), new ChartImageCache.Image(new byte[2 * ENTRY_SIZE - 2]));
+    assertNull(cache.get(createKey("a")));
+    assertNull(cache.get(createKey("b")));
+    assertNotNull(cache.get(createKey("c")));
+    assertNotNull(cache.get(createKey("d")));
+    assertTrue(cache.toString(), cache.toString().contains("size=2 bytes=" + 3 * ENTRY_SIZE + '/'));
+  }
+
+  @Test
+  public void testReplace() {
+    ChartImageCache cache = new ChartImageCache(3 * ENTRY_SIZE);
+    cache.put(createKey("a"), createImage(1));
+    ChartImageCache.Image image = createImage(2);
+    cache.put(createKey("a"), image);
+    assertSame(image, cache.get(createKey("a")));
+    // Counted once
+    assertTrue(cache.toString(), cache.toString().contains("size=1 bytes=" + ENTRY_SIZE + '/'));
+  }
+
+  @Test
+  public void testTooLarge() {
+    ChartImageCache cache = new ChartImageCache(3 * ENTRY_SIZE);
+    cache.put(createKey("a"), createImage(1));
+    cache.put(createKey("b"), new ChartImageCache.Image(new byte[3 * ENTRY_SIZE]));
+    assertNull(cache.get(createKey("b")));
+    // Nothing was evicted for it
+    assertNotNull(cache.get(createKey("a")));
+  }
+
+  private static ChartImageCache.Key createKey(String contents) {
+    return new ChartImageCache.Key(contents, BarcodeFormat.QR_CODE, 100, 100, null, -1, "UTF-8");
+  }
+
+  private static ChartImageCache.Image createImage(int value) {
+    byte[] png = new byte[ENTRY_SIZE - 2];
+    png[0] = (byte) value;
+    return new ChartImageCache.Image(png);
+  }
+
+}
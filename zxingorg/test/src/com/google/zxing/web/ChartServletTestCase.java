@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tests {@link ChartServlet}.
+ */
+public final class ChartServletTestCase extends Assert {
+
+  private ChartServlet servlet;
+
+  @Before
+  public void setUp() throws Exception {
+    servlet = new ChartServlet();
+    servlet.init(ServletExchange.createConfig(ServletExchange.createContext()));
+  }
+
+  @After
+  public void tearDown() {
+    servlet.destroy();
+  }
+
+  @Test
+  public void testRender() throws Exception {
+    ServletExchange exchange = get("hello", "200x200", null);
+    assertEquals(HttpServletResponse.SC_OK, exchange.getStatus());
+    assertEquals("image/png", exchange.getResponseHeader("Content-Type"));
+    byte[] png = exchange.getBody();
+    assertEquals((byte) 0x89, png[0]);
+    assertEquals('P', png[1]);
+    assertEquals(new ChartImageCache.Image(png).getETag(), exchange.getResponseHeader("ETag"));
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    String eTag = (String) get("hello", "200x200", null).getResponseHeader("ETag");
+    assertNotNull(eTag);
+
+    for (String ifNoneMatch : new String[] {eTag, "W/" + eTag, "\"other\", " + eTag, "*"}) {
+      ServletExchange exchange = new ServletExchange().setHeader("If-None-Match", ifNoneMatch);
+      get(exchange, "hello", "200x200", null);
+      assertEquals(ifNoneMatch, HttpServletResponse.SC_NOT_MODIFIED, exchange.getStatus());
+      assertEquals(eTag, exchange.getResponseHeader("ETag"));
+      assertEquals(0, exchange.getBody().length);
+    }
+
+    ServletExchange changed = new ServletExchange().setHeader("If-None-Match", "\"other\"");
+    get(changed, "hello", "200x200", null);
+    assertEquals(HttpServletResponse.SC_OK, changed.getStatus());
+    assertTrue(changed.getBody().length > 0);
+
+    // Another image has another tag
+    ServletExchange other = new ServletExchange().setHeader("If-None-Match", eTag);
+    get(other, "hello", "300x300", null);
+    assertEquals(HttpServletResponse.SC_OK, other.getStatus());
+    assertFalse(eTag.equals(other.getResponseHeader("ETag")));
+  }
+
+  @Test
+  public void testBadParameters() throws Exception {
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, get(null, "200x200", null).getStatus());
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, get("hello", "200by200", null).getStatus());
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, get("hello", "4000x4000", null).getStatus());
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, get("hello", "200x200", "X|2").getStatus());
+  }
+
+  @Test
+  public void testKeyLeavesOutDefaults() {
+    // Levels the format has no choice of
+    assertEquals(parseKey("DATA_MATRIX", null), parseKey("DATA_MATRIX", "H"));
+    assertEquals(parseKey("CODE_128", null), parseKey("CODE_128", "H"));
+    // Margins the format gets anyway
+    assertEquals(parseKey(null, null), parseKey(null, "|4"));
+    assertEquals(parseKey(null, "M"), parseKey(null, "M|4"));
+    assertEquals(parseKey("DATA_MATRIX", null), parseKey("DATA_MATRIX", "|1"));
+    assertEquals(parseKey("AZTEC", "33"), parseKey("AZTEC", "33|1"));
+    assertEquals(parseKey("PDF_417", null), parseKey("PDF_417", "|30"));
+    assertEquals(parseKey("EAN_13", null), parseKey("EAN_13", "|3"));
+    assertEquals(parseKey("CODE_128", null), parseKey("CODE_128", "|10"));
+
+    assertFalse(parseKey(null, null).equals(parseKey(null, "H")));
+    assertFalse(parseKey(null, null).equals(parseKey(null, "|2")));
+    assertFalse(parseKey("DATA_MATRIX", null).equals(parseKey("DATA_MATRIX", "|4")));
+    assertFalse(parseKey("EAN_13", null).equals(parseKey("EAN_13", "|10")));
+  }
+
+  private static ChartImageCache.Key parseKey(String type, String ecAndMargin) {
+    ServletExchange exchange = new ServletExchange()
+        .setParameter("chl", "5901234123457")
+        .setParameter("chs", "200x200");
+    if (type != null) {
+      exchange.setParameter("cht", type);
+    }
+    if (ecAndMargin != null) {
+      exchange.setParameter("chld", ecAndMargin);
+    }
+    return ChartServlet.parseKey(exchange.getRequest());
+  }
+
+  private ServletExchange get(String contents, String size, String ecAndMargin) throws Exception {
+    ServletExchange exchange = new ServletExchange();
+    get(exchange, contents, size, ecAndMargin);
+    return exchange;
+  }
+
+  private void get(ServletExchange exchange, String contents, String size, String ecAndMargin) throws Exception {
+    if (contents != null) {
+      exchange.setParameter("chl", contents);
+    }
+    exchange.setParameter("chs", size);
+    if (ecAndMargin != null) {
+      exchange.setParameter("chld", ecAndMargin);
+    }
+    servlet.doGet(exchange.getRequest(), exchange.getResponse());
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Tests {@link DecodePool#readImageBytes(InputStream, int)}.
+ */
+public final class DecodePoolTestCase extends Assert {
+
+  private static final int MAX_IMAGE_SIZE = (int) DecodePool.MAX_IMAGE_SIZE;
+
+  @Test
+  public void testUnknownLength() throws IOException {
+    byte[] content = createContent(100000);
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), 0));
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), -1));
+    assertArrayEquals(new byte[0], DecodePool.readImageBytes(new TrickleInputStream(new byte[0]), -1));
+  }
+
+  @Test
+  public void testExpectedLength() throws IOException {
+    byte[] content = createContent(100000);
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), content.length));
+  }
+
+  @Test
+  public void testUnderDeclaredLength() throws IOException {
+    byte[] content = createContent(100000);
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), 10));
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), content.length - 1));
+  }
+
+  @Test
+  public void testOverDeclaredLength() throws IOException {
+    byte[] content = createContent(100000);
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), content.length + 1));
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), MAX_IMAGE_SIZE));
+  }
+
+  @Test
+  public void testDeclaredTooLarge() throws IOException {
+    byte[] content = createContent(10);
+    for (int expectedLength : new int[] {MAX_IMAGE_SIZE + 1, Integer.MAX_VALUE}) {
+      InputStream is = new ByteArrayInputStream(content);
+      assertNull(DecodePool.readImageBytes(is, expectedLength));
+      // Turned away without reading any of it
+      assertEquals(content.length, is.available());
+    }
+  }
+
+  @Test
+  public void testTooLarge() throws IOException {
+    byte[] content = createContent(MAX_IMAGE_SIZE);
+    assertArrayEquals(content, DecodePool.readImageBytes(new TrickleInputStream(content), 0));
+    byte[] tooLarge = createContent(MAX_IMAGE_SIZE + 1);
+    assertNull(DecodePool.readImageBytes(new TrickleInputStream(tooLarge), 0));
+    assertNull(DecodePool.readImageBytes(new TrickleInputStream(tooLarge), 10));
+    assertNull(DecodePool.readImageBytes(new TrickleInputStream(tooLarge), MAX_IMAGE_SIZE));
+  }
+
+  private static byte[] createContent(int length) {
+    byte[] content = new byte[length];
+    for (int i = 0; i < length; i++) {
+      content[i] = (byte) (i * 31);
+    }
+    return content;
+  }
+
+  /**
+   * Returns no more than a few thousand bytes from each read, as a network stream would.
+   */
+  private static final class TrickleInputStream extends ByteArrayInputStream {
+
+    TrickleInputStream(byte[] content) {
+      super(content);
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) {
+      return super.read(b, off, Math.min(len, 4093));
+    }
+
+  }
+
+}
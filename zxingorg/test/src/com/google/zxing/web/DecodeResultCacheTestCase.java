@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tests {@link DecodeResultCache}.
+ */
+public final class DecodeResultCacheTestCase extends Assert {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final long LONG_TTL_MS = 60000L;
+
+  @Test
+  public void testGet() {
+    DecodeResultCache cache = createCache(10, LONG_TTL_MS, LONG_TTL_MS);
+    Collection<Result> results = createResults("a");
+    cache.putResults(key(cache, "a"), results);
+    cache.putFailure(key(cache, "b"), "notfound.jspx");
+
+    assertSame(results, cache.get(key(cache, "a")).getResults());
+    DecodeResultCache.Outcome failure = cache.get(key(cache, "b"));
+    assertNull(failure.getResults());
+    assertEquals("notfound.jspx", failure.getFailurePage());
+    assertNull(cache.get(key(cache, "c")));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getFailureHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testKeys() {
+    DecodeResultCache cache = createCache(10, LONG_TTL_MS, LONG_TTL_MS);
+    assertEquals(key(cache, "a"), key(cache, "a"));
+    assertFalse(key(cache, "a").equals(key(cache, "b")));
+
+    // An image whose bytes happen to be the text of a data URI is another image
+    URI dataURI = URI.create("data:image/png;base64,AAAA");
+    assertEquals(cache.getKey(dataURI), cache.getKey(URI.create(dataURI.toString())));
+    assertFalse(cache.getKey(dataURI).equals(key(cache, dataURI.toString())));
+
+    // As is the same image decoded with other hints
+    Map<DecodeHintType,Object> hints = new EnumMap<>(DecodeHintType.class);
+    hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+    DecodeResultCache other = new DecodeResultCache(hints, 10, LONG_TTL_MS, LONG_TTL_MS);
+    assertFalse(key(cache, "a").equals(key(other, "a")));
+  }
+
+  @Test
+  public void testResultsExpire() throws InterruptedException {
+    DecodeResultCache cache = createCache(10, 200L, LONG_TTL_MS);
+    cache.putResults(key(cache, "a"), createResults("a"));
+    assertNotNull(cache.get(key(cache, "a")));
+    Thread.sleep(400L);
+    assertNull(cache.get(key(cache, "a")));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testFailuresExpireSooner() throws InterruptedException {
+    DecodeResultCache cache = createCache(10, LONG_TTL_MS, 200L);
+    cache.putResults(key(cache, "a"), createResults("a"));
+    cache.putFailure(key(cache, "b"), "notfound.jspx");
+    assertNotNull(cache.get(key(cache, "b")));
+    Thread.sleep(400L);
+    assertNull(cache.get(key(cache, "b")));
+    assertNotNull(cache.get(key(cache, "a")));
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    DecodeResultCache cache = createCache(3, LONG_TTL_MS, LONG_TTL_MS);
+    cache.putResults(key(cache, "a"), createResults("a"));
+    cache.putResults(key(cache, "b"), createResults("b"));
+    cache.putFailure(key(cache, "c"), "notfound.jspx");
+    assertNotNull(cache.get(key(cache, "a")));
+
+    cache.putResults(key(cache, "d"), createResults("d"));
+    assertEquals(3, cache.size());
+    assertNull(cache.get(key(cache, "b")));
+    assertNotNull(cache.get(key(cache, "a")));
+    assertNotNull(cache.get(key(cache, "c")));
+    assertNotNull(cache.get(key(cache, "d")));
+  }
+
+  private static DecodeResultCache createCache(int maxSize, long resultTTLMillis, long failureTTLMillis) {
+    return new DecodeResultCache(null, maxSize, resultTTLMillis, failureTTLMillis);
+  }
+
+  private static DecodeResultCache.Key key(DecodeResultCache cache, String image) {
+    return cache.getKey(image.getBytes(UTF8));
+  }
+
+  private static Collection<Result> createResults(String text) {
+    return Collections.singletonList(new Result(text, null, null, BarcodeFormat.QR_CODE));
+  }
+
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tests {@link DecodeServlet} fetching images from an HTTP server started for the test.
+ */
+public final class DecodeServletTestCase extends Assert {
+
+  private static final String TEXT = "http://zxing.org/w/decode";
+  private static final String OTHER_TEXT = "http://zxing.org/w/chart";
+  // FETCH_THREADS fetching, and FETCH_QUEUE_SIZE waiting to
+  private static final int FETCH_CAPACITY = 16 + 64;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final long WAIT_SECONDS = 20L;
+  private static final String BOUNDARY = "uploadboundary";
+  private static final String MULTIPART_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+  private byte[] image;
+  private byte[] otherImage;
+  private HttpServer origin;
+  private ExecutorService originExecutor;
+  private String originURL;
+  private CountDownLatch release;
+  private CountDownLatch hangStarted;
+  private CountDownLatch hangServed;
+  private ServletContext context;
+  private DecodePoolListener poolListener;
+  private DecodeServlet servlet;
+
+  @Before
+  public void setUp() throws Exception {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    MatrixToImageWriter.writeToStream(new QRCodeWriter().encode(TEXT, BarcodeFormat.QR_CODE, 200, 200), "png", png);
+    image = png.toByteArray();
+    png.reset();
+    MatrixToImageWriter.writeToStream(new QRCodeWriter().encode(OTHER_TEXT, BarcodeFormat.QR_CODE, 200, 200), "png", png);
+    otherImage = png.toByteArray();
+    release = new CountDownLatch(1);
+    hangStarted = new CountDownLatch(1);
+    hangServed = new CountDownLatch(1);
+
+    origin = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+    originExecutor = Executors.newCachedThreadPool();
+    origin.setExecutor(originExecutor);
+    originURL = "http://127.0.0.1:" + origin.getAddress().getPort();
+    origin.createContext("/qr.png", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        send(exchange, HttpServletResponse.SC_OK, image);
+      }
+    });
+    origin.createContext("/moved", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Location", originURL + "/qr.png");
+        send(exchange, HttpServletResponse.SC_FOUND, new byte[0]);
+      }
+    });
+    origin.createContext("/missing.png", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        send(exchange, HttpServletResponse.SC_NOT_FOUND, new byte[0]);
+      }
+    });
+    origin.createContext("/huge.png", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        send(exchange, HttpServletResponse.SC_OK, new byte[(int) DecodePool.MAX_IMAGE_SIZE + 1]);
+      }
+    });
+    origin.createContext("/chunked-huge", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        // No Content-Length, so the size is only known once too much has been read
+        send(exchange, HttpServletResponse.SC_OK, new byte[(int) DecodePool.MAX_IMAGE_SIZE + 1], 0);
+      }
+    });
+    origin.createContext("/hang", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        hangStarted.countDown();
+        try {
+          release.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+        send(exchange, HttpServletResponse.SC_OK, image);
+        hangServed.countDown();
+      }
+    });
+    origin.start();
+
+    context = ServletExchange.createContext();
+    poolListener = new DecodePoolListener();
+    poolListener.contextInitialized(new ServletContextEvent(context));
+    servlet = new DecodeServlet();
+    servlet.init(ServletExchange.createConfig(context));
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    servlet.destroy();
+    poolListener.contextDestroyed(new ServletContextEvent(context));
+    origin.stop(0);
+    originExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testDecode() throws Exception {
+    ServletExchange exchange = get("/qr.png");
+    assertCompleted(exchange);
+    assertEquals("/w/decoderesult.jspx", exchange.getDispatch());
+    Collection<?> results = (Collection<?>) exchange.getAttribute("results");
+    assertEquals(1, results.size());
+    assertEquals(TEXT, ((Result) results.iterator().next()).getText());
+  }
+
+  @Test
+  public void testMinimalOutput() throws Exception {
+    ServletExchange exchange =
+        new ServletExchange().setParameter("u", originURL + "/qr.png").setParameter("full", "false");
+    servlet.doGet(exchange.getRequest(), exchange.getResponse());
+    assertCompleted(exchange);
+    assertNull(exchange.getDispatch());
+    assertEquals(TEXT + '\n', exchange.getBodyText());
+  }
+
+  @Test
+  public void testRedirectFollowed() throws Exception {
+    ServletExchange exchange = get("/moved");
+    assertCompleted(exchange);
+    Collection<?> results = (Collection<?>) exchange.getAttribute("results");
+    assertEquals(TEXT, ((Result) results.iterator().next()).getText());
+  }
+
+  @Test
+  public void testNotFound() throws Exception {
+    ServletExchange exchange = get("/missing.png");
+    assertCompleted(exchange);
+    assertEquals("badurl.jspx", exchange.getRedirect());
+  }
+
+  @Test
+  public void testNotHTTP() throws Exception {
+    ServletExchange exchange = getURL("ftp://127.0.0.1/qr.png");
+    assertCompleted(exchange);
+    assertEquals("badurl.jspx", exchange.getRedirect());
+  }
+
+  @Test
+  public void testBlocked() throws Exception {
+    ServletExchange exchange = getURL("http://blocked.example/qr.png");
+    assertFalse(exchange.isAsyncStarted());
+    assertEquals("badurl.jspx", exchange.getRedirect());
+  }
+
+  @Test
+  public void testTooLarge() throws Exception {
+    ServletExchange exchange = get("/huge.png");
+    assertCompleted(exchange);
+    assertEquals("badimage.jspx", exchange.getRedirect());
+  }
+
+  @Test
+  public void testTooLargeChunked() throws Exception {
+    ServletExchange exchange = get("/chunked-huge");
+    assertCompleted(exchange);
+    assertEquals("badimage.jspx", exchange.getRedirect());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    ServletExchange exchange = get("/hang");
+    assertTrue(exchange.isAsyncStarted());
+    assertEquals(30000L, exchange.getAsyncTimeout());
+    // Time out while the image is being fetched
+    assertTrue(hangStarted.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    exchange.timeOut();
+    assertCompleted(exchange);
+    assertUnavailable(exchange);
+
+    // The image arriving after all must not be sent as well
+    release.countDown();
+    assertTrue(hangServed.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    // Give the late fetch time to read the image and reach the decode pool
+    Thread.sleep(500L);
+    assertEquals(1, exchange.getCompletions());
+    assertNull(exchange.getDispatch());
+    assertNull(exchange.getRedirect());
+    assertUnavailable(exchange);
+  }
+
+  @Test
+  public void testFetchQueueFull() throws Exception {
+    List<ServletExchange> waiting = new ArrayList<>();
+    for (int i = 0; i < FETCH_CAPACITY; i++) {
+      ServletExchange exchange = get("/hang");
+      assertEquals(0, exchange.getCompletions());
+      waiting.add(exchange);
+    }
+    ServletExchange turnedAway = get("/hang");
+    assertEquals(1, turnedAway.getCompletions());
+    assertUnavailable(turnedAway);
+
+    // Once fetched, they may still be turned away by the decode pool, but each is answered once
+    release.countDown();
+    int decoded = 0;
+    for (ServletExchange exchange : waiting) {
+      assertCompleted(exchange);
+      if (exchange.getDispatch() == null) {
+        assertUnavailable(exchange);
+      } else {
+        decoded++;
+      }
+    }
+    assertTrue(decoded > 0);
+  }
+
+  @Test
+  public void testCachedWhileOverloaded() throws Exception {
+    ServletExchange first = get("/qr.png");
+    assertCompleted(first);
+    assertNotNull(first.getDispatch());
+
+    // Hold every decode thread, then fill the queue behind them
+    DecodePool decodePool = DecodePool.get(context);
+    final CountDownLatch started = new CountDownLatch(decodePool.getThreadCount());
+    final CountDownLatch unblock = new CountDownLatch(1);
+    Runnable blocker = new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          unblock.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    try {
+      for (int i = 0; i < decodePool.getThreadCount(); i++) {
+        decodePool.execute(blocker);
+      }
+      assertTrue(started.await(WAIT_SECONDS, TimeUnit.SECONDS));
+      while (!decodePool.isOverloaded()) {
+        decodePool.execute(blocker);
+      }
+
+      // The same image, uploaded this time
+      ServletExchange cached = upload(createUpload(image), true);
+      assertCompleted(cached);
+      assertEquals(HttpServletResponse.SC_OK, cached.getStatus());
+      Collection<?> results = (Collection<?>) cached.getAttribute("results");
+      assertEquals(TEXT, ((Result) results.iterator().next()).getText());
+
+      ServletExchange uncached = upload(createUpload(otherImage), true);
+      assertCompleted(uncached);
+      assertNull(uncached.getDispatch());
+      assertUnavailable(uncached);
+
+      // An image at a URL is turned away at once, without being fetched
+      ServletExchange fetched = get("/qr.png");
+      assertFalse(fetched.isAsyncStarted());
+      assertUnavailable(fetched);
+    } finally {
+      unblock.countDown();
+    }
+  }
+
+  @Test
+  public void testUpload() throws Exception {
+    ServletExchange exchange = upload(createUpload(image), true);
+    assertCompleted(exchange);
+    assertEquals("/w/decoderesult.jspx", exchange.getDispatch());
+    Collection<?> results = (Collection<?>) exchange.getAttribute("results");
+    assertEquals(TEXT, ((Result) results.iterator().next()).getText());
+  }
+
+  @Test
+  public void testUploadWithoutLength() throws Exception {
+    ServletExchange exchange = upload(createUpload(image), false);
+    assertCompleted(exchange);
+    Collection<?> results = (Collection<?>) exchange.getAttribute("results");
+    assertEquals(TEXT, ((Result) results.iterator().next()).getText());
+  }
+
+  @Test
+  public void testUploadLengthMisdeclared() throws Exception {
+    byte[] body = createUpload(image);
+    for (int contentLength : new int[] {1, body.length / 2, body.length + 1000, Integer.MAX_VALUE}) {
+      ServletExchange exchange = new ServletExchange().setContent(MULTIPART_TYPE, body).setContentLength(contentLength);
+      servlet.doPost(exchange.getRequest(), exchange.getResponse());
+      assertCompleted(exchange);
+      Collection<?> results = (Collection<?>) exchange.getAttribute("results");
+      assertEquals(TEXT, ((Result) results.iterator().next()).getText());
+    }
+  }
+
+  @Test
+  public void testUploadTooLarge() throws Exception {
+    byte[] body = createUpload(new byte[(int) DecodePool.MAX_IMAGE_SIZE + 1]);
+    for (boolean declareLength : new boolean[] {true, false}) {
+      ServletExchange exchange = upload(body, declareLength);
+      assertFalse(exchange.isAsyncStarted());
+      assertEquals("badimage.jspx", exchange.getRedirect());
+    }
+    // The whole upload is over the limit but the image is not, so it is decoded
+    byte[] largest = createUpload(new byte[(int) DecodePool.MAX_IMAGE_SIZE]);
+    assertTrue(largest.length > DecodePool.MAX_IMAGE_SIZE);
+    ServletExchange exchange = upload(largest, true);
+    assertTrue(exchange.isAsyncStarted());
+    assertCompleted(exchange);
+  }
+
+  private ServletExchange upload(byte[] body, boolean declareLength) throws Exception {
+    ServletExchange exchange = declareLength ?
+        new ServletExchange().setContent(MULTIPART_TYPE, body) :
+        new ServletExchange().setContent(MULTIPART_TYPE, new ByteArrayInputStream(body));
+    servlet.doPost(exchange.getRequest(), exchange.getResponse());
+    return exchange;
+  }
+
+  private static byte[] createUpload(byte[] image) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write(("--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"f\"; filename=\"qr.png\"\r\n" +
+                "Content-Type: image/png\r\n\r\n").getBytes(UTF8));
+    body.write(image);
+    body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(UTF8));
+    return body.toByteArray();
+  }
+
+  private ServletExchange get(String path) throws Exception {
+    return getURL(originURL + path);
+  }
+
+  private ServletExchange getURL(String url) throws Exception {
+    ServletExchange exchange = new ServletExchange().setParameter("u", url);
+    servlet.doGet(exchange.getRequest(), exchange.getResponse());
+    return exchange;
+  }
+
+  private static void assertCompleted(ServletExchange exchange) throws InterruptedException {
+    assertTrue(exchange.awaitCompletion(WAIT_SECONDS, TimeUnit.SECONDS));
+    assertEquals(1, exchange.getCompletions());
+  }
+
+  private static void assertUnavailable(ServletExchange exchange) {
+    assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, exchange.getStatus());
+    assertNotNull(exchange.getResponseHeader("Retry-After"));
+  }
+
+  private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+    send(exchange, status, body, body.length == 0 ? -1 : body.length);
+  }
+
+  /**
+   * @param length Content-Length to send, or 0 to send the body in chunks, or -1 for no body
+   */
+  private static void send(HttpExchange exchange, int status, byte[] body, long length) throws IOException {
+    try (OutputStream out = exchange.getResponseBody()) {
+      exchange.sendResponseHeaders(status, length);
+      if (length >= 0) {
+        out.write(body);
+      }
+    } catch (IOException ioe) {
+      // The servlet may hang up once it has seen enough
+    } finally {
+      exchange.close();
+    }
+  }
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * One request to a servlet and its response, standing in for what a servlet container would
+ * pass the servlet, including asynchronous processing. Only what the servlets of this web app
+ * use is implemented.
+ */
+final class ServletExchange {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final Map<String,String> parameters;
+  private final Map<String,String> requestHeaders;
+  private final Map<String,Object> attributes;
+  private final Map<String,Object> responseHeaders;
+  private final ByteArrayOutputStream body;
+  private final List<AsyncListener> listeners;
+  private final CountDownLatch completed;
+  private final AtomicInteger completions;
+  private final HttpServletRequest request;
+  private final HttpServletResponse response;
+  private final AsyncContext asyncContext;
+  private volatile String servletPath;
+  private volatile String requestMethod;
+  private volatile String contentType;
+  private volatile int contentLength;
+  private volatile InputStream input;
+  private volatile int status;
+  private volatile String redirect;
+  private volatile String dispatch;
+  private volatile boolean asyncStarted;
+  private volatile long asyncTimeout;
+
+  ServletExchange() {
+    parameters = new ConcurrentHashMap<>();
+    requestHeaders = new ConcurrentHashMap<>();
+    attributes = new ConcurrentHashMap<>();
+    responseHeaders = new ConcurrentHashMap<>();
+    body = new ByteArrayOutputStream();
+    listeners = new CopyOnWriteArrayList<>();
+    completed = new CountDownLatch(1);
+    completions = new AtomicInteger();
+    servletPath = "/w/decode";
+    requestMethod = "GET";
+    contentLength = -1;
+    status = HttpServletResponse.SC_OK;
+    asyncContext = newProxy(AsyncContext.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "setTimeout":
+            asyncTimeout = (Long) args[0];
+            return null;
+          case "addListener":
+            listeners.add((AsyncListener) args[0]);
+            return null;
+          case "dispatch":
+            dispatch = (String) args[0];
+            complete();
+            return null;
+          case "complete":
+            complete();
+            return null;
+          default:
+            return null;
+        }
+      }
+    });
+    request = newProxy(HttpServletRequest.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "getParameter":
+            return parameters.get(args[0]);
+          case "getHeader":
+            return requestHeaders.get(args[0]);
+          case "getServletPath":
+            return servletPath;
+          case "getMethod":
+            return requestMethod;
+          case "getContentType":
+            return contentType;
+          case "getContentLength":
+            return contentLength;
+          case "getInputStream":
+            return new ServletInputStream() {
+              @Override
+              public int read() throws IOException {
+                return input.read();
+              }
+              @Override
+              public int read(byte[] b, int off, int len) throws IOException {
+                return input.read(b, off, len);
+              }
+            };
+          case "startAsync":
+            asyncStarted = true;
+            return asyncContext;
+          case "setAttribute":
+            attributes.put((String) args[0], args[1]);
+            return null;
+          case "getAttribute":
+            return attributes.get(args[0]);
+          default:
+            return null;
+        }
+      }
+    });
+    final ServletOutputStream out = new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        synchronized (body) {
+          body.write(b);
+        }
+      }
+    };
+    response = newProxy(HttpServletResponse.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "sendRedirect":
+            redirect = (String) args[0];
+            return null;
+          case "sendError":
+          case "setStatus":
+            status = (Integer) args[0];
+            return null;
+          case "setHeader":
+          case "setIntHeader":
+            responseHeaders.put((String) args[0], args[1]);
+            return null;
+          case "setContentType":
+            responseHeaders.put("Content-Type", args[0]);
+            return null;
+          case "getOutputStream":
+            return out;
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+  ServletExchange setParameter(String name, String value) {
+    parameters.put(name, value);
+    return this;
+  }
+
+  ServletExchange setHeader(String name, String value) {
+    requestHeaders.put(name, value);
+    return this;
+  }
+
+  ServletExchange setServletPath(String servletPath) {
+    this.servletPath = servletPath;
+    return this;
+  }
+
+  /**
+   * Makes the request a POST of the content, which declares its length.
+   */
+  ServletExchange setContent(String contentType, byte[] content) {
+    setContent(contentType, new ByteArrayInputStream(content));
+    contentLength = content.length;
+    return this;
+  }
+
+  /**
+   * Makes the request a POST of the content, which does not declare its length.
+   */
+  ServletExchange setContent(String contentType, InputStream input) {
+    requestMethod = "POST";
+    this.contentType = contentType;
+    this.input = input;
+    contentLength = -1;
+    return this;
+  }
+
+  /**
+   * @param contentLength length the request declares, whether or not its content has that length
+   */
+  ServletExchange setContentLength(int contentLength) {
+    this.contentLength = contentLength;
+    return this;
+  }
+
+  HttpServletRequest getRequest() {
+    return request;
+  }
+
+  HttpServletResponse getResponse() {
+    return response;
+  }
+
+  private void complete() {
+    completions.incrementAndGet();
+    completed.countDown();
+  }
+
+  /**
+   * @return true if the servlet put the request into asynchronous mode
+   */
+  boolean isAsyncStarted() {
+    return asyncStarted;
+  }
+
+  long getAsyncTimeout() {
+    return asyncTimeout;
+  }
+
+  /**
+   * @return true if the asynchronous request was completed, or dispatched, within the time
+   */
+  boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+    return completed.await(timeout, unit);
+  }
+
+  /**
+   * @return how many times the asynchronous request was completed or dispatched, which should never
+   *  be more than once
+   */
+  int getCompletions() {
+    return completions.get();
+  }
+
+  /**
+   * Times the asynchronous request out, as the container would once its timeout passed.
+   */
+  void timeOut() throws IOException {
+    for (AsyncListener listener : listeners) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+  }
+
+  int getStatus() {
+    return status;
+  }
+
+  String getRedirect() {
+    return redirect;
+  }
+
+  String getDispatch() {
+    return dispatch;
+  }
+
+  Object getAttribute(String name) {
+    return attributes.get(name);
+  }
+
+  Object getResponseHeader(String name) {
+    return responseHeaders.get(name);
+  }
+
+  byte[] getBody() {
+    synchronized (body) {
+      return body.toByteArray();
+    }
+  }
+
+  String getBodyText() {
+    return new String(getBody(), UTF8);
+  }
+
+  /**
+   * @return a context which holds attributes, and nothing else
+   */
+  static ServletContext createContext() {
+    final Map<String,Object> attributes = new ConcurrentHashMap<>();
+    return newProxy(ServletContext.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "setAttribute":
+            attributes.put((String) args[0], args[1]);
+            return null;
+          case "removeAttribute":
+            attributes.remove(args[0]);
+            return null;
+          case "getAttribute":
+            return attributes.get(args[0]);
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+  static ServletConfig createConfig(final ServletContext context) {
+    return newProxy(ServletConfig.class, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        return "getServletContext".equals(method.getName()) ? context : null;
+      }
+    });
+  }
+
+  private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+    return type.cast(Proxy.newProxyInstance(ServletExchange.class.getClassLoader(), new Class<?>[] {type}, handler));
+  }
+
+}